@@ -1,3 +1,7 @@
+-- Local development database for docker-compose: the schema at migration V1 plus sample data. The application
+-- baselines such a database at V1 and applies the later migrations in src/main/resources/db/migration on startup,
+-- so schema changes belong in a new migration rather than here.
+
 -- Create the users table
 CREATE TABLE users (
                      id SERIAL PRIMARY KEY,
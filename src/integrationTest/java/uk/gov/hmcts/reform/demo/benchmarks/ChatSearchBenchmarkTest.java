@@ -0,0 +1,130 @@
+package uk.gov.hmcts.reform.demo.benchmarks;
+
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import javax.sql.DataSource;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import uk.gov.hmcts.reform.demo.repositories.MessageRepository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Measures {@code /chat/search} query latency over a million-message dataset.
+ *
+ * <p>Run with {@code ./gradlew integration -Dbenchmarks=true --tests '*ChatSearchBenchmarkTest'}. Requires Docker.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+class ChatSearchBenchmarkTest {
+
+    private static final int USERS = 1_000;
+    private static final int CHATS = 20_000;
+    private static final int MESSAGES = 1_000_000;
+    private static final int WARMUP_RUNS = 5;
+    private static final int MEASURED_RUNS = 50;
+
+    @Container
+    private static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    private static NamedParameterJdbcTemplate jdbc;
+    private static long benchUserId;
+
+    @BeforeAll
+    static void loadDataset() throws Exception {
+        DataSource dataSource = new DriverManagerDataSource(
+            postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+        jdbc = new NamedParameterJdbcTemplate(dataSource);
+        Flyway.configure().dataSource(dataSource).load().migrate();
+
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("INSERT INTO users (username, email, password_hash, date_of_birth, can_login) "
+                                  + "SELECT 'bench_' || g, 'bench_' || g || '@example.com', 'x', "
+                                  + "DATE '1960-01-01' + (g * 13 % 15000), TRUE "
+                                  + "FROM generate_series(1, " + USERS + ") g");
+            statement.execute("INSERT INTO chats (user_id, description) "
+                                  + "SELECT u.id, 'Category ' || (g % 12) FROM generate_series(1, " + CHATS + ") g "
+                                  + "JOIN users u ON u.username = 'bench_' || (1 + g % " + USERS + ")");
+            statement.execute("WITH vocabulary AS (SELECT ARRAY["
+                                  + "'account','billing','invoice','refund','payment','order','delivery','parcel',"
+                                  + "'password','login','reset','email','address','update','cancel','subscription',"
+                                  + "'renewal','discount','voucher','complaint','feedback','service','support','agent',"
+                                  + "'broken','damaged','missing','late','tracking','number','receipt','charge',"
+                                  + "'twice','bank','card','transfer','balance','statement','benefit','claim',"
+                                  + "'appointment','booking','change','date','court','hearing','form','document',"
+                                  + "'upload','download','error','screen','page','button','help','question'] AS words) "
+                                  + "INSERT INTO messages (chat_id, sender, message) "
+                                  + "SELECT c.id, CASE WHEN g % 2 = 0 THEN 'user' ELSE 'chatbot' END, "
+                                  + "array_to_string(ARRAY(SELECT v.words[1 + ((g * k * 7919 + k) % 56)] "
+                                  + "FROM generate_series(1, 14) k), ' ') "
+                                  + "|| CASE WHEN g % 5000 = 0 THEN ' chargeback dispute' ELSE '' END "
+                                  + "FROM generate_series(1, " + MESSAGES + ") g "
+                                  + "CROSS JOIN vocabulary v "
+                                  + "JOIN chats c ON c.id = (SELECT min(id) FROM chats) + (g % " + CHATS + ")");
+            statement.execute("ANALYZE");
+        }
+
+        benchUserId = jdbc.queryForObject(
+            "SELECT u.id FROM users u JOIN chats c ON c.user_id = u.id JOIN messages m ON m.chat_id = c.id "
+                + "WHERE m.message LIKE '%chargeback%' LIMIT 1", Map.of(), Long.class);
+    }
+
+    @Test
+    void searchLatency() {
+        assertThat(jdbc.queryForObject("SELECT count(*) FROM messages", Map.of(), Long.class))
+            .isGreaterThanOrEqualTo(MESSAGES);
+
+        report("rare term", "chargeback");
+        report("common term", "refund");
+        report("phrase", "\"bank transfer\"");
+        report("either term", "voucher or discount");
+    }
+
+    @Test
+    void searchUsesGinIndex() {
+        List<String> plan = jdbc.queryForList(
+            "EXPLAIN " + MessageRepository.SEARCH_SQL, params("chargeback", 20, 0), String.class);
+
+        assertThat(String.join("\n", plan)).containsPattern("messages_p\\d{4}_\\d{2}_search_vector_idx");
+    }
+
+    private static void report(String label, String query) {
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            jdbc.queryForList(MessageRepository.SEARCH_SQL, params(query, 20, 0));
+        }
+
+        List<Long> timings = new ArrayList<>();
+        int hits = 0;
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            long start = System.nanoTime();
+            hits = jdbc.queryForList(MessageRepository.SEARCH_SQL, params(query, 20, (i % 3) * 20L)).size();
+            jdbc.queryForObject(MessageRepository.SEARCH_COUNT_SQL, params(query, 20, 0), Long.class);
+            timings.add(System.nanoTime() - start);
+        }
+        Collections.sort(timings);
+
+        System.out.printf(
+            "search [%s] '%s': p50=%.2fms p95=%.2fms max=%.2fms (page hits=%d, %d messages)%n",
+            label, query,
+            timings.get(MEASURED_RUNS / 2) / 1e6,
+            timings.get(MEASURED_RUNS * 95 / 100) / 1e6,
+            timings.get(MEASURED_RUNS - 1) / 1e6,
+            hits, MESSAGES
+        );
+    }
+
+    private static Map<String, Object> params(String query, int limit, long offset) {
+        return Map.of("userId", benchUserId, "query", query, "limit", limit, "offset", offset);
+    }
+}
@@ -0,0 +1,137 @@
+package uk.gov.hmcts.reform.demo.benchmarks;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import uk.gov.hmcts.reform.demo.security.BoundedPasswordEncoder;
+import uk.gov.hmcts.reform.demo.security.PasswordHashingRejectedException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Measures the latency of chat-sized requests while a flood of logins checks passwords on the same request threads,
+ * with BCrypt run directly on those threads and on {@link BoundedPasswordEncoder}'s pool.
+ *
+ * <p>Run with {@code ./gradlew integration -Dbenchmarks=true --tests '*LoginFloodBenchmarkTest'}.
+ */
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+class LoginFloodBenchmarkTest {
+
+    // Tomcat's default maximum
+    private static final int REQUEST_THREADS = 200;
+    private static final int FLOOD_CLIENTS = 150;
+    private static final int CHAT_REQUESTS = 400;
+    private static final long CHAT_INTERVAL_MILLIS = 10;
+
+    // Keeps the chat work from being optimised away
+    private static volatile byte sink;
+
+    private final PasswordEncoder bcrypt = new BCryptPasswordEncoder();
+    private final String hash = bcrypt.encode("correct horse battery staple");
+
+    @Test
+    void chatLatencyStaysIsolatedFromALoginFlood() throws Exception {
+        long[] quiet = chatLatencies(null);
+        long[] direct = chatLatencies(bcrypt);
+        BoundedPasswordEncoder bounded = BoundedPasswordEncoder.sizedToCores(bcrypt, 200, 2000,
+                                                                            new SimpleMeterRegistry());
+        long[] pooled;
+        try {
+            pooled = chatLatencies(bounded);
+        } finally {
+            bounded.shutdown();
+        }
+
+        report("no logins", quiet);
+        report("logins hashed on request threads", direct);
+        report("logins hashed on " + bounded.getThreads() + " pool threads", pooled);
+
+        assertThat(percentile(pooled, 99)).isLessThan(percentile(direct, 99));
+        // Hashing on all but one core leaves chats about one core's worth of latency
+        assertThat(percentile(pooled, 50)).isLessThan(Math.max(4 * percentile(quiet, 50), 20_000_000L));
+    }
+
+    /**
+     * Sends chat requests at a steady rate while the flood clients log in as fast as they can, and returns each
+     * chat's latency in nanoseconds, sorted.
+     */
+    private long[] chatLatencies(PasswordEncoder floodEncoder) throws Exception {
+        ExecutorService requestThreads = Executors.newFixedThreadPool(REQUEST_THREADS);
+        AtomicBoolean flooding = new AtomicBoolean(floodEncoder != null);
+        AtomicLong logins = new AtomicLong();
+        AtomicLong refused = new AtomicLong();
+        try {
+            for (int i = 0; floodEncoder != null && i < FLOOD_CLIENTS; i++) {
+                requestThreads.execute(() -> {
+                    while (flooding.get()) {
+                        try {
+                            floodEncoder.matches("correct horse battery staple", hash);
+                            logins.incrementAndGet();
+                        } catch (PasswordHashingRejectedException e) {
+                            refused.incrementAndGet();
+                        }
+                    }
+                });
+            }
+            // Let the flood build up
+            Thread.sleep(floodEncoder != null ? 2000 : 0);
+
+            List<Future<Long>> chats = new ArrayList<>();
+            for (int i = 0; i < CHAT_REQUESTS; i++) {
+                long submitted = System.nanoTime();
+                chats.add(requestThreads.submit(() -> {
+                    handleChat();
+                    return System.nanoTime() - submitted;
+                }));
+                Thread.sleep(CHAT_INTERVAL_MILLIS);
+            }
+            long[] latencies = new long[CHAT_REQUESTS];
+            for (int i = 0; i < CHAT_REQUESTS; i++) {
+                latencies[i] = chats.get(i).get(60, TimeUnit.SECONDS);
+            }
+            if (floodEncoder != null) {
+                System.out.printf("  %d logins checked, %d refused with 429%n", logins.get(), refused.get());
+            }
+            Arrays.sort(latencies);
+            return latencies;
+        } finally {
+            flooding.set(false);
+            requestThreads.shutdown();
+            requestThreads.awaitTermination(60, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * About a millisecond of CPU, standing in for a chat request's JSON handling and database calls.
+     */
+    private static void handleChat() throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        byte[] block = new byte[64 * 1024];
+        for (int i = 0; i < 4; i++) {
+            digest.update(block);
+            block[i] = digest.digest()[0];
+        }
+        sink = block[3];
+    }
+
+    private static long percentile(long[] sorted, int percentile) {
+        return sorted[Math.min(sorted.length - 1, sorted.length * percentile / 100)];
+    }
+
+    private static void report(String label, long[] latencies) {
+        System.out.printf("Chat latency, %s: p50 %.1f ms, p99 %.1f ms%n", label,
+                          percentile(latencies, 50) / 1e6, percentile(latencies, 99) / 1e6);
+    }
+}
@@ -0,0 +1,195 @@
+package uk.gov.hmcts.reform.demo.benchmarks;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.sql.DataSource;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import uk.gov.hmcts.reform.demo.repositories.PartitioningScript;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares the monthly-partitioned {@code sessions} table with an unpartitioned copy holding the same two years of
+ * sessions: the cost of inserting, of the time-range queries the statistics and export run, and of removing a month
+ * past its retention.
+ *
+ * <p>Run with {@code ./gradlew integration -Dbenchmarks=true --tests '*PartitioningBenchmarkTest'}. Requires Docker.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+class PartitioningBenchmarkTest {
+
+    private static final String PARTITIONED = "sessions";
+    private static final String UNPARTITIONED = "sessions_unpartitioned";
+    private static final List<String> TABLES = List.of(PARTITIONED, UNPARTITIONED);
+
+    private static final int USERS = 1_000;
+    private static final int MONTHS = 24;
+    private static final int SESSIONS_PER_MONTH = 80_000;
+    private static final int SINGLE_INSERTS = 2_000;
+    private static final int WARMUP_RUNS = 5;
+    private static final int MEASURED_RUNS = 50;
+
+    @Container
+    private static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    private static final Map<String, Long> bulkInsertNanos = new HashMap<>();
+    private static JdbcTemplate jdbc;
+    private static long firstUserId;
+    private static LocalDate firstMonth;
+
+    @BeforeAll
+    static void loadDataset() {
+        DataSource dataSource = new DriverManagerDataSource(
+            postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+        Flyway.configure().dataSource(dataSource).load().migrate();
+        jdbc = new JdbcTemplate(dataSource);
+        PartitioningScript.apply(jdbc);
+
+        firstMonth = LocalDate.now().withDayOfMonth(1).minusMonths(MONTHS);
+        jdbc.queryForObject("SELECT create_monthly_partitions('sessions', ?, ?)", Integer.class,
+                            firstMonth, LocalDate.now());
+        // The schema before partitioning, with the same indexes
+        jdbc.execute("CREATE TABLE " + UNPARTITIONED + " (LIKE sessions INCLUDING DEFAULTS INCLUDING CONSTRAINTS)");
+        jdbc.execute("ALTER TABLE " + UNPARTITIONED + " ADD PRIMARY KEY (id)");
+        for (String column : List.of("session_token", "created_at", "user_id", "expires_at")) {
+            jdbc.execute("CREATE INDEX ON " + UNPARTITIONED + " (" + column + ")");
+        }
+
+        jdbc.execute("INSERT INTO users (username, email, password_hash, date_of_birth, can_login) "
+                         + "SELECT 'bench_' || g, 'bench_' || g || '@example.com', 'x', "
+                         + "DATE '1960-01-01' + (g * 13 % 15000), TRUE FROM generate_series(1, " + USERS + ") g");
+        firstUserId = jdbc.queryForObject("SELECT min(id) FROM users", Long.class);
+
+        // A month at a time into each table in turn, so that both see the same load
+        for (int month = 0; month < MONTHS; month++) {
+            LocalDateTime start = firstMonth.plusMonths(month).atStartOfDay();
+            for (String table : TABLES) {
+                long begin = System.nanoTime();
+                jdbc.update("INSERT INTO " + table + " (user_id, session_token, created_at, expires_at) "
+                                + "SELECT ? + g % " + USERS + ", md5(? || '-' || g), "
+                                + "t.created, t.created + INTERVAL '24 hours' "
+                                + "FROM generate_series(1, " + SESSIONS_PER_MONTH + ") g "
+                                + "CROSS JOIN LATERAL (SELECT CAST(? AS TIMESTAMP) + (g % 28) * INTERVAL '1 day' "
+                                + "+ (g % 86400) * INTERVAL '1 second' AS created) t",
+                            firstUserId, String.valueOf(month), start);
+                bulkInsertNanos.merge(table, System.nanoTime() - begin, Long::sum);
+            }
+        }
+        jdbc.execute("ANALYZE");
+    }
+
+    @Test
+    void insertCost() {
+        for (String table : TABLES) {
+            long rows = (long) MONTHS * SESSIONS_PER_MONTH;
+            long nanos = bulkInsertNanos.get(table);
+            System.out.printf("insert [%s] bulk: %d rows in %.0fms (%.0f rows/s)%n",
+                              table, rows, nanos / 1e6, rows / (nanos / 1e9));
+        }
+
+        for (String table : TABLES) {
+            String sql = "INSERT INTO " + table + " (user_id, session_token, created_at, expires_at) "
+                + "VALUES (?, md5(random()::text), NOW(), NOW() + INTERVAL '24 hours')";
+            for (int i = 0; i < WARMUP_RUNS; i++) {
+                jdbc.update(sql, firstUserId);
+            }
+            List<Long> timings = new ArrayList<>();
+            for (int i = 0; i < SINGLE_INSERTS; i++) {
+                long start = System.nanoTime();
+                jdbc.update(sql, firstUserId + i % USERS);
+                timings.add(System.nanoTime() - start);
+            }
+            report("insert", table, "single row", timings);
+        }
+    }
+
+    @Test
+    void timeRangeQueryCost() {
+        String monthCount = "SELECT count(*) FROM %s WHERE created_at >= ? AND created_at < ?";
+        // As SessionRepository.streamForExport reads them, a day at a time in ID order
+        String dayExport = "SELECT id, user_id, created_at FROM %s WHERE created_at >= ? AND created_at < ? "
+            + "ORDER BY id";
+
+        LocalDateTime month = firstMonth.plusMonths(MONTHS / 2).atStartOfDay();
+        assertThat(jdbc.queryForObject(monthCount.formatted(PARTITIONED), Long.class, month, month.plusMonths(1)))
+            .isEqualTo(jdbc.queryForObject(monthCount.formatted(UNPARTITIONED), Long.class,
+                                           month, month.plusMonths(1)))
+            .isEqualTo(SESSIONS_PER_MONTH);
+        assertThat(String.join("\n", jdbc.queryForList("EXPLAIN " + monthCount.formatted(PARTITIONED), String.class,
+                                                       month, month.plusMonths(1))))
+            .as("a month's query only reads that month's partition")
+            .doesNotContain("Append");
+
+        for (String table : TABLES) {
+            report("query", table, "month count", measure(run -> {
+                LocalDateTime from = firstMonth.plusMonths(1 + run % (MONTHS - 1)).atStartOfDay();
+                jdbc.queryForObject(monthCount.formatted(table), Long.class, from, from.plusMonths(1));
+            }));
+            report("query", table, "day export", measure(run -> {
+                LocalDateTime from = firstMonth.plusMonths(1 + run % (MONTHS - 1)).atStartOfDay().plusDays(run % 28);
+                jdbc.queryForList(dayExport.formatted(table), from, from.plusDays(1));
+            }));
+        }
+    }
+
+    @Test
+    void retentionCost() {
+        LocalDateTime monthEnd = firstMonth.plusMonths(1).atStartOfDay();
+        jdbc.update("UPDATE rollup_watermarks SET last_id = (SELECT max(id) FROM sessions) WHERE source = 'sessions'");
+
+        long start = System.nanoTime();
+        long dropped = jdbc.queryForObject("SELECT drop_expired_session_partitions(?)", Long.class,
+                                           monthEnd.plusDays(2));
+        long dropNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        long deleted = jdbc.update("DELETE FROM " + UNPARTITIONED + " WHERE created_at < ?", monthEnd);
+        long deleteNanos = System.nanoTime() - start;
+
+        System.out.printf("retention [%s] drop partition: %d rows in %.2fms%n", PARTITIONED, dropped, dropNanos / 1e6);
+        System.out.printf("retention [%s] delete: %d rows in %.2fms%n", UNPARTITIONED, deleted, deleteNanos / 1e6);
+        assertThat(dropped).isEqualTo(deleted).isEqualTo(SESSIONS_PER_MONTH);
+    }
+
+    private static List<Long> measure(Run run) {
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            run.run(i);
+        }
+        List<Long> timings = new ArrayList<>();
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            long start = System.nanoTime();
+            run.run(i);
+            timings.add(System.nanoTime() - start);
+        }
+        return timings;
+    }
+
+    private static void report(String kind, String table, String label, List<Long> timings) {
+        Collections.sort(timings);
+        System.out.printf("%s [%s] %s: p50=%.2fms p95=%.2fms max=%.2fms (%d runs)%n",
+                          kind, table, label,
+                          timings.get(timings.size() / 2) / 1e6,
+                          timings.get(timings.size() * 95 / 100) / 1e6,
+                          timings.get(timings.size() - 1) / 1e6,
+                          timings.size());
+    }
+
+    @FunctionalInterface
+    private interface Run {
+        void run(int run);
+    }
+}
@@ -0,0 +1,83 @@
+package uk.gov.hmcts.reform.demo.config;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the routing datasource against two independent databases, each tagged with its own name, so the database
+ * that served a query can be read back from the result.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class ReadWriteRoutingDataSourceIntegrationTest {
+
+    @Container
+    private static final PostgreSQLContainer<?> primary = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Container
+    private static final PostgreSQLContainer<?> replica = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @BeforeAll
+    static void tagDatabases() {
+        tag(primary, "primary");
+        tag(replica, "replica");
+    }
+
+    private static void tag(PostgreSQLContainer<?> container, String name) {
+        new JdbcTemplate(dataSource(container)).execute(
+            "CREATE TABLE node (name TEXT); INSERT INTO node VALUES ('" + name + "')");
+    }
+
+    private static DataSource dataSource(PostgreSQLContainer<?> container) {
+        return new DriverManagerDataSource(container.getJdbcUrl(), container.getUsername(), container.getPassword());
+    }
+
+    private static TransactionTemplate transactionTemplate(DataSource dataSource, boolean readOnly) {
+        TransactionTemplate template = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        template.setReadOnly(readOnly);
+        return template;
+    }
+
+    private static String servedBy(DataSource dataSource, boolean readOnly) {
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        return transactionTemplate(dataSource, readOnly)
+            .execute(status -> jdbc.queryForObject("SELECT name FROM node", String.class));
+    }
+
+    @Test
+    void readOnlyTransactionsUseReplicaAndWritesUsePrimary() {
+        DataSource routed = new LazyConnectionDataSourceProxy(new ReadWriteRoutingDataSource(
+            dataSource(primary), dataSource(replica), Duration.ZERO, Duration.ofSeconds(30), Clock.systemUTC(),
+            () -> { }));
+
+        assertThat(servedBy(routed, true)).isEqualTo("replica");
+        assertThat(servedBy(routed, false)).isEqualTo("primary");
+    }
+
+    @Test
+    void readsFallBackToPrimaryWhenReplicaIsDown() {
+        AtomicInteger fallbacks = new AtomicInteger();
+        DataSource unreachable = new DriverManagerDataSource(
+            "jdbc:postgresql://127.0.0.1:1/none?connectTimeout=1", "none", "none");
+        DataSource routed = new LazyConnectionDataSourceProxy(new ReadWriteRoutingDataSource(
+            dataSource(primary), unreachable, Duration.ZERO, Duration.ofSeconds(30), Clock.systemUTC(),
+            fallbacks::incrementAndGet));
+
+        assertThat(servedBy(routed, true)).isEqualTo("primary");
+        assertThat(servedBy(routed, true)).isEqualTo("primary");
+        assertThat(fallbacks).hasValue(1);
+    }
+}
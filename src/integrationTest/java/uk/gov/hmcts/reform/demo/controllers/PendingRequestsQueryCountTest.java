@@ -0,0 +1,102 @@
+package uk.gov.hmcts.reform.demo.controllers;
+
+import jakarta.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.MessageSource;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import uk.gov.hmcts.reform.demo.PostgresIntegrationTest;
+import uk.gov.hmcts.reform.demo.StatementCounter;
+import uk.gov.hmcts.reform.demo.dto.PendingRequestSummary;
+import uk.gov.hmcts.reform.demo.repositories.AccountRequestRepository;
+import uk.gov.hmcts.reform.demo.repositories.UserRepository;
+import uk.gov.hmcts.reform.demo.services.AccountAvailabilityService;
+import uk.gov.hmcts.reform.demo.services.AccountDeletionService;
+import uk.gov.hmcts.reform.demo.services.AccountRequestService;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Checks that {@code /account/pending} loads a page of requests and their users in one statement however many
+ * requests there are, and that its pages between them list every pending request once.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class PendingRequestsQueryCountTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private AccountRequestRepository accountRequestRepository;
+
+    private AccountController controller;
+    private StatementCounter statements;
+
+    @BeforeEach
+    void setUp() {
+        controller = new AccountController(mock(MessageSource.class), userRepository, mock(PasswordEncoder.class),
+                                           accountRequestRepository, mock(AccountRequestService.class),
+                                           mock(AccountAvailabilityService.class), mock(AccountDeletionService.class));
+        statements = new StatementCounter(entityManagerFactory);
+    }
+
+    private void addRequests(int users, String prefix) {
+        jdbc.update("INSERT INTO users (username, email, password_hash, date_of_birth) "
+                        + "SELECT ? || g, ? || g || '@example.com', 'x', DATE '1980-01-01' "
+                        + "FROM generate_series(1, ?) g", prefix, prefix, users);
+        // Requests made in the same second, so pages also have to follow on by ID; every third is approved
+        jdbc.update("INSERT INTO account_requests (user_id, status, requested_at) "
+                        + "SELECT id, CASE WHEN id % 3 = 0 THEN 'APPROVED' ELSE 'PENDING' END, "
+                        + "TIMESTAMP '2024-03-01 09:00' + (id % 7) * INTERVAL '1 second' "
+                        + "FROM users WHERE username LIKE ? || '%'", prefix);
+    }
+
+    @Test
+    void queryCountDoesNotGrowWithRequests() {
+        addRequests(5, "few_");
+        long few = statements.count(() -> controller.getPendingAccountRequests(null, 50));
+
+        addRequests(120, "many_");
+        long many = statements.count(() -> controller.getPendingAccountRequests(null, 50));
+
+        assertThat(few).isEqualTo(1);
+        assertThat(many).isEqualTo(few);
+    }
+
+    @Test
+    void pagesListEveryPendingRequestOnce() {
+        addRequests(60, "paged_");
+        long pending = jdbc.queryForObject(
+            "SELECT count(*) FROM account_requests WHERE status = 'PENDING'", Long.class);
+
+        List<PendingRequestSummary> listed = new ArrayList<>();
+        String cursor = null;
+        do {
+            String after = cursor;
+            ResponseEntity<List<PendingRequestSummary>> page = controller.getPendingAccountRequests(after, 9);
+            assertThat(statements.count(() -> controller.getPendingAccountRequests(after, 9))).isEqualTo(1);
+            listed.addAll(page.getBody());
+            cursor = page.getHeaders().getFirst(AccountController.NEXT_CURSOR_HEADER);
+        } while (cursor != null);
+
+        assertThat(listed).hasSize((int) pending);
+        assertThat(listed).extracting(PendingRequestSummary::getRequestId).doesNotHaveDuplicates();
+        assertThat(listed).allMatch(summary -> summary.getStatus().equals("PENDING")
+            && summary.getUserName().startsWith("paged_") && summary.getEmail().endsWith("@example.com"));
+    }
+}
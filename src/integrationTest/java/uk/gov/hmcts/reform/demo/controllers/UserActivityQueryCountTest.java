@@ -0,0 +1,164 @@
+package uk.gov.hmcts.reform.demo.controllers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManagerFactory;
+import java.time.LocalDate;
+import java.util.List;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import uk.gov.hmcts.reform.demo.PostgresIntegrationTest;
+import uk.gov.hmcts.reform.demo.StatementCounter;
+import uk.gov.hmcts.reform.demo.dto.SessionActivity;
+import uk.gov.hmcts.reform.demo.repositories.ChatRepository;
+import uk.gov.hmcts.reform.demo.repositories.SessionRepository;
+import uk.gov.hmcts.reform.demo.repositories.StatisticsRollupRepository;
+import uk.gov.hmcts.reform.demo.repositories.StatisticsSummaryRepository;
+import uk.gov.hmcts.reform.demo.repositories.UserRepository;
+import uk.gov.hmcts.reform.demo.services.AnalyticsSnapshotService;
+import uk.gov.hmcts.reform.demo.services.LiveStatisticsPublisher;
+import uk.gov.hmcts.reform.demo.services.StatisticsCache;
+import uk.gov.hmcts.reform.demo.services.StatisticsExportService;
+import uk.gov.hmcts.reform.demo.services.StatisticsRollupService;
+import uk.gov.hmcts.reform.demo.services.StatisticsRollupService.Granularity;
+import uk.gov.hmcts.reform.demo.services.StatisticsService;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that {@code /statistics/user-activity} issues the same number of queries however many sessions exist, that
+ * the rebuilt rollups agree with the sessions table, and that the dashboard shares the queries of its parts.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class UserActivityQueryCountTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private StatisticsSummaryRepository summaryRepository;
+
+    @Autowired
+    private StatisticsRollupRepository rollupRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ChatRepository chatRepository;
+
+    @Autowired
+    private SessionRepository sessionRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private StatisticsRollupService rollupService;
+    private StatisticsCache cache;
+    private StatisticsController controller;
+    private StatementCounter statements;
+
+    @BeforeEach
+    void setUp() {
+        StatisticsService statisticsService = new StatisticsService(summaryRepository, userRepository, chatRepository,
+                                                                    transactionManager, new SimpleMeterRegistry());
+        rollupService = new StatisticsRollupService(rollupRepository, transactionManager, new SimpleMeterRegistry(), 0);
+        StatisticsExportService exportService = new StatisticsExportService(sessionRepository, chatRepository,
+                                                                            transactionManager,
+                                                                            new SimpleMeterRegistry());
+        AnalyticsSnapshotService snapshotService = new AnalyticsSnapshotService(chatRepository, transactionManager,
+                                                                                new SimpleMeterRegistry(), 1_000_000);
+        cache = new StatisticsCache(new ObjectMapper().findAndRegisterModules(), new SimpleMeterRegistry(),
+                                    60_000, 100, 1);
+        LiveStatisticsPublisher livePublisher = new LiveStatisticsPublisher(statisticsService,
+                                                                            new SimpleMeterRegistry(),
+                                                                            60_000, 10, 30_000, 1);
+        controller = new StatisticsController(statisticsService, rollupService, exportService, snapshotService,
+                                              cache, livePublisher);
+        statements = new StatementCounter(entityManagerFactory);
+    }
+
+    private void addSessions(int users, int sessionsPerUser, String prefix) {
+        jdbc.update("INSERT INTO users (username, email, password_hash, date_of_birth) "
+                        + "SELECT ? || g, ? || g || '@example.com', 'x', DATE '1960-01-01' + g * 97 "
+                        + "FROM generate_series(1, ?) g", prefix, prefix, users);
+        jdbc.update("INSERT INTO sessions (user_id, session_token, expires_at, created_at) "
+                        + "SELECT u.id, u.username || '_' || k, NOW(), NOW() - k * INTERVAL '1 day' "
+                        + "FROM users u CROSS JOIN generate_series(1, ?) k WHERE u.username LIKE ? || '%'",
+                    sessionsPerUser, prefix);
+        // The first run sees the new sessions, the second rolls them up
+        rollupService.rollUp();
+        rollupService.rollUp();
+    }
+
+    private long statementsFor(Runnable call) {
+        // Count the queries behind the endpoint rather than a cache hit
+        cache.invalidateAll();
+        return statements.count(call);
+    }
+
+    @Test
+    void queryCountDoesNotGrowWithSessions() {
+        addSessions(5, 2, "few_");
+        long few = statementsFor(() -> controller.getUserActivity(null, null, Granularity.DAY, null));
+
+        addSessions(200, 10, "many_");
+        long many = statementsFor(() -> controller.getUserActivity(null, null, Granularity.DAY, null));
+
+        assertThat(few).isEqualTo(1);
+        assertThat(many).isEqualTo(few);
+    }
+
+    @Test
+    void dashboardIssuesFewerQueriesThanItsEndpoints() {
+        addSessions(20, 2, "dash_");
+        long separate = statementsFor(() -> controller.getUserActivity(null, null, Granularity.DAY, null))
+            + statementsFor(() -> controller.getChatCategoryBreakdown(true, null, null, false, null, null))
+            + statementsFor(() -> controller.getPopularChatCategories(null, null, null));
+
+        long dashboard = statementsFor(() -> controller.getDashboard(null, null, null));
+
+        assertThat(dashboard).isLessThan(separate);
+    }
+
+    @Test
+    void sessionsAreCountedPerDayAndAgeGroup() {
+        addSessions(200, 10, "count_");
+
+        @SuppressWarnings("unchecked")
+        List<SessionActivity> activities =
+            (List<SessionActivity>) controller.getUserActivity(null, null, Granularity.DAY, null).getBody();
+
+        assertThat(activities).isNotEmpty();
+        assertThat(activities.stream().mapToLong(SessionActivity::getSessions).sum()).isEqualTo(2000);
+        assertThat(activities).extracting(SessionActivity::getAgeGroup)
+            .containsOnly("under 20", "20-30", "31-40", "41-50", "51+");
+    }
+
+    @Test
+    void hourlyActivityAddsUpToTheDailyActivity() {
+        addSessions(50, 3, "hourly_");
+        LocalDate from = LocalDate.now().minusDays(4);
+
+        @SuppressWarnings("unchecked")
+        List<SessionActivity> daily =
+            (List<SessionActivity>) controller.getUserActivity(from, null, Granularity.DAY, null).getBody();
+        @SuppressWarnings("unchecked")
+        List<SessionActivity> hourly =
+            (List<SessionActivity>) controller.getUserActivity(from, null, Granularity.HOUR, null).getBody();
+
+        assertThat(hourly).allSatisfy(activity -> assertThat(activity.getHour()).isNotNull());
+        assertThat(hourly.stream().mapToLong(SessionActivity::getSessions).sum())
+            .isEqualTo(daily.stream().mapToLong(SessionActivity::getSessions).sum())
+            .isEqualTo(150);
+    }
+}
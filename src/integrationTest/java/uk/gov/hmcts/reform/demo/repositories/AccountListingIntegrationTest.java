@@ -0,0 +1,106 @@
+package uk.gov.hmcts.reform.demo.repositories;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import uk.gov.hmcts.reform.demo.PostgresIntegrationTest;
+import uk.gov.hmcts.reform.demo.dto.AccountSummary;
+import uk.gov.hmcts.reform.demo.repositories.AccountSummaryQueries.Filter;
+import uk.gov.hmcts.reform.demo.repositories.AccountSummaryQueries.Position;
+import uk.gov.hmcts.reform.demo.repositories.AccountSummaryQueries.SortField;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Walks the account listing page by page in each order against Postgres, and checks that every account is listed
+ * once, in order, with the filters applied.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class AccountListingIntegrationTest extends PostgresIntegrationTest {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 3, 1);
+    private static final Filter EVERYONE = new Filter(null, null, null, null);
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @BeforeEach
+    void setUp() {
+        // Several accounts a day, created at different times of day, every fifth an admin
+        jdbc.update("INSERT INTO users "
+                        + "(username, email, password_hash, date_of_birth, is_admin, can_login, created_at) "
+                        + "SELECT CASE WHEN g % 3 = 0 THEN 'Al_' ELSE 'bo%' END || g, 'user' || g || '@example.com', "
+                        + "'x', DATE '1990-01-01', g % 5 = 0, TRUE, "
+                        + "TIMESTAMP '2024-03-01 00:00' + (g % 4) * INTERVAL '1 day' + g * INTERVAL '7 minutes' "
+                        + "FROM generate_series(1, 40) g");
+    }
+
+    private List<AccountSummary> walk(Filter filter, SortField sort, boolean descending, int pageSize) {
+        List<AccountSummary> listed = new ArrayList<>();
+        Position after = null;
+        while (true) {
+            List<AccountSummary> page = userRepository.findAccountSummaries(filter, sort, descending, after, pageSize);
+            listed.addAll(page);
+            if (page.size() < pageSize) {
+                return listed;
+            }
+            AccountSummary last = page.get(page.size() - 1);
+            String key = switch (sort) {
+                case ID -> null;
+                case USERNAME -> last.getUsername();
+                case CREATED_DATE -> last.getCreatedDate().toString();
+            };
+            after = new Position(key, last.getAccountId());
+        }
+    }
+
+    @Test
+    void everyOrderListsEveryAccountOnceInOrder() {
+        List<AccountSummary> byId = walk(EVERYONE, SortField.ID, false, 7);
+        assertThat(byId).hasSize(40).isSortedAccordingTo(Comparator.comparing(AccountSummary::getAccountId));
+
+        assertThat(walk(EVERYONE, SortField.USERNAME, true, 7))
+            .hasSize(40)
+            .isSortedAccordingTo(Comparator.comparing(AccountSummary::getUsername).reversed());
+
+        List<AccountSummary> byDate = walk(EVERYONE, SortField.CREATED_DATE, false, 3);
+        assertThat(byDate).extracting(AccountSummary::getAccountId).doesNotHaveDuplicates().hasSize(40);
+        assertThat(byDate).isSortedAccordingTo(Comparator.comparing(AccountSummary::getCreatedDate)
+                                                   .thenComparing(AccountSummary::getAccountId));
+        assertThat(walk(EVERYONE, SortField.CREATED_DATE, true, 3))
+            .extracting(AccountSummary::getAccountId)
+            .containsExactlyElementsOf(byDate.reversed().stream().map(AccountSummary::getAccountId).toList());
+    }
+
+    @Test
+    void filtersAreApplied() {
+        List<AccountSummary> admins = walk(new Filter(true, null, null, null), SortField.ID, false, 50);
+        assertThat(admins).hasSize(8).allMatch(summary -> summary.getRole().equals("Admin"));
+        assertThat(walk(new Filter(false, null, null, null), SortField.ID, false, 50))
+            .hasSize(32).allMatch(summary -> summary.getRole().equals("User"));
+
+        assertThat(walk(new Filter(null, DAY.plusDays(1), DAY.plusDays(2), null), SortField.ID, false, 50))
+            .hasSize(20)
+            .allMatch(summary -> !summary.getCreatedDate().isBefore(DAY.plusDays(1))
+                && !summary.getCreatedDate().isAfter(DAY.plusDays(2)));
+
+        // Any case, and wildcards in the prefix are taken literally
+        assertThat(walk(new Filter(null, null, null, "aL_"), SortField.USERNAME, false, 50))
+            .hasSize(13).allMatch(summary -> summary.getUsername().startsWith("Al_"));
+        assertThat(walk(new Filter(null, null, null, "bo%1"), SortField.USERNAME, false, 50))
+            .extracting(AccountSummary::getUsername)
+            .containsExactly("bo%1", "bo%10", "bo%11", "bo%13", "bo%14", "bo%16", "bo%17", "bo%19");
+        assertThat(userRepository.countAccounts(new Filter(true, null, null, "al"))).isEqualTo(2);
+    }
+}
@@ -0,0 +1,106 @@
+package uk.gov.hmcts.reform.demo.repositories;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import javax.sql.DataSource;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import uk.gov.hmcts.reform.demo.entities.ChatCategory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Applies the chat category migration to chats created before it, and checks that descriptions are canonicalised
+ * the same way by the database as by {@link ChatCategory}.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class ChatCategoryMigrationTest {
+
+    @Container
+    private static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    private static JdbcTemplate jdbc;
+
+    @BeforeAll
+    static void migrate() {
+        DataSource dataSource = new DriverManagerDataSource(
+            postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+        Flyway.configure().dataSource(dataSource).target("5").load().migrate();
+        jdbc = new JdbcTemplate(dataSource);
+
+        jdbc.update("INSERT INTO users (username, email, password_hash, date_of_birth, can_login) "
+                        + "VALUES ('alice', 'alice@example.com', 'x', DATE '1990-06-01', TRUE), "
+                        + "('bob', 'bob@example.com', 'x', DATE '1960-06-01', TRUE)");
+        for (String description : List.of("Billing", "billing.", "  Billing   question?", "Billing question",
+                                          "Billing", "Delivery")) {
+            jdbc.update("INSERT INTO chats (user_id, description, created_at) "
+                            + "SELECT id, ?, TIMESTAMP '2024-03-01 09:00' FROM users WHERE username = 'alice'",
+                        description);
+        }
+        jdbc.update("INSERT INTO chats (user_id, description, created_at) "
+                        + "SELECT id, 'BILLING', TIMESTAMP '2024-03-02 09:00' FROM users WHERE username = 'bob'");
+
+        Flyway.configure().dataSource(dataSource).load().migrate();
+    }
+
+    private static Map<String, Long> chatsPerCategory() {
+        Map<String, Long> chats = new TreeMap<>();
+        jdbc.query("SELECT cc.name, count(*) FROM chats c JOIN chat_categories cc ON cc.id = c.category_id "
+                       + "GROUP BY cc.name", (RowCallbackHandler) row -> chats.put(row.getString(1), row.getLong(2)));
+        return chats;
+    }
+
+    @Test
+    void existingChatsAreGroupedUnderTheirMostCommonForm() {
+        assertThat(chatsPerCategory())
+            .containsEntry("Billing", 4L)
+            .containsEntry("Billing question", 2L)
+            .containsEntry("Delivery", 1L);
+    }
+
+    @Test
+    void summariesAreRebuiltByCategory() {
+        assertThat(jdbc.queryForObject(
+            "SELECT s.chat_count FROM category_statistics s JOIN chat_categories cc ON cc.id = s.category_id "
+                + "WHERE cc.name = 'Billing'", Long.class)).isEqualTo(4L);
+        assertThat(jdbc.queryForList(
+            "SELECT u.age_group FROM category_users u JOIN chat_categories cc ON cc.id = u.category_id "
+                + "WHERE cc.name = 'Billing' ORDER BY u.age_group", String.class))
+            .containsExactly("31-40", "51+");
+        assertThat(jdbc.queryForObject("SELECT count(*) FROM category_statistics", Long.class)).isEqualTo(3L);
+    }
+
+    @Test
+    void chatsInsertedWithoutACategoryAreGivenOne() {
+        jdbc.update("INSERT INTO chats (user_id, description, created_at) "
+                        + "SELECT id, 'Returns  policy', NOW() FROM users WHERE username = 'bob'");
+        jdbc.update("INSERT INTO chats (user_id, description, created_at) "
+                        + "SELECT id, 'returns policy!!', NOW() FROM users WHERE username = 'bob'");
+
+        assertThat(chatsPerCategory()).containsEntry("Returns policy", 2L);
+        assertThat(jdbc.queryForObject(
+            "SELECT canonical_name FROM chat_categories WHERE name = 'Returns policy'", String.class))
+            .isEqualTo("returns policy");
+    }
+
+    @Test
+    void databaseCanonicalisesLikeTheEntity() {
+        for (String description : List.of("Billing", " billing ", "Billing\t\nquestion?!", "What?", "...", "  ",
+                                          "Card, lost;", "Ask  AGAIN .")) {
+            assertThat(jdbc.queryForObject("SELECT chat_category_name(?)", String.class, description))
+                .as(description)
+                .isEqualTo(ChatCategory.displayName(description));
+            assertThat(jdbc.queryForObject("SELECT lower(chat_category_name(?))", String.class, description))
+                .as(description)
+                .isEqualTo(ChatCategory.canonicalName(description));
+        }
+    }
+}
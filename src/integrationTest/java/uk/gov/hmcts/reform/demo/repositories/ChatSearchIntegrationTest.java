@@ -0,0 +1,98 @@
+package uk.gov.hmcts.reform.demo.repositories;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import uk.gov.hmcts.reform.demo.PostgresIntegrationTest;
+import uk.gov.hmcts.reform.demo.dto.MessageSearchHit;
+import uk.gov.hmcts.reform.demo.entities.Chat;
+import uk.gov.hmcts.reform.demo.services.ChatArchiveService;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs {@code /chat/search} queries against PostgreSQL.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class ChatSearchIntegrationTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private ChatRepository chatRepository;
+
+    @Autowired
+    private ChatArchiveRepository chatArchiveRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private ChatArchiveService chatArchiveService;
+    private long userId;
+
+    @BeforeEach
+    void setUp() {
+        chatArchiveService = new ChatArchiveService(
+            chatRepository, messageRepository, chatArchiveRepository, new ObjectMapper().findAndRegisterModules(),
+            transactionManager, new SimpleMeterRegistry(), 7, 10);
+        userId = jdbc.queryForObject("INSERT INTO users (username, email, password_hash, date_of_birth) "
+                                         + "VALUES ('searcher', 'searcher@example.com', 'x', DATE '1980-01-01') "
+                                         + "RETURNING CAST(id AS BIGINT)", Long.class);
+    }
+
+    private long addChat(String... messages) {
+        Long chatId = jdbc.queryForObject("INSERT INTO chats (user_id, description) VALUES (?, 'Billing') "
+                                              + "RETURNING CAST(id AS BIGINT)", Long.class, userId);
+        for (String message : messages) {
+            jdbc.update("INSERT INTO messages (chat_id, sender, message) VALUES (?, 'user', ?)", chatId, message);
+        }
+        return chatId;
+    }
+
+    @Test
+    void snippetEscapesTheMessageAndOnlyMarksTheMatches() {
+        addChat("Please <b>refund</b> me & \"thanks\" <script>alert('x')</script>");
+
+        List<MessageSearchHit> hits = messageRepository.searchByUser(userId, "refund", 20, 0);
+
+        assertThat(hits).singleElement().extracting(MessageSearchHit::getSnippet).asString()
+            .contains("&lt;b&gt;<mark>refund</mark>&lt;/b&gt;")
+            .contains("&amp;")
+            .doesNotContain("<b>")
+            .doesNotContain("<script>");
+    }
+
+    @Test
+    void archivedChatsAreStillFound() {
+        addChat("Where is my refund?");
+        long archivedChatId = addChat("I asked for a refund <again>", "Nothing about it");
+        assertThat(chatArchiveService.archiveChat(archivedChatId)).isTrue();
+
+        List<MessageSearchHit> hits = chatArchiveService.withArchivedSnippets(
+            messageRepository.searchByUser(userId, "refund", 20, 0), "refund");
+
+        assertThat(hits).hasSize(2);
+        assertThat(messageRepository.countSearchByUser(userId, "refund")).isEqualTo(2);
+        assertThat(hits).filteredOn(hit -> hit.getChatId() == archivedChatId).singleElement()
+            .extracting(MessageSearchHit::getSnippet).asString()
+            .contains("<mark>refund</mark>")
+            .contains("&lt;again&gt;");
+
+        Chat archived = chatRepository.findById(archivedChatId).orElseThrow();
+        chatArchiveService.promote(archived);
+        assertThat(jdbc.queryForObject("SELECT count(*) FROM archived_message_search", Long.class)).isZero();
+        assertThat(messageRepository.countSearchByUser(userId, "refund")).isEqualTo(2);
+    }
+}
@@ -0,0 +1,331 @@
+package uk.gov.hmcts.reform.demo.repositories;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+import javax.sql.DataSource;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import uk.gov.hmcts.reform.demo.PostgresIntegrationTest;
+import uk.gov.hmcts.reform.demo.entities.AccountRequest;
+import uk.gov.hmcts.reform.demo.entities.Chat;
+import uk.gov.hmcts.reform.demo.entities.User;
+import uk.gov.hmcts.reform.demo.repositories.AccountSummaryQueries.Filter;
+import uk.gov.hmcts.reform.demo.repositories.AccountSummaryQueries.SortField;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that the main repository queries are served by the indexes from the migrations once the tables hold enough
+ * rows for the planner to prefer them over a sequential scan. Each query is run through its repository method and
+ * the statement Hibernate sent is explained with the values that were bound to it.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class IndexUsageTest extends PostgresIntegrationTest {
+
+    private static final DateTimeFormatter PARTITION_MONTH = DateTimeFormatter.ofPattern("yyyy_MM");
+
+    @TestConfiguration
+    static class RecorderConfiguration {
+
+        @Bean
+        static StatementRecorder statementRecorder() {
+            return new StatementRecorder();
+        }
+    }
+
+    @Autowired
+    private StatementRecorder recorder;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private ChatRepository chatRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private SessionRepository sessionRepository;
+
+    @Autowired
+    private AccountRequestRepository accountRequestRepository;
+
+    @Autowired
+    private PasswordResetTokenRepository resetTokenRepository;
+
+    @BeforeAll
+    static void loadDataset() {
+        // Committed outside the tests' transactions, which are rolled back
+        DataSource dataSource = new DriverManagerDataSource(
+            postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+        Flyway.configure().dataSource(dataSource).load().migrate();
+        JdbcTemplate setup = new JdbcTemplate(dataSource);
+        PartitioningScript.apply(setup);
+        // The sessions go back a year, further than the script created partitions for
+        setup.execute("SELECT create_monthly_partitions('sessions', CURRENT_DATE - 400, CURRENT_DATE)");
+
+        setup.execute("INSERT INTO users (username, email, password_hash, date_of_birth, can_login) "
+                          + "SELECT 'user_' || g, 'user_' || g || '@example.com', 'x', "
+                          + "DATE '1960-01-01' + (g * 13 % 15000), TRUE FROM generate_series(1, 5000) g");
+        setup.execute("INSERT INTO chats (user_id, description, created_at, deleted_at) "
+                          + "SELECT (SELECT min(id) FROM users) + g % 5000, 'Category ' || (g % 200), "
+                          + "NOW() - (g % 365) * INTERVAL '1 day', "
+                          + "CASE WHEN g % 500 = 0 THEN NOW() ELSE NULL END "
+                          + "FROM generate_series(1, 100000) g");
+        setup.execute("INSERT INTO messages (chat_id, sender, message) "
+                          + "SELECT (SELECT min(id) FROM chats) + g % 100000, 'user', 'message ' || g "
+                          + "FROM generate_series(1, 300000) g");
+        setup.execute("INSERT INTO sessions (user_id, session_token, expires_at, created_at) "
+                          + "SELECT (SELECT min(id) FROM users) + g % 5000, 'token_' || g, NOW(), "
+                          + "NOW() - (g % 365) * INTERVAL '1 day' FROM generate_series(1, 100000) g");
+        setup.execute("INSERT INTO password_reset_tokens (user_id, token, expires_at) "
+                          + "SELECT (SELECT min(id) FROM users) + g % 5000, 'reset_' || g, "
+                          + "NOW() - (g % 365) * INTERVAL '1 day' FROM generate_series(1, 50000) g");
+        setup.execute("INSERT INTO account_requests (user_id, status, requested_at) "
+                          + "SELECT id, CASE WHEN id % 50 = 0 THEN 'PENDING' WHEN id % 50 = 1 THEN 'REJECTED' "
+                          + "ELSE 'APPROVED' END, NOW() - (id % 365) * INTERVAL '1 day' FROM users");
+        setup.execute("ANALYZE");
+    }
+
+    /**
+     * The partition of a table for the current month, which holds the rows inserted without a creation time.
+     */
+    private static String thisMonth(String table) {
+        return table + "_p" + LocalDate.now().format(PARTITION_MONTH);
+    }
+
+    /**
+     * Runs a repository query and explains the first statement it sent, with the values that were bound to it.
+     */
+    private String plan(Runnable query) {
+        recorder.clear();
+        query.run();
+        StatementRecorder.Statement statement = recorder.first();
+        return jdbc.execute((ConnectionCallback<String>) connection -> {
+            try (PreparedStatement explain = connection.prepareStatement("EXPLAIN " + statement.sql())) {
+                for (StatementRecorder.Binding binding : statement.bindings()) {
+                    binding.method().invoke(explain, binding.args());
+                }
+                List<String> lines = new ArrayList<>();
+                try (ResultSet rows = explain.executeQuery()) {
+                    while (rows.next()) {
+                        lines.add(rows.getString(1));
+                    }
+                }
+                return String.join("\n", lines);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Unable to bind " + statement.sql(), e);
+            }
+        });
+    }
+
+    private Chat firstChat() {
+        return chatRepository.findById(jdbc.queryForObject(
+            "SELECT CAST(min(id) AS BIGINT) FROM chats WHERE deleted_at IS NULL", Long.class)).orElseThrow();
+    }
+
+    private User firstUser() {
+        return userRepository.findById(jdbc.queryForObject(
+            "SELECT CAST(min(id) AS BIGINT) FROM users", Long.class)).orElseThrow();
+    }
+
+    @Test
+    void messagesOfAChatUseChatIdIndex() {
+        Chat chat = firstChat();
+        assertThat(plan(() -> messageRepository.findByChat(chat)))
+            .contains(thisMonth("messages") + "_chat_id_created_at_idx")
+            .doesNotContain("Seq Scan on " + thisMonth("messages"));
+    }
+
+    @Test
+    void idleChatCheckUsesChatIdIndex() {
+        assertThat(plan(() -> chatRepository.findIdleChatIds(LocalDateTime.now().minusDays(7), 100)))
+            .containsPattern("messages_p\\d{4}_\\d{2}_chat_id_created_at_idx");
+    }
+
+    @Test
+    void chatsOfAUserUseUserIdIndex() {
+        User user = firstUser();
+        assertThat(plan(() -> chatRepository.findByUser(user)))
+            .contains("idx_chats_user_id")
+            .doesNotContain("Seq Scan on chats");
+    }
+
+    @Test
+    void allChatsOfAUserUseUserIdIdIndex() {
+        User user = firstUser();
+        assertThat(plan(() -> chatRepository.findIdsByUserId(user.getId(), 1)))
+            .contains("idx_chats_user_id_id")
+            .doesNotContain("Seq Scan on chats");
+    }
+
+    @Test
+    void purgeBacklogUsesDeletedAtIndex() {
+        assertThat(plan(() -> chatRepository.findSoftDeletedIds(50)))
+            .contains("idx_chats_deleted_at");
+    }
+
+    @Test
+    void recentSessionsUseCreatedAtIndex() {
+        LocalDateTime now = LocalDateTime.now();
+        assertThat(plan(() -> {
+            try (Stream<?> rows = sessionRepository.streamForExport(now.minusDays(2), now)) {
+                rows.findFirst();
+            }
+        })).containsPattern("sessions_p\\d{4}_\\d{2}_created_at_idx");
+    }
+
+    @Test
+    void sessionsOfAMonthOnlyReadThatMonthsPartition() {
+        LocalDate month = LocalDate.now().withDayOfMonth(1).minusMonths(2);
+        String partition = "sessions_p" + month.format(PARTITION_MONTH);
+        assertThat(plan(() -> {
+            try (Stream<?> rows = sessionRepository.streamForExport(
+                month.atStartOfDay(), month.plusMonths(1).atStartOfDay())) {
+                rows.findFirst();
+            }
+        })).contains(partition)
+            .doesNotContain("Append");
+    }
+
+    @Test
+    void pendingAccountRequestsUseStatusIndex() {
+        assertThat(plan(() -> accountRequestRepository.findSummariesByStatus(
+            AccountRequest.Status.PENDING, Limit.of(50))))
+            .contains("idx_account_requests_status");
+    }
+
+    @Test
+    void expiredResetTokenPurgeUsesExpiresAtIndex() {
+        assertThat(plan(() -> resetTokenRepository.findSecondsExpiredBefore(LocalDateTime.now().minusDays(300))))
+            .contains("idx_password_reset_tokens_expires_at");
+    }
+
+    @Test
+    void rejectedRequestPurgeUsesRejectedIndex() {
+        assertThat(plan(() -> accountRequestRepository.findSecondsRejectedBefore(LocalDateTime.now().minusDays(300))))
+            .contains("idx_account_requests_rejected_requested_at");
+    }
+
+    @Test
+    void accountsByCreationDateUseCreatedDateIndex() {
+        Filter filter = new Filter(null, LocalDate.of(2024, 1, 1), null, null);
+        assertThat(plan(() -> userRepository.findAccountSummaries(filter, SortField.CREATED_DATE, false, null, 50)))
+            .contains("idx_users_created_date_id");
+    }
+
+    @Test
+    void accountsByUsernamePrefixUseUsernamePrefixIndex() {
+        Filter filter = new Filter(null, null, null, "user_123");
+        assertThat(plan(() -> userRepository.findAccountSummaries(filter, SortField.ID, false, null, 50)))
+            .contains("idx_users_username_prefix");
+    }
+
+    @Test
+    void everyMigrationIndexIsValid() {
+        List<String> invalid = jdbc.queryForList(
+            "SELECT c.relname FROM pg_index i JOIN pg_class c ON c.oid = i.indexrelid WHERE NOT i.indisvalid",
+            String.class);
+        assertThat(invalid).isEmpty();
+    }
+
+    /**
+     * Wraps the application's data source to record each statement prepared through it and the values bound to it.
+     */
+    static class StatementRecorder implements BeanPostProcessor {
+
+        record Binding(Method method, Object[] args) {
+        }
+
+        record Statement(String sql, List<Binding> bindings) {
+        }
+
+        private final List<Statement> statements = new CopyOnWriteArrayList<>();
+
+        void clear() {
+            statements.clear();
+        }
+
+        Statement first() {
+            assertThat(statements).as("statements sent").isNotEmpty();
+            return statements.get(0);
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (bean instanceof DataSource dataSource) {
+                return wrap(DataSource.class, dataSource, (method, args, result) ->
+                    result instanceof Connection connection ? wrap(Connection.class, connection, this::prepared)
+                        : result);
+            }
+            return bean;
+        }
+
+        private Object prepared(Method method, Object[] args, Object result) {
+            if (!(result instanceof PreparedStatement prepared) || !(args[0] instanceof String sql)) {
+                return result;
+            }
+            Statement statement = new Statement(sql, new CopyOnWriteArrayList<>());
+            statements.add(statement);
+            return wrap(PreparedStatement.class, prepared, (setter, values, returned) -> {
+                if (setter.getName().startsWith("set") && values != null && values.length >= 2
+                    && values[0] instanceof Integer) {
+                    statement.bindings().add(new Binding(setter, values));
+                } else if (setter.getName().equals("clearParameters")) {
+                    statement.bindings().clear();
+                }
+                return returned;
+            });
+        }
+
+        @FunctionalInterface
+        private interface AfterCall {
+            Object apply(Method method, Object[] args, Object result);
+        }
+
+        private static <T> T wrap(Class<T> type, T target, AfterCall afterCall) {
+            Class<?>[] interfaces = {type};
+            Object proxy = Proxy.newProxyInstance(type.getClassLoader(), interfaces, (self, method, args) -> {
+                if (method.getName().equals("equals")) {
+                    return self == args[0];
+                }
+                if (method.getName().equals("hashCode")) {
+                    return System.identityHashCode(self);
+                }
+                try {
+                    return afterCall.apply(method, args, method.invoke(target, args));
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            });
+            return type.cast(proxy);
+        }
+    }
+}
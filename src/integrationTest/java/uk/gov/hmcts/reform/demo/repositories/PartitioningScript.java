@@ -0,0 +1,30 @@
+package uk.gov.hmcts.reform.demo.repositories;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Partitions sessions and messages with the script run by hand in production, for the tests of partitioned tables.
+ */
+public final class PartitioningScript {
+
+    private static final String SCRIPT = "db/partitioning/partition_sessions_and_messages.sql";
+
+    private PartitioningScript() {
+    }
+
+    /**
+     * Runs the script on a migrated database.
+     */
+    public static void apply(JdbcTemplate jdbc) {
+        try (InputStream in = new ClassPathResource(SCRIPT).getInputStream()) {
+            jdbc.execute(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
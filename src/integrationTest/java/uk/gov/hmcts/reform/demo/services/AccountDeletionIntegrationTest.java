@@ -0,0 +1,171 @@
+package uk.gov.hmcts.reform.demo.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import uk.gov.hmcts.reform.demo.PostgresIntegrationTest;
+import uk.gov.hmcts.reform.demo.entities.AccountDeletion.Stage;
+import uk.gov.hmcts.reform.demo.repositories.AccountDeletionRepository;
+import uk.gov.hmcts.reform.demo.repositories.ChatArchiveRepository;
+import uk.gov.hmcts.reform.demo.repositories.ChatRepository;
+import uk.gov.hmcts.reform.demo.repositories.MessageRepository;
+import uk.gov.hmcts.reform.demo.repositories.PasswordResetTokenRepository;
+import uk.gov.hmcts.reform.demo.repositories.SessionRepository;
+import uk.gov.hmcts.reform.demo.repositories.UserRepository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Deletes an account against Postgres, stopping part way as a restart would, and checks that a fresh service carries
+ * on from the checkpoint and removes everything the user had.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class AccountDeletionIntegrationTest extends PostgresIntegrationTest {
+
+    private static final int BATCH_SIZE = 100;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private AccountDeletionRepository deletionRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private SessionRepository sessionRepository;
+
+    @Autowired
+    private PasswordResetTokenRepository resetTokenRepository;
+
+    @Autowired
+    private ChatRepository chatRepository;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private ChatArchiveRepository chatArchiveRepository;
+
+    private long userId;
+    private long otherUserId;
+
+    @BeforeEach
+    void setUp() {
+        userId = addUser("leaving");
+        otherUserId = addUser("staying");
+        for (long id : new long[] {userId, otherUserId}) {
+            jdbc.update("INSERT INTO sessions (user_id, session_token, expires_at) "
+                            + "SELECT ?, ? || g, NOW() + INTERVAL '1 day' FROM generate_series(1, 250) g",
+                        id, id + "-");
+            jdbc.update("INSERT INTO password_reset_tokens (user_id, token, expires_at) "
+                            + "SELECT ?, ? || g, NOW() FROM generate_series(1, 3) g", id, id + "-");
+            jdbc.update("INSERT INTO account_requests (user_id, status) VALUES (?, 'APPROVED')", id);
+            for (int chat = 0; chat < 2; chat++) {
+                Long chatId = jdbc.queryForObject("INSERT INTO chats (user_id, description) VALUES (?, 'Billing') "
+                                                      + "RETURNING CAST(id AS BIGINT)", Long.class, id);
+                jdbc.update("INSERT INTO messages (chat_id, sender, message) "
+                                + "SELECT ?, 'user', 'message ' || g FROM generate_series(1, 150) g", chatId);
+            }
+        }
+    }
+
+    private long addUser(String username) {
+        return jdbc.queryForObject("INSERT INTO users (username, email, password_hash, date_of_birth, can_login) "
+                                       + "VALUES (?, ? || '@example.com', 'x', DATE '1980-01-01', TRUE) "
+                                       + "RETURNING CAST(id AS BIGINT)", Long.class, username, username);
+    }
+
+    private AccountDeletionService service(LongSupplier clock) {
+        return new AccountDeletionService(
+            deletionRepository, userRepository, sessionRepository, resetTokenRepository, chatRepository,
+            messageRepository, chatArchiveRepository, mock(AccountAvailabilityService.class), transactionManager,
+            new SimpleMeterRegistry(), BATCH_SIZE, 60_000, 60_000, clock);
+    }
+
+    private long count(String table, String where) {
+        return jdbc.queryForObject("SELECT count(*) FROM " + table + " WHERE " + where, Long.class, userId);
+    }
+
+    @Test
+    void deletionStoppedPartWay_carriesOnFromItsCheckpoint() {
+        service(System::currentTimeMillis).requestDeletion(userId);
+        // What RevokedLoginFilter checks to log the user out of the sessions they have
+        assertThat(userRepository.canLogin(userId)).isFalse();
+        assertThat(count("sessions", "user_id = ? AND expires_at > NOW()")).isZero();
+
+        // Each tick of this clock allows one more batch, so the first run stops after two
+        AtomicLong ticks = new AtomicLong();
+        assertThat(service(ticks::getAndIncrement).process(userId, 2)).isEqualTo(Stage.SESSIONS);
+        assertThat(count("sessions", "user_id = ?")).isEqualTo(50L);
+        assertThat(jdbc.queryForMap("SELECT stage, rows_deleted, claimed_until FROM account_deletions "
+                                        + "WHERE user_id = ?", userId))
+            .containsEntry("stage", "SESSIONS")
+            .containsEntry("rows_deleted", 200L)
+            .containsEntry("claimed_until", null);
+
+        AccountDeletionService restarted = service(System::currentTimeMillis);
+        restarted.processDeletions();
+
+        assertThat(count("users", "id = ?")).isZero();
+        assertThat(count("sessions", "user_id = ?")).isZero();
+        assertThat(count("password_reset_tokens", "user_id = ?")).isZero();
+        assertThat(count("chats", "user_id = ?")).isZero();
+        assertThat(count("account_requests", "user_id = ?")).isZero();
+        assertThat(jdbc.queryForObject("SELECT count(*) FROM messages", Long.class)).isEqualTo(300L);
+        assertThat(jdbc.queryForObject("SELECT count(*) FROM sessions WHERE user_id = ?", Long.class, otherUserId))
+            .isEqualTo(250L);
+
+        // 250 sessions, 3 tokens, 2 chats and 300 messages
+        assertThat(jdbc.queryForMap("SELECT stage, rows_deleted FROM account_deletions WHERE user_id = ?", userId))
+            .containsEntry("stage", "DONE")
+            .containsEntry("rows_deleted", 555L);
+        assertThat(count("account_deletions", "user_id = ? AND completed_at IS NOT NULL")).isEqualTo(1L);
+        assertThat(restarted.getBacklog()).isZero();
+    }
+
+    @Test
+    void chatsTheUserDeleted_arePurgedInBatchesWithTheirArchives() {
+        Long deletedChatId = jdbc.queryForObject("SELECT CAST(min(id) AS BIGINT) FROM chats WHERE user_id = ?",
+                                                 Long.class, userId);
+        jdbc.update("UPDATE chats SET deleted_at = NOW() WHERE id = ?", deletedChatId);
+        jdbc.update("INSERT INTO chat_archives (chat_id, message_count, archived_at, payload) "
+                        + "VALUES (?, 0, NOW(), '\\x00')", deletedChatId);
+        AccountDeletionService service = service(System::currentTimeMillis);
+
+        service.requestDeletion(userId);
+        service.processDeletions();
+
+        assertThat(count("chats", "user_id = ?")).isZero();
+        assertThat(jdbc.queryForObject("SELECT count(*) FROM chat_archives WHERE chat_id = ?", Long.class,
+                                       deletedChatId)).isZero();
+        // Both chats' messages were counted in batches, none left for the user's own deletion
+        assertThat(jdbc.queryForObject("SELECT rows_deleted FROM account_deletions WHERE user_id = ?", Long.class,
+                                       userId)).isEqualTo(555L);
+    }
+
+    @Test
+    void askingTwice_queuesTheDeletionOnce() {
+        AccountDeletionService service = service(System::currentTimeMillis);
+
+        service.requestDeletion(userId);
+        service.requestDeletion(userId);
+
+        assertThat(count("account_deletions", "user_id = ?")).isEqualTo(1L);
+        assertThat(service.findProgress(userId)).hasValueSatisfying(
+            deletion -> assertThat(deletion.getStage()).isEqualTo(Stage.SESSIONS));
+    }
+}
@@ -0,0 +1,120 @@
+package uk.gov.hmcts.reform.demo.services;
+
+import jakarta.persistence.EntityManagerFactory;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import uk.gov.hmcts.reform.demo.PostgresIntegrationTest;
+import uk.gov.hmcts.reform.demo.StatementCounter;
+import uk.gov.hmcts.reform.demo.repositories.AccountRequestRepository;
+import uk.gov.hmcts.reform.demo.repositories.UserRepository;
+import uk.gov.hmcts.reform.demo.services.AccountRequestService.Outcome;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Approves and rejects batches of account requests against Postgres, and checks that each decision takes the same
+ * few statements however many requests it covers.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class BulkAccountDecisionTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private AccountRequestRepository accountRequestRepository;
+
+    private AccountRequestService service;
+    private StatementCounter statements;
+
+    @BeforeEach
+    void setUp() {
+        service = new AccountRequestService(accountRequestRepository, userRepository, mock(EmailService.class), 10);
+        statements = new StatementCounter(entityManagerFactory);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    private List<Long> addRequests(int users, String prefix) {
+        jdbc.update("INSERT INTO users (username, email, password_hash, date_of_birth) "
+                        + "SELECT ? || g, ? || g || '@example.com', 'x', DATE '1980-01-01' "
+                        + "FROM generate_series(1, ?) g", prefix, prefix, users);
+        jdbc.update("INSERT INTO account_requests (user_id, status) "
+                        + "SELECT id, 'PENDING' FROM users WHERE username LIKE ? || '%'", prefix);
+        return jdbc.queryForList("SELECT CAST(r.id AS BIGINT) FROM account_requests r JOIN users u ON u.id = r.user_id "
+                                     + "WHERE u.username LIKE ? || '%' ORDER BY r.id", Long.class, prefix);
+    }
+
+    @Test
+    void approvingTakesTheSameStatementsForOneRequestOrMany() {
+        List<Long> one = addRequests(1, "one_");
+        List<Long> many = addRequests(200, "many_");
+
+        assertThat(statements.count(() -> service.approve(one))).isEqualTo(3);
+        assertThat(statements.count(() -> service.approve(many))).isEqualTo(3);
+
+        assertThat(jdbc.queryForObject(
+            "SELECT count(*) FROM account_requests WHERE status = 'APPROVED' AND approved AND approved_at IS NOT NULL",
+            Long.class)).isEqualTo(201L);
+        assertThat(jdbc.queryForObject("SELECT count(*) FROM users WHERE can_login", Long.class)).isEqualTo(201L);
+    }
+
+    @Test
+    void rejectingDeletesTheRequestsAndTheirUsers() {
+        List<Long> rejected = addRequests(50, "gone_");
+        addRequests(5, "kept_");
+
+        assertThat(statements.count(() -> service.reject(rejected))).isEqualTo(2);
+
+        assertThat(jdbc.queryForObject("SELECT count(*) FROM users WHERE username LIKE 'gone_%'", Long.class))
+            .isZero();
+        assertThat(jdbc.queryForObject("SELECT count(*) FROM account_requests", Long.class)).isEqualTo(5L);
+    }
+
+    @Test
+    void requestsAlreadyDecidedOrMissingAreReported() {
+        List<Long> ids = addRequests(3, "mixed_");
+        service.approve(List.of(ids.get(0)));
+
+        Map<Long, Outcome> outcomes = service.reject(List.of(ids.get(0), ids.get(1), -1L));
+
+        assertThat(outcomes).containsExactly(
+            Map.entry(ids.get(0), Outcome.NOT_PENDING),
+            Map.entry(ids.get(1), Outcome.REJECTED),
+            Map.entry(-1L, Outcome.NOT_FOUND));
+        assertThat(jdbc.queryForObject("SELECT count(*) FROM users WHERE username LIKE 'mixed_%'", Long.class))
+            .isEqualTo(2L);
+    }
+
+    @Test
+    void filterFindsOnlyPendingRequestsMadeBeforeTheTime() {
+        List<Long> old = addRequests(4, "old_");
+        jdbc.update("UPDATE account_requests SET requested_at = TIMESTAMP '2024-01-01 00:00'");
+        service.approve(List.of(old.get(0)));
+        addRequests(2, "new_");
+
+        assertThat(service.findPendingRequestedBefore(LocalDateTime.of(2024, 2, 1, 0, 0), 10))
+            .containsExactlyElementsOf(old.subList(1, 4));
+        assertThat(service.findPendingRequestedBefore(LocalDateTime.of(2024, 2, 1, 0, 0), 2))
+            .hasSize(2);
+    }
+}
@@ -0,0 +1,113 @@
+package uk.gov.hmcts.reform.demo.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import uk.gov.hmcts.reform.demo.PostgresIntegrationTest;
+import uk.gov.hmcts.reform.demo.entities.Chat;
+import uk.gov.hmcts.reform.demo.entities.ChatCategory;
+import uk.gov.hmcts.reform.demo.entities.User;
+import uk.gov.hmcts.reform.demo.repositories.ChatRepository;
+import uk.gov.hmcts.reform.demo.repositories.StatisticsSummaryRepository;
+import uk.gov.hmcts.reform.demo.repositories.UserRepository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Flushes sketches from two service instances standing in for two nodes into the same rows, and checks that the
+ * merged estimates count users seen by both nodes once and match a rebuild from the chats table.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+// Events are only counted once their transaction commits, so the test cannot run inside one
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CategorySketchIntegrationTest extends PostgresIntegrationTest {
+
+    private static final int USERS = 2_000;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ChatRepository chatRepository;
+
+    @Autowired
+    private StatisticsSummaryRepository summaryRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private StatisticsService node() {
+        return new StatisticsService(summaryRepository, userRepository, chatRepository, transactionManager,
+                                     new SimpleMeterRegistry());
+    }
+
+    @Test
+    void sketchesFlushedByTwoNodesMergeAndMatchARebuild() {
+        jdbc.update("INSERT INTO users (username, email, password_hash, date_of_birth) "
+                        + "SELECT 'sketch' || g, 'sketch' || g || '@example.com', 'x', DATE '1995-01-01' "
+                        + "FROM generate_series(1, ?) g", USERS);
+        List<User> users = userRepository.findAll();
+        LocalDateTime day1 = LocalDateTime.of(2024, 5, 1, 9, 0);
+        LocalDateTime day2 = day1.plusDays(1);
+
+        // Node A sees the first 1,500 users on day 1, node B the last 1,000 on both days: 500 overlap
+        StatisticsService nodeA = node();
+        StatisticsService nodeB = node();
+        for (int i = 0; i < USERS; i++) {
+            User user = users.get(i);
+            if (i < 1_500) {
+                nodeA.recordChat(insertChat(user, day1));
+            }
+            if (i >= 1_000) {
+                nodeB.recordChat(insertChat(user, day1));
+                nodeB.recordChat(insertChat(user, day2));
+            }
+        }
+        nodeA.flush();
+        nodeB.flush();
+
+        long allTime = estimate(nodeA, LocalDate.EPOCH, day2.toLocalDate());
+        long firstDay = estimate(nodeB, day1.toLocalDate(), day1.toLocalDate());
+        long secondDay = estimate(nodeA, day2.toLocalDate(), day2.toLocalDate());
+        assertThat(allTime).isCloseTo(USERS, within((long) (USERS * 0.05)));
+        assertThat(firstDay).isCloseTo(USERS, within((long) (USERS * 0.05)));
+        assertThat(secondDay).isCloseTo(1_000, within(50L));
+
+        nodeA.rebuild();
+
+        assertThat(estimate(nodeA, LocalDate.EPOCH, day2.toLocalDate())).isEqualTo(allTime);
+        assertThat(estimate(nodeA, day2.toLocalDate(), day2.toLocalDate())).isEqualTo(secondDay);
+    }
+
+    private long estimate(StatisticsService service, LocalDate from, LocalDate to) {
+        Map<String, Map<String, Long>> estimates = service.estimateCategoryAgeGroups(from, to);
+        return estimates.get("Sketches").get("20-30");
+    }
+
+    private Chat insertChat(User user, LocalDateTime createdAt) {
+        Integer categoryId = jdbc.queryForObject(
+            "INSERT INTO chats (user_id, description, created_at) VALUES (?, 'Sketches', ?) RETURNING category_id",
+            Integer.class, user.getId(), createdAt);
+        ChatCategory category = new ChatCategory("Sketches");
+        category.setId(categoryId);
+        Chat chat = new Chat(user, "Sketches");
+        chat.setCategory(category);
+        chat.setCreatedAt(createdAt);
+        return chat;
+    }
+}
@@ -0,0 +1,80 @@
+package uk.gov.hmcts.reform.demo.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import uk.gov.hmcts.reform.demo.PostgresIntegrationTest;
+import uk.gov.hmcts.reform.demo.repositories.ChatArchiveRepository;
+import uk.gov.hmcts.reform.demo.repositories.ChatRepository;
+import uk.gov.hmcts.reform.demo.repositories.MessageRepository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the idle chat archiver against PostgreSQL.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class ChatArchiveIntegrationTest extends PostgresIntegrationTest {
+
+    private static final int CHATS_PER_RUN = 10;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private ChatRepository chatRepository;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private ChatArchiveRepository chatArchiveRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private ChatArchiveService chatArchiveService;
+    private long userId;
+
+    @BeforeEach
+    void setUp() {
+        chatArchiveService = new ChatArchiveService(
+            chatRepository, messageRepository, chatArchiveRepository, new ObjectMapper().findAndRegisterModules(),
+            transactionManager, new SimpleMeterRegistry(), 7, CHATS_PER_RUN);
+        userId = jdbc.queryForObject("INSERT INTO users (username, email, password_hash, date_of_birth) "
+                                         + "VALUES ('archiver', 'archiver@example.com', 'x', DATE '1980-01-01') "
+                                         + "RETURNING CAST(id AS BIGINT)", Long.class);
+    }
+
+    private long addChat(int messages) {
+        Long chatId = jdbc.queryForObject("INSERT INTO chats (user_id, description, created_at) "
+                                              + "VALUES (?, 'Billing', NOW() - INTERVAL '30 days') "
+                                              + "RETURNING CAST(id AS BIGINT)", Long.class, userId);
+        jdbc.update("INSERT INTO messages (chat_id, sender, message, created_at) "
+                        + "SELECT ?, 'user', 'message ' || g, NOW() - INTERVAL '30 days' "
+                        + "FROM generate_series(1, ?) g", chatId, messages);
+        return chatId;
+    }
+
+    @Test
+    void emptyChatsDoNotHoldUpTheChatsBehindThem() {
+        for (int i = 0; i <= CHATS_PER_RUN; i++) {
+            addChat(0);
+        }
+        long chatId = addChat(3);
+
+        chatArchiveService.archiveIdleChats();
+
+        assertThat(jdbc.queryForObject("SELECT archived_at IS NOT NULL FROM chats WHERE id = ?", Boolean.class,
+                                       chatId)).isTrue();
+        assertThat(jdbc.queryForObject("SELECT count(*) FROM chats WHERE archived_at IS NOT NULL", Long.class))
+            .isEqualTo(1L);
+    }
+}
@@ -0,0 +1,143 @@
+package uk.gov.hmcts.reform.demo.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import uk.gov.hmcts.reform.demo.PostgresIntegrationTest;
+import uk.gov.hmcts.reform.demo.repositories.AccountRequestRepository;
+import uk.gov.hmcts.reform.demo.repositories.PartitioningScript;
+import uk.gov.hmcts.reform.demo.repositories.PasswordResetTokenRepository;
+import uk.gov.hmcts.reform.demo.repositories.SessionRepository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Runs the retention purge against PostgreSQL and checks that only rows past their retention go, that sessions wait
+ * for the activity rollups, that whole months of sessions are dropped, and that what is left past its retention shows
+ * as lag.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class RetentionIntegrationTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private SessionRepository sessionRepository;
+
+    @Autowired
+    private PasswordResetTokenRepository resetTokenRepository;
+
+    @Autowired
+    private AccountRequestRepository accountRequestRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+    private RetentionService service;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        // Batches of two, so that the purge takes several
+        service = new RetentionService(sessionRepository, resetTokenRepository, accountRequestRepository,
+                                       meterRegistry, 2, 10, 0, 30, 1, 30);
+    }
+
+    private long addUser(String username) {
+        return jdbc.queryForObject("INSERT INTO users (username, email, password_hash, date_of_birth) "
+                                       + "VALUES (?, ? || '@example.com', 'x', DATE '1980-01-01') "
+                                       + "RETURNING CAST(id AS BIGINT)", Long.class, username, username);
+    }
+
+    private void addSessions(long userId, int count, String expiredAgo) {
+        jdbc.update("INSERT INTO sessions (user_id, session_token, expires_at) "
+                        + "SELECT ?, md5(random()::text), NOW() - CAST(? AS INTERVAL) FROM generate_series(1, ?)",
+                    userId, expiredAgo, count);
+    }
+
+    private void addSessionsCreated(long userId, int count, String createdAgo) {
+        jdbc.update("INSERT INTO sessions (user_id, session_token, created_at, expires_at) "
+                        + "SELECT ?, md5(random()::text), NOW() - CAST(? AS INTERVAL), "
+                        + "NOW() - CAST(? AS INTERVAL) + INTERVAL '24 hours' FROM generate_series(1, ?)",
+                    userId, createdAgo, createdAgo, count);
+    }
+
+    private boolean partitionExists(String createdAgo) {
+        return jdbc.queryForObject("SELECT to_regclass('sessions_p' || to_char(NOW() - CAST(? AS INTERVAL), "
+                                       + "'YYYY_MM')) IS NOT NULL", Boolean.class, createdAgo);
+    }
+
+    private List<String> tokens() {
+        return jdbc.queryForList("SELECT token FROM password_reset_tokens ORDER BY token", String.class);
+    }
+
+    @Test
+    void purgeRemovesOnlyRowsPastTheirRetention() {
+        long userId = addUser("ageing");
+        addSessions(userId, 5, "40 days");
+        addSessions(userId, 2, "1 day");
+        jdbc.update("UPDATE rollup_watermarks SET last_id = (SELECT max(id) FROM sessions) WHERE source = 'sessions'");
+        // Not yet counted in the rollups
+        addSessions(userId, 1, "40 days");
+
+        jdbc.update("INSERT INTO password_reset_tokens (user_id, token, expires_at) VALUES "
+                        + "(?, 'expired', NOW() - INTERVAL '2 days'), (?, 'verified', NOW() + INTERVAL '5 minutes')",
+                    userId, addUser("resetting"));
+        jdbc.update("INSERT INTO account_requests (user_id, status, requested_at) VALUES "
+                        + "(?, 'REJECTED', NOW() - INTERVAL '40 days'), (?, 'REJECTED', NOW() - INTERVAL '1 day'), "
+                        + "(?, 'PENDING', NOW() - INTERVAL '40 days')",
+                    addUser("rejected_long_ago"), addUser("rejected_lately"), addUser("waiting"));
+
+        service.purge();
+
+        assertThat(jdbc.queryForObject("SELECT count(*) FROM sessions WHERE expires_at < NOW() - INTERVAL '30 days'",
+                                       Long.class)).isEqualTo(1L);
+        assertThat(jdbc.queryForObject("SELECT count(*) FROM sessions", Long.class)).isEqualTo(3L);
+        assertThat(tokens()).containsExactly("verified");
+        assertThat(jdbc.queryForList("SELECT status FROM account_requests ORDER BY status", String.class))
+            .containsExactly("PENDING", "REJECTED");
+
+        assertThat(meterRegistry.get("retention.rows").tag("table", "sessions").counter().count()).isEqualTo(5.0);
+        // The session waiting for the rollups expired 40 days ago, ten days past its retention
+        assertThat(meterRegistry.get("retention.lag").tag("table", "sessions").gauge().value())
+            .isCloseTo(Duration.ofDays(10).toSeconds(), within(60.0));
+        assertThat(meterRegistry.get("retention.lag").tag("table", "account_requests").gauge().value()).isZero();
+    }
+
+    @Test
+    void unpartitioned_noPartitionsAreCreated() {
+        LocalDate month = LocalDate.now().withDayOfMonth(1);
+
+        assertThat(sessionRepository.createMonthlyPartitions(month, month.plusMonths(3))).isZero();
+        assertThat(sessionRepository.dropExpiredPartitions(LocalDateTime.now())).isZero();
+    }
+
+    @Test
+    void purgeDropsTheMonthsHoldingOnlyExpiredSessions() {
+        // Rolled back with the test
+        PartitioningScript.apply(jdbc);
+        jdbc.execute("SELECT create_monthly_partitions('sessions', CURRENT_DATE - 160, CURRENT_DATE)");
+        long userId = addUser("returning");
+        addSessionsCreated(userId, 4, "150 days");
+        addSessionsCreated(userId, 2, "90 days");
+        jdbc.update("UPDATE rollup_watermarks SET last_id = (SELECT max(id) FROM sessions) WHERE source = 'sessions'");
+        // Not yet counted in the rollups, so its month is kept and only the other two of it are deleted
+        addSessionsCreated(userId, 1, "90 days");
+
+        service.purge();
+
+        assertThat(partitionExists("150 days")).isFalse();
+        assertThat(partitionExists("90 days")).isTrue();
+        assertThat(jdbc.queryForObject("SELECT count(*) FROM sessions", Long.class)).isEqualTo(1L);
+        assertThat(meterRegistry.get("retention.rows").tag("table", "sessions").counter().count()).isEqualTo(6.0);
+    }
+}
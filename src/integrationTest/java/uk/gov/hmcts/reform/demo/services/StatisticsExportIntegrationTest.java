@@ -0,0 +1,102 @@
+package uk.gov.hmcts.reform.demo.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import uk.gov.hmcts.reform.demo.PostgresIntegrationTest;
+import uk.gov.hmcts.reform.demo.repositories.ChatRepository;
+import uk.gov.hmcts.reform.demo.repositories.SessionRepository;
+import uk.gov.hmcts.reform.demo.services.StatisticsExportService.Format;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the activity exports against PostgreSQL, checking that every row in range is streamed through the cursor
+ * with its age group and that deleted chats are left out.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+// The export opens its own transaction, as it does when called from a streaming response
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class StatisticsExportIntegrationTest extends PostgresIntegrationTest {
+
+    private static final int SESSIONS = 5_000;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private SessionRepository sessionRepository;
+
+    @Autowired
+    private ChatRepository chatRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private StatisticsExportService exportService;
+
+    @BeforeEach
+    void setUp() {
+        exportService = new StatisticsExportService(sessionRepository, chatRepository, transactionManager,
+                                                    new SimpleMeterRegistry());
+        jdbc.update("DELETE FROM users");
+        long userId = jdbc.queryForObject("INSERT INTO users (username, email, password_hash, date_of_birth) "
+                                              + "VALUES ('export', 'export@example.com', 'x', DATE '1990-06-01') "
+                                              + "RETURNING id", Long.class);
+        jdbc.update("INSERT INTO sessions (user_id, session_token, expires_at, created_at) "
+                        + "SELECT ?, 'export_' || g, NOW(), TIMESTAMP '2024-01-01' + g * INTERVAL '1 minute' "
+                        + "FROM generate_series(1, ?) g", userId, SESSIONS);
+        jdbc.update("INSERT INTO chats (user_id, description, created_at, deleted_at) VALUES "
+                        + "(?, 'Billing, refunds', TIMESTAMP '2024-01-02 09:00', NULL), "
+                        + "(?, 'Delivery', TIMESTAMP '2024-01-02 10:00', NOW())", userId, userId);
+    }
+
+    @Test
+    void exportSessions_streamsEveryRowInRange() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long rows = exportService.exportSessions(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 12, 31),
+                                                 Format.CSV, out);
+
+        List<String> lines = out.toString(StandardCharsets.UTF_8).lines().toList();
+        assertThat(rows).isEqualTo(SESSIONS);
+        assertThat(lines).hasSize(SESSIONS + 1);
+        assertThat(lines.get(0)).isEqualTo("id,createdAt,userId,ageGroup");
+        assertThat(lines.get(1)).endsWith(",2024-01-01T00:01,%d,31-40".formatted(firstUserId()));
+    }
+
+    @Test
+    void exportSessions_limitedToTheRange() {
+        // Sessions are a minute apart from 00:01 on 1 January, so 1 January holds 1439 of them
+        long rows = exportService.exportSessions(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 1),
+                                                 Format.NDJSON, new ByteArrayOutputStream());
+
+        assertThat(rows).isEqualTo(1439);
+    }
+
+    @Test
+    void exportChats_leavesOutDeletedChats() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long rows = exportService.exportChats(LocalDate.EPOCH, LocalDate.now(), Format.CSV, out);
+
+        assertThat(rows).isEqualTo(1);
+        assertThat(out.toString(StandardCharsets.UTF_8)).contains(",\"Billing, refunds\",31-40");
+    }
+
+    private long firstUserId() {
+        return jdbc.queryForObject("SELECT id FROM users WHERE username = 'export'", Long.class);
+    }
+}
@@ -0,0 +1,185 @@
+package uk.gov.hmcts.reform.demo.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import uk.gov.hmcts.reform.demo.PostgresIntegrationTest;
+import uk.gov.hmcts.reform.demo.dto.ChatActivityCount;
+import uk.gov.hmcts.reform.demo.dto.SessionActivityCount;
+import uk.gov.hmcts.reform.demo.repositories.StatisticsRollupRepository;
+import uk.gov.hmcts.reform.demo.services.StatisticsRollupService.Granularity;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the rollup pipeline against PostgreSQL and checks that rows are rolled up one run after they are first seen,
+ * exactly once, into the bucket of their {@code created_at} even when they arrive late, and that incremental runs
+ * agree with a rebuild.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class StatisticsRollupIntegrationTest extends PostgresIntegrationTest {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 5, 1);
+    private static final int KEEP_DAYS = 30;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private StatisticsRollupRepository rollupRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private StatisticsRollupService rollupService;
+    private long userId;
+
+    @BeforeEach
+    void setUp() {
+        rollupService = new StatisticsRollupService(rollupRepository, transactionManager, new SimpleMeterRegistry(),
+                                                    KEEP_DAYS);
+        userId = jdbc.queryForObject("INSERT INTO users (username, email, password_hash, date_of_birth) "
+                                         + "VALUES ('rollup', 'rollup@example.com', 'x', DATE '1990-06-01') "
+                                         + "RETURNING id", Long.class);
+        rollupService.rebuild();
+    }
+
+    private void addChat(String category, LocalDateTime createdAt) {
+        jdbc.update("INSERT INTO chats (user_id, description, created_at) VALUES (?, ?, ?)",
+                    userId, category, createdAt);
+    }
+
+    private void addSession(String token, LocalDateTime createdAt) {
+        jdbc.update("INSERT INTO sessions (user_id, session_token, expires_at, created_at) VALUES (?, ?, ?, ?)",
+                    userId, token, createdAt.plusDays(1), createdAt);
+    }
+
+    private long chats(Granularity granularity) {
+        return rollupService.getChatActivity(DAY, DAY, granularity).stream()
+            .mapToLong(ChatActivityCount::getChats).sum();
+    }
+
+    @Test
+    void rowsAreRolledUpOneRunAfterTheyAreSeen() {
+        addChat("Billing", DAY.atTime(9, 15));
+        addChat("Billing", DAY.atTime(9, 45));
+
+        rollupService.rollUp();
+        assertThat(chats(Granularity.DAY)).isZero();
+
+        rollupService.rollUp();
+        List<ChatActivityCount> hourly = rollupService.getChatActivity(DAY, DAY, Granularity.HOUR);
+        assertThat(hourly).singleElement().satisfies(row -> {
+            assertThat(row.getPeriod()).isEqualTo(DAY.atTime(9, 0));
+            assertThat(row.getCategory()).isEqualTo("Billing");
+            assertThat(row.getAgeGroup()).isEqualTo("31-40");
+            assertThat(row.getChats()).isEqualTo(2);
+        });
+        assertThat(chats(Granularity.DAY)).isEqualTo(2);
+
+        rollupService.rollUp();
+        assertThat(chats(Granularity.DAY)).isEqualTo(2);
+    }
+
+    @Test
+    void lateRowsLandInTheirOwnBucket() {
+        addChat("Billing", DAY.atTime(9, 0));
+        rollupService.rollUp();
+        rollupService.rollUp();
+
+        // Arrives after its day has been rolled up, with a higher ID
+        addChat("Billing", DAY.atTime(10, 30));
+        addSession("late", DAY.atTime(10, 30));
+        rollupService.rollUp();
+        rollupService.rollUp();
+
+        assertThat(chats(Granularity.DAY)).isEqualTo(2);
+        assertThat(rollupService.getChatActivity(DAY, DAY, Granularity.HOUR))
+            .extracting(ChatActivityCount::getPeriod)
+            .containsExactly(DAY.atTime(9, 0), DAY.atTime(10, 0));
+        assertThat(rollupService.getSessionActivity(DAY, DAY, Granularity.HOUR))
+            .singleElement()
+            .satisfies(row -> {
+                assertThat(row.getPeriod()).isEqualTo(DAY.atTime(10, 0));
+                assertThat(row.getSessions()).isEqualTo(1);
+            });
+    }
+
+    @Test
+    void incrementalRunsMatchARebuild() {
+        for (int i = 0; i < 48; i++) {
+            addChat(i % 3 == 0 ? "Billing" : "Delivery", DAY.atTime(i % 24, i));
+            addSession("s" + i, DAY.atTime(i % 24, i));
+            if (i % 10 == 0) {
+                rollupService.rollUp();
+            }
+        }
+        rollupService.rollUp();
+        rollupService.rollUp();
+        List<Long> incremental = rollupService.getChatActivity(DAY, DAY, Granularity.HOUR).stream()
+            .map(ChatActivityCount::getChats).toList();
+        long sessions = rollupService.getSessionActivity(DAY, DAY, Granularity.DAY).stream()
+            .mapToLong(SessionActivityCount::getSessions).sum();
+
+        rollupService.rebuild();
+
+        assertThat(rollupService.getChatActivity(DAY, DAY, Granularity.HOUR))
+            .extracting(ChatActivityCount::getChats)
+            .containsExactlyElementsOf(incremental);
+        assertThat(sessions).isEqualTo(48);
+        assertThat(rollupService.getSessionActivity(DAY, DAY, Granularity.DAY).stream()
+                       .mapToLong(SessionActivityCount::getSessions).sum()).isEqualTo(48);
+    }
+
+    private long sessions(LocalDate day) {
+        return rollupService.getSessionActivity(day, day, Granularity.DAY).stream()
+            .mapToLong(SessionActivityCount::getSessions).sum();
+    }
+
+    @Test
+    void rebuildKeepsTheSessionBucketsRetentionMayHaveEmptied() {
+        LocalDate today = LocalDate.now();
+        addSession("old", DAY.atTime(9, 0));
+        addSession("recent", today.atTime(0, 30));
+        rollupService.rollUp();
+        rollupService.rollUp();
+        // Retention removes the old session; the recent one goes with its account
+        jdbc.update("DELETE FROM sessions WHERE user_id = ?", userId);
+        addSession("late", DAY.atTime(10, 0));
+
+        rollupService.rebuild();
+        rollupService.rollUp();
+
+        // The old day keeps its count, plus the late session; the recent one is recomputed
+        assertThat(sessions(DAY)).isEqualTo(2);
+        assertThat(sessions(today)).isZero();
+    }
+
+    @Test
+    void rebuildDropsDeletedChatsAndLeavesNewOnesToTheNextRun() {
+        addChat("Billing", DAY.atTime(9, 0));
+        addChat("Billing", DAY.atTime(9, 30));
+        rollupService.rollUp();
+        rollupService.rollUp();
+        jdbc.update("UPDATE chats SET deleted_at = NOW() WHERE id = (SELECT min(id) FROM chats WHERE user_id = ?)",
+                    userId);
+        addChat("Billing", DAY.atTime(10, 0));
+
+        rollupService.rebuild();
+        assertThat(chats(Granularity.DAY)).isEqualTo(1);
+
+        rollupService.rollUp();
+        assertThat(chats(Granularity.DAY)).isEqualTo(2);
+        rollupService.rollUp();
+        assertThat(chats(Granularity.DAY)).isEqualTo(2);
+    }
+}
@@ -0,0 +1,135 @@
+package uk.gov.hmcts.reform.demo.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import uk.gov.hmcts.reform.demo.PostgresIntegrationTest;
+import uk.gov.hmcts.reform.demo.entities.CategoryStatistics;
+import uk.gov.hmcts.reform.demo.entities.Chat;
+import uk.gov.hmcts.reform.demo.entities.ChatCategory;
+import uk.gov.hmcts.reform.demo.entities.User;
+import uk.gov.hmcts.reform.demo.repositories.ChatRepository;
+import uk.gov.hmcts.reform.demo.repositories.StatisticsSummaryRepository;
+import uk.gov.hmcts.reform.demo.repositories.UserRepository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the summary upserts and the rebuild against Postgres, and checks that increments flushed on top of a rebuilt
+ * summary give the same result as rebuilding again, and as recomputing from the source tables.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+// Events are only counted once their transaction commits, so the test cannot run inside one
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class StatisticsServiceIntegrationTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ChatRepository chatRepository;
+
+    @Autowired
+    private StatisticsSummaryRepository summaryRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private StatisticsService statisticsService;
+
+    @BeforeEach
+    void setUp() {
+        statisticsService = new StatisticsService(summaryRepository, userRepository, chatRepository, transactionManager,
+                                                  new SimpleMeterRegistry());
+    }
+
+    private User user(String username, LocalDate dateOfBirth) {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(username + "@example.com");
+        user.setPasswordHash("x");
+        user.setDateOfBirth(dateOfBirth);
+        return userRepository.saveAndFlush(user);
+    }
+
+    private Chat insertChat(User user, String description, LocalDateTime createdAt) {
+        // The database assigns the category, as it does to any chat saved without one
+        Integer categoryId = jdbc.queryForObject(
+            "INSERT INTO chats (user_id, description, created_at) VALUES (?, ?, ?) RETURNING category_id",
+            Integer.class, user.getId(), description, createdAt);
+        ChatCategory category = new ChatCategory(description);
+        category.setId(categoryId);
+        Chat chat = new Chat(user, description);
+        chat.setCategory(category);
+        chat.setCreatedAt(createdAt);
+        return chat;
+    }
+
+    @Test
+    void flushedIncrementsMatchARebuild() {
+        User young = user("stats_young", LocalDate.of(1998, 3, 1));
+        User older = user("stats_older", LocalDate.of(1970, 3, 1));
+        LocalDateTime t0 = LocalDateTime.of(2024, 5, 1, 9, 0);
+
+        insertChat(young, "Billing", t0);
+        statisticsService.rebuild();
+
+        // New chats after the rebuild, recorded as ChatService would
+        statisticsService.recordChat(insertChat(young, "Billing", t0.plusDays(1)));
+        statisticsService.recordChat(insertChat(older, "Billing", t0.plusDays(2)));
+        statisticsService.recordChat(insertChat(older, "Delivery", t0.plusDays(3)));
+        statisticsService.flush();
+
+        Map<String, CategoryStatistics> incremental = categoriesByName();
+        Map<String, Map<String, Long>> incrementalAgeGroups = statisticsService.getCategoryAgeGroups();
+
+        assertThat(incremental.get("Billing").getChatCount()).isEqualTo(3);
+        assertThat(incremental.get("Billing").getFirstQueryAt()).isEqualTo(t0);
+        assertThat(incremental.get("Billing").getLastQueryAt()).isEqualTo(t0.plusDays(2));
+        assertThat(incrementalAgeGroups.get("Billing")).containsEntry("20-30", 1L).containsEntry("51+", 1L);
+
+        statisticsService.rebuild();
+
+        Map<String, CategoryStatistics> rebuilt = categoriesByName();
+        assertThat(rebuilt.keySet()).isEqualTo(incremental.keySet());
+        rebuilt.forEach((name, stats) -> {
+            assertThat(stats.getChatCount()).isEqualTo(incremental.get(name).getChatCount());
+            assertThat(stats.getFirstQueryAt()).isEqualTo(incremental.get(name).getFirstQueryAt());
+            assertThat(stats.getLastQueryAt()).isEqualTo(incremental.get(name).getLastQueryAt());
+        });
+        assertThat(statisticsService.getCategoryAgeGroups()).isEqualTo(incrementalAgeGroups);
+
+        // The exact recompute streams the source tables instead, inside a read-only transaction
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        Map<String, Map<String, Double>> recomputed =
+            readOnly.execute(status -> statisticsService.recomputeCategoryBreakdown(6));
+        assertThat(recomputed.keySet()).containsExactly("Billing", "Delivery");
+        assertThat(recomputed.get("Billing")).containsEntry("20-30", 50.0).containsEntry("51+", 50.0);
+        assertThat(recomputed.get("Delivery")).containsEntry("20-30", 0.0).containsEntry("51+", 100.0);
+    }
+
+    private Map<String, CategoryStatistics> categoriesByName() {
+        Map<String, CategoryStatistics> result = new HashMap<>();
+        for (CategoryStatistics stats : statisticsService.getCategories()) {
+            result.put(stats.getCategory(), stats);
+        }
+        return result;
+    }
+}
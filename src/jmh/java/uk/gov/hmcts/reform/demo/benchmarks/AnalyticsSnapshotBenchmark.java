@@ -0,0 +1,74 @@
+package uk.gov.hmcts.reform.demo.benchmarks;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import uk.gov.hmcts.reform.demo.services.ChatColumns;
+import uk.gov.hmcts.reform.demo.services.ChatColumns.CategoryTally;
+
+/**
+ * Scans the analytics snapshot for a month of category statistics, serially and split across the common fork/join
+ * pool, at 100k users and 1M chats spread over a year. Run with {@code ./gradlew jmh}; the snapshot's footprint is
+ * printed at setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class AnalyticsSnapshotBenchmark {
+
+    private static final int USERS = 100_000;
+    private static final int CHATS = 1_000_000;
+    private static final String[] CATEGORIES = {
+        "Billing", "Delivery", "Returns", "Account", "Technical", "Complaints", "Feedback", "Other"
+    };
+
+    private final LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+    private ChatColumns.View view;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        LocalDate[] datesOfBirth = new LocalDate[USERS];
+        for (int user = 0; user < USERS; user++) {
+            datesOfBirth[user] = LocalDate.of(1950 + random.nextInt(60), 1 + random.nextInt(12), 1);
+        }
+        ChatColumns columns = new ChatColumns(CHATS);
+        for (int i = 0; i < CHATS; i++) {
+            // Chats arrive in time order, as they are loaded by ID
+            int user = random.nextInt(USERS);
+            int category = Math.min(CATEGORIES.length - 1, (int) Math.abs(random.nextGaussian() * 3));
+            columns.append(user + 1L, CATEGORIES[category], start.plusSeconds((long) i * 31), datesOfBirth[user]);
+        }
+        view = columns.view();
+        System.out.printf("%nSnapshot of %d chats holds about %d bytes%n", view.size(), columns.footprintBytes());
+    }
+
+    @Benchmark
+    public List<CategoryTally> serialScan() {
+        return view.tally(start.plusMonths(3), start.plusMonths(4), false);
+    }
+
+    @Benchmark
+    public List<CategoryTally> parallelScan() {
+        return view.tally(start.plusMonths(3), start.plusMonths(4), true);
+    }
+
+    @Benchmark
+    public List<CategoryTally> serialScanAllTime() {
+        return view.tally(start, start.plusYears(1), false);
+    }
+
+    @Benchmark
+    public List<CategoryTally> parallelScanAllTime() {
+        return view.tally(start, start.plusYears(1), true);
+    }
+}
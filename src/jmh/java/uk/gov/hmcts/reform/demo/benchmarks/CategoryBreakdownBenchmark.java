@@ -0,0 +1,107 @@
+package uk.gov.hmcts.reform.demo.benchmarks;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import uk.gov.hmcts.reform.demo.services.CategoryBreakdownCalculator;
+import uk.gov.hmcts.reform.demo.utils.AgeGroups;
+
+/**
+ * Compares the chat category breakdown as the controller used to compute it, rescanning the chats per category and
+ * the users per age group, with the single pass of {@link CategoryBreakdownCalculator}, at 100k users and 1M chats.
+ * Run with {@code ./gradlew jmh}; the gc profiler reports allocation per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CategoryBreakdownBenchmark {
+
+    private static final int USERS = 100_000;
+    private static final int CHATS = 1_000_000;
+    private static final int TOP_CATEGORIES = 6;
+    private static final String[] CATEGORIES = {
+        "Billing", "Delivery", "Returns", "Account", "Technical", "Complaints", "Feedback", "Other"
+    };
+
+    private record UserRow(Long id, LocalDate dateOfBirth) {
+    }
+
+    private record ChatRow(Long userId, String category) {
+    }
+
+    private final LocalDate today = LocalDate.of(2024, 6, 1);
+    private List<UserRow> users;
+    private List<ChatRow> chats;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        users = new ArrayList<>(USERS);
+        for (long id = 1; id <= USERS; id++) {
+            users.add(new UserRow(id, today.minusYears(15 + random.nextInt(60)).minusDays(random.nextInt(365))));
+        }
+        chats = new ArrayList<>(CHATS);
+        for (int i = 0; i < CHATS; i++) {
+            // Skewed so the top categories are stable
+            int category = Math.min(CATEGORIES.length - 1, (int) Math.abs(random.nextGaussian() * 3));
+            chats.add(new ChatRow(1L + random.nextInt(USERS), CATEGORIES[category]));
+        }
+    }
+
+    @Benchmark
+    public Map<String, Map<String, Double>> nestedStreams() {
+        List<String> topCategories = chats.stream()
+            .collect(Collectors.groupingBy(ChatRow::category, Collectors.counting()))
+            .entrySet().stream()
+            .sorted(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder()))
+            .limit(TOP_CATEGORIES)
+            .map(Map.Entry::getKey)
+            .toList();
+
+        Map<String, Map<String, Double>> breakdown = new LinkedHashMap<>();
+        for (String category : topCategories) {
+            Set<Long> interactedUserIds = chats.stream()
+                .filter(chat -> chat.category().equals(category))
+                .map(ChatRow::userId)
+                .collect(Collectors.toSet());
+            double totalInteracted = interactedUserIds.size();
+
+            Map<String, Double> pctByBucket = new LinkedHashMap<>();
+            for (String bucket : AgeGroups.FROM_20) {
+                long inBucket = users.stream()
+                    .filter(user -> interactedUserIds.contains(user.id()))
+                    .filter(user -> bucket.equals(AgeGroups.of(user.dateOfBirth(), today)))
+                    .count();
+                pctByBucket.put(bucket, totalInteracted > 0 ? (inBucket / totalInteracted) * 100.0 : 0.0);
+            }
+            breakdown.put(category, pctByBucket);
+        }
+        return breakdown;
+    }
+
+    @Benchmark
+    public Map<String, Map<String, Double>> singlePass() {
+        CategoryBreakdownCalculator calculator = new CategoryBreakdownCalculator(users.size());
+        for (UserRow user : users) {
+            calculator.addUser(user.id(), user.dateOfBirth());
+        }
+        for (ChatRow chat : chats) {
+            calculator.addChat(chat.userId(), chat.category(), today);
+        }
+        return calculator.breakdown(TOP_CATEGORIES);
+    }
+}
@@ -16,7 +16,9 @@ public class CorsConfig {
                 registry.addMapping("/**")
                     .allowedOrigins("http://localhost:3100")
                     .allowedMethods("GET", "POST", "PUT", "DELETE")
-                    .allowCredentials(true);
+                    .allowCredentials(true)
+                    // Paging headers of the account listing
+                    .exposedHeaders("X-Next-Cursor", "X-Total-Count");
             }
         };
     }
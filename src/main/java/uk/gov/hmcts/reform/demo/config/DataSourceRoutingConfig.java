@@ -0,0 +1,75 @@
+package uk.gov.hmcts.reform.demo.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Clock;
+import java.time.Duration;
+import javax.sql.DataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.flyway.FlywayDataSource;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+/**
+ * Splits database traffic between the primary and a read replica when {@code spring.datasource.replica.enabled} is
+ * set. Without it, Spring Boot's single auto-configured datasource is used.
+ */
+@Configuration
+@ConditionalOnProperty(name = "spring.datasource.replica.enabled", havingValue = "true")
+public class DataSourceRoutingConfig {
+
+    @Bean
+    @FlywayDataSource
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.replica.hikari")
+    public HikariDataSource replicaDataSource(DataSourceProperties properties,
+                                              @Value("${spring.datasource.replica.url}") String url,
+                                              @Value("${spring.datasource.replica.username}") String username,
+                                              @Value("${spring.datasource.replica.password}") String password) {
+        return DataSourceBuilder.create()
+            .type(HikariDataSource.class)
+            .driverClassName(properties.determineDriverClassName())
+            .url(url)
+            .username(username)
+            .password(password)
+            .build();
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(
+        @Qualifier("primaryDataSource") DataSource primaryDataSource,
+        @Qualifier("replicaDataSource") DataSource replicaDataSource,
+        MeterRegistry meterRegistry,
+        @Value("${spring.datasource.replica.read-your-writes-seconds:5}") long readYourWritesSeconds,
+        @Value("${spring.datasource.replica.retry-after-failure-seconds:30}") long retryAfterFailureSeconds) {
+
+        Counter fallbacks = Counter.builder("datasource.replica.fallbacks")
+            .description("Read-only transactions sent to the primary because the replica was unavailable")
+            .register(meterRegistry);
+
+        ReadWriteRoutingDataSource routingDataSource = new ReadWriteRoutingDataSource(
+            primaryDataSource,
+            replicaDataSource,
+            Duration.ofSeconds(readYourWritesSeconds),
+            Duration.ofSeconds(retryAfterFailureSeconds),
+            Clock.systemUTC(),
+            fallbacks::increment
+        );
+        // Defer fetching the connection until the transaction's read-only flag has been set
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+}
@@ -0,0 +1,128 @@
+package uk.gov.hmcts.reform.demo.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpSession;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Map;
+import javax.sql.DataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+/**
+ * Routes read-only transactions to a replica and everything else to the primary.
+ *
+ * <p>Must be wrapped in a {@code LazyConnectionDataSourceProxy}, so that the connection is only fetched once the
+ * transaction's read-only flag is known. If the replica cannot hand out a connection, reads fall back to the primary
+ * for {@code replicaRetryAfter}. With a non-zero {@code readYourWritesPin}, an HTTP session that has just run a write
+ * transaction keeps reading from the primary until the replica has had time to catch up.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    static final String PIN_ATTRIBUTE = ReadWriteRoutingDataSource.class.getName() + ".PINNED_UNTIL";
+
+    private static final Logger logger = LoggerFactory.getLogger(ReadWriteRoutingDataSource.class);
+
+    public enum Route {
+        PRIMARY, REPLICA
+    }
+
+    private final DataSource primary;
+    private final DataSource replica;
+    private final Duration readYourWritesPin;
+    private final Duration replicaRetryAfter;
+    private final Clock clock;
+    private final Runnable onFallback;
+
+    private volatile long replicaRetryAtMillis;
+
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica, Duration readYourWritesPin,
+                                      Duration replicaRetryAfter, Clock clock, Runnable onFallback) {
+        this.primary = primary;
+        this.replica = replica;
+        this.readYourWritesPin = readYourWritesPin;
+        this.replicaRetryAfter = replicaRetryAfter;
+        this.clock = clock;
+        this.onFallback = onFallback;
+        setTargetDataSources(Map.of(Route.PRIMARY, primary, Route.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                pinToPrimary();
+            }
+            return Route.PRIMARY;
+        }
+        if (isPinnedToPrimary() || clock.millis() < replicaRetryAtMillis) {
+            return Route.PRIMARY;
+        }
+        return Route.REPLICA;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        DataSource target = determineTargetDataSource();
+        if (target != replica) {
+            return target.getConnection();
+        }
+        try {
+            return replica.getConnection();
+        } catch (SQLException | RuntimeException e) {
+            replicaRetryAtMillis = clock.millis() + replicaRetryAfter.toMillis();
+            onFallback.run();
+            logger.warn("Replica unavailable, reading from primary for {}: {}", replicaRetryAfter, e.getMessage());
+            return primary.getConnection();
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        // Credentials are configured per pool
+        return getConnection();
+    }
+
+    /**
+     * Records that the current request wrote, so the rest of the request and the HTTP session read from the primary.
+     */
+    private void pinToPrimary() {
+        HttpServletRequest request = currentRequest();
+        if (readYourWritesPin.isZero() || request == null) {
+            return;
+        }
+        Long pinnedUntil = clock.millis() + readYourWritesPin.toMillis();
+        request.setAttribute(PIN_ATTRIBUTE, pinnedUntil);
+        HttpSession session = request.getSession(false);
+        if (session != null) {
+            session.setAttribute(PIN_ATTRIBUTE, pinnedUntil);
+        }
+    }
+
+    private boolean isPinnedToPrimary() {
+        HttpServletRequest request = currentRequest();
+        if (readYourWritesPin.isZero() || request == null) {
+            return false;
+        }
+        Object pinnedUntil = request.getAttribute(PIN_ATTRIBUTE);
+        HttpSession session = request.getSession(false);
+        if (pinnedUntil == null && session != null) {
+            pinnedUntil = session.getAttribute(PIN_ATTRIBUTE);
+        }
+        return pinnedUntil instanceof Long until && clock.millis() < until;
+    }
+
+    private static HttpServletRequest currentRequest() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        return attributes instanceof ServletRequestAttributes servletAttributes ? servletAttributes.getRequest() : null;
+    }
+}
@@ -0,0 +1,12 @@
+package uk.gov.hmcts.reform.demo.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables the {@code @Scheduled} background jobs (e.g. purging deleted chats).
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
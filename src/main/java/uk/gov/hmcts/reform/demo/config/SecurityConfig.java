@@ -1,6 +1,12 @@
 package uk.gov.hmcts.reform.demo.config;
 
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpStatus;
@@ -11,21 +17,45 @@ import org.springframework.security.config.annotation.authentication.builders.Au
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.HttpStatusEntryPoint;
+import org.springframework.security.web.context.SecurityContextHolderFilter;
 import org.springframework.security.web.csrf.CookieCsrfTokenRepository;
+import uk.gov.hmcts.reform.demo.filters.RevokedLoginFilter;
+import uk.gov.hmcts.reform.demo.repositories.UserRepository;
+import uk.gov.hmcts.reform.demo.security.BoundedPasswordEncoder;
 import uk.gov.hmcts.reform.demo.services.AccountUserDetailsService;
 
 @Configuration
 @EnableWebSecurity
 public class SecurityConfig {
 
+    private static final Logger logger = LoggerFactory.getLogger(SecurityConfig.class);
+
+    private static final String BCRYPT = "bcrypt";
+
     private final AccountUserDetailsService userDetailsService;
+    private final UserRepository userRepository;
+    private final MeterRegistry meterRegistry;
+    private final int hashingQueueCapacity;
+    private final long hashingQueueTimeoutMillis;
+    private final int bcryptStrength;
 
     @Autowired
-    public SecurityConfig(AccountUserDetailsService userDetailsService) {
+    public SecurityConfig(AccountUserDetailsService userDetailsService,
+                          UserRepository userRepository,
+                          MeterRegistry meterRegistry,
+                          @Value("${security.password-hashing.queue-capacity:200}") int hashingQueueCapacity,
+                          @Value("${security.password-hashing.queue-timeout-ms:2000}") long hashingQueueTimeoutMillis,
+                          @Value("${security.password-hashing.bcrypt-strength:10}") int bcryptStrength) {
         this.userDetailsService = userDetailsService;
+        this.userRepository = userRepository;
+        this.meterRegistry = meterRegistry;
+        this.hashingQueueCapacity = hashingQueueCapacity;
+        this.hashingQueueTimeoutMillis = hashingQueueTimeoutMillis;
+        this.bcryptStrength = bcryptStrength;
     }
 
     @Bean
@@ -44,6 +74,7 @@ public class SecurityConfig {
                     "/login/admin",
                     "/account/register",
                     "/account/register/admin",
+                    "/account/availability",
                     "/forgot-password/enter-email",
                     "/forgot-password/verify-otp",
                     "/forgot-password/reset-password",
@@ -55,7 +86,9 @@ public class SecurityConfig {
                 .authenticationEntryPoint(new HttpStatusEntryPoint(HttpStatus.UNAUTHORIZED))
             )
             .formLogin(Customizer.withDefaults())
-            .logout(Customizer.withDefaults());
+            .logout(Customizer.withDefaults())
+            // Logs out users who may no longer log in, whose login is still in their session
+            .addFilterAfter(new RevokedLoginFilter(userRepository), SecurityContextHolderFilter.class);
 
         return http.build();
     }
@@ -71,12 +104,29 @@ public class SecurityConfig {
     }
 
     /**
-     * Defines the PasswordEncoder bean using BCrypt hashing algorithm.
+     * Defines the PasswordEncoder bean using BCrypt hashing algorithm, run on a bounded pool of hashing threads so
+     * that a burst of logins cannot take every core.
+     *
+     * <p>New hashes are prefixed with their algorithm, {@code {bcrypt}}, and use the strength set by
+     * {@code security.password-hashing.bcrypt-strength}. Every node shares the users table, so the strength is one
+     * setting for the whole service, chosen for the slowest node. Hashes stored without a prefix, or with a lower
+     * strength, still match, and {@link PasswordEncoder#upgradeEncoding} tells the login to store a new one. Hashes of
+     * a higher strength are kept, so lowering the strength only applies to passwords hashed from then on.
      *
-     * @return An instance of BCryptPasswordEncoder.
+     * @return A DelegatingPasswordEncoder over BCrypt, wrapped in a BoundedPasswordEncoder.
      */
-    @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    @Bean(destroyMethod = "shutdown")
+    public BoundedPasswordEncoder passwordEncoder() {
+        logger.info("Hashing passwords with BCrypt strength {}", bcryptStrength);
+        Gauge.builder("password.hashing.bcrypt.strength", () -> bcryptStrength)
+            .description("BCrypt strength of new password hashes")
+            .register(meterRegistry);
+
+        DelegatingPasswordEncoder encoder = new DelegatingPasswordEncoder(
+            BCRYPT, Map.of(BCRYPT, new BCryptPasswordEncoder(bcryptStrength)));
+        // Hashes stored before the prefix, which are all BCrypt
+        encoder.setDefaultPasswordEncoderForMatches(new BCryptPasswordEncoder());
+        return BoundedPasswordEncoder.sizedToCores(encoder, hashingQueueCapacity, hashingQueueTimeoutMillis,
+                                                   meterRegistry);
     }
 }
@@ -5,18 +5,24 @@ import static org.springframework.http.ResponseEntity.ok;
 
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.function.Function;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.MessageSource;
 import org.springframework.context.i18n.LocaleContextHolder;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -32,13 +38,22 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import uk.gov.hmcts.reform.demo.dto.AccountSummary;
+import uk.gov.hmcts.reform.demo.dto.BulkAccountDecision;
 import uk.gov.hmcts.reform.demo.dto.PendingRequestSummary;
+import uk.gov.hmcts.reform.demo.entities.AccountDeletion;
 import uk.gov.hmcts.reform.demo.entities.AccountRequest;
 import uk.gov.hmcts.reform.demo.entities.User;
 import uk.gov.hmcts.reform.demo.repositories.AccountRequestRepository;
+import uk.gov.hmcts.reform.demo.repositories.AccountSummaryQueries.Filter;
+import uk.gov.hmcts.reform.demo.repositories.AccountSummaryQueries.Position;
+import uk.gov.hmcts.reform.demo.repositories.AccountSummaryQueries.SortField;
 import uk.gov.hmcts.reform.demo.repositories.UserRepository;
+import uk.gov.hmcts.reform.demo.services.AccountAvailabilityService;
+import uk.gov.hmcts.reform.demo.services.AccountDeletionService;
+import uk.gov.hmcts.reform.demo.services.AccountRequestService;
 
 @RestController
 @RequestMapping("/account")
@@ -46,17 +61,54 @@ public class AccountController {
 
     private static final Logger logger = LoggerFactory.getLogger(AccountController.class);
 
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    static final String TOTAL_COUNT_HEADER = "X-Total-Count";
+    private static final int MAX_ACCOUNT_PAGE_SIZE = 200;
+    static final int MAX_BULK_DECISION_SIZE = 500;
+
     private final MessageSource messages;
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final AccountRequestRepository accountRequestRepository;
+    private final AccountRequestService accountRequestService;
+    private final AccountAvailabilityService accountAvailabilityService;
+    private final AccountDeletionService accountDeletionService;
 
     public AccountController(MessageSource messages, UserRepository userRepository, PasswordEncoder passwordEncoder,
-                             AccountRequestRepository accountRequestRepository) {
+                             AccountRequestRepository accountRequestRepository,
+                             AccountRequestService accountRequestService,
+                             AccountAvailabilityService accountAvailabilityService,
+                             AccountDeletionService accountDeletionService) {
         this.messages = messages;
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
         this.accountRequestRepository = accountRequestRepository;
+        this.accountRequestService = accountRequestService;
+        this.accountAvailabilityService = accountAvailabilityService;
+        this.accountDeletionService = accountDeletionService;
+    }
+
+    /**
+     * Tells whether a username and/or email are already taken, for checking them while the registration form is
+     * filled in. Values never registered are answered from memory; see {@link AccountAvailabilityService}.
+     *
+     * @return {@code {"username": available, "email": available}}, with only the fields asked about.
+     */
+    @GetMapping("/availability")
+    public ResponseEntity<Map<String, Boolean>> checkAvailability(
+        @RequestParam(value = "username", required = false) String username,
+        @RequestParam(value = "email", required = false) String email) {
+        if ((username == null || username.isBlank()) && (email == null || email.isBlank())) {
+            return badRequest().build();
+        }
+        Map<String, Boolean> availability = new LinkedHashMap<>();
+        if (username != null && !username.isBlank()) {
+            availability.put("username", !accountAvailabilityService.isUsernameTaken(username));
+        }
+        if (email != null && !email.isBlank()) {
+            availability.put("email", !accountAvailabilityService.isEmailTaken(email));
+        }
+        return ok(availability);
     }
 
     @PostMapping("/register")
@@ -105,71 +157,285 @@ public class AccountController {
         // Ensure both deletions happen in the same transaction
         accountRequestRepository.delete(request);
         userRepository.delete(user);
+        accountAvailabilityService.recordDeleted(1);
 
         return ResponseEntity.ok("Account request rejected, and user has been deleted.");
     }
 
+    /**
+     * Approves many account requests at once, given either their IDs or a time they were requested before.
+     *
+     * <p>Responds with the outcome for each request: {@code APPROVED}, or {@code NOT_FOUND} or {@code NOT_PENDING}
+     * if it was left alone. At most {@value #MAX_BULK_DECISION_SIZE} requests are decided at a time; a filter
+     * matching more is refused, so the admin can narrow it or work through the oldest first.
+     */
+    @PostMapping("/approve")
+    public ResponseEntity<Map<Long, AccountRequestService.Outcome>> approveAccountRequests(
+        @AuthenticationPrincipal User currentUser, @RequestBody BulkAccountDecision decision) {
+        return decideAccountRequests(currentUser, decision, accountRequestService::approve);
+    }
+
+    /**
+     * Rejects many account requests at once, deleting their users, given either their IDs or a time they were
+     * requested before. Responds as {@link #approveAccountRequests} does.
+     */
+    @PostMapping("/reject")
+    public ResponseEntity<Map<Long, AccountRequestService.Outcome>> rejectAccountRequests(
+        @AuthenticationPrincipal User currentUser, @RequestBody BulkAccountDecision decision) {
+        ResponseEntity<Map<Long, AccountRequestService.Outcome>> response =
+            decideAccountRequests(currentUser, decision, accountRequestService::reject);
+        if (response.getBody() != null) {
+            accountAvailabilityService.recordDeleted((int) response.getBody().values().stream()
+                .filter(outcome -> outcome == AccountRequestService.Outcome.REJECTED).count());
+        }
+        return response;
+    }
+
+    private ResponseEntity<Map<Long, AccountRequestService.Outcome>> decideAccountRequests(
+        User currentUser, BulkAccountDecision decision,
+        Function<List<Long>, Map<Long, AccountRequestService.Outcome>> decide) {
+        if (currentUser == null || !Boolean.TRUE.equals(currentUser.getIsAdmin())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        if (decision == null || (decision.getIds() == null) == (decision.getRequestedBefore() == null)) {
+            return badRequest().build();
+        }
+
+        List<Long> ids;
+        if (decision.getIds() != null) {
+            ids = decision.getIds();
+            if (ids.contains(null)) {
+                return badRequest().build();
+            }
+        } else {
+            // One more than allowed, to tell whether the filter matches too many
+            ids = accountRequestService.findPendingRequestedBefore(
+                decision.getRequestedBefore(), MAX_BULK_DECISION_SIZE + 1);
+        }
+        if (ids.size() > MAX_BULK_DECISION_SIZE) {
+            return badRequest().build();
+        }
+        return ok(decide.apply(ids));
+    }
+
+    /**
+     * Lists accounts a page at a time, optionally filtered by role, creation date and the start of the username.
+     *
+     * <p>Pages follow on by keyset: the {@value #NEXT_CURSOR_HEADER} header of one page is passed as {@code after}
+     * for the next, with the same filters and sort, and is absent on the last page. Counting every matching account
+     * costs a query of its own, so the {@value #TOTAL_COUNT_HEADER} header is only sent when asked for with
+     * {@code count=true}, or when the first page already holds every account.
+     */
+    @Transactional(readOnly = true)
     @GetMapping("/all")
     public ResponseEntity<List<AccountSummary>> listAllAccounts(
-        @AuthenticationPrincipal User currentUser
+        @AuthenticationPrincipal User currentUser,
+        @RequestParam(value = "role", required = false) String role,
+        @RequestParam(value = "createdFrom", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+        LocalDate createdFrom,
+        @RequestParam(value = "createdTo", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+        LocalDate createdTo,
+        @RequestParam(value = "username", required = false) String usernamePrefix,
+        @RequestParam(value = "sort", defaultValue = "ID") SortField sort,
+        @RequestParam(value = "direction", defaultValue = "ASC") Sort.Direction direction,
+        @RequestParam(value = "after", required = false) String after,
+        @RequestParam(value = "size", defaultValue = "50") int size,
+        @RequestParam(value = "count", defaultValue = "false") boolean count
     ) {
-        if (currentUser == null || !currentUser.getIsAdmin()) {
+        if (currentUser == null || !Boolean.TRUE.equals(currentUser.getIsAdmin())) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
         }
+        if (size < 1 || size > MAX_ACCOUNT_PAGE_SIZE
+            || (createdFrom != null && createdTo != null && createdFrom.isAfter(createdTo))) {
+            return badRequest().build();
+        }
+        Boolean admin;
+        if (role == null) {
+            admin = null;
+        } else if ("ADMIN".equalsIgnoreCase(role)) {
+            admin = true;
+        } else if ("USER".equalsIgnoreCase(role)) {
+            admin = false;
+        } else {
+            return badRequest().build();
+        }
+        Position position = null;
+        if (after != null) {
+            position = decodeCursor(after, sort);
+            if (position == null) {
+                return badRequest().build();
+            }
+        }
+
+        Filter filter = new Filter(admin, createdFrom, createdTo, usernamePrefix);
+        // One more than the page, to tell whether there is another
+        List<AccountSummary> summaries = userRepository.findAccountSummaries(
+            filter, sort, direction.isDescending(), position, size + 1);
 
-        var summaries = userRepository.findAll().stream()
-            .map(u -> new AccountSummary(
-                u.getId(),
-                u.getUsername(),
-                u.getEmail(),
-                u.getIsAdmin() ? "Admin" : "User",
-                u.getCreatedAt()
-            ))
-            .collect(Collectors.toList());
+        ResponseEntity.BodyBuilder response = ok();
+        if (summaries.size() > size) {
+            summaries = summaries.subList(0, size);
+            response.header(NEXT_CURSOR_HEADER, encodeCursor(sort, summaries.get(size - 1)));
+        }
+        if (count) {
+            response.header(TOTAL_COUNT_HEADER, String.valueOf(userRepository.countAccounts(filter)));
+        } else if (position == null && summaries.size() < size) {
+            response.header(TOTAL_COUNT_HEADER, String.valueOf(summaries.size()));
+        }
+        return response.body(summaries);
+    }
 
-        return ResponseEntity.ok(summaries);
+    /**
+     * Encodes the position of an account in a listing as an opaque cursor.
+     */
+    static String encodeCursor(SortField sort, AccountSummary last) {
+        String key = switch (sort) {
+            case ID -> "";
+            case USERNAME -> last.getUsername();
+            case CREATED_DATE -> last.getCreatedDate().toString();
+        };
+        return encodeCursor(sort.name(), key, last.getAccountId());
+    }
+
+    /**
+     * Decodes a cursor from {@link #encodeCursor(SortField, AccountSummary)}.
+     *
+     * @return The position, or null if the cursor is malformed or was made for another sort.
+     */
+    static Position decodeCursor(String cursor, SortField sort) {
+        Position position = decodeCursor(cursor, sort.name());
+        if (position == null) {
+            return null;
+        }
+        if (sort == SortField.ID) {
+            return new Position(null, position.id());
+        }
+        if (sort == SortField.CREATED_DATE) {
+            try {
+                LocalDate.parse(position.key());
+            } catch (DateTimeParseException e) {
+                return null;
+            }
+        }
+        return position;
     }
 
     /**
-     * Retrieves all pending account requests.
+     * Retrieves pending account requests a page at a time, oldest first. Pages follow on by keyset as in
+     * {@link #listAllAccounts}: the {@value #NEXT_CURSOR_HEADER} header of one page is passed as {@code after} for
+     * the next.
      */
+    @Transactional(readOnly = true)
     @GetMapping("/pending")
-    public ResponseEntity<List<PendingRequestSummary>> getPendingAccountRequests() {
-        List<PendingRequestSummary> summaries = accountRequestRepository
-            .findByStatus(AccountRequest.Status.PENDING)
-            .stream()
-            .map(r -> new PendingRequestSummary(
-                r.getId(),
-                r.getUser().getUsername(),
-                r.getUser().getEmail(),
-                r.getStatus().name(),
-                r.getRequestedAt()
-            ))
-            .collect(Collectors.toList());
-
-        return ResponseEntity.ok(summaries);
+    public ResponseEntity<List<PendingRequestSummary>> getPendingAccountRequests(
+        @RequestParam(value = "after", required = false) String after,
+        @RequestParam(value = "size", defaultValue = "50") int size
+    ) {
+        if (size < 1 || size > MAX_ACCOUNT_PAGE_SIZE) {
+            return badRequest().build();
+        }
+
+        AccountRequest.Status status = AccountRequest.Status.PENDING;
+        // One more than the page, to tell whether there is another
+        Limit limit = Limit.of(size + 1);
+        List<PendingRequestSummary> summaries;
+        if (after == null) {
+            summaries = accountRequestRepository.findSummariesByStatus(status, limit);
+        } else {
+            Position position = decodeCursor(after, status.name());
+            LocalDateTime afterRequestedAt = position == null ? null : parseRequestedAt(position.key());
+            if (afterRequestedAt == null) {
+                return badRequest().build();
+            }
+            summaries = accountRequestRepository.findSummariesByStatusAfter(
+                status, afterRequestedAt, position.id(), limit);
+        }
+
+        ResponseEntity.BodyBuilder response = ok();
+        if (summaries.size() > size) {
+            summaries = summaries.subList(0, size);
+            PendingRequestSummary last = summaries.get(size - 1);
+            response.header(NEXT_CURSOR_HEADER,
+                            encodeCursor(status.name(), last.getSubmittedDate().toString(), last.getRequestId()));
+        }
+        return response.body(summaries);
+    }
+
+    private static LocalDateTime parseRequestedAt(String requestedAt) {
+        try {
+            return LocalDateTime.parse(requestedAt);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Encodes the position of a row in a listing as an opaque cursor.
+     *
+     * @param listing Names the listing and its order, so a cursor is not used with another.
+     * @param key     The row's sort value.
+     * @param id      The row's ID, which breaks ties.
+     */
+    private static String encodeCursor(String listing, String key, long id) {
+        String cursor = listing + "\n" + key + "\n" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a cursor from {@link #encodeCursor(String, String, long)}.
+     *
+     * @return The position, or null if the cursor is malformed or was made for another listing.
+     */
+    private static Position decodeCursor(String cursor, String listing) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int keyStart = decoded.indexOf('\n');
+            int idStart = decoded.lastIndexOf('\n');
+            if (keyStart < 0 || keyStart == idStart || !decoded.substring(0, keyStart).equals(listing)) {
+                return null;
+            }
+            return new Position(decoded.substring(keyStart + 1, idStart),
+                                Long.parseLong(decoded.substring(idStart + 1)));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
     }
 
     /**
-     * Deletes a user account by ID.
+     * Deletes a user account by ID, for admins. The user can no longer log in from now on and is logged out of their
+     * sessions; the sessions, reset tokens, chats and the account itself are removed in the background; see
+     * {@link AccountDeletionService}.
+     *
+     * @return 202 Accepted once the deletion is queued, or 403 Forbidden for anyone but an admin.
      */
     @DeleteMapping("/{userId}")
-    public ResponseEntity<String> deleteAccount(@PathVariable Long userId) {
-        Optional<User> optionalUser = userRepository.findById(userId);
-        if (!optionalUser.isPresent()) {
+    public ResponseEntity<String> deleteAccount(@AuthenticationPrincipal User currentUser,
+                                                @PathVariable Long userId) {
+        if (currentUser == null || !Boolean.TRUE.equals(currentUser.getIsAdmin())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        if (!userRepository.existsById(userId)) {
             return ResponseEntity.badRequest().body("User not found.");
         }
 
-        User user = optionalUser.get();
-
-        // Remove any associated account requests first
-        Optional<AccountRequest> optionalRequest = accountRequestRepository.findByUser(user);
-        optionalRequest.ifPresent(accountRequestRepository::delete);
+        accountDeletionService.requestDeletion(userId);
 
-        // Delete the user account
-        userRepository.delete(user);
+        return ResponseEntity.accepted().body("User account deletion started.");
+    }
 
-        return ResponseEntity.ok("User account deleted successfully.");
+    /**
+     * Reports how far the deletion of a user account has got: its stage, the rows removed so far and when it was
+     * asked for, last progressed and finished.
+     */
+    @GetMapping("/{userId}/deletion")
+    public ResponseEntity<AccountDeletion> getDeletionProgress(@AuthenticationPrincipal User currentUser,
+                                                               @PathVariable Long userId) {
+        if (currentUser == null || !Boolean.TRUE.equals(currentUser.getIsAdmin())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        return accountDeletionService.findProgress(userId)
+            .map(ResponseEntity::ok)
+            .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
     @PostMapping("/update")
@@ -222,6 +488,8 @@ public class AccountController {
         logger.info("Username uniqueness validated successfully.");
 
         // Update username and email
+        String oldUsername = user.getUsername();
+        String oldEmail = user.getEmail();
         user.setUsername(newUsername);
         user.setEmail(newEmail);
         logger.info("Updated user's username and email to: '{}' and '{}'", newUsername, newEmail);
@@ -251,6 +519,7 @@ public class AccountController {
 
         // Save updated user information
         userRepository.save(user);
+        accountAvailabilityService.recordRenamed(oldUsername, oldEmail, newUsername, newEmail);
         logger.info("User information saved successfully for user id: {}", user.getId());
 
         // Refresh the authentication principal with the updated user data.
@@ -362,6 +631,7 @@ public class AccountController {
         req.setUser(newUser);
         req.setStatus(AccountRequest.Status.PENDING);
         accountRequestRepository.save(req);
+        accountAvailabilityService.recordRegistered(username, email);
 
         // success message
         String successKey = isAdmin ? "success.admin.registered" : "success.user.registered";
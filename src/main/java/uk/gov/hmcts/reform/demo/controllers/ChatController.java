@@ -11,6 +11,7 @@ import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Page;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
@@ -20,8 +21,10 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import uk.gov.hmcts.reform.demo.dto.MessageSearchHit;
 import uk.gov.hmcts.reform.demo.entities.Chat;
 import uk.gov.hmcts.reform.demo.entities.Message;
 import uk.gov.hmcts.reform.demo.entities.User;
@@ -34,6 +37,8 @@ public class ChatController {
 
     private static final Logger logger = LoggerFactory.getLogger(ChatController.class);
 
+    private static final int MAX_SEARCH_PAGE_SIZE = 50;
+
     private final ChatGptApi chatGptApi;
     private final ChatService chatService;
 
@@ -154,6 +159,42 @@ public class ChatController {
         }
     }
 
+    /**
+     * GET endpoint to full-text search the currently authenticated user's chat history.
+     */
+    @GetMapping("/search")
+    public ResponseEntity<?> searchChats(
+        @AuthenticationPrincipal User currentUser,
+        @RequestParam("q") String query,
+        @RequestParam(value = "page", defaultValue = "0") int page,
+        @RequestParam(value = "size", defaultValue = "20") int size) {
+
+        if (currentUser == null) {
+            return badRequest().body(Map.of("error", "User not authenticated."));
+        }
+        if (query == null || query.trim().isEmpty()) {
+            return badRequest().body(Map.of("error", "Search query cannot be empty."));
+        }
+        if (page < 0 || size < 1 || size > MAX_SEARCH_PAGE_SIZE) {
+            return badRequest().body(Map.of(
+                "error", "Page must be 0 or more and size between 1 and " + MAX_SEARCH_PAGE_SIZE + "."));
+        }
+
+        try {
+            Page<MessageSearchHit> results = chatService.searchMessages(currentUser, query.trim(), page, size);
+            return ok(Map.of(
+                "query", query.trim(),
+                "page", results.getNumber(),
+                "size", results.getSize(),
+                "total", results.getTotalElements(),
+                "results", results.getContent()
+            ));
+        } catch (Exception e) {
+            logger.error("Error searching chats for user id {}: {}", currentUser.getId(), e.getMessage());
+            return badRequest().body(Map.of("error", "Unable to search chats."));
+        }
+    }
+
     /**
      * DELETE endpoint to delete a chat.
      */
@@ -30,6 +30,8 @@ import uk.gov.hmcts.reform.demo.entities.Session;
 import uk.gov.hmcts.reform.demo.entities.User;
 import uk.gov.hmcts.reform.demo.repositories.SessionRepository;
 import uk.gov.hmcts.reform.demo.repositories.UserRepository;
+import uk.gov.hmcts.reform.demo.security.PasswordHashingRejectedException;
+import uk.gov.hmcts.reform.demo.services.LiveStatisticsPublisher;
 
 @RestController
 @RequestMapping("/login")
@@ -41,13 +43,16 @@ public class LoginController {
     private final PasswordEncoder passwordEncoder;
     private final SessionRepository sessionRepository;
     private final MessageSource messages;
+    private final LiveStatisticsPublisher livePublisher;
 
     public LoginController(UserRepository userRepository, PasswordEncoder passwordEncoder,
-                           SessionRepository sessionRepository, MessageSource messages) {
+                           SessionRepository sessionRepository, MessageSource messages,
+                           LiveStatisticsPublisher livePublisher) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
         this.sessionRepository = sessionRepository;
         this.messages = messages;
+        this.livePublisher = livePublisher;
     }
 
     @PostMapping("/chat")
@@ -102,6 +107,7 @@ public class LoginController {
             String msg = messages.getMessage("login.invalid", null, locale);
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(msg);
         }
+        rehashIfOutdated(user, password);
 
         // --- exactly as before: set up Spring SecurityContext ---
         List<SimpleGrantedAuthority> authorities = new ArrayList<>();
@@ -137,6 +143,7 @@ public class LoginController {
 
         Session session = new Session(sessionToken, user, createdAt, expiresAt);
         sessionRepository.save(session);
+        livePublisher.recordSession();
         logger.debug("Session created for user {} with token {}", user.getUsername(), sessionToken);
 
         // Do not manually set a JSESSIONID cookie; let the container manage it.
@@ -149,6 +156,24 @@ public class LoginController {
         return ResponseEntity.ok(responseBody);
     }
 
+    /**
+     * Stores a new hash of the password if the stored one is from an older algorithm or a lower strength than new
+     * hashes use, now that the password is known to be right.
+     */
+    private void rehashIfOutdated(User user, String password) {
+        if (!passwordEncoder.upgradeEncoding(user.getPasswordHash())) {
+            return;
+        }
+        try {
+            user.setPasswordHash(passwordEncoder.encode(password));
+            userRepository.save(user);
+            logger.debug("Rehashed the password of user {}", user.getId());
+        } catch (PasswordHashingRejectedException e) {
+            // Too busy to hash again; the next login will
+            logger.debug("Skipped rehashing the password of user {}: {}", user.getId(), e.getReason());
+        }
+    }
+
     /**
      * Validates if username and password are non-null and non-empty.
      */
@@ -1,287 +1,486 @@
 package uk.gov.hmcts.reform.demo.controllers;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.Period;
-import java.util.Comparator;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
-import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import uk.gov.hmcts.reform.demo.dto.ChatActivity;
 import uk.gov.hmcts.reform.demo.dto.SessionActivity;
-import uk.gov.hmcts.reform.demo.entities.Chat;
+import uk.gov.hmcts.reform.demo.dto.StatisticsDashboard;
+import uk.gov.hmcts.reform.demo.entities.CategoryStatistics;
 import uk.gov.hmcts.reform.demo.entities.User;
-import uk.gov.hmcts.reform.demo.repositories.ChatRepository;
-import uk.gov.hmcts.reform.demo.repositories.SessionRepository;
-import uk.gov.hmcts.reform.demo.repositories.UserRepository;
-
+import uk.gov.hmcts.reform.demo.services.AnalyticsSnapshotService;
+import uk.gov.hmcts.reform.demo.services.AnalyticsSnapshotService.RangeStatistics;
+import uk.gov.hmcts.reform.demo.services.LiveStatisticsPublisher;
+import uk.gov.hmcts.reform.demo.services.StatisticsCache;
+import uk.gov.hmcts.reform.demo.services.StatisticsExportService;
+import uk.gov.hmcts.reform.demo.services.StatisticsExportService.Format;
+import uk.gov.hmcts.reform.demo.services.StatisticsRollupService;
+import uk.gov.hmcts.reform.demo.services.StatisticsRollupService.Granularity;
+import uk.gov.hmcts.reform.demo.services.StatisticsService;
+import uk.gov.hmcts.reform.demo.utils.AgeGroups;
+
+/**
+ * Statistics endpoints, answered from the summary tables kept by {@link StatisticsService} and the activity rollups
+ * kept by {@link StatisticsRollupService}. Exact statistics over a date range are scanned from the in-memory
+ * snapshot kept by {@link AnalyticsSnapshotService}. Raw activity is exported by {@link StatisticsExportService},
+ * and live updates are pushed by {@link LiveStatisticsPublisher}.
+ *
+ * <p>Results are cached by {@link StatisticsCache} and carry an ETag, so a client sending it back in
+ * {@code If-None-Match} gets a 304 while the result is unchanged.
+ */
 @RestController
 @RequestMapping("/statistics")
 public class StatisticsController {
 
-    private final SessionRepository sessionRepository;
-    private final UserRepository userRepository;
-    private final ChatRepository chatRepository;
-
-    public StatisticsController(SessionRepository sessionRepository,
-                                UserRepository userRepository, ChatRepository chatRepository) {
-        this.sessionRepository = sessionRepository;
-        this.userRepository = userRepository;
-        this.chatRepository = chatRepository;
+    private static final int BREAKDOWN_CATEGORIES = 6;
+    private static final long MAX_HOURLY_DAYS = 31;
+    private static final MediaType TEXT_CSV = new MediaType("text", "csv", StandardCharsets.UTF_8);
+    private static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private final StatisticsService statisticsService;
+    private final StatisticsRollupService rollupService;
+    private final StatisticsExportService exportService;
+    private final AnalyticsSnapshotService snapshotService;
+    private final StatisticsCache cache;
+    private final LiveStatisticsPublisher livePublisher;
+
+    public StatisticsController(StatisticsService statisticsService, StatisticsRollupService rollupService,
+                                StatisticsExportService exportService, AnalyticsSnapshotService snapshotService,
+                                StatisticsCache cache, LiveStatisticsPublisher livePublisher) {
+        this.statisticsService = statisticsService;
+        this.rollupService = rollupService;
+        this.exportService = exportService;
+        this.snapshotService = snapshotService;
+        this.cache = cache;
+        this.livePublisher = livePublisher;
     }
 
     /**
-     * Retrieves user activity across age groups.
+     * Retrieves the number of sessions per day, or per hour, and age group, optionally limited to a date range.
+     * Hourly activity is limited to {@value #MAX_HOURLY_DAYS} days at a time.
      */
     @GetMapping("/user-activity")
-    public ResponseEntity<List<SessionActivity>> getUserActivity() {
-        List<SessionActivity> activities = sessionRepository.findAll().stream()
-            .map(session -> {
-                // find the user linked to this session
-                //    (assumes Session has a getUserId() or similar)
-                var userOpt = userRepository.findById(session.getUser().getId());
-                if (userOpt.isEmpty()) {
-                    // skip orphaned sessions
-                    return null;
-                }
-                User user = userOpt.get();
-
-                // compute their age
-                int age = Period.between(user.getDateOfBirth(), LocalDate.now()).getYears();
-
-                // bucket into a group
-                String bucket;
-                if (age <= 30) {
-                    bucket = "20 to 30";
-                } else if (age <= 40) {
-                    bucket = "31 to 40";
-                } else if (age <= 50) {
-                    bucket = "41 to 50";
-                } else {
-                    bucket = "51 and over";
-                }
+    public ResponseEntity<?> getUserActivity(
+        @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+        @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+        @RequestParam(value = "granularity", defaultValue = "DAY") Granularity granularity,
+        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+
+        LocalDate start = from != null ? from : defaultStart(to, granularity);
+        LocalDate end = to != null ? to : LocalDate.now();
+        String error = validateRange(start, end, granularity);
+        if (error != null) {
+            return ResponseEntity.badRequest().body(error);
+        }
 
-                // 4) build the DTO
-                return new SessionActivity(session.getCreatedAt(), bucket);
-            })
-            .filter(Objects::nonNull)
-            .collect(Collectors.toList());
+        return cached("user-activity", start + "/" + end + "/" + granularity, ifNoneMatch,
+                      () -> userActivity(start, end, granularity));
+    }
 
-        return ResponseEntity.ok(activities);
+    private List<SessionActivity> userActivity(LocalDate start, LocalDate end, Granularity granularity) {
+        return rollupService.getSessionActivity(start, end, granularity).stream()
+            .map(row -> new SessionActivity(row.getPeriod().toLocalDate(), hourOf(row.getPeriod(), granularity),
+                                            row.getAgeGroup(), row.getSessions()))
+            .toList();
+    }
+
+    /**
+     * Retrieves the number of chats per day, or per hour, category and age group, optionally limited to a date range.
+     * Hourly activity is limited to {@value #MAX_HOURLY_DAYS} days at a time.
+     */
+    @GetMapping("/chat-activity")
+    public ResponseEntity<?> getChatActivity(
+        @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+        @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+        @RequestParam(value = "granularity", defaultValue = "DAY") Granularity granularity,
+        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+
+        LocalDate start = from != null ? from : defaultStart(to, granularity);
+        LocalDate end = to != null ? to : LocalDate.now();
+        String error = validateRange(start, end, granularity);
+        if (error != null) {
+            return ResponseEntity.badRequest().body(error);
+        }
+
+        return cached("chat-activity", start + "/" + end + "/" + granularity, ifNoneMatch, () ->
+            rollupService.getChatActivity(start, end, granularity).stream()
+                .map(row -> new ChatActivity(row.getPeriod().toLocalDate(), hourOf(row.getPeriod(), granularity),
+                                             row.getCategory(), row.getAgeGroup(), row.getChats()))
+                .toList());
+    }
+
+    private static LocalDate defaultStart(LocalDate to, Granularity granularity) {
+        // Without a from date, hourly activity covers the last day rather than all time
+        return granularity == Granularity.HOUR ? (to != null ? to : LocalDate.now()) : LocalDate.EPOCH;
+    }
+
+    private static String validateRange(LocalDate start, LocalDate end, Granularity granularity) {
+        if (start.isAfter(end)) {
+            return "The from date must not be after the to date.";
+        }
+        if (granularity == Granularity.HOUR && ChronoUnit.DAYS.between(start, end) >= MAX_HOURLY_DAYS) {
+            return "Hourly activity is limited to " + MAX_HOURLY_DAYS + " days.";
+        }
+        return null;
+    }
+
+    private static LocalDateTime hourOf(LocalDateTime period, Granularity granularity) {
+        return granularity == Granularity.HOUR ? period : null;
     }
 
     /**
      * Retrieves the most popular chat categories and interaction percentages by age group.
+     *
+     * <p>By default the distinct users per age group are estimated from HyperLogLog sketches, within about 1.6%, and
+     * can be limited to chats between {@code from} and {@code to}; categories are then ranked by their estimated
+     * users in the range, as the sketches hold no chat counts. With {@code exact} they are the exact all-time
+     * counts, or, with a date range, exact counts scanned from the analytics snapshot, which answers 503 until it has
+     * loaded. With {@code recompute}, admin only, the breakdown is computed from the chats and users tables instead
+     * of the summaries, and is never cached.
      */
     @GetMapping("/chat-category-breakdown")
-    public ResponseEntity<Map<String, Map<String, Double>>> getChatCategoryBreakdown() {
-        List<User> users = userRepository.findAll();
-        List<Chat> chats = chatRepository.findAll();
-        LocalDate today = LocalDate.now();
+    public ResponseEntity<Map<String, Map<String, Double>>> getChatCategoryBreakdown(
+        @RequestParam(value = "exact", defaultValue = "false") boolean exact,
+        @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+        @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+        @RequestParam(value = "recompute", defaultValue = "false") boolean recompute,
+        @AuthenticationPrincipal User currentUser,
+        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+
+        if (recompute) {
+            if (currentUser == null || !Boolean.TRUE.equals(currentUser.getIsAdmin())) {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+            }
+            return ResponseEntity.ok(statisticsService.recomputeCategoryBreakdown(BREAKDOWN_CATEGORIES));
+        }
 
-        // build overall user‐buckets
-        Map<String, Long> userAgeGroups = calculateUserAgeGroups(users);
+        if (exact && from == null && to == null) {
+            return cached("chat-category-breakdown", "exact", ifNoneMatch,
+                          () -> breakdown(names(statisticsService.getCategories()),
+                                          statisticsService.getCategoryAgeGroups()));
+        }
+        LocalDate start = from != null ? from : LocalDate.EPOCH;
+        LocalDate end = to != null ? to : LocalDate.now();
+        if (start.isAfter(end)) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (exact) {
+            if (!snapshotService.isReady()) {
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+            }
+            return cached("chat-category-breakdown", "exact/" + start + "/" + end, ifNoneMatch, () -> {
+                RangeStatistics range = snapshotService.getRangeStatistics(start, end);
+                return breakdown(names(range.categories()), range.ageGroups());
+            });
+        }
+        return cached("chat-category-breakdown", start + "/" + end, ifNoneMatch, () -> {
+            Map<String, Map<String, Long>> estimates = statisticsService.estimateCategoryAgeGroups(start, end);
+            return breakdown(mostUsers(estimates), estimates);
+        });
+    }
 
-        // count chats per category
-        Map<String, Long> categoryCounts = getPopularChatCategories(chats);
+    private static List<String> names(List<CategoryStatistics> categories) {
+        return categories.stream().map(CategoryStatistics::getCategory).toList();
+    }
 
-        // take top 6
-        List<String> topCats = categoryCounts.entrySet().stream()
-            .sorted(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder()))
-            .limit(6)
+    /**
+     * Ranks categories by their users across all age groups, most first.
+     */
+    private static List<String> mostUsers(Map<String, Map<String, Long>> ageGroups) {
+        Map<String, Long> users = new HashMap<>();
+        ageGroups.forEach((category, usersByAgeGroup) -> users.put(
+            category, usersByAgeGroup.values().stream().mapToLong(Long::longValue).sum()));
+        return users.entrySet().stream()
+            .sorted(Map.Entry.<String, Long>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
             .map(Map.Entry::getKey)
             .toList();
+    }
 
+    /**
+     * Builds the breakdown for the first {@link #BREAKDOWN_CATEGORIES} of a ranked list of categories.
+     */
+    private static Map<String, Map<String, Double>> breakdown(List<String> categories,
+                                                              Map<String, Map<String, Long>> ageGroups) {
         Map<String, Map<String, Double>> breakdown = new LinkedHashMap<>();
+        for (String category : categories.subList(0, Math.min(BREAKDOWN_CATEGORIES, categories.size()))) {
+            Map<String, Long> usersByAgeGroup = ageGroups.getOrDefault(category, Map.of());
+            // Users under 20 count towards the total but have no bucket of their own
+            double totalInteracted = usersByAgeGroup.values().stream().mapToLong(Long::longValue).sum();
 
-        for (String cat : topCats) {
-            // first find the set of distinct user-IDs who chatted in this category
-            Set<Long> interactedUserIds = chats.stream()
-                .filter(c -> c.getDescription().equals(cat))
-                .map(c -> c.getUser().getId())
-                .collect(Collectors.toSet());
-
-            double totalInteracted = interactedUserIds.size();
             Map<String, Double> pctByBucket = new LinkedHashMap<>();
-
-            for (String bucket : userAgeGroups.keySet()) {
-                // count how many of those interacted users fall in this bucket
-                long inBucket = users.stream()
-                    .filter(u -> interactedUserIds.contains(u.getId()))
-                    .filter(u -> isUserInAgeGroup(u.getDateOfBirth(), today, bucket))
-                    .count();
-
-                double pct = totalInteracted > 0
-                    ? (inBucket / totalInteracted) * 100.0
-                    : 0.0;
-
-                pctByBucket.put(bucket, pct);
+            for (String bucket : AgeGroups.FROM_20) {
+                long inBucket = usersByAgeGroup.getOrDefault(bucket, 0L);
+                pctByBucket.put(bucket, totalInteracted > 0 ? (inBucket / totalInteracted) * 100.0 : 0.0);
             }
-
-            breakdown.put(cat, pctByBucket);
+            breakdown.put(category, pctByBucket);
         }
-
-        return ResponseEntity.ok(breakdown);
+        return breakdown;
     }
 
     /**
-     * Retrieves a list of the most popular chat categories.
+     * Retrieves a list of the most popular chat categories, all time or, from the analytics snapshot, over a date
+     * range. A ranged request answers 503 until the snapshot has loaded.
      */
     @GetMapping("/popular-chat-categories")
-    public ResponseEntity<List<Map<String, Object>>> getPopularChatCategories() {
-        List<Chat> chats = chatRepository.findAll();
-
-        // Group chats by description (category) and collect additional stats
-        Map<String, List<Chat>> groupedChats = chats.stream()
-            .collect(Collectors.groupingBy(Chat::getDescription));
-
-        // Process categories and sort them by popularity
-        List<Map<String, Object>> sortedCategories = groupedChats.entrySet().stream()
-            .map(entry -> {
-                String category = entry.getKey();
-                List<Chat> categoryChats = entry.getValue();
-
-                // Extract statistics
-                long queryCount = categoryChats.size();
-                LocalDateTime firstQuery = categoryChats.stream()
-                    .min(Comparator.comparing(Chat::getCreatedAt))
-                    .map(Chat::getCreatedAt)
-                    .orElse(null);
-                LocalDateTime lastQuery = categoryChats.stream()
-                    .max(Comparator.comparing(Chat::getCreatedAt))
-                    .map(Chat::getCreatedAt)
-                    .orElse(null);
-
-                // Create category statistics
-                Map<String, Object> categoryStats = new HashMap<>();
-                categoryStats.put("name", category);
-                categoryStats.put("queries", queryCount);
-                categoryStats.put("firstQuery", firstQuery);
-                categoryStats.put("lastQuery", lastQuery);
-                return categoryStats;
-            })
-            .sorted((a, b) -> Long.compare((long) b.get("queries"), (long) a.get("queries")))
-            .collect(Collectors.toList());
-
-        // Assign order ranking
-        for (int i = 0; i < sortedCategories.size(); i++) {
-            sortedCategories.get(i).put("order", i + 1);
+    public ResponseEntity<List<Map<String, Object>>> getPopularChatCategories(
+        @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+        @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+
+        if (from == null && to == null) {
+            return cached("popular-chat-categories", "all", ifNoneMatch,
+                          () -> popularChatCategories(statisticsService.getCategories()));
+        }
+        LocalDate start = from != null ? from : LocalDate.EPOCH;
+        LocalDate end = to != null ? to : LocalDate.now();
+        if (start.isAfter(end)) {
+            return ResponseEntity.badRequest().build();
         }
+        if (!snapshotService.isReady()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return cached("popular-chat-categories", start + "/" + end, ifNoneMatch,
+                      () -> popularChatCategories(snapshotService.getRangeStatistics(start, end).categories()));
+    }
 
-        return ResponseEntity.ok(sortedCategories);
+    private static List<Map<String, Object>> popularChatCategories(List<CategoryStatistics> categories) {
+        List<Map<String, Object>> sortedCategories = new ArrayList<>();
+        for (CategoryStatistics category : categories) {
+            Map<String, Object> categoryStats = new HashMap<>();
+            categoryStats.put("name", category.getCategory());
+            categoryStats.put("queries", category.getChatCount());
+            categoryStats.put("firstQuery", category.getFirstQueryAt());
+            categoryStats.put("lastQuery", category.getLastQueryAt());
+            categoryStats.put("order", sortedCategories.size() + 1);
+            sortedCategories.add(categoryStats);
+        }
+        return sortedCategories;
     }
 
+    /**
+     * Retrieves the daily user activity, exact chat category breakdown and popular chat categories together, all time
+     * or over a date range, for the admin dashboard.
+     *
+     * <p>The category statistics behind the breakdown and the popular categories are read once and shared: from the
+     * summary tables for all time, or from a single scan of the analytics snapshot for a range, which answers 503
+     * until the snapshot has loaded. The breakdown is therefore the exact one, as {@code /chat-category-breakdown}
+     * returns with {@code exact}, rather than that endpoint's default estimate.
+     */
+    @GetMapping("/dashboard")
+    public ResponseEntity<StatisticsDashboard> getDashboard(
+        @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+        @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+
+        boolean allTime = from == null && to == null;
+        LocalDate start = from != null ? from : LocalDate.EPOCH;
+        LocalDate end = to != null ? to : LocalDate.now();
+        if (start.isAfter(end)) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (!allTime && !snapshotService.isReady()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+
+        return cached("dashboard", allTime ? "all/" + end : start + "/" + end, ifNoneMatch, () -> {
+            RangeStatistics categories = allTime
+                ? new RangeStatistics(statisticsService.getCategories(), statisticsService.getCategoryAgeGroups())
+                : snapshotService.getRangeStatistics(start, end);
+            return new StatisticsDashboard(userActivity(start, end, Granularity.DAY),
+                                           breakdown(names(categories.categories()), categories.ageGroups()),
+                                           popularChatCategories(categories.categories()));
+        });
+    }
 
     /**
-     * Helper method to retrieve popular chat categories from the database.
+     * Answers from the cache, with a 304 if the client already has the current result.
      */
-    private Map<String, Long> getPopularChatCategories(List<Chat> chats) {
-        return chats.stream().collect(Collectors.groupingBy(Chat::getDescription, Collectors.counting()));
+    private <T> ResponseEntity<T> cached(String endpoint, String key, String ifNoneMatch, Supplier<T> loader) {
+        StatisticsCache.Cached<T> result = cache.get(endpoint, endpoint + ":" + key, loader);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+            .cacheControl(CacheControl.noCache().cachePrivate())
+            .header(HttpHeaders.AGE, String.valueOf(TimeUnit.MILLISECONDS.toSeconds(result.ageMillis())));
+        if (result.etag() == null) {
+            return response.body(result.value());
+        }
+        if (etagMatches(ifNoneMatch, result.etag())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(result.etag()).build();
+        }
+        return response.eTag(result.etag()).body(result.value());
     }
 
     /**
-     * Helper method to calculate user activity across age groups.
+     * Whether an {@code If-None-Match} header lists an ETag, or is {@code *}. Weak ETags match too.
      */
-    private Map<String, Long> calculateUserAgeGroups(List<User> users) {
-        LocalDate today = LocalDate.now();
-        Map<String, Long> ageGroups = new HashMap<>();
-
-        ageGroups.put(
-            "20-30",
-            users.stream().filter(user -> isAgeBetween(user.getDateOfBirth(), today, 20, 30)).count()
-        );
-        ageGroups.put(
-            "31-40",
-            users.stream().filter(user -> isAgeBetween(user.getDateOfBirth(), today, 31, 40)).count()
-        );
-        ageGroups.put(
-            "41-50",
-            users.stream().filter(user -> isAgeBetween(user.getDateOfBirth(), today, 41, 50)).count()
-        );
-        ageGroups.put(
-            "51+",
-            users.stream().filter(user -> isAgeBetween(user.getDateOfBirth(), today, 51, 200)).count()
-        );
-
-        return ageGroups;
+    static boolean etagMatches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*") || tag.equals(etag) || tag.equals("W/" + etag)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
-     * Helper method to check if a user's age falls within a given range.
+     * Exports every session started in a date range, all time by default, as CSV or NDJSON. Admin only.
+     *
+     * <p>Rows are streamed from a database cursor as they are written, so the export can be any size. The body is
+     * gzip-compressed when the client accepts it.
      */
-    private boolean isAgeBetween(LocalDate birthDate, LocalDate today, int minAge, int maxAge) {
-        int age = today.getYear() - birthDate.getYear();
-        return age >= minAge && age <= maxAge;
+    @GetMapping("/export/sessions")
+    public ResponseEntity<StreamingResponseBody> exportSessions(
+        @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+        @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+        @RequestParam(value = "format", defaultValue = "CSV") Format format,
+        @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+        @AuthenticationPrincipal User currentUser) {
+
+        if (currentUser == null || !Boolean.TRUE.equals(currentUser.getIsAdmin())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        LocalDate start = from != null ? from : LocalDate.EPOCH;
+        LocalDate end = to != null ? to : LocalDate.now();
+        if (start.isAfter(end)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return export("sessions", format, acceptEncoding,
+                      out -> exportService.exportSessions(start, end, format, out));
     }
 
     /**
-     * Helper method to calculate chat category breakdown by age group.
+     * Exports every chat started in a date range, all time by default, with its category, as CSV or NDJSON. Admin
+     * only. Streamed and compressed like {@link #exportSessions}.
      */
-    private Map<String, Map<String, Double>> calculateChatCategoryBreakdown(List<User> users, List<Chat> chats,
-                                                                            Map<String, Long> userAgeGroups,
-                                                                            Map<String, Long> categoryCounts) {
-        Map<String, Map<String, Double>> breakdown = new HashMap<>();
-        LocalDate today = LocalDate.now();
-
-        for (String category : categoryCounts.keySet()) {
-            Map<String, Double> ageGroupPercentages = new HashMap<>();
-
-            for (String ageGroup : userAgeGroups.keySet()) {
-                long totalUsersInAgeGroup = userAgeGroups.get(ageGroup);
-                long usersInAgeGroupInteractedWithCategory = users.stream()
-                    .filter(user -> userHasInteractedWithCategory(
-                        user,
-                        chats,
-                        category
-                    ) && isUserInAgeGroup(
-                        user.getDateOfBirth(),
-                        today,
-                        ageGroup
-                    )).count();
-
-                double percentage = totalUsersInAgeGroup > 0
-                    ? (double) usersInAgeGroupInteractedWithCategory / totalUsersInAgeGroup * 100 : 0;
-                ageGroupPercentages.put(ageGroup, percentage);
-            }
+    @GetMapping("/export/chats")
+    public ResponseEntity<StreamingResponseBody> exportChats(
+        @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+        @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+        @RequestParam(value = "format", defaultValue = "CSV") Format format,
+        @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+        @AuthenticationPrincipal User currentUser) {
+
+        if (currentUser == null || !Boolean.TRUE.equals(currentUser.getIsAdmin())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        LocalDate start = from != null ? from : LocalDate.EPOCH;
+        LocalDate end = to != null ? to : LocalDate.now();
+        if (start.isAfter(end)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return export("chats", format, acceptEncoding,
+                      out -> exportService.exportChats(start, end, format, out));
+    }
 
-            breakdown.put(category, ageGroupPercentages);
+    private static ResponseEntity<StreamingResponseBody> export(String name, Format format, String acceptEncoding,
+                                                                StreamingResponseBody body) {
+        boolean gzip = acceptsGzip(acceptEncoding);
+        String filename = name + (format == Format.CSV ? ".csv" : ".ndjson");
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+            .contentType(format == Format.CSV ? TEXT_CSV : APPLICATION_NDJSON)
+            .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(filename).build()
+                .toString())
+            .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (!gzip) {
+            return response.body(body);
         }
+        return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(out -> writeGzipped(body, out));
+    }
 
-        return breakdown;
+    private static void writeGzipped(StreamingResponseBody body, OutputStream out) throws IOException {
+        GZIPOutputStream gzip = new GZIPOutputStream(out, 8192);
+        body.writeTo(gzip);
+        // Finish rather than close, as the container owns the response stream
+        gzip.finish();
+    }
+
+    /**
+     * Whether an {@code Accept-Encoding} header allows gzip, that is, lists it without {@code q=0}.
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                for (int i = 1; i < parts.length; i++) {
+                    String param = parts[i].trim().replace(" ", "");
+                    if (param.matches("q=0(\\.0*)?")) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
-     * Helper method to check if a user has interacted with a chat category.
+     * Streams live statistics as server-sent events: a {@code snapshot} event with the chats per category, then an
+     * {@code update} event with the chats added per category and the sessions started whenever there are any, at
+     * most once every {@code statistics.live.interval-ms}. Admin only; answers 503 once
+     * {@code statistics.live.max-subscribers} are connected.
      */
-    private boolean userHasInteractedWithCategory(User user, List<Chat> chats, String category) {
-        return chats.stream()
-            .anyMatch(chat -> chat.getUser().getId().equals(user.getId()) && chat.getDescription().equals(category));
+    @GetMapping(value = "/live", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamLiveStatistics(@AuthenticationPrincipal User currentUser) {
+        if (currentUser == null || !Boolean.TRUE.equals(currentUser.getIsAdmin())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        SseEmitter emitter = livePublisher.subscribe();
+        if (emitter == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok()
+            .cacheControl(CacheControl.noStore())
+            // Stops nginx buffering the stream
+            .header("X-Accel-Buffering", "no")
+            .body(emitter);
     }
 
     /**
-     * Helper method to check if a user belongs to a specific age group.
+     * Recomputes the statistics, activity rollups and analytics snapshot from the chats and sessions tables. Session
+     * rollups older than the sessions retention keeps are left as they are. Admin only.
      */
-    private boolean isUserInAgeGroup(LocalDate birthDate, LocalDate today, String ageGroup) {
-        int age = today.getYear() - birthDate.getYear();
-
-        switch (ageGroup) {
-            case "20-30":
-                return age >= 20 && age <= 30;
-            case "31-40":
-                return age >= 31 && age <= 40;
-            case "41-50":
-                return age >= 41 && age <= 50;
-            case "51+":
-                return age >= 51;
-            default:
-                return false;
+    @PostMapping("/rebuild")
+    public ResponseEntity<String> rebuildStatistics(@AuthenticationPrincipal User currentUser) {
+        if (currentUser == null || !Boolean.TRUE.equals(currentUser.getIsAdmin())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
         }
+        statisticsService.rebuild();
+        rollupService.rebuild();
+        snapshotService.rebuild();
+        cache.invalidateAll();
+        return ResponseEntity.ok("Statistics rebuilt.");
     }
 }
@@ -0,0 +1,17 @@
+package uk.gov.hmcts.reform.demo.dto;
+
+/**
+ * Projection for an account request locked for a bulk decision, with the details needed to notify its user.
+ */
+public interface AccountRequestRow {
+
+    Long getId();
+
+    String getStatus();
+
+    Long getUserId();
+
+    String getUsername();
+
+    String getEmail();
+}
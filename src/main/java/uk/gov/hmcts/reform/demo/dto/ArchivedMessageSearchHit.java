@@ -0,0 +1,52 @@
+package uk.gov.hmcts.reform.demo.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * A search hit on an archived message, with the snippet read from its chat's archive.
+ */
+public class ArchivedMessageSearchHit implements MessageSearchHit {
+
+    private final MessageSearchHit hit;
+    private final String snippet;
+
+    public ArchivedMessageSearchHit(MessageSearchHit hit, String snippet) {
+        this.hit = hit;
+        this.snippet = snippet;
+    }
+
+    @Override
+    public Long getMessageId() {
+        return hit.getMessageId();
+    }
+
+    @Override
+    public Long getChatId() {
+        return hit.getChatId();
+    }
+
+    @Override
+    public String getChatDescription() {
+        return hit.getChatDescription();
+    }
+
+    @Override
+    public String getSender() {
+        return hit.getSender();
+    }
+
+    @Override
+    public LocalDateTime getCreatedAt() {
+        return hit.getCreatedAt();
+    }
+
+    @Override
+    public Double getRank() {
+        return hit.getRank();
+    }
+
+    @Override
+    public String getSnippet() {
+        return snippet;
+    }
+}
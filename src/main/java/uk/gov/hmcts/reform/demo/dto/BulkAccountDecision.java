@@ -0,0 +1,37 @@
+package uk.gov.hmcts.reform.demo.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Body of a bulk approve or reject: either the IDs of the account requests, or a filter matching pending requests.
+ */
+public class BulkAccountDecision {
+
+    private List<Long> ids;
+    private LocalDateTime requestedBefore;
+
+    public BulkAccountDecision() {
+    }
+
+    public BulkAccountDecision(List<Long> ids, LocalDateTime requestedBefore) {
+        this.ids = ids;
+        this.requestedBefore = requestedBefore;
+    }
+
+    public List<Long> getIds() {
+        return ids;
+    }
+
+    public void setIds(List<Long> ids) {
+        this.ids = ids;
+    }
+
+    public LocalDateTime getRequestedBefore() {
+        return requestedBefore;
+    }
+
+    public void setRequestedBefore(LocalDateTime requestedBefore) {
+        this.requestedBefore = requestedBefore;
+    }
+}
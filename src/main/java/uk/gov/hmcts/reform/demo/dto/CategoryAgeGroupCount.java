@@ -0,0 +1,13 @@
+package uk.gov.hmcts.reform.demo.dto;
+
+/**
+ * Projection for the number of distinct users in one age group who have chatted in one category.
+ */
+public interface CategoryAgeGroupCount {
+
+    String getCategory();
+
+    String getAgeGroup();
+
+    Long getUsers();
+}
@@ -0,0 +1,13 @@
+package uk.gov.hmcts.reform.demo.dto;
+
+/**
+ * Projection for a serialised HyperLogLog sketch of the users in one age group who have chatted in one category.
+ */
+public interface CategorySketchRow {
+
+    String getCategory();
+
+    String getAgeGroup();
+
+    byte[] getSketch();
+}
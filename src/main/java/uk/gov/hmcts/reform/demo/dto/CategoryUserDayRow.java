@@ -0,0 +1,17 @@
+package uk.gov.hmcts.reform.demo.dto;
+
+import java.time.LocalDate;
+
+/**
+ * Projection for a user who chatted in a category on a day, with their age group on that day.
+ */
+public interface CategoryUserDayRow {
+
+    Integer getCategoryId();
+
+    String getAgeGroup();
+
+    LocalDate getDay();
+
+    Long getUserId();
+}
@@ -0,0 +1,67 @@
+package uk.gov.hmcts.reform.demo.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+public class ChatActivity {
+
+    LocalDate date;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    LocalDateTime hour;
+    String category;
+    String ageGroup;
+    long chats;
+
+    public ChatActivity(LocalDate date, LocalDateTime hour, String category, String ageGroup, long chats) {
+        this.date = date;
+        this.hour = hour;
+        this.category = category;
+        this.ageGroup = ageGroup;
+        this.chats = chats;
+    }
+
+    public LocalDate getDate() {
+        return date;
+    }
+
+    public void setDate(LocalDate date) {
+        this.date = date;
+    }
+
+    /**
+     * The start of the hour, for hourly activity; null for daily activity.
+     */
+    public LocalDateTime getHour() {
+        return hour;
+    }
+
+    public void setHour(LocalDateTime hour) {
+        this.hour = hour;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public void setCategory(String category) {
+        this.category = category;
+    }
+
+    public String getAgeGroup() {
+        return ageGroup;
+    }
+
+    public void setAgeGroup(String ageGroup) {
+        this.ageGroup = ageGroup;
+    }
+
+    public long getChats() {
+        return chats;
+    }
+
+    public void setChats(long chats) {
+        this.chats = chats;
+    }
+}
@@ -0,0 +1,20 @@
+package uk.gov.hmcts.reform.demo.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Projection for the number of chats started in one category in one hour or day by users in one age group.
+ */
+public interface ChatActivityCount {
+
+    /**
+     * The start of the hour or day.
+     */
+    LocalDateTime getPeriod();
+
+    String getCategory();
+
+    String getAgeGroup();
+
+    Long getChats();
+}
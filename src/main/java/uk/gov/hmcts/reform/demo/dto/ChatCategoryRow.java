@@ -0,0 +1,15 @@
+package uk.gov.hmcts.reform.demo.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Projection for the user, category and creation time of a chat, for statistics that do not need the chat itself.
+ */
+public interface ChatCategoryRow {
+
+    Long getUserId();
+
+    String getCategory();
+
+    LocalDateTime getCreatedAt();
+}
@@ -0,0 +1,19 @@
+package uk.gov.hmcts.reform.demo.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Projection for one chat in the raw category export, with its user's age group when it started.
+ */
+public interface ChatExportRow {
+
+    Long getId();
+
+    LocalDateTime getCreatedAt();
+
+    Long getUserId();
+
+    String getCategory();
+
+    String getAgeGroup();
+}
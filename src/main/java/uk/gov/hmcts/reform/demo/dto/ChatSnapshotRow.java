@@ -0,0 +1,18 @@
+package uk.gov.hmcts.reform.demo.dto;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Projection for a chat as held in the in-memory analytics snapshot.
+ */
+public interface ChatSnapshotRow {
+
+    Long getUserId();
+
+    String getCategory();
+
+    LocalDateTime getCreatedAt();
+
+    LocalDate getDateOfBirth();
+}
@@ -0,0 +1,27 @@
+package uk.gov.hmcts.reform.demo.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Projection for a single full-text search match within a user's chat history.
+ */
+public interface MessageSearchHit {
+
+    Long getMessageId();
+
+    Long getChatId();
+
+    String getChatDescription();
+
+    String getSender();
+
+    LocalDateTime getCreatedAt();
+
+    Double getRank();
+
+    /**
+     * The matching fragments of the message as safe HTML: the message text is HTML-escaped, and matched terms are
+     * wrapped in {@code <mark>} tags, the only markup it contains.
+     */
+    String getSnippet();
+}
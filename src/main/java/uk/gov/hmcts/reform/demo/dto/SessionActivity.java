@@ -1,23 +1,46 @@
 package uk.gov.hmcts.reform.demo.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 public class SessionActivity {
 
-    LocalDateTime createdAt;
+    LocalDate date;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    LocalDateTime hour;
     String ageGroup;
+    long sessions;
+
+    public SessionActivity(LocalDate date, String ageGroup, long sessions) {
+        this(date, null, ageGroup, sessions);
+    }
 
-    public SessionActivity(LocalDateTime createdAt, String ageGroup) {
-        this.createdAt = createdAt;
+    public SessionActivity(LocalDate date, LocalDateTime hour, String ageGroup, long sessions) {
+        this.date = date;
+        this.hour = hour;
         this.ageGroup = ageGroup;
+        this.sessions = sessions;
     }
 
-    public LocalDateTime getCreatedAt() {
-        return createdAt;
+    public LocalDate getDate() {
+        return date;
     }
 
-    public void setCreatedAt(LocalDateTime createdAt) {
-        this.createdAt = createdAt;
+    public void setDate(LocalDate date) {
+        this.date = date;
+    }
+
+    /**
+     * The start of the hour, for hourly activity; null for daily activity.
+     */
+    public LocalDateTime getHour() {
+        return hour;
+    }
+
+    public void setHour(LocalDateTime hour) {
+        this.hour = hour;
     }
 
     public String getAgeGroup() {
@@ -27,4 +50,12 @@ public class SessionActivity {
     public void setAgeGroup(String ageGroup) {
         this.ageGroup = ageGroup;
     }
+
+    public long getSessions() {
+        return sessions;
+    }
+
+    public void setSessions(long sessions) {
+        this.sessions = sessions;
+    }
 }
@@ -0,0 +1,18 @@
+package uk.gov.hmcts.reform.demo.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Projection for the number of sessions started in one hour or day by users in one age group.
+ */
+public interface SessionActivityCount {
+
+    /**
+     * The start of the hour or day.
+     */
+    LocalDateTime getPeriod();
+
+    String getAgeGroup();
+
+    Long getSessions();
+}
@@ -0,0 +1,17 @@
+package uk.gov.hmcts.reform.demo.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Projection for one session in the raw activity export, with its user's age group when it started.
+ */
+public interface SessionExportRow {
+
+    Long getId();
+
+    LocalDateTime getCreatedAt();
+
+    Long getUserId();
+
+    String getAgeGroup();
+}
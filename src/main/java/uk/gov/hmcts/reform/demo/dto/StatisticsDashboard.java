@@ -0,0 +1,47 @@
+package uk.gov.hmcts.reform.demo.dto;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The results of the user activity, chat category breakdown and popular chat category endpoints, computed together
+ * for the admin dashboard.
+ */
+public class StatisticsDashboard {
+
+    List<SessionActivity> userActivity;
+    Map<String, Map<String, Double>> categoryBreakdown;
+    List<Map<String, Object>> popularCategories;
+
+    public StatisticsDashboard(List<SessionActivity> userActivity,
+                               Map<String, Map<String, Double>> categoryBreakdown,
+                               List<Map<String, Object>> popularCategories) {
+        this.userActivity = userActivity;
+        this.categoryBreakdown = categoryBreakdown;
+        this.popularCategories = popularCategories;
+    }
+
+    public List<SessionActivity> getUserActivity() {
+        return userActivity;
+    }
+
+    public void setUserActivity(List<SessionActivity> userActivity) {
+        this.userActivity = userActivity;
+    }
+
+    public Map<String, Map<String, Double>> getCategoryBreakdown() {
+        return categoryBreakdown;
+    }
+
+    public void setCategoryBreakdown(Map<String, Map<String, Double>> categoryBreakdown) {
+        this.categoryBreakdown = categoryBreakdown;
+    }
+
+    public List<Map<String, Object>> getPopularCategories() {
+        return popularCategories;
+    }
+
+    public void setPopularCategories(List<Map<String, Object>> popularCategories) {
+        this.popularCategories = popularCategories;
+    }
+}
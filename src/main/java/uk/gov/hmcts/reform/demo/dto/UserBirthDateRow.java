@@ -0,0 +1,13 @@
+package uk.gov.hmcts.reform.demo.dto;
+
+import java.time.LocalDate;
+
+/**
+ * Projection for a user's ID and date of birth, for statistics that only need their age.
+ */
+public interface UserBirthDateRow {
+
+    Long getId();
+
+    LocalDate getDateOfBirth();
+}
@@ -0,0 +1,11 @@
+package uk.gov.hmcts.reform.demo.dto;
+
+/**
+ * Projection for the username and email of one user.
+ */
+public interface UserIdentityRow {
+
+    String getUsername();
+
+    String getEmail();
+}
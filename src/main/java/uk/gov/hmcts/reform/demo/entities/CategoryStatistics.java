@@ -0,0 +1,101 @@
+package uk.gov.hmcts.reform.demo.entities;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import org.hibernate.annotations.Formula;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entity holding the running totals for one chat category, maintained by the statistics service.
+ */
+@Entity
+@Table(name = "category_statistics")
+public class CategoryStatistics {
+
+    /**
+     * The ID of the chat category the statistics are for.
+     */
+    @Id
+    @Column(name = "category_id")
+    private Integer categoryId;
+
+    /**
+     * The name of the chat category, read from {@code chat_categories}.
+     */
+    @Formula("(SELECT cc.name FROM chat_categories cc WHERE cc.id = category_id)")
+    private String category;
+
+    /**
+     * Number of chats created in the category.
+     */
+    @Column(name = "chat_count", nullable = false)
+    private long chatCount;
+
+    /**
+     * Timestamp of the first chat in the category.
+     */
+    @Column(name = "first_query_at")
+    private LocalDateTime firstQueryAt;
+
+    /**
+     * Timestamp of the most recent chat in the category.
+     */
+    @Column(name = "last_query_at")
+    private LocalDateTime lastQueryAt;
+
+    public CategoryStatistics() {
+    }
+
+    public CategoryStatistics(String category, long chatCount, LocalDateTime firstQueryAt,
+                              LocalDateTime lastQueryAt) {
+        this.category = category;
+        this.chatCount = chatCount;
+        this.firstQueryAt = firstQueryAt;
+        this.lastQueryAt = lastQueryAt;
+    }
+
+    // Getters and Setters
+
+    public Integer getCategoryId() {
+        return categoryId;
+    }
+
+    public void setCategoryId(Integer categoryId) {
+        this.categoryId = categoryId;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public void setCategory(String category) {
+        this.category = category;
+    }
+
+    public long getChatCount() {
+        return chatCount;
+    }
+
+    public void setChatCount(long chatCount) {
+        this.chatCount = chatCount;
+    }
+
+    public LocalDateTime getFirstQueryAt() {
+        return firstQueryAt;
+    }
+
+    public void setFirstQueryAt(LocalDateTime firstQueryAt) {
+        this.firstQueryAt = firstQueryAt;
+    }
+
+    public LocalDateTime getLastQueryAt() {
+        return lastQueryAt;
+    }
+
+    public void setLastQueryAt(LocalDateTime lastQueryAt) {
+        this.lastQueryAt = lastQueryAt;
+    }
+}
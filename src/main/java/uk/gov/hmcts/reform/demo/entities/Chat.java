@@ -1,5 +1,6 @@
 package uk.gov.hmcts.reform.demo.entities;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
@@ -12,6 +13,7 @@ import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.Table;
+import org.hibernate.annotations.SQLRestriction;
 
 import java.time.LocalDateTime;
 import java.util.HashSet;
@@ -22,6 +24,7 @@ import java.util.Set;
  */
 @Entity
 @Table(name = "chats")
+@SQLRestriction("deleted_at IS NULL")
 public class Chat {
 
     @Id
@@ -42,12 +45,35 @@ public class Chat {
     @Column(nullable = false, columnDefinition = "TEXT")
     private String description;
 
+    /**
+     * The category of the description, set when the chat is created. The database assigns one to a chat saved
+     * without it.
+     */
+    @JsonIgnore
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "category_id")
+    private ChatCategory category;
+
     /**
      * Timestamp when the chat was created.
      */
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
+    /**
+     * Timestamp when the chat was deleted, or null while it is live. Deleted chats are hidden from every query and
+     * their messages are removed later by the background purger.
+     */
+    @Column(name = "deleted_at")
+    private LocalDateTime deletedAt;
+
+    /**
+     * Timestamp when the chat's messages were moved to {@code chat_archives}, or null while they are in
+     * {@code messages}.
+     */
+    @Column(name = "archived_at")
+    private LocalDateTime archivedAt;
+
     /**
      * Messages associated with this chat.
      */
@@ -102,6 +128,23 @@ public class Chat {
         this.description = description;
     }
 
+    public ChatCategory getCategory() {
+        return category;
+    }
+
+    public void setCategory(ChatCategory category) {
+        this.category = category;
+    }
+
+    /**
+     * Returns the name the chat is counted under in the statistics: its category's, or the description's own if it
+     * has not been given a category.
+     */
+    @JsonIgnore
+    public String getCategoryName() {
+        return category != null ? category.getName() : ChatCategory.displayName(description);
+    }
+
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
@@ -110,6 +153,22 @@ public class Chat {
         this.createdAt = createdAt;
     }
 
+    public LocalDateTime getDeletedAt() {
+        return deletedAt;
+    }
+
+    public void setDeletedAt(LocalDateTime deletedAt) {
+        this.deletedAt = deletedAt;
+    }
+
+    public LocalDateTime getArchivedAt() {
+        return archivedAt;
+    }
+
+    public void setArchivedAt(LocalDateTime archivedAt) {
+        this.archivedAt = archivedAt;
+    }
+
     public Set<Message> getMessages() {
         return messages;
     }
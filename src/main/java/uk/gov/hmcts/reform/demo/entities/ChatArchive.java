@@ -0,0 +1,100 @@
+package uk.gov.hmcts.reform.demo.entities;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entity holding all messages of a cold chat as a single gzip-compressed NDJSON blob.
+ */
+@Entity
+@Table(name = "chat_archives")
+public class ChatArchive {
+
+    /**
+     * The ID of the archived chat.
+     */
+    @Id
+    @Column(name = "chat_id")
+    private Long chatId;
+
+    /**
+     * Number of messages in the archive.
+     */
+    @Column(name = "message_count", nullable = false)
+    private int messageCount;
+
+    /**
+     * Timestamp of the newest archived message.
+     */
+    @Column(name = "last_message_at")
+    private LocalDateTime lastMessageAt;
+
+    /**
+     * Timestamp when the chat was archived.
+     */
+    @Column(name = "archived_at", nullable = false)
+    private LocalDateTime archivedAt;
+
+    /**
+     * The messages, one JSON object per line, gzip-compressed.
+     */
+    @Column(nullable = false)
+    private byte[] payload;
+
+    public ChatArchive() {
+    }
+
+    public ChatArchive(Long chatId, int messageCount, LocalDateTime lastMessageAt, byte[] payload) {
+        this.chatId = chatId;
+        this.messageCount = messageCount;
+        this.lastMessageAt = lastMessageAt;
+        this.payload = payload;
+        this.archivedAt = LocalDateTime.now();
+    }
+
+    // Getters and Setters
+
+    public Long getChatId() {
+        return chatId;
+    }
+
+    public void setChatId(Long chatId) {
+        this.chatId = chatId;
+    }
+
+    public int getMessageCount() {
+        return messageCount;
+    }
+
+    public void setMessageCount(int messageCount) {
+        this.messageCount = messageCount;
+    }
+
+    public LocalDateTime getLastMessageAt() {
+        return lastMessageAt;
+    }
+
+    public void setLastMessageAt(LocalDateTime lastMessageAt) {
+        this.lastMessageAt = lastMessageAt;
+    }
+
+    public LocalDateTime getArchivedAt() {
+        return archivedAt;
+    }
+
+    public void setArchivedAt(LocalDateTime archivedAt) {
+        this.archivedAt = archivedAt;
+    }
+
+    public byte[] getPayload() {
+        return payload;
+    }
+
+    public void setPayload(byte[] payload) {
+        this.payload = payload;
+    }
+}
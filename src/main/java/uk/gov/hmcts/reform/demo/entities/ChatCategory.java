@@ -0,0 +1,101 @@
+package uk.gov.hmcts.reform.demo.entities;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+import java.util.Locale;
+
+/**
+ * Entity representing a chat category: every chat whose description is the same once canonicalised.
+ */
+@Entity
+@Table(name = "chat_categories")
+public class ChatCategory {
+
+    private static final String TRAILING = " .!?,;:";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+
+    /**
+     * The form of the description first seen in the category, shown in the statistics.
+     */
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String name;
+
+    /**
+     * The canonical form of the name, which every description in the category shares.
+     */
+    @Column(name = "canonical_name", nullable = false, unique = true, columnDefinition = "TEXT")
+    private String canonicalName;
+
+    public ChatCategory() {
+    }
+
+    public ChatCategory(String name) {
+        this.name = name;
+        this.canonicalName = canonicalName(name);
+    }
+
+    /**
+     * Tidies a chat description into a category name, collapsing runs of whitespace and removing trailing
+     * punctuation. Matches the {@code chat_category_name} database function.
+     *
+     * @param description The chat description.
+     * @return The tidied description, or the description itself if nothing would be left.
+     */
+    public static String displayName(String description) {
+        String collapsed = description.replaceAll("\\s+", " ");
+        int end = collapsed.length();
+        while (end > 0 && TRAILING.indexOf(collapsed.charAt(end - 1)) >= 0) {
+            end--;
+        }
+        int start = 0;
+        while (start < end && collapsed.charAt(start) == ' ') {
+            start++;
+        }
+        return start < end ? collapsed.substring(start, end) : description;
+    }
+
+    /**
+     * Canonicalises a chat description, so that descriptions differing only in case, whitespace or trailing
+     * punctuation are the same category.
+     *
+     * @param description The chat description.
+     * @return The canonical name of its category.
+     */
+    public static String canonicalName(String description) {
+        return displayName(description).toLowerCase(Locale.ROOT);
+    }
+
+    // Getters and Setters
+
+    public Integer getId() {
+        return id;
+    }
+
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getCanonicalName() {
+        return canonicalName;
+    }
+
+    public void setCanonicalName(String canonicalName) {
+        this.canonicalName = canonicalName;
+    }
+}
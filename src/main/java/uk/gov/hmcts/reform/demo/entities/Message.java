@@ -69,6 +69,21 @@ public class Message {
         this.createdAt = LocalDateTime.now();
     }
 
+    /**
+     * Constructor for restoring a message with its original creation timestamp, e.g. from a chat archive.
+     *
+     * @param chat      The chat to which the message belongs.
+     * @param sender    The sender of the message.
+     * @param message   The content of the message.
+     * @param createdAt The original creation timestamp.
+     */
+    public Message(Chat chat, String sender, String message, LocalDateTime createdAt) {
+        this.chat = chat;
+        this.sender = sender;
+        this.message = message;
+        this.createdAt = createdAt;
+    }
+
     // Getters and Setters
 
     public Long getId() {
@@ -0,0 +1,83 @@
+package uk.gov.hmcts.reform.demo.entities;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entity recording how far the activity rollups have got through one source table.
+ */
+@Entity
+@Table(name = "rollup_watermarks")
+public class RollupWatermark {
+
+    /**
+     * The source table, {@code sessions} or {@code chats}.
+     */
+    @Id
+    private String source;
+
+    /**
+     * Rows with IDs up to and including this one have been rolled up.
+     */
+    @Column(name = "last_id", nullable = false)
+    private long lastId;
+
+    /**
+     * The highest ID seen at the previous run, to be rolled up on the next one.
+     */
+    @Column(name = "seen_id", nullable = false)
+    private long seenId;
+
+    /**
+     * Timestamp of the last run.
+     */
+    @Column(name = "rolled_up_at")
+    private LocalDateTime rolledUpAt;
+
+    public RollupWatermark() {
+    }
+
+    public RollupWatermark(String source, long lastId, long seenId) {
+        this.source = source;
+        this.lastId = lastId;
+        this.seenId = seenId;
+    }
+
+    // Getters and Setters
+
+    public String getSource() {
+        return source;
+    }
+
+    public void setSource(String source) {
+        this.source = source;
+    }
+
+    public long getLastId() {
+        return lastId;
+    }
+
+    public void setLastId(long lastId) {
+        this.lastId = lastId;
+    }
+
+    public long getSeenId() {
+        return seenId;
+    }
+
+    public void setSeenId(long seenId) {
+        this.seenId = seenId;
+    }
+
+    public LocalDateTime getRolledUpAt() {
+        return rolledUpAt;
+    }
+
+    public void setRolledUpAt(LocalDateTime rolledUpAt) {
+        this.rolledUpAt = rolledUpAt;
+    }
+}
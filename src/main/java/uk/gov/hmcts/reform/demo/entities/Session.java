@@ -23,8 +23,8 @@ public class Session {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    // Unique token to identify the session
-    @Column(name = "session_token", nullable = false, unique = true)
+    // Random token to identify the session
+    @Column(name = "session_token", nullable = false)
     private String sessionToken;
 
     // Associated user
@@ -33,7 +33,7 @@ public class Session {
     private User user;
 
     // Timestamp when the session was created
-    @Column(name = "created_at", nullable = false)
+    @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
     // Timestamp when the session expires
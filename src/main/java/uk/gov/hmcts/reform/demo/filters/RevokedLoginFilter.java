@@ -0,0 +1,67 @@
+package uk.gov.hmcts.reform.demo.filters;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
+import java.io.IOException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+import uk.gov.hmcts.reform.demo.entities.User;
+import uk.gov.hmcts.reform.demo.repositories.UserRepository;
+import uk.gov.hmcts.reform.demo.security.AccountUserDetails;
+
+/**
+ * Ends the HTTP session of a user who may no longer log in, such as one whose account is being deleted.
+ *
+ * <p>The login is kept in the HTTP session, and {@code can_login} is otherwise only checked when logging in. This
+ * filter checks it again, by primary key, on each request of a logged-in user, on whichever node serves it. A user
+ * who has lost it is logged out and the request carries on unauthenticated, so anything but the public endpoints is
+ * refused.
+ */
+public class RevokedLoginFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(RevokedLoginFilter.class);
+
+    private final UserRepository userRepository;
+
+    public RevokedLoginFilter(UserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain)
+        throws ServletException, IOException {
+
+        Long userId = userId(SecurityContextHolder.getContext().getAuthentication());
+        if (userId != null && !userRepository.canLogin(userId)) {
+            logger.info("Ending the session of user {}, who may no longer log in", userId);
+            SecurityContextHolder.clearContext();
+            HttpSession session = request.getSession(false);
+            if (session != null) {
+                session.invalidate();
+            }
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    private static Long userId(Authentication authentication) {
+        if (authentication == null) {
+            return null;
+        }
+        Object principal = authentication.getPrincipal();
+        if (principal instanceof User user) {
+            return user.getId();
+        }
+        if (principal instanceof AccountUserDetails details) {
+            return details.getId();
+        }
+        return null;
+    }
+}
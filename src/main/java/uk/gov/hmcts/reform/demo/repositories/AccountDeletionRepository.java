@@ -0,0 +1,81 @@
+package uk.gov.hmcts.reform.demo.repositories;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import uk.gov.hmcts.reform.demo.entities.AccountDeletion;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Repository interface for AccountDeletion entities.
+ */
+@Repository
+public interface AccountDeletionRepository extends JpaRepository<AccountDeletion, Long> {
+
+    /**
+     * Records that a user's account is to be deleted, unless it already is.
+     *
+     * @return The number of rows inserted (0 if the deletion was already asked for).
+     */
+    @Modifying
+    @Query(value = "INSERT INTO account_deletions (user_id, stage, rows_deleted, requested_at, updated_at) "
+        + "VALUES (:userId, 'SESSIONS', 0, :now, :now) ON CONFLICT (user_id) DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("userId") Long userId, @Param("now") LocalDateTime now);
+
+    /**
+     * Locks unfinished deletions that no node holds, oldest first, skipping any another node is claiming. Must be
+     * called in a transaction.
+     *
+     * @param now   The current time; claims that ran out before it are free.
+     * @param limit The maximum number of IDs to return.
+     * @return The user IDs of the deletions.
+     */
+    @Query(value = "SELECT CAST(user_id AS BIGINT) FROM account_deletions WHERE completed_at IS NULL "
+        + "AND (claimed_until IS NULL OR claimed_until < :now) ORDER BY requested_at LIMIT :limit "
+        + "FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<Long> lockClaimable(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    /**
+     * Holds a deletion for this node until the given time.
+     */
+    @Modifying
+    @Query(value = "UPDATE account_deletions SET claimed_until = :until WHERE user_id = :userId", nativeQuery = true)
+    int claim(@Param("userId") Long userId, @Param("until") LocalDateTime until);
+
+    /**
+     * Records the stage a deletion has reached and the rows a batch removed, and extends the claim on it.
+     *
+     * @param userId  The ID of the user being deleted.
+     * @param stage   The stage to carry on from.
+     * @param deleted The number of rows the batch removed.
+     * @param now     The current time.
+     * @param until   The time the claim now runs to.
+     * @return The number of rows updated.
+     */
+    @Modifying
+    @Query(value = "UPDATE account_deletions SET stage = :stage, rows_deleted = rows_deleted + :deleted, "
+        + "updated_at = :now, claimed_until = :until, "
+        + "completed_at = CASE WHEN :stage = 'DONE' THEN CAST(:now AS TIMESTAMP) END "
+        + "WHERE user_id = :userId", nativeQuery = true)
+    int checkpoint(@Param("userId") Long userId, @Param("stage") String stage, @Param("deleted") long deleted,
+                   @Param("now") LocalDateTime now, @Param("until") LocalDateTime until);
+
+    /**
+     * Lets any node pick a deletion up again.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE account_deletions SET claimed_until = NULL WHERE user_id = :userId", nativeQuery = true)
+    int release(@Param("userId") Long userId);
+
+    /**
+     * Counts the deletions still to finish.
+     */
+    @Query(value = "SELECT count(*) FROM account_deletions WHERE completed_at IS NULL", nativeQuery = true)
+    long countPending();
+}
@@ -1,17 +1,98 @@
 package uk.gov.hmcts.reform.demo.repositories;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import uk.gov.hmcts.reform.demo.dto.AccountRequestRow;
+import uk.gov.hmcts.reform.demo.dto.PendingRequestSummary;
 import uk.gov.hmcts.reform.demo.entities.AccountRequest;
 import uk.gov.hmcts.reform.demo.entities.User;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface AccountRequestRepository extends JpaRepository<AccountRequest, Long> {
 
+    String SUMMARY = "SELECT new uk.gov.hmcts.reform.demo.dto.PendingRequestSummary("
+        + "r.id, u.username, u.email, cast(r.status as String), r.requestedAt) "
+        + "FROM AccountRequest r JOIN r.user u ";
+
     Optional<AccountRequest> findByUser(User user);
 
-    List<AccountRequest> findByStatus(AccountRequest.Status status);
+    /**
+     * Finds the first requests with a status, oldest first, with their user's details in the same statement.
+     *
+     * @param status The status of the requests.
+     * @param limit  The maximum number of requests to return.
+     */
+    @Query(SUMMARY + "WHERE r.status = :status ORDER BY r.requestedAt, r.id")
+    List<PendingRequestSummary> findSummariesByStatus(@Param("status") AccountRequest.Status status, Limit limit);
+
+    /**
+     * Finds the requests with a status that follow one already listed by {@link #findSummariesByStatus}.
+     *
+     * @param status           The status of the requests.
+     * @param afterRequestedAt When the last request listed was made.
+     * @param afterId          The ID of the last request listed.
+     * @param limit            The maximum number of requests to return.
+     */
+    @Query(SUMMARY + "WHERE r.status = :status AND r.requestedAt >= :afterRequestedAt "
+        + "AND (r.requestedAt > :afterRequestedAt OR r.id > :afterId) ORDER BY r.requestedAt, r.id")
+    List<PendingRequestSummary> findSummariesByStatusAfter(@Param("status") AccountRequest.Status status,
+                                                           @Param("afterRequestedAt") LocalDateTime afterRequestedAt,
+                                                           @Param("afterId") long afterId, Limit limit);
+
+    /**
+     * Locks the requests with the given IDs and their users until the end of the transaction, in ID order so that
+     * overlapping bulk decisions wait for each other rather than deadlock. IDs with no request are left out.
+     */
+    @Query(value = "SELECT CAST(r.id AS BIGINT) AS \"id\", r.status AS \"status\", CAST(u.id AS BIGINT) AS \"userId\", "
+        + "u.username AS \"username\", u.email AS \"email\" "
+        + "FROM account_requests r JOIN users u ON u.id = r.user_id "
+        + "WHERE r.id IN (:ids) ORDER BY r.id FOR UPDATE", nativeQuery = true)
+    List<AccountRequestRow> lockAllById(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Finds the IDs of the first pending requests made before a time, lowest ID first.
+     */
+    @Query(value = "SELECT CAST(id AS BIGINT) FROM account_requests "
+        + "WHERE status = 'PENDING' AND requested_at < :before ORDER BY id LIMIT :limit", nativeQuery = true)
+    List<Long> findPendingIdsRequestedBefore(@Param("before") LocalDateTime before, @Param("limit") int limit);
+
+    /**
+     * Approves the requests with the given IDs in one statement.
+     */
+    @Modifying
+    @Query(value = "UPDATE account_requests SET status = 'APPROVED', approved = TRUE, approved_at = :approvedAt "
+        + "WHERE id IN (:ids)", nativeQuery = true)
+    int approveAll(@Param("ids") Collection<Long> ids, @Param("approvedAt") LocalDateTime approvedAt);
+
+    /**
+     * Deletes a bounded batch of rejected requests made before a time.
+     *
+     * @param cutoff The request time before which rejected requests are deleted.
+     * @param limit  The maximum number of requests to delete.
+     * @return The number of requests deleted.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM account_requests WHERE id IN (SELECT id FROM account_requests "
+        + "WHERE status = 'REJECTED' AND requested_at < :cutoff LIMIT :limit)", nativeQuery = true)
+    int deleteBatchRejectedBefore(@Param("cutoff") LocalDateTime cutoff, @Param("limit") int limit);
+
+    /**
+     * Finds how long before a time, in seconds, the oldest rejected request older than it was made, or 0 if there
+     * is none.
+     */
+    @Query(value = "SELECT CAST(COALESCE(EXTRACT(EPOCH FROM "
+        + "CAST(:cutoff AS TIMESTAMP) - min(requested_at)), 0) AS BIGINT) "
+        + "FROM account_requests WHERE status = 'REJECTED' AND requested_at < :cutoff", nativeQuery = true)
+    long findSecondsRejectedBefore(@Param("cutoff") LocalDateTime cutoff);
 }
@@ -0,0 +1,58 @@
+package uk.gov.hmcts.reform.demo.repositories;
+
+import java.time.LocalDate;
+import java.util.List;
+import uk.gov.hmcts.reform.demo.dto.AccountSummary;
+
+/**
+ * Pages of the admin account listing, filtered and sorted in the database and selected straight into
+ * {@link AccountSummary} rows. Pages are found by keyset rather than offset, so each costs the same however far into
+ * the listing it is.
+ */
+public interface AccountSummaryQueries {
+
+    /**
+     * The orders accounts can be listed in. Ties are broken by ID.
+     */
+    enum SortField {
+        ID, USERNAME, CREATED_DATE
+    }
+
+    /**
+     * Restricts the accounts listed. Null fields match every account.
+     *
+     * @param admin          True for admins only, false for everyone else.
+     * @param createdFrom    The first creation date, inclusive.
+     * @param createdTo      The last creation date, inclusive.
+     * @param usernamePrefix The start of the username, in any case.
+     */
+    record Filter(Boolean admin, LocalDate createdFrom, LocalDate createdTo, String usernamePrefix) {
+    }
+
+    /**
+     * The last account on the previous page.
+     *
+     * @param key The account's sort value: its username, its creation date in ISO form, or null when sorting by ID.
+     * @param id  The account's ID.
+     */
+    record Position(String key, long id) {
+    }
+
+    /**
+     * Finds a page of accounts.
+     *
+     * @param filter     The accounts to list.
+     * @param sort       The order to list them in.
+     * @param descending Whether to list them in descending order.
+     * @param after      The last account on the previous page, or null for the first page.
+     * @param limit      The maximum number of accounts to return.
+     * @return The page's accounts, in order.
+     */
+    List<AccountSummary> findAccountSummaries(Filter filter, SortField sort, boolean descending, Position after,
+                                              int limit);
+
+    /**
+     * Counts every account the filter matches.
+     */
+    long countAccounts(Filter filter);
+}
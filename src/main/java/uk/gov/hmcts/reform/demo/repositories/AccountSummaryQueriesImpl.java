@@ -0,0 +1,103 @@
+package uk.gov.hmcts.reform.demo.repositories;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import uk.gov.hmcts.reform.demo.dto.AccountSummary;
+
+/**
+ * Builds the account listing queries from the filters given, so each page is one indexed statement.
+ */
+class AccountSummaryQueriesImpl implements AccountSummaryQueries {
+
+    private static final String SUMMARY = "SELECT new uk.gov.hmcts.reform.demo.dto.AccountSummary("
+        + "u.id, u.username, u.email, CASE WHEN u.isAdmin = true THEN 'Admin' ELSE 'User' END, u.createdAt) "
+        + "FROM User u WHERE 1 = 1";
+
+    // Compared as dates, which the users (CAST(created_at AS DATE), id) index is built on
+    private static final String CREATED_DATE = "cast(u.createdAt as LocalDate)";
+
+    private final EntityManager entityManager;
+
+    AccountSummaryQueriesImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public List<AccountSummary> findAccountSummaries(Filter filter, SortField sort, boolean descending,
+                                                     Position after, int limit) {
+        StringBuilder jpql = new StringBuilder(SUMMARY);
+        Map<String, Object> parameters = new HashMap<>();
+        where(filter, jpql, parameters);
+
+        String key = switch (sort) {
+            case ID -> null;
+            case USERNAME -> "u.username";
+            case CREATED_DATE -> CREATED_DATE;
+        };
+        String direction = descending ? " DESC" : "";
+        if (after != null) {
+            String beyond = descending ? " < " : " > ";
+            if (key == null) {
+                jpql.append(" AND u.id").append(beyond).append(":afterId");
+            } else {
+                // The first condition alone bounds the index scan; the second excludes what is already listed
+                String from = descending ? " <= " : " >= ";
+                jpql.append(" AND ").append(key).append(from).append(":afterKey")
+                    .append(" AND (").append(key).append(beyond).append(":afterKey")
+                    .append(" OR u.id").append(beyond).append(":afterId)");
+                parameters.put("afterKey", sort == SortField.CREATED_DATE ? LocalDate.parse(after.key()) : after.key());
+            }
+            parameters.put("afterId", after.id());
+        }
+        jpql.append(" ORDER BY ");
+        if (key != null) {
+            jpql.append(key).append(direction).append(", ");
+        }
+        jpql.append("u.id").append(direction);
+
+        TypedQuery<AccountSummary> query = entityManager.createQuery(jpql.toString(), AccountSummary.class);
+        parameters.forEach(query::setParameter);
+        return query.setMaxResults(limit).getResultList();
+    }
+
+    @Override
+    public long countAccounts(Filter filter) {
+        StringBuilder jpql = new StringBuilder("SELECT count(u) FROM User u WHERE 1 = 1");
+        Map<String, Object> parameters = new HashMap<>();
+        where(filter, jpql, parameters);
+
+        TypedQuery<Long> query = entityManager.createQuery(jpql.toString(), Long.class);
+        parameters.forEach(query::setParameter);
+        return query.getSingleResult();
+    }
+
+    private static void where(Filter filter, StringBuilder jpql, Map<String, Object> parameters) {
+        if (Boolean.TRUE.equals(filter.admin())) {
+            jpql.append(" AND u.isAdmin = true");
+        } else if (Boolean.FALSE.equals(filter.admin())) {
+            jpql.append(" AND (u.isAdmin = false OR u.isAdmin IS NULL)");
+        }
+        if (filter.createdFrom() != null) {
+            jpql.append(" AND ").append(CREATED_DATE).append(" >= :createdFrom");
+            parameters.put("createdFrom", filter.createdFrom());
+        }
+        if (filter.createdTo() != null) {
+            jpql.append(" AND ").append(CREATED_DATE).append(" <= :createdTo");
+            parameters.put("createdTo", filter.createdTo());
+        }
+        if (filter.usernamePrefix() != null && !filter.usernamePrefix().isEmpty()) {
+            // Served by the users (lower(username) text_pattern_ops) index
+            jpql.append(" AND lower(u.username) LIKE :usernamePrefix ESCAPE '\\'");
+            parameters.put("usernamePrefix", escapeLike(filter.usernamePrefix().toLowerCase(Locale.ROOT)) + "%");
+        }
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
@@ -0,0 +1,42 @@
+package uk.gov.hmcts.reform.demo.repositories;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import uk.gov.hmcts.reform.demo.entities.ChatArchive;
+
+/**
+ * Repository interface for ChatArchive entity.
+ */
+@Repository
+public interface ChatArchiveRepository extends JpaRepository<ChatArchive, Long> {
+
+    /**
+     * Deletes the archive of a chat, if there is one.
+     *
+     * @param chatId The ID of the archived chat.
+     * @return The number of rows deleted.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM chat_archives WHERE chat_id = :chatId", nativeQuery = true)
+    int deleteByChatId(@Param("chatId") Long chatId);
+
+    /**
+     * Copies the search vectors of a chat's messages up to and including a given message ID, so that search still
+     * finds them once they are archived. The chat's archive must already be written.
+     *
+     * @param chatId The ID of the chat being archived.
+     * @param maxId  The highest message ID being archived.
+     * @return The number of messages indexed.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO archived_message_search (chat_id, message_id, sender, created_at, search_vector) "
+        + "SELECT chat_id, id, sender, created_at, search_vector FROM messages "
+        + "WHERE chat_id = :chatId AND id <= :maxId", nativeQuery = true)
+    int indexMessagesUpTo(@Param("chatId") Long chatId, @Param("maxId") Long maxId);
+}
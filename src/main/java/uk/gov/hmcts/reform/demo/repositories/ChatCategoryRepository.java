@@ -0,0 +1,36 @@
+package uk.gov.hmcts.reform.demo.repositories;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import uk.gov.hmcts.reform.demo.entities.ChatCategory;
+
+import java.util.Optional;
+
+/**
+ * Repository interface for ChatCategory entity.
+ */
+@Repository
+public interface ChatCategoryRepository extends JpaRepository<ChatCategory, Integer> {
+
+    /**
+     * Finds the category with a canonical name.
+     *
+     * @param canonicalName The canonical name, see {@link ChatCategory#canonicalName(String)}.
+     * @return The category, if there is one.
+     */
+    Optional<ChatCategory> findByCanonicalName(String canonicalName);
+
+    /**
+     * Adds a category unless one with the same canonical name exists, in the caller's transaction. If another
+     * transaction is adding the same category, waits for it to finish.
+     *
+     * @return The ID of the category added, or empty if it already existed.
+     */
+    @Transactional
+    @Query(value = "INSERT INTO chat_categories (name, canonical_name) VALUES (:name, :canonicalName) "
+        + "ON CONFLICT (canonical_name) DO NOTHING RETURNING id", nativeQuery = true)
+    Optional<Integer> insertIfAbsent(@Param("name") String name, @Param("canonicalName") String canonicalName);
+}
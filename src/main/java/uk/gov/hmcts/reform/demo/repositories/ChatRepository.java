@@ -1,11 +1,26 @@
 package uk.gov.hmcts.reform.demo.repositories;
 
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import uk.gov.hmcts.reform.demo.dto.ChatCategoryRow;
+import uk.gov.hmcts.reform.demo.dto.ChatExportRow;
+import uk.gov.hmcts.reform.demo.dto.ChatSnapshotRow;
 import uk.gov.hmcts.reform.demo.entities.Chat;
 import uk.gov.hmcts.reform.demo.entities.User;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Repository interface for Chat entity.
@@ -20,4 +35,140 @@ public interface ChatRepository extends JpaRepository<Chat, Long> {
      * @return A list of chats belonging to the user.
      */
     List<Chat> findByUser(User user);
+
+    /**
+     * Reads a chat and locks it until the transaction ends, so that archiving the chat, moving it back out of the
+     * archive and adding messages to it take turns.
+     *
+     * @param chatId The ID of the chat.
+     * @return The chat, unless it does not exist or is deleted.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM Chat c WHERE c.id = :chatId")
+    Optional<Chat> lockById(@Param("chatId") Long chatId);
+
+    /**
+     * Streams the user, category and creation time of every chat that is not deleted through a cursor, in ID order.
+     * Must be called in a transaction and closed.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT c.user.id AS userId, c.category.name AS category, c.createdAt AS createdAt FROM Chat c "
+        + "ORDER BY c.id")
+    Stream<ChatCategoryRow> streamCategories();
+
+    /**
+     * Streams the chats that are not deleted and were created in a range, in ID order, with their category and
+     * their user's age group when each started. Must be called in a transaction and closed.
+     *
+     * @param from The start of the range, inclusive.
+     * @param to   The end of the range, exclusive.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query(value = "SELECT CAST(c.id AS BIGINT) AS \"id\", c.created_at AS \"createdAt\", "
+        + "CAST(c.user_id AS BIGINT) AS \"userId\", cc.name AS \"category\", "
+        + StatisticsRollupRepository.CHAT_AGE_GROUP + " AS \"ageGroup\" "
+        + "FROM chats c JOIN users u ON u.id = c.user_id JOIN chat_categories cc ON cc.id = c.category_id "
+        + "WHERE c.deleted_at IS NULL AND c.created_at >= :from AND c.created_at < :to ORDER BY c.id",
+        nativeQuery = true)
+    Stream<ChatExportRow> streamForExport(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    /**
+     * Streams the chats that are not deleted in an ID range, in ID order, with their user's date of birth, for the
+     * analytics snapshot. Must be called in a transaction and closed.
+     *
+     * @param afterId The last ID already loaded.
+     * @param upToId  The last ID to load.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT c.user.id AS userId, c.category.name AS category, c.createdAt AS createdAt, "
+        + "c.user.dateOfBirth AS dateOfBirth FROM Chat c WHERE c.id > :afterId AND c.id <= :upToId ORDER BY c.id")
+    Stream<ChatSnapshotRow> streamSnapshotRows(@Param("afterId") long afterId, @Param("upToId") long upToId);
+
+    /**
+     * Finds the highest chat ID handed out so far, deleted or not.
+     *
+     * @return The highest ID, or 0 if there are no chats.
+     */
+    @Query(value = "SELECT COALESCE(max(id), 0) FROM chats", nativeQuery = true)
+    long findMaxId();
+
+    /**
+     * Marks a chat as deleted without touching its messages.
+     *
+     * @param chatId    The ID of the chat to delete.
+     * @param deletedAt The deletion timestamp.
+     * @return The number of rows updated (0 if the chat was already deleted).
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE chats SET deleted_at = :deletedAt WHERE id = :chatId AND deleted_at IS NULL",
+        nativeQuery = true)
+    int softDeleteById(@Param("chatId") Long chatId, @Param("deletedAt") LocalDateTime deletedAt);
+
+    /**
+     * Finds the IDs of all a user's chats, deleted ones included, lowest first.
+     *
+     * @param userId The ID of the user.
+     * @param limit  The maximum number of IDs to return.
+     * @return A list of chat IDs.
+     */
+    @Query(value = "SELECT CAST(id AS BIGINT) FROM chats WHERE user_id = :userId ORDER BY id LIMIT :limit",
+        nativeQuery = true)
+    List<Long> findIdsByUserId(@Param("userId") Long userId, @Param("limit") int limit);
+
+    /**
+     * Finds the IDs of soft-deleted chats awaiting purge, oldest deletion first.
+     *
+     * @param limit The maximum number of IDs to return.
+     * @return A list of chat IDs.
+     */
+    @Query(value = "SELECT CAST(id AS BIGINT) FROM chats WHERE deleted_at IS NOT NULL ORDER BY deleted_at LIMIT :limit",
+        nativeQuery = true)
+    List<Long> findSoftDeletedIds(@Param("limit") int limit);
+
+    /**
+     * Counts the soft-deleted chats awaiting purge.
+     *
+     * @return The number of soft-deleted chats.
+     */
+    @Query(value = "SELECT count(*) FROM chats WHERE deleted_at IS NOT NULL", nativeQuery = true)
+    long countSoftDeleted();
+
+    /**
+     * Physically removes a soft-deleted chat row. Its messages must already have been purged.
+     *
+     * @param chatId The ID of the chat to remove.
+     * @return The number of rows deleted.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM chats WHERE id = :chatId AND deleted_at IS NOT NULL", nativeQuery = true)
+    int purgeById(@Param("chatId") Long chatId);
+
+    /**
+     * Finds live, unarchived chats with messages, none of them since the cutoff, oldest first. Chats without messages
+     * have nothing to archive, and would otherwise be found again on every run.
+     *
+     * @param cutoff Chats created and last written before this instant are idle.
+     * @param limit  The maximum number of IDs to return.
+     * @return A list of chat IDs.
+     */
+    @Query(value = "SELECT CAST(c.id AS BIGINT) FROM chats c "
+        + "WHERE c.archived_at IS NULL AND c.deleted_at IS NULL AND c.created_at < :cutoff "
+        + "AND EXISTS (SELECT 1 FROM messages m WHERE m.chat_id = c.id) "
+        + "AND NOT EXISTS (SELECT 1 FROM messages m WHERE m.chat_id = c.id AND m.created_at >= :cutoff) "
+        + "ORDER BY c.id LIMIT :limit", nativeQuery = true)
+    List<Long> findIdleChatIds(@Param("cutoff") LocalDateTime cutoff, @Param("limit") int limit);
+
+    /**
+     * Records whether a chat's messages live in the archive.
+     *
+     * @param chatId     The ID of the chat.
+     * @param archivedAt The archive timestamp, or null once the messages are back in {@code messages}.
+     * @return The number of rows updated.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE chats SET archived_at = :archivedAt WHERE id = :chatId", nativeQuery = true)
+    int updateArchivedAt(@Param("chatId") Long chatId, @Param("archivedAt") LocalDateTime archivedAt);
 }
@@ -1,10 +1,17 @@
 package uk.gov.hmcts.reform.demo.repositories;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import uk.gov.hmcts.reform.demo.dto.MessageSearchHit;
 import uk.gov.hmcts.reform.demo.entities.Message;
 import uk.gov.hmcts.reform.demo.entities.Chat;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 
 /**
@@ -13,6 +20,46 @@ import java.util.List;
 @Repository
 public interface MessageRepository extends JpaRepository<Message, Long> {
 
+    /**
+     * Wrapped around a text, escapes the characters that are special in HTML, so that the snippet built from it holds
+     * no markup but the {@code <mark>} tags {@code ts_headline} adds.
+     */
+    String ESCAPE_HTML_OPEN = "replace(replace(replace(replace(replace(";
+    String ESCAPE_HTML_CLOSE = ", '&', '&amp;'), '<', '&lt;'), '>', '&gt;'), '\"', '&quot;'), '''', '&#39;')";
+
+    String HEADLINE_OPTIONS = "'StartSel=<mark>, StopSel=</mark>, MaxFragments=2, MaxWords=25, MinWords=8'";
+
+    /**
+     * Ranked full-text search over one user's live chats, archived messages included. The page is selected first so
+     * that the comparatively expensive {@code ts_headline} only runs for the rows that are returned. The text of an
+     * archived message is only kept in its chat's archive, so its snippet is null here.
+     */
+    String SEARCH_SQL = "SELECT hit.message_id AS \"messageId\", hit.chat_id AS \"chatId\", "
+        + "hit.description AS \"chatDescription\", hit.sender AS \"sender\", hit.created_at AS \"createdAt\", "
+        + "hit.rank AS \"rank\", "
+        + "ts_headline('english', " + ESCAPE_HTML_OPEN + "hit.message" + ESCAPE_HTML_CLOSE + ", "
+        + "websearch_to_tsquery('english', :query), " + HEADLINE_OPTIONS + ") AS \"snippet\" "
+        + "FROM (SELECT m.id AS message_id, m.chat_id, c.description, m.sender, m.created_at, m.message, "
+        + "ts_rank(m.search_vector, websearch_to_tsquery('english', :query)) AS rank "
+        + "FROM messages m JOIN chats c ON c.id = m.chat_id "
+        + "WHERE c.user_id = :userId AND c.deleted_at IS NULL "
+        + "AND m.search_vector @@ websearch_to_tsquery('english', :query) "
+        + "UNION ALL "
+        + "SELECT a.message_id, a.chat_id, c.description, a.sender, a.created_at, NULL, "
+        + "ts_rank(a.search_vector, websearch_to_tsquery('english', :query)) "
+        + "FROM archived_message_search a JOIN chats c ON c.id = a.chat_id "
+        + "WHERE c.user_id = :userId AND c.deleted_at IS NULL "
+        + "AND a.search_vector @@ websearch_to_tsquery('english', :query) "
+        + "ORDER BY rank DESC, message_id DESC LIMIT :limit OFFSET :offset) hit "
+        + "ORDER BY hit.rank DESC, hit.message_id DESC";
+
+    String SEARCH_COUNT_SQL = "SELECT (SELECT count(*) FROM messages m JOIN chats c ON c.id = m.chat_id "
+        + "WHERE c.user_id = :userId AND c.deleted_at IS NULL "
+        + "AND m.search_vector @@ websearch_to_tsquery('english', :query)) "
+        + "+ (SELECT count(*) FROM archived_message_search a JOIN chats c ON c.id = a.chat_id "
+        + "WHERE c.user_id = :userId AND c.deleted_at IS NULL "
+        + "AND a.search_vector @@ websearch_to_tsquery('english', :query))";
+
     /**
      * Finds all messages within a specific chat.
      *
@@ -20,4 +67,91 @@ public interface MessageRepository extends JpaRepository<Message, Long> {
      * @return A list of messages belonging to the chat.
      */
     List<Message> findByChat(Chat chat);
+
+    /**
+     * Deletes up to {@code limit} messages of a chat in a single bulk statement and its own transaction.
+     *
+     * @param chatId The ID of the chat whose messages are to be deleted.
+     * @param limit  The maximum number of messages to delete.
+     * @return The number of messages deleted.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM messages WHERE id IN "
+        + "(SELECT id FROM messages WHERE chat_id = :chatId LIMIT :limit)", nativeQuery = true)
+    int deleteBatchByChatId(@Param("chatId") Long chatId, @Param("limit") int limit);
+
+    /**
+     * Deletes all messages of a chat up to and including a given message ID.
+     *
+     * @param chatId The ID of the chat.
+     * @param maxId  The highest message ID to delete.
+     * @return The number of messages deleted.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM messages WHERE chat_id = :chatId AND id <= :maxId", nativeQuery = true)
+    int deleteByChatIdUpTo(@Param("chatId") Long chatId, @Param("maxId") Long maxId);
+
+    /**
+     * Counts the messages of a chat.
+     *
+     * @param chat The chat whose messages are counted.
+     * @return The number of messages.
+     */
+    long countByChat(Chat chat);
+
+    /**
+     * Searches the messages of a user's chats, best match first.
+     *
+     * @param userId The ID of the user whose chats are searched.
+     * @param query  The search terms, in web search syntax (quoted phrases, {@code or}, {@code -term}).
+     * @param limit  The page size.
+     * @param offset The number of matches to skip.
+     * @return The matches on the requested page.
+     */
+    @Query(value = SEARCH_SQL, nativeQuery = true)
+    List<MessageSearchHit> searchByUser(@Param("userId") Long userId, @Param("query") String query,
+                                        @Param("limit") int limit, @Param("offset") long offset);
+
+    /**
+     * Counts all matches of a search over a user's chats.
+     *
+     * @param userId The ID of the user whose chats are searched.
+     * @param query  The search terms.
+     * @return The total number of matching messages.
+     */
+    @Query(value = SEARCH_COUNT_SQL, nativeQuery = true)
+    long countSearchByUser(@Param("userId") Long userId, @Param("query") String query);
+
+    /**
+     * Highlights the terms of a search in a text, as {@link #searchByUser} does in the messages it reads.
+     *
+     * @param text  The text of an archived message.
+     * @param query The search terms.
+     * @return The matching fragments of the text as safe HTML.
+     */
+    @Query(value = "SELECT ts_headline('english', " + ESCAPE_HTML_OPEN + "CAST(:text AS TEXT)" + ESCAPE_HTML_CLOSE
+        + ", websearch_to_tsquery('english', :query), " + HEADLINE_OPTIONS + ")", nativeQuery = true)
+    String headline(@Param("text") String text, @Param("query") String query);
+
+    /**
+     * Creates the missing monthly partitions of the messages table between two months, inclusive.
+     *
+     * @return The number of partitions created.
+     */
+    @Transactional
+    @Query(value = "SELECT create_monthly_partitions('messages', :from, :to)", nativeQuery = true)
+    int createMonthlyPartitions(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    /**
+     * Drops the monthly partitions that ended before a time and are empty, their messages having been archived or
+     * purged.
+     *
+     * @param endsBefore The time by which a partition must have ended.
+     * @return The number of partitions dropped.
+     */
+    @Transactional
+    @Query(value = "SELECT drop_empty_message_partitions(:endsBefore)", nativeQuery = true)
+    int dropEmptyPartitionsBefore(@Param("endsBefore") LocalDateTime endsBefore);
 }
@@ -1,15 +1,54 @@
 package uk.gov.hmcts.reform.demo.repositories;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import uk.gov.hmcts.reform.demo.entities.PasswordResetToken;
 import uk.gov.hmcts.reform.demo.entities.User;
 
+import java.time.LocalDateTime;
 import java.util.Optional;
 
 @Repository
 public interface PasswordResetTokenRepository extends JpaRepository<PasswordResetToken, Long> {
 
     Optional<PasswordResetToken> findByUser(User user);
-}
 
+    /**
+     * Deletes a bounded batch of a user's reset tokens.
+     *
+     * @param userId The ID of the user whose tokens are to be deleted.
+     * @param limit  The maximum number of tokens to delete.
+     * @return The number of tokens deleted.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM password_reset_tokens WHERE id IN "
+        + "(SELECT id FROM password_reset_tokens WHERE user_id = :userId LIMIT :limit)", nativeQuery = true)
+    int deleteBatchByUserId(@Param("userId") Long userId, @Param("limit") int limit);
+
+    /**
+     * Deletes a bounded batch of reset tokens that expired before a time. A used token is still needed until it
+     * expires, as it marks the one-time password as verified for the password reset that follows.
+     *
+     * @param cutoff The expiry time before which tokens are deleted.
+     * @param limit  The maximum number of tokens to delete.
+     * @return The number of tokens deleted.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM password_reset_tokens WHERE id IN "
+        + "(SELECT id FROM password_reset_tokens WHERE expires_at < :cutoff LIMIT :limit)", nativeQuery = true)
+    int deleteBatchExpiredBefore(@Param("cutoff") LocalDateTime cutoff, @Param("limit") int limit);
+
+    /**
+     * Finds how long before a time, in seconds, the first reset token to expire before it did so, or 0 if none did.
+     */
+    @Query(value = "SELECT CAST(COALESCE(EXTRACT(EPOCH FROM "
+        + "CAST(:cutoff AS TIMESTAMP) - min(expires_at)), 0) AS BIGINT) "
+        + "FROM password_reset_tokens WHERE expires_at < :cutoff", nativeQuery = true)
+    long findSecondsExpiredBefore(@Param("cutoff") LocalDateTime cutoff);
+}
@@ -1,10 +1,21 @@
 package uk.gov.hmcts.reform.demo.repositories;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import uk.gov.hmcts.reform.demo.dto.SessionExportRow;
 import uk.gov.hmcts.reform.demo.entities.Session;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Repository interface for Session entities.
@@ -13,10 +24,95 @@ import java.util.Optional;
 public interface SessionRepository extends JpaRepository<Session, Long> {
 
     /**
-     * Finds a session by its session token.
+     * Finds a session by its session token. Tokens are not unique once the table is partitioned, so should one ever
+     * repeat this is the newest session with it.
      *
      * @param sessionToken The session token.
      * @return An Optional containing the Session if found.
      */
-    Optional<Session> findBySessionToken(String sessionToken);
+    Optional<Session> findFirstBySessionTokenOrderByCreatedAtDesc(String sessionToken);
+
+    /**
+     * Streams the sessions created in a range, in ID order, with their user's age group when each started. Must be
+     * called in a transaction and closed.
+     *
+     * @param from The start of the range, inclusive.
+     * @param to   The end of the range, exclusive.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query(value = "SELECT CAST(s.id AS BIGINT) AS \"id\", s.created_at AS \"createdAt\", "
+        + "CAST(s.user_id AS BIGINT) AS \"userId\", "
+        + StatisticsRollupRepository.SESSION_AGE_GROUP + " AS \"ageGroup\" "
+        + "FROM sessions s JOIN users u ON u.id = s.user_id "
+        + "WHERE s.created_at >= :from AND s.created_at < :to ORDER BY s.id", nativeQuery = true)
+    Stream<SessionExportRow> streamForExport(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    /**
+     * Ends a user's sessions that have not expired yet, by expiring them now.
+     *
+     * @param userId The ID of the user whose sessions are to be expired.
+     * @param now    The time they expire at.
+     * @return The number of sessions expired.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE sessions SET expires_at = :now WHERE user_id = :userId AND expires_at > :now",
+        nativeQuery = true)
+    int expireByUserId(@Param("userId") Long userId, @Param("now") LocalDateTime now);
+
+    /**
+     * Deletes a bounded batch of a user's sessions.
+     *
+     * @param userId The ID of the user whose sessions are to be deleted.
+     * @param limit  The maximum number of sessions to delete.
+     * @return The number of sessions deleted.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM sessions WHERE id IN "
+        + "(SELECT id FROM sessions WHERE user_id = :userId LIMIT :limit)", nativeQuery = true)
+    int deleteBatchByUserId(@Param("userId") Long userId, @Param("limit") int limit);
+
+    /**
+     * Deletes a bounded batch of sessions that expired before a time. Only sessions already counted in the activity
+     * rollups are deleted, so that the rollups never miss one.
+     *
+     * @param cutoff The expiry time before which sessions are deleted.
+     * @param limit  The maximum number of sessions to delete.
+     * @return The number of sessions deleted.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM sessions WHERE id IN (SELECT id FROM sessions WHERE expires_at < :cutoff "
+        + "AND id <= (SELECT last_id FROM rollup_watermarks WHERE source = 'sessions') LIMIT :limit)",
+        nativeQuery = true)
+    int deleteBatchExpiredBefore(@Param("cutoff") LocalDateTime cutoff, @Param("limit") int limit);
+
+    /**
+     * Finds how long before a time, in seconds, the first session to expire before it did so, or 0 if none did.
+     */
+    @Query(value = "SELECT CAST(COALESCE(EXTRACT(EPOCH FROM "
+        + "CAST(:cutoff AS TIMESTAMP) - min(expires_at)), 0) AS BIGINT) "
+        + "FROM sessions WHERE expires_at < :cutoff", nativeQuery = true)
+    long findSecondsExpiredBefore(@Param("cutoff") LocalDateTime cutoff);
+
+    /**
+     * Creates the missing monthly partitions of the sessions table between two months, inclusive.
+     *
+     * @return The number of partitions created.
+     */
+    @Transactional
+    @Query(value = "SELECT create_monthly_partitions('sessions', :from, :to)", nativeQuery = true)
+    int createMonthlyPartitions(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    /**
+     * Drops each monthly partition whose sessions all expired before a time and have been counted in the activity
+     * rollups, which is much cheaper than deleting them.
+     *
+     * @param cutoff The expiry time before which sessions may be dropped.
+     * @return The number of sessions the dropped partitions held.
+     */
+    @Transactional
+    @Query(value = "SELECT drop_expired_session_partitions(:cutoff)", nativeQuery = true)
+    long dropExpiredPartitions(@Param("cutoff") LocalDateTime cutoff);
 }
@@ -0,0 +1,155 @@
+package uk.gov.hmcts.reform.demo.repositories;
+
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import uk.gov.hmcts.reform.demo.dto.ChatActivityCount;
+import uk.gov.hmcts.reform.demo.dto.SessionActivityCount;
+import uk.gov.hmcts.reform.demo.entities.RollupWatermark;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repository for the activity rollups: {@code session_activity_hourly}, {@code session_activity_daily},
+ * {@code chat_activity_hourly}, {@code chat_activity_daily} and their {@code rollup_watermarks}.
+ *
+ * <p>Each roll-up adds the rows of a source table in an ID range to the bucket of their {@code created_at}.
+ */
+@Repository
+public interface StatisticsRollupRepository extends JpaRepository<RollupWatermark, String> {
+
+    /**
+     * The age group of a session's user when it started, from the {@code age_group} database function that every
+     * statistic shares.
+     */
+    String SESSION_AGE_GROUP = "age_group(u.date_of_birth, s.created_at)";
+
+    String SESSION_ROWS = "FROM sessions s JOIN users u ON u.id = s.user_id "
+        + "WHERE s.created_at IS NOT NULL AND s.id > :afterId AND s.id <= :upToId ";
+
+    String SESSION_ROWS_SINCE = "FROM sessions s JOIN users u ON u.id = s.user_id "
+        + "WHERE s.created_at >= :from AND s.id <= :upToId ";
+
+    /**
+     * The age group of a chat's user when it started, as {@link #SESSION_AGE_GROUP}.
+     */
+    String CHAT_AGE_GROUP = "age_group(u.date_of_birth, c.created_at)";
+
+    String CHAT_ROWS = "FROM chats c JOIN users u ON u.id = c.user_id "
+        + "WHERE c.created_at IS NOT NULL AND c.deleted_at IS NULL AND c.id > :afterId AND c.id <= :upToId ";
+
+    /**
+     * Reads a source's watermark and locks it until the transaction ends, so only one node rolls it up at a time.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT w FROM RollupWatermark w WHERE w.source = :source")
+    Optional<RollupWatermark> lockBySource(@Param("source") String source);
+
+    @Query(value = "SELECT COALESCE(max(id), 0) FROM sessions", nativeQuery = true)
+    long findMaxSessionId();
+
+    @Query(value = "SELECT COALESCE(max(id), 0) FROM chats", nativeQuery = true)
+    long findMaxChatId();
+
+    @Modifying
+    @Query(value = "INSERT INTO session_activity_hourly (hour, age_group, sessions) "
+        + "SELECT date_trunc('hour', s.created_at), " + SESSION_AGE_GROUP + ", count(*) " + SESSION_ROWS
+        + "GROUP BY 1, 2 ON CONFLICT (hour, age_group) "
+        + "DO UPDATE SET sessions = session_activity_hourly.sessions + EXCLUDED.sessions", nativeQuery = true)
+    int rollUpSessionsHourly(@Param("afterId") long afterId, @Param("upToId") long upToId);
+
+    @Modifying
+    @Query(value = "INSERT INTO session_activity_daily (day, age_group, sessions) "
+        + "SELECT CAST(s.created_at AS DATE), " + SESSION_AGE_GROUP + ", count(*) " + SESSION_ROWS
+        + "GROUP BY 1, 2 ON CONFLICT (day, age_group) "
+        + "DO UPDATE SET sessions = session_activity_daily.sessions + EXCLUDED.sessions", nativeQuery = true)
+    int rollUpSessionsDaily(@Param("afterId") long afterId, @Param("upToId") long upToId);
+
+    /**
+     * Adds the sessions created since a time, up to an ID, to the hourly rollup, as {@link #rollUpSessionsHourly}.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO session_activity_hourly (hour, age_group, sessions) "
+        + "SELECT date_trunc('hour', s.created_at), " + SESSION_AGE_GROUP + ", count(*) " + SESSION_ROWS_SINCE
+        + "GROUP BY 1, 2 ON CONFLICT (hour, age_group) "
+        + "DO UPDATE SET sessions = session_activity_hourly.sessions + EXCLUDED.sessions", nativeQuery = true)
+    int rollUpSessionsHourlySince(@Param("from") LocalDateTime from, @Param("upToId") long upToId);
+
+    /**
+     * Adds the sessions created since a time, up to an ID, to the daily rollup, as {@link #rollUpSessionsDaily}.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO session_activity_daily (day, age_group, sessions) "
+        + "SELECT CAST(s.created_at AS DATE), " + SESSION_AGE_GROUP + ", count(*) " + SESSION_ROWS_SINCE
+        + "GROUP BY 1, 2 ON CONFLICT (day, age_group) "
+        + "DO UPDATE SET sessions = session_activity_daily.sessions + EXCLUDED.sessions", nativeQuery = true)
+    int rollUpSessionsDailySince(@Param("from") LocalDateTime from, @Param("upToId") long upToId);
+
+    @Modifying
+    @Query(value = "INSERT INTO chat_activity_hourly (hour, category_id, age_group, chats) "
+        + "SELECT date_trunc('hour', c.created_at), c.category_id, " + CHAT_AGE_GROUP + ", count(*) " + CHAT_ROWS
+        + "GROUP BY 1, 2, 3 ON CONFLICT (hour, category_id, age_group) "
+        + "DO UPDATE SET chats = chat_activity_hourly.chats + EXCLUDED.chats", nativeQuery = true)
+    int rollUpChatsHourly(@Param("afterId") long afterId, @Param("upToId") long upToId);
+
+    @Modifying
+    @Query(value = "INSERT INTO chat_activity_daily (day, category_id, age_group, chats) "
+        + "SELECT CAST(c.created_at AS DATE), c.category_id, " + CHAT_AGE_GROUP + ", count(*) " + CHAT_ROWS
+        + "GROUP BY 1, 2, 3 ON CONFLICT (day, category_id, age_group) "
+        + "DO UPDATE SET chats = chat_activity_daily.chats + EXCLUDED.chats", nativeQuery = true)
+    int rollUpChatsDaily(@Param("afterId") long afterId, @Param("upToId") long upToId);
+
+    /**
+     * Returns the session counts per hour and age group between two hours, both inclusive.
+     */
+    @Query(value = "SELECT hour AS \"period\", age_group AS \"ageGroup\", sessions AS \"sessions\" "
+        + "FROM session_activity_hourly WHERE hour BETWEEN :from AND :to ORDER BY hour, age_group", nativeQuery = true)
+    List<SessionActivityCount> findSessionsHourly(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    /**
+     * Returns the session counts per day and age group between two days, both inclusive.
+     */
+    @Query(value = "SELECT CAST(day AS TIMESTAMP) AS \"period\", age_group AS \"ageGroup\", sessions AS \"sessions\" "
+        + "FROM session_activity_daily WHERE day BETWEEN :from AND :to ORDER BY day, age_group", nativeQuery = true)
+    List<SessionActivityCount> findSessionsDaily(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    /**
+     * Returns the chat counts per hour, category and age group between two hours, both inclusive.
+     */
+    @Query(value = "SELECT a.hour AS \"period\", cc.name AS \"category\", a.age_group AS \"ageGroup\", "
+        + "a.chats AS \"chats\" FROM chat_activity_hourly a JOIN chat_categories cc ON cc.id = a.category_id "
+        + "WHERE a.hour BETWEEN :from AND :to ORDER BY a.hour, cc.name, a.age_group", nativeQuery = true)
+    List<ChatActivityCount> findChatsHourly(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    /**
+     * Returns the chat counts per day, category and age group between two days, both inclusive.
+     */
+    @Query(value = "SELECT CAST(a.day AS TIMESTAMP) AS \"period\", cc.name AS \"category\", "
+        + "a.age_group AS \"ageGroup\", a.chats AS \"chats\" "
+        + "FROM chat_activity_daily a JOIN chat_categories cc ON cc.id = a.category_id "
+        + "WHERE a.day BETWEEN :from AND :to ORDER BY a.day, cc.name, a.age_group", nativeQuery = true)
+    List<ChatActivityCount> findChatsDaily(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Modifying
+    @Query(value = "DELETE FROM session_activity_hourly WHERE hour >= :from", nativeQuery = true)
+    void clearSessionsHourlyFrom(@Param("from") LocalDateTime from);
+
+    @Modifying
+    @Query(value = "DELETE FROM session_activity_daily WHERE day >= :from", nativeQuery = true)
+    void clearSessionsDailyFrom(@Param("from") LocalDate from);
+
+    @Modifying
+    @Query(value = "DELETE FROM chat_activity_hourly", nativeQuery = true)
+    void clearChatsHourly();
+
+    @Modifying
+    @Query(value = "DELETE FROM chat_activity_daily", nativeQuery = true)
+    void clearChatsDaily();
+}
@@ -0,0 +1,159 @@
+package uk.gov.hmcts.reform.demo.repositories;
+
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import uk.gov.hmcts.reform.demo.dto.CategoryAgeGroupCount;
+import uk.gov.hmcts.reform.demo.dto.CategorySketchRow;
+import uk.gov.hmcts.reform.demo.dto.CategoryUserDayRow;
+import uk.gov.hmcts.reform.demo.entities.CategoryStatistics;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Repository for the statistics summary tables: {@code category_statistics}, {@code category_users},
+ * {@code category_age_groups} and {@code category_user_sketches}.
+ *
+ * <p>The tables are keyed by the ID of the chat category; reads join {@code chat_categories} for its name.
+ */
+@Repository
+public interface StatisticsSummaryRepository extends JpaRepository<CategoryStatistics, Integer> {
+
+    /**
+     * Returns every category, most chats first.
+     */
+    List<CategoryStatistics> findAllByOrderByChatCountDesc();
+
+    /**
+     * Returns the distinct user counts per category and age group.
+     */
+    @Query(value = "SELECT cc.name AS \"category\", g.age_group AS \"ageGroup\", g.users AS \"users\" "
+        + "FROM category_age_groups g JOIN chat_categories cc ON cc.id = g.category_id", nativeQuery = true)
+    List<CategoryAgeGroupCount> findCategoryAgeGroups();
+
+    /**
+     * Returns the user sketches per category and age group for each day in a range, to be merged by the caller.
+     *
+     * @param from The first day, inclusive.
+     * @param to   The last day, inclusive.
+     */
+    @Query(value = "SELECT cc.name AS \"category\", k.age_group AS \"ageGroup\", k.sketch AS \"sketch\" "
+        + "FROM category_user_sketches k JOIN chat_categories cc ON cc.id = k.category_id "
+        + "WHERE k.day BETWEEN :from AND :to", nativeQuery = true)
+    List<CategorySketchRow> findSketches(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Query(value = "SELECT EXISTS (SELECT 1 FROM category_user_sketches)", nativeQuery = true)
+    boolean existsAnySketch();
+
+    /**
+     * Adds chats to a category and widens its first and last query timestamps.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO category_statistics (category_id, chat_count, first_query_at, last_query_at) "
+        + "VALUES (:categoryId, :chats, :firstQueryAt, :lastQueryAt) "
+        + "ON CONFLICT (category_id) DO UPDATE SET chat_count = category_statistics.chat_count + EXCLUDED.chat_count, "
+        + "first_query_at = LEAST(category_statistics.first_query_at, EXCLUDED.first_query_at), "
+        + "last_query_at = GREATEST(category_statistics.last_query_at, EXCLUDED.last_query_at)", nativeQuery = true)
+    int addCategoryChats(@Param("categoryId") Integer categoryId, @Param("chats") long chats,
+                         @Param("firstQueryAt") LocalDateTime firstQueryAt,
+                         @Param("lastQueryAt") LocalDateTime lastQueryAt);
+
+    /**
+     * Records that a user has chatted in a category, counting them in their age group the first time only.
+     */
+    @Modifying
+    @Query(value = "WITH inserted AS (INSERT INTO category_users (category_id, user_id, age_group) "
+        + "VALUES (:categoryId, :userId, :ageGroup) ON CONFLICT DO NOTHING RETURNING category_id, age_group) "
+        + "INSERT INTO category_age_groups (category_id, age_group, users) "
+        + "SELECT category_id, age_group, 1 FROM inserted "
+        + "ON CONFLICT (category_id, age_group) DO UPDATE SET users = category_age_groups.users + 1",
+        nativeQuery = true)
+    int addCategoryUser(@Param("categoryId") Integer categoryId, @Param("userId") Long userId,
+                        @Param("ageGroup") String ageGroup);
+
+    /**
+     * Stores a sketch unless one is already stored for the category, age group and day.
+     *
+     * @return 1 if the sketch was stored, 0 if another was already there and must be merged with.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO category_user_sketches (category_id, age_group, day, sketch) "
+        + "VALUES (:categoryId, :ageGroup, :day, :sketch) ON CONFLICT DO NOTHING", nativeQuery = true)
+    int insertSketchIfAbsent(@Param("categoryId") Integer categoryId, @Param("ageGroup") String ageGroup,
+                             @Param("day") LocalDate day, @Param("sketch") byte[] sketch);
+
+    /**
+     * Reads a stored sketch and locks its row until the transaction ends, so concurrent merges do not overwrite
+     * each other.
+     */
+    @Query(value = "SELECT sketch FROM category_user_sketches "
+        + "WHERE category_id = :categoryId AND age_group = :ageGroup AND day = :day FOR UPDATE",
+        nativeQuery = true)
+    byte[] lockSketch(@Param("categoryId") Integer categoryId, @Param("ageGroup") String ageGroup,
+                      @Param("day") LocalDate day);
+
+    @Modifying
+    @Query(value = "UPDATE category_user_sketches SET sketch = :sketch "
+        + "WHERE category_id = :categoryId AND age_group = :ageGroup AND day = :day", nativeQuery = true)
+    int updateSketch(@Param("categoryId") Integer categoryId, @Param("ageGroup") String ageGroup,
+                     @Param("day") LocalDate day, @Param("sketch") byte[] sketch);
+
+    /**
+     * Streams the distinct users per category and day with their age group on that day, oldest day first, to
+     * rebuild the sketches from. Must be called in a transaction and closed.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query(value = "SELECT DISTINCT c.category_id AS \"categoryId\", "
+        + StatisticsRollupRepository.CHAT_AGE_GROUP + " AS \"ageGroup\", "
+        + "CAST(c.created_at AS DATE) AS \"day\", CAST(c.user_id AS BIGINT) AS \"userId\" "
+        + "FROM chats c JOIN users u ON u.id = c.user_id "
+        + "WHERE c.deleted_at IS NULL ORDER BY 3", nativeQuery = true)
+    Stream<CategoryUserDayRow> streamCategoryUserDays();
+
+    @Modifying
+    @Query(value = "DELETE FROM category_statistics", nativeQuery = true)
+    void clearCategoryStatistics();
+
+    @Modifying
+    @Query(value = "DELETE FROM category_users", nativeQuery = true)
+    void clearCategoryUsers();
+
+    @Modifying
+    @Query(value = "DELETE FROM category_age_groups", nativeQuery = true)
+    void clearCategoryAgeGroups();
+
+    @Modifying
+    @Query(value = "DELETE FROM category_user_sketches", nativeQuery = true)
+    void clearSketches();
+
+    /**
+     * Counts the live chats of each category up to a chat ID into the emptied {@code category_statistics}.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO category_statistics (category_id, chat_count, first_query_at, last_query_at) "
+        + "SELECT category_id, count(*), min(created_at), max(created_at) "
+        + "FROM chats WHERE deleted_at IS NULL AND id <= :upToId GROUP BY category_id", nativeQuery = true)
+    int rebuildCategoryStatistics(@Param("upToId") long upToId);
+
+    @Modifying
+    @Query(value = "INSERT INTO category_users (category_id, user_id, age_group) "
+        + "SELECT DISTINCT ON (c.category_id, c.user_id) c.category_id, c.user_id, "
+        + StatisticsRollupRepository.CHAT_AGE_GROUP + " "
+        + "FROM chats c JOIN users u ON u.id = c.user_id "
+        + "WHERE c.deleted_at IS NULL ORDER BY c.category_id, c.user_id, c.id", nativeQuery = true)
+    int rebuildCategoryUsers();
+
+    @Modifying
+    @Query(value = "INSERT INTO category_age_groups (category_id, age_group, users) "
+        + "SELECT category_id, age_group, count(*) FROM category_users GROUP BY category_id, age_group",
+        nativeQuery = true)
+    int rebuildCategoryAgeGroups();
+}
@@ -1,19 +1,75 @@
 package uk.gov.hmcts.reform.demo.repositories;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import uk.gov.hmcts.reform.demo.dto.UserBirthDateRow;
+import uk.gov.hmcts.reform.demo.dto.UserIdentityRow;
 import uk.gov.hmcts.reform.demo.entities.User;
+import java.util.Collection;
 import java.util.Optional;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
-public interface UserRepository extends JpaRepository<User, Long> {
+public interface UserRepository extends JpaRepository<User, Long>, AccountSummaryQueries {
 
     Optional<User> findByEmail(String email);
 
     Optional<User> findByUsername(String username);
 
+    boolean existsByUsername(String username);
+
+    boolean existsByEmail(String email);
+
     List<User> findByIsAdminTrue();
 
     List<User> findByCanLoginTrue();
+
+    /**
+     * Streams every user's ID and date of birth through a cursor. Must be called in a transaction and closed.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT u.id AS id, u.dateOfBirth AS dateOfBirth FROM User u")
+    Stream<UserBirthDateRow> streamBirthDates();
+
+    /**
+     * Streams every user's username and email through a cursor. Must be called in a transaction and closed.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT u.username AS username, u.email AS email FROM User u")
+    Stream<UserIdentityRow> streamIdentities();
+
+    /**
+     * Lets the users with the given IDs log in, in one statement.
+     */
+    @Modifying
+    @Query(value = "UPDATE users SET can_login = TRUE WHERE id IN (:ids)", nativeQuery = true)
+    int allowLoginForAll(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Checks whether a user still exists and may log in, by primary key.
+     */
+    @Query(value = "SELECT EXISTS (SELECT 1 FROM users WHERE id = :id AND can_login)", nativeQuery = true)
+    boolean canLogin(@Param("id") Long id);
+
+    /**
+     * Stops a user logging in.
+     */
+    @Modifying
+    @Query(value = "UPDATE users SET can_login = FALSE WHERE id = :id", nativeQuery = true)
+    int disableLogin(@Param("id") Long id);
+
+    /**
+     * Deletes the users with the given IDs in one statement. Their sessions, reset tokens, chats and account
+     * requests go with them through the foreign keys.
+     */
+    @Modifying
+    @Query(value = "DELETE FROM users WHERE id IN (:ids)", nativeQuery = true)
+    int deleteAllByIds(@Param("ids") Collection<Long> ids);
 }
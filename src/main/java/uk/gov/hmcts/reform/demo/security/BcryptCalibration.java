@@ -0,0 +1,73 @@
+package uk.gov.hmcts.reform.demo.security;
+
+import java.time.Duration;
+import java.util.function.IntToLongFunction;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+/**
+ * Reports the BCrypt strength (log2 of the number of rounds) whose hashes take about a target time on the machine it
+ * runs on, to help choose {@code security.password-hashing.bcrypt-strength}.
+ *
+ * <p>It is a tool to run on the slowest node the service runs on, not something the service does on startup: the
+ * strength is one setting for every node, as they all share the stored hashes, and nodes calibrating themselves would
+ * disagree on it.
+ *
+ * <p>Each step of strength doubles the work, so one hash is timed at the minimum strength and the strength raised
+ * while the doubled time stays within the target. The minimum is BCrypt's default of 10.
+ */
+public final class BcryptCalibration {
+
+    public static final int MIN_STRENGTH = 10;
+    public static final int MAX_STRENGTH = 16;
+
+    private static final int TIMED_HASHES = 3;
+
+    private BcryptCalibration() {
+    }
+
+    /**
+     * Prints the time a hash takes at the minimum strength and the strength suggested for a target time.
+     *
+     * @param args The target time of a hash in milliseconds, 100 if not given.
+     */
+    public static void main(String[] args) {
+        Duration target = Duration.ofMillis(args.length > 0 ? Long.parseLong(args[0]) : 100);
+        long nanos = nanosPerHash(MIN_STRENGTH);
+        System.out.printf("One hash at strength %d takes %d ms%n", MIN_STRENGTH, Duration.ofNanos(nanos).toMillis());
+        System.out.printf("Strength for hashes within %d ms: %d%n", target.toMillis(),
+                          strengthFor(target, strength -> nanos));
+    }
+
+    /**
+     * Returns the highest strength whose hashes take no longer than the target here, between {@link #MIN_STRENGTH}
+     * and {@link #MAX_STRENGTH}.
+     */
+    public static int strengthFor(Duration target) {
+        return strengthFor(target, BcryptCalibration::nanosPerHash);
+    }
+
+    static int strengthFor(Duration target, IntToLongFunction nanosPerHash) {
+        long nanos = nanosPerHash.applyAsLong(MIN_STRENGTH);
+        int strength = MIN_STRENGTH;
+        while (strength < MAX_STRENGTH && nanos * 2 <= target.toNanos()) {
+            strength++;
+            nanos *= 2;
+        }
+        return strength;
+    }
+
+    /**
+     * The quickest of a few hashes after one to warm up, as the others are slowed by whatever else is running.
+     */
+    private static long nanosPerHash(int strength) {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(strength);
+        encoder.encode("calibration");
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < TIMED_HASHES; i++) {
+            long start = System.nanoTime();
+            encoder.encode("calibration");
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+}
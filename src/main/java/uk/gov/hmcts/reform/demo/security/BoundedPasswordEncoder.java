@@ -0,0 +1,153 @@
+package uk.gov.hmcts.reform.demo.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+/**
+ * Password encoder that runs another, such as BCrypt, on a small pool of its own threads.
+ *
+ * <p>Each hash takes tens of milliseconds of CPU, so a burst of logins hashed on the request threads can take every
+ * core and stall the chat requests alongside them. Here the burst queues for the pool instead, and at most
+ * {@code threads} cores hash at once. The queue is bounded too: a hash that finds it full, or that waited longer
+ * than {@code queueTimeoutMillis} before a thread took it, is refused with {@link PasswordHashingRejectedException},
+ * which answers the request with 429 rather than leaving it to time out.
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder {
+
+    private final PasswordEncoder delegate;
+    private final ThreadPoolExecutor executor;
+    private final long queueTimeoutNanos;
+
+    private final Timer queueWait;
+    private final Timer encodeTimer;
+    private final Timer matchesTimer;
+    private final Counter queueFullRejections;
+    private final Counter timeoutRejections;
+
+    public BoundedPasswordEncoder(PasswordEncoder delegate, int threads, int queueCapacity, long queueTimeoutMillis,
+                                  MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.queueTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(queueTimeoutMillis);
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+            threads, threads, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueCapacity), task -> {
+                Thread thread = new Thread(task, "password-hashing-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+
+        this.queueWait = Timer.builder("password.hashing.queue.wait")
+            .description("Time password hashes waited for a hashing thread")
+            .register(meterRegistry);
+        this.encodeTimer = hashTimer(meterRegistry, "encode");
+        this.matchesTimer = hashTimer(meterRegistry, "matches");
+        this.queueFullRejections = rejections(meterRegistry, "queue_full");
+        this.timeoutRejections = rejections(meterRegistry, "timeout");
+        Gauge.builder("password.hashing.queue.size", executor, pool -> pool.getQueue().size())
+            .description("Password hashes waiting for a hashing thread")
+            .register(meterRegistry);
+    }
+
+    private static Timer hashTimer(MeterRegistry meterRegistry, String operation) {
+        return Timer.builder("password.hashing.time")
+            .description("CPU time of one password hash, on a hashing thread")
+            .tag("operation", operation)
+            .register(meterRegistry);
+    }
+
+    private static Counter rejections(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("password.hashing.rejected")
+            .description("Password hashes refused because the hashing pool was saturated")
+            .tag("reason", reason)
+            .register(meterRegistry);
+    }
+
+    /**
+     * Creates an encoder with as many hashing threads as there are cores less one, so hashing alone never takes
+     * every core.
+     */
+    public static BoundedPasswordEncoder sizedToCores(PasswordEncoder delegate, int queueCapacity,
+                                                      long queueTimeoutMillis, MeterRegistry meterRegistry) {
+        int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        return new BoundedPasswordEncoder(delegate, threads, queueCapacity, queueTimeoutMillis, meterRegistry);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return run(encodeTimer, () -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return run(matchesTimer, () -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        // Only parses the hash
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    public int getThreads() {
+        return executor.getMaximumPoolSize();
+    }
+
+    private <T> T run(Timer hashTimer, Callable<T> hash) {
+        long queuedAt = System.nanoTime();
+        Future<T> result;
+        try {
+            result = executor.submit(() -> {
+                long waited = System.nanoTime() - queuedAt;
+                queueWait.record(waited, TimeUnit.NANOSECONDS);
+                if (waited > queueTimeoutNanos) {
+                    // The caller is still waiting, so refusing now is quicker than hashing
+                    timeoutRejections.increment();
+                    throw new PasswordHashingRejectedException();
+                }
+                return hashTimer.recordCallable(hash);
+            });
+        } catch (RejectedExecutionException e) {
+            queueFullRejections.increment();
+            throw new PasswordHashingRejectedException();
+        }
+
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return result.get();
+                } catch (InterruptedException e) {
+                    // The hash is already queued, and is quicker to wait for than to abandon
+                    interrupted = true;
+                }
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Stops the hashing threads once the hashes already queued are done.
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
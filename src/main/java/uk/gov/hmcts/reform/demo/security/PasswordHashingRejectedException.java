@@ -0,0 +1,25 @@
+package uk.gov.hmcts.reform.demo.security;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Thrown by {@link BoundedPasswordEncoder} when it is too busy to hash a password, and answered with 429 and a
+ * {@code Retry-After} header.
+ */
+public class PasswordHashingRejectedException extends ResponseStatusException {
+
+    private static final String RETRY_AFTER_SECONDS = "1";
+
+    public PasswordHashingRejectedException() {
+        super(HttpStatus.TOO_MANY_REQUESTS, "Too many password checks in progress, try again shortly.");
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS);
+        return headers;
+    }
+}
@@ -0,0 +1,262 @@
+package uk.gov.hmcts.reform.demo.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import uk.gov.hmcts.reform.demo.dto.UserIdentityRow;
+import uk.gov.hmcts.reform.demo.repositories.UserRepository;
+import uk.gov.hmcts.reform.demo.utils.BloomFilter;
+import uk.gov.hmcts.reform.demo.utils.Transactions;
+
+/**
+ * Answers whether usernames and emails are taken, for live checks while someone fills in the registration form.
+ *
+ * <p>Every username and email is kept in a Bloom filter, so a value that was never registered is answered without
+ * touching the database; only a possible hit costs an indexed existence query. Accounts registered or renamed on
+ * this node are added as they commit. Removed values cannot be taken out of a Bloom filter, so deletions and renames
+ * are counted instead, and the filter is rebuilt from the users table once they make up a tenth of it, once it holds
+ * more values than it was sized for, or every {@code accounts.availability.rebuild-interval-ms} regardless, which
+ * also picks up accounts registered on other nodes. Until then such an account reads as available, so registration
+ * still checks the database itself.
+ */
+@Service
+public class AccountAvailabilityService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AccountAvailabilityService.class);
+
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+    private static final long MIN_EXPECTED_VALUES = 10_000;
+    private static final String USERNAME = "u:";
+    private static final String EMAIL = "e:";
+
+    private final UserRepository userRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final long rebuildIntervalMillis;
+    private final LongSupplier clock;
+
+    private volatile Filter filter;
+    private volatile Queue<String> addedDuringRebuild;
+
+    private final AtomicLong falsePositives = new AtomicLong();
+    private final AtomicLong definiteMisses = new AtomicLong();
+    private final Counter filteredChecks;
+    private final Counter takenChecks;
+    private final Counter falsePositiveChecks;
+
+    @Autowired
+    public AccountAvailabilityService(UserRepository userRepository,
+                                      PlatformTransactionManager transactionManager,
+                                      MeterRegistry meterRegistry,
+                                      @Value("${accounts.availability.rebuild-interval-ms:900000}")
+                                      long rebuildIntervalMillis) {
+        this(userRepository, transactionManager, meterRegistry, rebuildIntervalMillis, System::currentTimeMillis);
+    }
+
+    AccountAvailabilityService(UserRepository userRepository, PlatformTransactionManager transactionManager,
+                               MeterRegistry meterRegistry, long rebuildIntervalMillis, LongSupplier clock) {
+        this.userRepository = userRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.rebuildIntervalMillis = rebuildIntervalMillis;
+        this.clock = clock;
+
+        this.filteredChecks = checks(meterRegistry, "filtered");
+        this.takenChecks = checks(meterRegistry, "taken");
+        this.falsePositiveChecks = checks(meterRegistry, "false_positive");
+        Gauge.builder("accounts.availability.false_positive_rate", this,
+                      AccountAvailabilityService::falsePositiveRate)
+            .description("Share of available usernames and emails that the filter could not rule out, "
+                             + "since it was last rebuilt")
+            .register(meterRegistry);
+        Gauge.builder("accounts.availability.expected_false_positive_rate", this,
+                      service -> service.filter != null ? service.filter.bloom.expectedFalsePositiveRate() : 0)
+            .description("False positive rate expected from the bits set in the filter")
+            .register(meterRegistry);
+    }
+
+    private static Counter checks(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("accounts.availability.checks")
+            .description("Username and email availability checks, by how they were answered")
+            .tag("result", result)
+            .register(meterRegistry);
+    }
+
+    public boolean isUsernameTaken(String username) {
+        return isTaken(USERNAME + username, () -> userRepository.existsByUsername(username));
+    }
+
+    public boolean isEmailTaken(String email) {
+        return isTaken(EMAIL + email, () -> userRepository.existsByEmail(email));
+    }
+
+    private boolean isTaken(String key, BooleanSupplier exists) {
+        Filter current = filter;
+        if (current == null) {
+            // Not built yet
+            return exists.getAsBoolean();
+        }
+        if (!current.bloom.mightContain(key)) {
+            definiteMisses.incrementAndGet();
+            filteredChecks.increment();
+            return false;
+        }
+        if (exists.getAsBoolean()) {
+            takenChecks.increment();
+            return true;
+        }
+        falsePositives.incrementAndGet();
+        falsePositiveChecks.increment();
+        return false;
+    }
+
+    /**
+     * Adds a new account's username and email once the current transaction commits.
+     */
+    public void recordRegistered(String username, String email) {
+        Transactions.afterCommit(() -> {
+            add(USERNAME + username);
+            add(EMAIL + email);
+        });
+    }
+
+    /**
+     * Adds an account's new username and email once the current transaction commits, counting those it replaces.
+     */
+    public void recordRenamed(String oldUsername, String oldEmail, String username, String email) {
+        Transactions.afterCommit(() -> {
+            if (!username.equals(oldUsername)) {
+                add(USERNAME + username);
+                recordRemovedValues(1);
+            }
+            if (!email.equals(oldEmail)) {
+                add(EMAIL + email);
+                recordRemovedValues(1);
+            }
+        });
+    }
+
+    /**
+     * Counts deleted accounts, whose usernames and emails stay in the filter until it is next rebuilt.
+     */
+    public void recordDeleted(int accounts) {
+        recordRemovedValues(2L * accounts);
+    }
+
+    private void recordRemovedValues(long values) {
+        Filter current = filter;
+        if (current != null) {
+            current.removed.addAndGet(values);
+        }
+    }
+
+    private void add(String key) {
+        // Queued before the filter is read, so a rebuild swapping in its filter meanwhile still replays the key
+        Queue<String> pending = addedDuringRebuild;
+        if (pending != null) {
+            pending.add(key);
+        }
+        Filter current = filter;
+        if (current != null) {
+            current.bloom.put(key);
+            current.added.incrementAndGet();
+        }
+    }
+
+    /**
+     * Builds the filter on startup.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            logger.error("Failed to build the account availability filter: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Rebuilds the filter once it is stale, full or due.
+     */
+    @Scheduled(fixedDelayString = "${accounts.availability.check-interval-ms:60000}",
+        initialDelayString = "${accounts.availability.check-interval-ms:60000}")
+    public void rebuildIfStale() {
+        Filter current = filter;
+        if (current == null || current.removed.get() * 10 > current.added.get()
+            || current.added.get() > current.capacity
+            || clock.getAsLong() - current.builtAt >= rebuildIntervalMillis) {
+            build();
+        }
+    }
+
+    /**
+     * Builds a new filter from the users table and swaps it in.
+     */
+    synchronized void rebuild() {
+        // Accounts committed from here on are queued as well, in case the stream below started before them
+        addedDuringRebuild = new ConcurrentLinkedQueue<>();
+        try {
+            long builtAt = clock.getAsLong();
+            long capacity = Math.max(MIN_EXPECTED_VALUES, 4 * userRepository.count());
+            Filter rebuilt = new Filter(new BloomFilter(capacity, FALSE_POSITIVE_RATE), capacity, builtAt);
+            transactionTemplate.executeWithoutResult(status -> {
+                try (Stream<UserIdentityRow> rows = userRepository.streamIdentities()) {
+                    rows.forEach(row -> {
+                        rebuilt.bloom.put(USERNAME + row.getUsername());
+                        rebuilt.bloom.put(EMAIL + row.getEmail());
+                        rebuilt.added.addAndGet(2);
+                    });
+                }
+            });
+            filter = rebuilt;
+            for (String key : addedDuringRebuild) {
+                rebuilt.bloom.put(key);
+                rebuilt.added.incrementAndGet();
+            }
+            falsePositives.set(0);
+            definiteMisses.set(0);
+            logger.info("Built the account availability filter with {} values in {}", rebuilt.added.get(),
+                        rebuilt.bloom);
+        } finally {
+            addedDuringRebuild = null;
+        }
+    }
+
+    /**
+     * The share of checks for values that were not taken which the filter still sent to the database.
+     */
+    double falsePositiveRate() {
+        long positives = falsePositives.get();
+        long checks = positives + definiteMisses.get();
+        return checks == 0 ? 0 : (double) positives / checks;
+    }
+
+    private static final class Filter {
+        private final BloomFilter bloom;
+        private final long capacity;
+        private final long builtAt;
+        private final AtomicLong added = new AtomicLong();
+        private final AtomicLong removed = new AtomicLong();
+
+        private Filter(BloomFilter bloom, long capacity, long builtAt) {
+            this.bloom = bloom;
+            this.capacity = capacity;
+            this.builtAt = builtAt;
+        }
+    }
+}
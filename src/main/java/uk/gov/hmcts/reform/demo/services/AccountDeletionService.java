@@ -0,0 +1,267 @@
+package uk.gov.hmcts.reform.demo.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import uk.gov.hmcts.reform.demo.entities.AccountDeletion;
+import uk.gov.hmcts.reform.demo.entities.AccountDeletion.Stage;
+import uk.gov.hmcts.reform.demo.repositories.AccountDeletionRepository;
+import uk.gov.hmcts.reform.demo.repositories.ChatArchiveRepository;
+import uk.gov.hmcts.reform.demo.repositories.ChatRepository;
+import uk.gov.hmcts.reform.demo.repositories.MessageRepository;
+import uk.gov.hmcts.reform.demo.repositories.PasswordResetTokenRepository;
+import uk.gov.hmcts.reform.demo.repositories.SessionRepository;
+import uk.gov.hmcts.reform.demo.repositories.UserRepository;
+
+/**
+ * Deletes user accounts in the background, so that deleting a user with a long history does not hold one
+ * transaction, and locks on all of it, for the length of the request.
+ *
+ * <p>Asking for a deletion stops the user logging in, which also logs them out of their HTTP sessions on their next
+ * request (see {@link uk.gov.hmcts.reform.demo.filters.RevokedLoginFilter}), expires their session tokens and records
+ * it in {@code account_deletions}. A scheduled job then removes the user's sessions, reset tokens and chats, deleted
+ * ones included, with their messages and archives in bounded batches, and finally the user. Each batch commits together
+ * with a checkpoint of the stage reached and the rows removed, so a deletion interrupted by a restart or a failure
+ * carries on from its last batch. A node claims a deletion for a while before working on it, so that two nodes never
+ * work on the same one.
+ */
+@Service
+public class AccountDeletionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AccountDeletionService.class);
+
+    private final AccountDeletionRepository deletionRepository;
+    private final UserRepository userRepository;
+    private final SessionRepository sessionRepository;
+    private final PasswordResetTokenRepository resetTokenRepository;
+    private final ChatRepository chatRepository;
+    private final MessageRepository messageRepository;
+    private final ChatArchiveRepository chatArchiveRepository;
+    private final AccountAvailabilityService accountAvailabilityService;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final Duration claim;
+    private final long runBudgetMillis;
+    private final LongSupplier clock;
+
+    private final AtomicLong backlog = new AtomicLong();
+    private final Counter rowsDeleted;
+    private final Counter accountsDeleted;
+    private final Timer runTimer;
+
+    @Autowired
+    public AccountDeletionService(AccountDeletionRepository deletionRepository,
+                                  UserRepository userRepository,
+                                  SessionRepository sessionRepository,
+                                  PasswordResetTokenRepository resetTokenRepository,
+                                  ChatRepository chatRepository,
+                                  MessageRepository messageRepository,
+                                  ChatArchiveRepository chatArchiveRepository,
+                                  AccountAvailabilityService accountAvailabilityService,
+                                  PlatformTransactionManager transactionManager,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${accounts.deletion.batch-size:1000}") int batchSize,
+                                  @Value("${accounts.deletion.claim-ms:300000}") long claimMillis,
+                                  @Value("${accounts.deletion.run-budget-ms:20000}") long runBudgetMillis) {
+        this(deletionRepository, userRepository, sessionRepository, resetTokenRepository, chatRepository,
+             messageRepository, chatArchiveRepository, accountAvailabilityService, transactionManager, meterRegistry,
+             batchSize, claimMillis, runBudgetMillis, System::currentTimeMillis);
+    }
+
+    AccountDeletionService(AccountDeletionRepository deletionRepository,
+                           UserRepository userRepository,
+                           SessionRepository sessionRepository,
+                           PasswordResetTokenRepository resetTokenRepository,
+                           ChatRepository chatRepository,
+                           MessageRepository messageRepository,
+                           ChatArchiveRepository chatArchiveRepository,
+                           AccountAvailabilityService accountAvailabilityService,
+                           PlatformTransactionManager transactionManager,
+                           MeterRegistry meterRegistry,
+                           int batchSize, long claimMillis, long runBudgetMillis, LongSupplier clock) {
+        this.deletionRepository = deletionRepository;
+        this.userRepository = userRepository;
+        this.sessionRepository = sessionRepository;
+        this.resetTokenRepository = resetTokenRepository;
+        this.chatRepository = chatRepository;
+        this.messageRepository = messageRepository;
+        this.chatArchiveRepository = chatArchiveRepository;
+        this.accountAvailabilityService = accountAvailabilityService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.claim = Duration.ofMillis(claimMillis);
+        this.runBudgetMillis = runBudgetMillis;
+        this.clock = clock;
+
+        Gauge.builder("accounts.deletion.backlog", backlog, AtomicLong::get)
+            .description("Account deletions still to finish")
+            .register(meterRegistry);
+        this.rowsDeleted = Counter.builder("accounts.deletion.rows")
+            .description("Sessions, reset tokens, chats and messages removed by account deletions")
+            .register(meterRegistry);
+        this.accountsDeleted = Counter.builder("accounts.deletion.accounts")
+            .description("Accounts fully deleted")
+            .register(meterRegistry);
+        this.runTimer = Timer.builder("accounts.deletion.run")
+            .description("Duration of an account deletion run")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Stops a user logging in, ends the sessions they already have and queues their account for deletion. Asking
+     * again for an account already queued changes nothing.
+     *
+     * @param userId The ID of the user to delete.
+     */
+    @Transactional
+    public void requestDeletion(Long userId) {
+        LocalDateTime now = LocalDateTime.now();
+        userRepository.disableLogin(userId);
+        sessionRepository.expireByUserId(userId, now);
+        deletionRepository.insertIfAbsent(userId, now);
+    }
+
+    /**
+     * Returns how far the deletion of a user's account has got, if it was asked for.
+     */
+    public Optional<AccountDeletion> findProgress(Long userId) {
+        return deletionRepository.findById(userId);
+    }
+
+    /**
+     * Works through the queued deletions, oldest first, for up to {@code accounts.deletion.run-budget-ms}. A
+     * deletion still unfinished when the time runs out is released for the next run.
+     */
+    @Scheduled(fixedDelayString = "${accounts.deletion.interval-ms:10000}",
+        initialDelayString = "${accounts.deletion.initial-delay-ms:30000}")
+    public void processDeletions() {
+        runTimer.record(() -> {
+            long deadline = clock.getAsLong() + runBudgetMillis;
+            Long userId;
+            while (clock.getAsLong() < deadline && (userId = claimNext()) != null) {
+                try {
+                    process(userId, deadline);
+                } catch (RuntimeException e) {
+                    // The claim runs out and the deletion carries on from its last checkpoint
+                    logger.error("Failed to delete account {}: {}", userId, e.getMessage());
+                }
+            }
+            backlog.set(deletionRepository.countPending());
+        });
+    }
+
+    /**
+     * Claims the oldest deletion no node is working on.
+     *
+     * @return The ID of the user to delete, or null if there is none.
+     */
+    private Long claimNext() {
+        return transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<Long> userIds = deletionRepository.lockClaimable(now, 1);
+            if (userIds.isEmpty()) {
+                return null;
+            }
+            deletionRepository.claim(userIds.get(0), now.plus(claim));
+            return userIds.get(0);
+        });
+    }
+
+    /**
+     * Runs batches of a claimed deletion, from its last checkpoint, until it is done or the deadline passes.
+     *
+     * @return The stage reached.
+     */
+    Stage process(Long userId, long deadline) {
+        Stage stage = deletionRepository.findById(userId).map(AccountDeletion::getStage).orElse(Stage.DONE);
+        while (stage != Stage.DONE && clock.getAsLong() < deadline) {
+            Stage current = stage;
+            Batch batch = transactionTemplate.execute(status -> runBatch(userId, current));
+            rowsDeleted.increment(batch.deleted());
+            stage = batch.next();
+        }
+        if (stage == Stage.DONE) {
+            accountsDeleted.increment();
+            accountAvailabilityService.recordDeleted(1);
+            logger.info("Deleted account {}", userId);
+        } else {
+            deletionRepository.release(userId);
+        }
+        return stage;
+    }
+
+    /**
+     * Removes one batch of the stage's rows and checkpoints the deletion, in the caller's transaction.
+     */
+    private Batch runBatch(Long userId, Stage stage) {
+        Batch batch = switch (stage) {
+            case SESSIONS -> untilShort(sessionRepository.deleteBatchByUserId(userId, batchSize), Stage.SESSIONS,
+                                        Stage.RESET_TOKENS);
+            case RESET_TOKENS -> untilShort(resetTokenRepository.deleteBatchByUserId(userId, batchSize),
+                                            Stage.RESET_TOKENS, Stage.CHATS);
+            // Chats the user deleted that are still waiting to be purged too, archives and all
+            case CHATS -> {
+                List<Long> chatIds = chatRepository.findIdsByUserId(userId, 1);
+                yield chatIds.isEmpty()
+                    ? new Batch(Stage.ACCOUNT, 0) : new Batch(Stage.CHATS, deleteChatBatch(chatIds.get(0)));
+            }
+            case ACCOUNT -> {
+                userRepository.deleteAllByIds(List.of(userId));
+                yield new Batch(Stage.DONE, 0);
+            }
+            case DONE -> new Batch(Stage.DONE, 0);
+        };
+        LocalDateTime now = LocalDateTime.now();
+        deletionRepository.checkpoint(userId, batch.next().name(), batch.deleted(), now, now.plus(claim));
+        return batch;
+    }
+
+    /**
+     * Removes a batch of a chat's messages, and the chat and its archive once it has none left. A chat the user had
+     * already deleted is purged the same way.
+     *
+     * @return The number of rows removed.
+     */
+    private long deleteChatBatch(Long chatId) {
+        int messages = messageRepository.deleteBatchByChatId(chatId, batchSize);
+        if (messages >= batchSize) {
+            return messages;
+        }
+        chatArchiveRepository.deleteByChatId(chatId);
+        chatRepository.softDeleteById(chatId, LocalDateTime.now());
+        return messages + chatRepository.purgeById(chatId);
+    }
+
+    /**
+     * A stage is finished once a batch comes back short.
+     */
+    private Batch untilShort(int deleted, Stage stage, Stage next) {
+        return new Batch(deleted < batchSize ? next : stage, deleted);
+    }
+
+    /**
+     * Returns the number of deletions seen unfinished at the end of the last run.
+     */
+    public long getBacklog() {
+        return backlog.get();
+    }
+
+    private record Batch(Stage next, long deleted) {
+    }
+}
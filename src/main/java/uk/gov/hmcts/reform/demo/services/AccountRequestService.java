@@ -0,0 +1,161 @@
+package uk.gov.hmcts.reform.demo.services;
+
+import jakarta.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import uk.gov.hmcts.reform.demo.dto.AccountRequestRow;
+import uk.gov.hmcts.reform.demo.entities.AccountRequest;
+import uk.gov.hmcts.reform.demo.repositories.AccountRequestRepository;
+import uk.gov.hmcts.reform.demo.repositories.UserRepository;
+import uk.gov.hmcts.reform.demo.utils.Transactions;
+
+/**
+ * Approves and rejects account requests in bulk.
+ *
+ * <p>A decision locks the requests it names and their users in one statement, then approves or deletes every one
+ * still pending with a single UPDATE or DELETE, so the number of statements does not grow with the number of
+ * requests. The users are emailed once the transaction commits, on a background thread, so a slow mail server
+ * holds neither the request nor the locks.
+ */
+@Service
+public class AccountRequestService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AccountRequestService.class);
+
+    /**
+     * What became of one request in a bulk decision.
+     */
+    public enum Outcome {
+        APPROVED, REJECTED, NOT_FOUND, NOT_PENDING
+    }
+
+    private final AccountRequestRepository accountRequestRepository;
+    private final UserRepository userRepository;
+    private final EmailService emailService;
+    private final ThreadPoolExecutor notificationExecutor;
+
+    public AccountRequestService(AccountRequestRepository accountRequestRepository,
+                                 UserRepository userRepository,
+                                 EmailService emailService,
+                                 @Value("${accounts.notifications.queue-capacity:100}") int queueCapacity) {
+        this.accountRequestRepository = accountRequestRepository;
+        this.userRepository = userRepository;
+        this.emailService = emailService;
+        this.notificationExecutor = new ThreadPoolExecutor(
+            1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueCapacity), task -> {
+                Thread thread = new Thread(task, "account-notifications");
+                thread.setDaemon(true);
+                return thread;
+            });
+    }
+
+    /**
+     * Finds the IDs of pending requests made before a time, lowest ID first.
+     *
+     * @param before The time the requests were made before.
+     * @param limit  The maximum number of IDs to return.
+     */
+    @Transactional(readOnly = true)
+    public List<Long> findPendingRequestedBefore(LocalDateTime before, int limit) {
+        return accountRequestRepository.findPendingIdsRequestedBefore(before, limit);
+    }
+
+    /**
+     * Approves every pending request among the given IDs and lets their users log in.
+     *
+     * @param ids The IDs of the account requests.
+     * @return The outcome for each distinct ID, in the order given.
+     */
+    @Transactional
+    public Map<Long, Outcome> approve(Collection<Long> ids) {
+        return decide(ids, Outcome.APPROVED);
+    }
+
+    /**
+     * Rejects every pending request among the given IDs, deleting the requests and their users.
+     *
+     * @param ids The IDs of the account requests.
+     * @return The outcome for each distinct ID, in the order given.
+     */
+    @Transactional
+    public Map<Long, Outcome> reject(Collection<Long> ids) {
+        return decide(ids, Outcome.REJECTED);
+    }
+
+    private Map<Long, Outcome> decide(Collection<Long> ids, Outcome decision) {
+        Map<Long, Outcome> outcomes = new LinkedHashMap<>();
+        for (Long id : new LinkedHashSet<>(ids)) {
+            outcomes.put(id, Outcome.NOT_FOUND);
+        }
+        if (outcomes.isEmpty()) {
+            return outcomes;
+        }
+
+        List<Long> requestIds = new ArrayList<>();
+        List<Long> userIds = new ArrayList<>();
+        List<AccountRequestRow> decided = new ArrayList<>();
+        for (AccountRequestRow row : accountRequestRepository.lockAllById(outcomes.keySet())) {
+            if (!AccountRequest.Status.PENDING.name().equals(row.getStatus())) {
+                outcomes.put(row.getId(), Outcome.NOT_PENDING);
+                continue;
+            }
+            outcomes.put(row.getId(), decision);
+            requestIds.add(row.getId());
+            userIds.add(row.getUserId());
+            decided.add(row);
+        }
+        if (decided.isEmpty()) {
+            return outcomes;
+        }
+
+        if (decision == Outcome.APPROVED) {
+            accountRequestRepository.approveAll(requestIds, LocalDateTime.now());
+            userRepository.allowLoginForAll(userIds);
+        } else {
+            // The requests go with their users
+            userRepository.deleteAllByIds(userIds);
+        }
+        Transactions.afterCommit(() -> notify(decided, decision));
+        return outcomes;
+    }
+
+    private void notify(List<AccountRequestRow> decided, Outcome decision) {
+        try {
+            notificationExecutor.execute(() -> {
+                for (AccountRequestRow row : decided) {
+                    try {
+                        if (decision == Outcome.APPROVED) {
+                            emailService.sendAccountApprovedEmail(row.getEmail(), row.getUsername());
+                        } else {
+                            emailService.sendAccountRejectedEmail(row.getEmail(), row.getUsername());
+                        }
+                    } catch (RuntimeException e) {
+                        logger.warn("Could not email user {} about account request {}",
+                                    row.getUserId(), row.getId(), e);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            logger.warn("Notification queue full, {} users not emailed about their account requests", decided.size());
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        notificationExecutor.shutdown();
+    }
+}
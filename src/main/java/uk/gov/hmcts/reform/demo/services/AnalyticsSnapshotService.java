@@ -0,0 +1,191 @@
+package uk.gov.hmcts.reform.demo.services;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import uk.gov.hmcts.reform.demo.dto.ChatSnapshotRow;
+import uk.gov.hmcts.reform.demo.entities.CategoryStatistics;
+import uk.gov.hmcts.reform.demo.repositories.ChatRepository;
+import uk.gov.hmcts.reform.demo.services.ChatColumns.CategoryTally;
+import uk.gov.hmcts.reform.demo.utils.AgeGroups;
+
+/**
+ * Keeps every chat in memory as {@link ChatColumns}, so category statistics over any date range are a scan of
+ * primitive arrays rather than a query.
+ *
+ * <p>The first refresh loads every chat. Later ones append the chats past an ID watermark, with the same one-run
+ * grace as {@link StatisticsRollupService}: a run only goes up to the highest ID seen by the previous run, so
+ * transactions that took a lower ID have a full interval to commit. Readers always scan the last published view,
+ * so a refresh never blocks them. Scans of more than {@code statistics.snapshot.parallel-threshold} chats are split
+ * across the common fork/join pool.
+ *
+ * <p>Like the summaries, the snapshot does not see deletions until {@link #rebuild()}. Ages are taken when each chat
+ * was created, as in the summaries.
+ */
+@Service
+public class AnalyticsSnapshotService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnalyticsSnapshotService.class);
+
+    private final ChatRepository chatRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int parallelThreshold;
+    private final Timer refreshTimer;
+
+    private ChatColumns columns = new ChatColumns(0);
+    private long lastId;
+    private long seenId;
+    private volatile ChatColumns.View view;
+    private volatile long footprintBytes;
+
+    public AnalyticsSnapshotService(ChatRepository chatRepository,
+                                    PlatformTransactionManager transactionManager,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${statistics.snapshot.parallel-threshold:1000000}")
+                                    int parallelThreshold) {
+        this.chatRepository = chatRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.parallelThreshold = parallelThreshold;
+
+        this.refreshTimer = Timer.builder("statistics.snapshot.refresh")
+            .description("Time to load new chats into the analytics snapshot")
+            .register(meterRegistry);
+        Gauge.builder("statistics.snapshot.chats", this, snapshot -> snapshot.view != null ? snapshot.view.size() : 0)
+            .description("Chats held in the analytics snapshot")
+            .register(meterRegistry);
+        Gauge.builder("statistics.snapshot.bytes", this, snapshot -> snapshot.footprintBytes)
+            .description("Approximate memory held by the analytics snapshot")
+            .baseUnit("bytes")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Loads the chats created since the last run into the snapshot.
+     */
+    @Scheduled(fixedDelayString = "${statistics.snapshot.refresh-interval-ms:60000}",
+        initialDelayString = "${statistics.snapshot.initial-delay-ms:10000}")
+    public void refresh() {
+        try {
+            refreshTimer.record(this::load);
+        } catch (RuntimeException e) {
+            // The watermark only moves once the chats are published, so the next run retries the same rows
+            logger.error("Failed to refresh the analytics snapshot: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Reloads every chat into a new snapshot, dropping deleted chats, and publishes it once complete.
+     */
+    public synchronized void rebuild() {
+        refreshTimer.record(this::reload);
+    }
+
+    private void reload() {
+        ChatColumns rebuilt = new ChatColumns(columns.size());
+        long maxId = chatRepository.findMaxId();
+        append(rebuilt, 0, maxId);
+        columns = rebuilt;
+        lastId = maxId;
+        seenId = maxId;
+        publish();
+        logger.info("Rebuilt the analytics snapshot with {} chats up to chat {}", rebuilt.size(), maxId);
+    }
+
+    private synchronized void load() {
+        if (view == null) {
+            reload();
+            return;
+        }
+        long upToId = seenId;
+        long maxId = chatRepository.findMaxId();
+        if (upToId > lastId) {
+            int before = columns.size();
+            try {
+                append(columns, lastId, upToId);
+            } catch (RuntimeException e) {
+                columns.truncate(before);
+                throw e;
+            }
+            logger.debug("Loaded {} chats into the analytics snapshot", columns.size() - before);
+        }
+        lastId = upToId;
+        seenId = Math.max(upToId, maxId);
+        publish();
+    }
+
+    private void publish() {
+        view = columns.view();
+        footprintBytes = columns.footprintBytes();
+    }
+
+    private void append(ChatColumns target, long afterId, long upToId) {
+        transactionTemplate.executeWithoutResult(status -> {
+            try (Stream<ChatSnapshotRow> rows = chatRepository.streamSnapshotRows(afterId, upToId)) {
+                rows.forEach(row -> target.append(row.getUserId(), row.getCategory(), row.getCreatedAt(),
+                                                  row.getDateOfBirth()));
+            }
+        });
+    }
+
+    /**
+     * Whether the first load has finished.
+     */
+    public boolean isReady() {
+        return view != null;
+    }
+
+    /**
+     * Returns the statistics of the categories with chats between two days, both inclusive, most chats first.
+     *
+     * @throws IllegalStateException If the snapshot has not been loaded yet.
+     */
+    public RangeStatistics getRangeStatistics(LocalDate from, LocalDate to) {
+        ChatColumns.View current = view;
+        if (current == null) {
+            throw new IllegalStateException("The analytics snapshot is still loading");
+        }
+        List<CategoryTally> tallies = current.tally(from.atStartOfDay(), to.plusDays(1).atStartOfDay(),
+                                                    current.size() > parallelThreshold);
+        tallies.sort(Comparator.comparingLong(CategoryTally::chats).reversed());
+
+        List<CategoryStatistics> categories = tallies.stream()
+            .map(tally -> new CategoryStatistics(tally.category(), tally.chats(), tally.firstAt(), tally.lastAt()))
+            .toList();
+        Map<String, Map<String, Long>> ageGroups = new LinkedHashMap<>();
+        for (CategoryTally tally : tallies) {
+            Map<String, Long> usersByAgeGroup = new LinkedHashMap<>();
+            long[] buckets = tally.usersPerBucket();
+            for (int bucket = 0; bucket < buckets.length; bucket++) {
+                if (buckets[bucket] > 0) {
+                    usersByAgeGroup.put(AgeGroups.ALL.get(bucket), buckets[bucket]);
+                }
+            }
+            ageGroups.put(tally.category(), usersByAgeGroup);
+        }
+        return new RangeStatistics(categories, ageGroups);
+    }
+
+    /**
+     * Category statistics over a date range.
+     *
+     * @param categories The categories with chats in the range, most chats first.
+     * @param ageGroups  The distinct users per category and age group, including {@code "under 20"}, in the same
+     *                   form as {@link StatisticsService#getCategoryAgeGroups()}.
+     */
+    public record RangeStatistics(List<CategoryStatistics> categories, Map<String, Map<String, Long>> ageGroups) {
+    }
+}
@@ -0,0 +1,128 @@
+package uk.gov.hmcts.reform.demo.services;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import uk.gov.hmcts.reform.demo.utils.AgeGroups;
+import uk.gov.hmcts.reform.demo.utils.LongIntHashMap;
+
+/**
+ * Computes the chat category breakdown from raw users and chats in one pass over the chats.
+ *
+ * <p>Users are first given a dense index, kept in a {@link LongIntHashMap}, and their date of birth is stored as an
+ * epoch day in an {@code int[]} at that index. Each chat then sets its user's bit in its category's bitset and, the
+ * first time the bit is set, counts the user towards their {@link AgeGroups} bucket on the day of that chat, so no
+ * per-category sets of boxed IDs are built and neither table is scanned more than once. Chats must be added in the
+ * order they were created. Not thread-safe.
+ */
+public final class CategoryBreakdownCalculator {
+
+    private static final int BUCKETS = AgeGroups.ALL.size();
+    private static final int NO_DATE_OF_BIRTH = Integer.MIN_VALUE;
+
+    private final LongIntHashMap userIndex;
+    private int[] userBirthDays;
+    private final Map<String, CategoryTally> categories = new HashMap<>();
+
+    /**
+     * Creates a calculator.
+     *
+     * @param expectedUsers The expected number of users, to size the user index.
+     */
+    public CategoryBreakdownCalculator(int expectedUsers) {
+        this.userIndex = new LongIntHashMap(expectedUsers);
+        this.userBirthDays = new int[Math.max(16, expectedUsers)];
+    }
+
+    /**
+     * Registers a user and their date of birth. Every user must be added before their chats.
+     */
+    public void addUser(long userId, LocalDate dateOfBirth) {
+        int index = userIndex.get(userId, -1);
+        if (index < 0) {
+            index = userIndex.size();
+            userIndex.put(userId, index);
+            if (index == userBirthDays.length) {
+                userBirthDays = Arrays.copyOf(userBirthDays, userBirthDays.length * 2);
+            }
+        }
+        userBirthDays[index] = dateOfBirth != null ? (int) dateOfBirth.toEpochDay() : NO_DATE_OF_BIRTH;
+    }
+
+    /**
+     * Counts a chat towards its category and, the first time, its user towards the category's age bucket on the day
+     * of the chat.
+     */
+    public void addChat(long userId, String category, LocalDate on) {
+        CategoryTally tally = categories.get(category);
+        if (tally == null) {
+            tally = new CategoryTally(category);
+            categories.put(category, tally);
+        }
+        tally.chats++;
+
+        int index = userIndex.get(userId, -1);
+        if (index < 0 || !tally.markSeen(index)) {
+            return;
+        }
+        tally.users++;
+        int birthDay = userBirthDays[index];
+        if (birthDay != NO_DATE_OF_BIRTH) {
+            tally.usersPerBucket[AgeGroups.bucket(LocalDate.ofEpochDay(birthDay), on)]++;
+        }
+    }
+
+    /**
+     * Returns, for the categories with the most chats, the percentage of the category's users in each age bucket.
+     * Users under 20 count towards the total but have no bucket of their own.
+     *
+     * @param topCategories The number of categories to include.
+     */
+    public Map<String, Map<String, Double>> breakdown(int topCategories) {
+        List<CategoryTally> tallies = new ArrayList<>(categories.values());
+        tallies.sort((a, b) -> Long.compare(b.chats, a.chats));
+
+        Map<String, Map<String, Double>> breakdown = new LinkedHashMap<>();
+        for (CategoryTally tally : tallies.subList(0, Math.min(topCategories, tallies.size()))) {
+            Map<String, Double> pctByBucket = new LinkedHashMap<>();
+            for (int bucket = AgeGroups.UNDER_20_BUCKET + 1; bucket < BUCKETS; bucket++) {
+                double pct = tally.users > 0 ? (tally.usersPerBucket[bucket] / (double) tally.users) * 100.0 : 0.0;
+                pctByBucket.put(AgeGroups.ALL.get(bucket), pct);
+            }
+            breakdown.put(tally.category, pctByBucket);
+        }
+        return breakdown;
+    }
+
+    private static final class CategoryTally {
+        private final String category;
+        private final long[] usersPerBucket = new long[BUCKETS];
+        private long chats;
+        private long users;
+        private long[] seen = new long[1];
+
+        private CategoryTally(String category) {
+            this.category = category;
+        }
+
+        /**
+         * Sets the bit for a user index, returning true if it was not already set.
+         */
+        private boolean markSeen(int index) {
+            int word = index >>> 6;
+            if (word >= seen.length) {
+                seen = Arrays.copyOf(seen, Math.max(word + 1, seen.length * 2));
+            }
+            long bit = 1L << index;
+            if ((seen[word] & bit) != 0) {
+                return false;
+            }
+            seen[word] |= bit;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package uk.gov.hmcts.reform.demo.services;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import uk.gov.hmcts.reform.demo.dto.ArchivedMessageSearchHit;
+import uk.gov.hmcts.reform.demo.dto.MessageSearchHit;
+import uk.gov.hmcts.reform.demo.entities.Chat;
+import uk.gov.hmcts.reform.demo.entities.ChatArchive;
+import uk.gov.hmcts.reform.demo.entities.Message;
+import uk.gov.hmcts.reform.demo.repositories.ChatArchiveRepository;
+import uk.gov.hmcts.reform.demo.repositories.ChatRepository;
+import uk.gov.hmcts.reform.demo.repositories.MessageRepository;
+
+/**
+ * Moves the messages of cold chats out of the hot {@code messages} table into one compressed blob per chat, and
+ * brings them back when the chat is read or written again. The search vectors of archived messages are kept, so that
+ * search still finds them.
+ */
+@Service
+public class ChatArchiveService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatArchiveService.class);
+
+    private final ChatRepository chatRepository;
+    private final MessageRepository messageRepository;
+    private final ChatArchiveRepository chatArchiveRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final long idleDays;
+    private final int chatsPerRun;
+
+    private final Timer archiveTimer;
+    private final Timer rehydrateTimer;
+    private final Timer promoteTimer;
+    private final Counter chatsArchived;
+    private final DistributionSummary archiveBytes;
+
+    public ChatArchiveService(ChatRepository chatRepository,
+                              MessageRepository messageRepository,
+                              ChatArchiveRepository chatArchiveRepository,
+                              ObjectMapper objectMapper,
+                              PlatformTransactionManager transactionManager,
+                              MeterRegistry meterRegistry,
+                              @Value("${chat.archive.idle-days:7}") long idleDays,
+                              @Value("${chat.archive.chats-per-run:100}") int chatsPerRun) {
+        this.chatRepository = chatRepository;
+        this.messageRepository = messageRepository;
+        this.chatArchiveRepository = chatArchiveRepository;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.idleDays = idleDays;
+        this.chatsPerRun = chatsPerRun;
+
+        this.archiveTimer = Timer.builder("chat.archive.archive")
+            .description("Time to archive one chat")
+            .register(meterRegistry);
+        this.rehydrateTimer = Timer.builder("chat.archive.rehydrate")
+            .description("Time to read an archived chat's messages")
+            .register(meterRegistry);
+        this.promoteTimer = Timer.builder("chat.archive.promote")
+            .description("Time to move an archived chat's messages back into the messages table")
+            .register(meterRegistry);
+        this.chatsArchived = Counter.builder("chat.archive.chats")
+            .description("Chats moved to the archive")
+            .register(meterRegistry);
+        this.archiveBytes = DistributionSummary.builder("chat.archive.size")
+            .baseUnit("bytes")
+            .description("Compressed size of archived chats")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Archives up to {@code chat.archive.chats-per-run} chats that have been idle for {@code chat.archive.idle-days},
+     * then drops the monthly partitions of messages that archiving and purging have left empty.
+     */
+    @Scheduled(fixedDelayString = "${chat.archive.interval-ms:3600000}",
+        initialDelayString = "${chat.archive.initial-delay-ms:120000}")
+    public void archiveIdleChats() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(idleDays, ChronoUnit.DAYS);
+        for (Long chatId : chatRepository.findIdleChatIds(cutoff, chatsPerRun)) {
+            try {
+                archiveChat(chatId);
+            } catch (RuntimeException e) {
+                logger.error("Failed to archive chat {}: {}", chatId, e.getMessage());
+            }
+        }
+        try {
+            int dropped = messageRepository.dropEmptyPartitionsBefore(cutoff);
+            if (dropped > 0) {
+                logger.info("Dropped {} empty monthly partitions of messages", dropped);
+            }
+        } catch (RuntimeException e) {
+            logger.error("Failed to drop empty partitions of messages: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Archives a single chat in its own transaction, holding the chat's lock so that no message is added to it
+     * meanwhile.
+     *
+     * @param chatId The ID of the chat to archive.
+     * @return True if the chat was archived.
+     */
+    public boolean archiveChat(Long chatId) {
+        Boolean archived = archiveTimer.record(() -> transactionTemplate.execute(status -> {
+            Optional<Chat> optionalChat = chatRepository.lockById(chatId);
+            if (optionalChat.isEmpty() || optionalChat.get().getArchivedAt() != null) {
+                return false;
+            }
+            Chat chat = optionalChat.get();
+
+            List<Message> messages = new ArrayList<>(messageRepository.findByChat(chat));
+            messages.sort(Comparator.comparing(Message::getId));
+            if (messages.isEmpty()) {
+                return false;
+            }
+
+            Message newest = messages.get(messages.size() - 1);
+            byte[] payload = encode(messages);
+            chatArchiveRepository.saveAndFlush(
+                new ChatArchive(chatId, messages.size(), newest.getCreatedAt(), payload));
+            chatArchiveRepository.indexMessagesUpTo(chatId, newest.getId());
+            messageRepository.deleteByChatIdUpTo(chatId, newest.getId());
+
+            if (messageRepository.countByChat(chat) > 0) {
+                // A message was written without taking the chat's lock
+                status.setRollbackOnly();
+                return false;
+            }
+
+            chatRepository.updateArchivedAt(chatId, LocalDateTime.now());
+            archiveBytes.record(payload.length);
+            return true;
+        }));
+
+        if (Boolean.TRUE.equals(archived)) {
+            chatsArchived.increment();
+            logger.debug("Archived chat {}", chatId);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Reads an archived chat's messages without moving them back. The returned messages are not persistent.
+     *
+     * @param chat The archived chat.
+     * @return The chat's messages in creation order, or the hot messages if the archive is gone.
+     */
+    @Transactional(readOnly = true)
+    public List<Message> rehydrate(Chat chat) {
+        return rehydrateTimer.record(() -> chatArchiveRepository.findById(chat.getId())
+            .map(archive -> decode(chat, archive.getPayload()))
+            .orElseGet(() -> messageRepository.findByChat(chat)));
+    }
+
+    /**
+     * Fills in the snippets of the search hits on archived messages, whose text the search query cannot read, from
+     * their chats' archives.
+     *
+     * @param hits  A page of search hits, those on archived messages without a snippet.
+     * @param query The search terms.
+     * @return The hits in the same order, each with its snippet.
+     */
+    @Transactional(readOnly = true)
+    public List<MessageSearchHit> withArchivedSnippets(List<MessageSearchHit> hits, String query) {
+        Map<Long, Map<Long, String>> archivedTexts = new HashMap<>();
+        List<MessageSearchHit> filled = new ArrayList<>(hits.size());
+        for (MessageSearchHit hit : hits) {
+            if (hit.getSnippet() != null) {
+                filled.add(hit);
+                continue;
+            }
+            String text = archivedTexts.computeIfAbsent(hit.getChatId(), this::readArchivedTexts)
+                .get(hit.getMessageId());
+            String snippet = text == null ? null : messageRepository.headline(text, query);
+            filled.add(new ArchivedMessageSearchHit(hit, snippet));
+        }
+        return filled;
+    }
+
+    private Map<Long, String> readArchivedTexts(Long chatId) {
+        Map<Long, String> texts = new HashMap<>();
+        chatArchiveRepository.findById(chatId).ifPresent(archive -> {
+            for (ArchivedMessage record : readRecords(chatId, archive.getPayload())) {
+                texts.put(record.id(), record.message());
+            }
+        });
+        return texts;
+    }
+
+    /**
+     * Moves an archived chat's messages back into the {@code messages} table, e.g. because it is active again. Takes
+     * the chat's lock, so a promotion waits for an archive of the chat in progress and the other way round.
+     *
+     * @param chat The archived chat.
+     */
+    @Transactional
+    public void promote(Chat chat) {
+        promoteTimer.record(() -> {
+            chatRepository.lockById(chat.getId());
+            chatArchiveRepository.findById(chat.getId()).ifPresent(archive -> {
+                List<Message> messages = decode(chat, archive.getPayload());
+                messages.forEach(message -> message.setId(null));
+                messageRepository.saveAll(messages);
+                chatArchiveRepository.deleteByChatId(chat.getId());
+                logger.debug("Promoted chat {} with {} messages", chat.getId(), messages.size());
+            });
+            chatRepository.updateArchivedAt(chat.getId(), null);
+            chat.setArchivedAt(null);
+        });
+    }
+
+    /**
+     * Serialises messages as gzip-compressed NDJSON.
+     */
+    byte[] encode(List<Message> messages) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream out = new GZIPOutputStream(bytes)) {
+            for (Message message : messages) {
+                ArchivedMessage record = new ArchivedMessage(
+                    message.getId(), message.getSender(), message.getMessage(), message.getCreatedAt());
+                out.write(objectMapper.writeValueAsBytes(record));
+                out.write('\n');
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to encode chat archive", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Reads gzip-compressed NDJSON back into messages attached to the given chat.
+     */
+    List<Message> decode(Chat chat, byte[] payload) {
+        List<Message> messages = new ArrayList<>();
+        for (ArchivedMessage record : readRecords(chat.getId(), payload)) {
+            Message message = new Message(chat, record.sender(), record.message(), record.createdAt());
+            message.setId(record.id());
+            messages.add(message);
+        }
+        return messages;
+    }
+
+    private List<ArchivedMessage> readRecords(Long chatId, byte[] payload) {
+        try (MappingIterator<ArchivedMessage> records = objectMapper.readerFor(ArchivedMessage.class)
+            .readValues(new GZIPInputStream(new ByteArrayInputStream(payload)))) {
+            return records.readAll();
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to decode archive for chat " + chatId, e);
+        }
+    }
+
+    /**
+     * One line of an archive.
+     */
+    record ArchivedMessage(Long id, String sender, String message, LocalDateTime createdAt) {
+    }
+}
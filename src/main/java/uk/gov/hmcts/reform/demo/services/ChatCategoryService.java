@@ -0,0 +1,64 @@
+package uk.gov.hmcts.reform.demo.services;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import uk.gov.hmcts.reform.demo.entities.ChatCategory;
+import uk.gov.hmcts.reform.demo.repositories.ChatCategoryRepository;
+import uk.gov.hmcts.reform.demo.utils.Transactions;
+
+/**
+ * Resolves chat descriptions to their categories, adding a category the first time a description is seen.
+ *
+ * <p>Categories never change once added, so each node keeps the ones it has resolved most recently, up to
+ * {@code chat.categories.cache-size} of them, and only goes to the database for the others. A category is added in
+ * the transaction of the chat that first uses it, and only cached once that commits.
+ */
+@Service
+public class ChatCategoryService {
+
+    private final ChatCategoryRepository chatCategoryRepository;
+    private final Map<String, ChatCategory> categories;
+
+    public ChatCategoryService(ChatCategoryRepository chatCategoryRepository,
+                               @Value("${chat.categories.cache-size:10000}") int cacheSize) {
+        this.chatCategoryRepository = chatCategoryRepository;
+        this.categories = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ChatCategory> eldest) {
+                return size() > cacheSize;
+            }
+        });
+    }
+
+    /**
+     * Finds the category of a chat description, adding it if this is the first chat in it.
+     *
+     * @param description The chat description.
+     * @return The category.
+     */
+    public ChatCategory resolve(String description) {
+        String canonicalName = ChatCategory.canonicalName(description);
+        ChatCategory category = categories.get(canonicalName);
+        if (category != null) {
+            return category;
+        }
+
+        String name = ChatCategory.displayName(description);
+        Optional<Integer> added = chatCategoryRepository.insertIfAbsent(name, canonicalName);
+        if (added.isPresent()) {
+            ChatCategory addedCategory = new ChatCategory(name);
+            addedCategory.setId(added.get());
+            // Not before the commit, or a rolled back category could be handed to later chats
+            Transactions.afterCommit(() -> categories.put(canonicalName, addedCategory));
+            return addedCategory;
+        }
+        category = chatCategoryRepository.findByCanonicalName(canonicalName)
+            .orElseThrow(() -> new IllegalStateException("Chat category not found: " + canonicalName));
+        categories.put(canonicalName, category);
+        return category;
+    }
+}
@@ -0,0 +1,362 @@
+package uk.gov.hmcts.reform.demo.services;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+import uk.gov.hmcts.reform.demo.utils.AgeGroups;
+import uk.gov.hmcts.reform.demo.utils.LongIntHashMap;
+
+/**
+ * Chats held column by column in primitive arrays, for scanning without objects.
+ *
+ * <p>Each chat takes 13 bytes: its category as an {@code int} key into a dictionary of category names, its user as
+ * a dense {@code int} index rather than the {@code long} ID, its creation time in seconds since {@link #TIME_BASE}
+ * as an {@code int}, which covers 1932 to 2068, and its user's breakdown age bucket at that time as a
+ * {@code byte}. A creation time outside those years is stored as the nearest one inside them.
+ *
+ * <p>Chats are appended by a single writer. {@link #view()} returns an immutable view of the chats appended so far,
+ * which can be scanned from any thread while the writer carries on: arrays are only ever appended to past the end
+ * of existing views, or replaced when they grow.
+ */
+public final class ChatColumns {
+
+    /**
+     * Creation times are stored as seconds since this instant, in UTC.
+     */
+    public static final LocalDateTime TIME_BASE = LocalDateTime.of(2000, 1, 1, 0, 0);
+
+    private static final long TIME_BASE_SECONDS = TIME_BASE.toEpochSecond(ZoneOffset.UTC);
+    private static final int BUCKETS = AgeGroups.ALL.size();
+    private static final byte NO_BUCKET = -1;
+    private static final int MIN_CAPACITY = 1024;
+
+    private final Map<String, Integer> categoryKeys = new HashMap<>();
+    private final List<String> categories = new ArrayList<>();
+    private final LongIntHashMap userIndex;
+
+    private int[] chatCategories;
+    private int[] chatUsers;
+    private int[] chatTimes;
+    private byte[] chatBuckets;
+    private int size;
+
+    public ChatColumns(int expectedChats) {
+        int capacity = Math.max(MIN_CAPACITY, expectedChats);
+        chatCategories = new int[capacity];
+        chatUsers = new int[capacity];
+        chatTimes = new int[capacity];
+        chatBuckets = new byte[capacity];
+        userIndex = new LongIntHashMap(MIN_CAPACITY);
+    }
+
+    /**
+     * Appends a chat.
+     *
+     * @param userId      The chat's user.
+     * @param category    The chat's category.
+     * @param createdAt   When the chat was created, in UTC.
+     * @param dateOfBirth The user's date of birth, or null if unknown.
+     */
+    public void append(long userId, String category, LocalDateTime createdAt, LocalDate dateOfBirth) {
+        if (size == chatTimes.length) {
+            int capacity = size * 2;
+            chatCategories = Arrays.copyOf(chatCategories, capacity);
+            chatUsers = Arrays.copyOf(chatUsers, capacity);
+            chatTimes = Arrays.copyOf(chatTimes, capacity);
+            chatBuckets = Arrays.copyOf(chatBuckets, capacity);
+        }
+        chatCategories[size] = categoryKey(category);
+        chatUsers[size] = userIndex(userId);
+        chatTimes[size] = toSeconds(createdAt);
+        chatBuckets[size] = dateOfBirth != null
+            ? (byte) AgeGroups.bucket(dateOfBirth, createdAt.toLocalDate()) : NO_BUCKET;
+        size++;
+    }
+
+    /**
+     * Drops the chats appended after the first {@code size}, for when a load fails part way. Categories and users
+     * they introduced stay in the dictionaries, unused.
+     */
+    public void truncate(int size) {
+        this.size = Math.min(this.size, size);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns an immutable view of the chats appended so far.
+     */
+    public View view() {
+        return new View(size, chatCategories, chatUsers, chatTimes, chatBuckets, List.copyOf(categories));
+    }
+
+    /**
+     * The memory held by the columns and dictionaries, approximately, in bytes.
+     */
+    public long footprintBytes() {
+        long columns = (long) chatTimes.length * (Integer.BYTES * 3 + Byte.BYTES);
+        // The user index has at most four slots per user, each a long key and an int value
+        long users = (long) userIndex.size() * 4 * (Long.BYTES + Integer.BYTES);
+        return columns + users + categories.stream().mapToLong(name -> 40 + 2L * name.length()).sum();
+    }
+
+    private int categoryKey(String category) {
+        Integer key = categoryKeys.get(category);
+        if (key == null) {
+            key = categories.size();
+            categoryKeys.put(category, key);
+            categories.add(category);
+        }
+        return key;
+    }
+
+    private int userIndex(long userId) {
+        int index = userIndex.get(userId, -1);
+        if (index < 0) {
+            index = userIndex.size();
+            userIndex.put(userId, index);
+        }
+        return index;
+    }
+
+    /**
+     * Returns a chat's creation time as stored, clamped below {@link Integer#MAX_VALUE} so that a range reaching past
+     * the last time that can be stored still includes the chats clamped to it.
+     */
+    static int toSeconds(LocalDateTime dateTime) {
+        return (int) Math.min(Integer.MAX_VALUE - 1L, seconds(dateTime));
+    }
+
+    private static long seconds(LocalDateTime dateTime) {
+        long seconds = dateTime.toEpochSecond(ZoneOffset.UTC) - TIME_BASE_SECONDS;
+        return Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, seconds));
+    }
+
+    static LocalDateTime fromSeconds(int seconds) {
+        return LocalDateTime.ofEpochSecond(TIME_BASE_SECONDS + seconds, 0, ZoneOffset.UTC);
+    }
+
+    /**
+     * The chats in one category over a time range.
+     *
+     * @param category       The category.
+     * @param chats          The number of chats.
+     * @param firstAt        When the first chat was created.
+     * @param lastAt         When the last chat was created.
+     * @param users          The number of distinct users who chatted.
+     * @param usersPerBucket The distinct users per age bucket at their first chat in the range, indexed like
+     *                       {@link AgeGroups#ALL}. Users of unknown age are in none.
+     */
+    public record CategoryTally(String category, long chats, LocalDateTime firstAt, LocalDateTime lastAt,
+                                long users, long[] usersPerBucket) {
+    }
+
+    /**
+     * An immutable view of the chats appended up to some point.
+     */
+    public static final class View {
+        private final int size;
+        private final int[] chatCategories;
+        private final int[] chatUsers;
+        private final int[] chatTimes;
+        private final byte[] chatBuckets;
+        private final List<String> categories;
+
+        private View(int size, int[] chatCategories, int[] chatUsers, int[] chatTimes, byte[] chatBuckets,
+                     List<String> categories) {
+            this.size = size;
+            this.chatCategories = chatCategories;
+            this.chatUsers = chatUsers;
+            this.chatTimes = chatTimes;
+            this.chatBuckets = chatBuckets;
+            this.categories = categories;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Tallies the chats created in a range per category, in no particular order. Categories with no chats in
+         * the range are left out.
+         *
+         * @param from     The start of the range, inclusive.
+         * @param to       The end of the range, exclusive.
+         * @param parallel Whether to split the scan across the common fork/join pool.
+         */
+        public List<CategoryTally> tally(LocalDateTime from, LocalDateTime to, boolean parallel) {
+            return tally(from, to, parallel ? Math.max(1, ForkJoinPool.getCommonPoolParallelism()) : 1);
+        }
+
+        /**
+         * Tallies the chats in a range, scanning {@code parts} contiguous chunks of the columns in parallel. Each
+         * chunk counts its chats and lists the distinct (category, user) pairs it saw, sorted, with the first chat
+         * of each; the lists are then merged in chunk order, so a user is counted once per category, in the age
+         * bucket of their first chat in the range, however the chats were split.
+         */
+        List<CategoryTally> tally(LocalDateTime from, LocalDateTime to, int parts) {
+            int lo = clampSeconds(from);
+            int hi = clampSeconds(to);
+            int chunkSize = Math.max(MIN_CAPACITY, (size + parts - 1) / parts);
+            int chunks = Math.max(1, (size + chunkSize - 1) / chunkSize);
+            List<Chunk> scanned = chunks == 1 ? List.of(scan(lo, hi, 0, size, false))
+                : IntStream.range(0, chunks).parallel()
+                    .mapToObj(chunk -> scan(lo, hi, chunk * chunkSize, Math.min(size, (chunk + 1) * chunkSize), true))
+                    .toList();
+
+            Tallies total = new Tallies(categories.size());
+            scanned.forEach(chunk -> total.merge(chunk.tallies()));
+            countUsers(scanned, total);
+            return total.toList(categories);
+        }
+
+        /**
+         * One pass over the chats from {@code start} to {@code end}, counting the chats in the range and listing the
+         * distinct (category, user) pairs, each with the index of its first chat.
+         */
+        private Chunk scan(int lo, int hi, int start, int end, boolean sorted) {
+            Tallies tallies = new Tallies(categories.size());
+            LongIntHashMap seen = new LongIntHashMap(MIN_CAPACITY);
+            long[] pairs = new long[MIN_CAPACITY];
+            int pairCount = 0;
+            for (int i = start; i < end; i++) {
+                int time = chatTimes[i];
+                if (time < lo || time >= hi) {
+                    continue;
+                }
+                int category = chatCategories[i];
+                tallies.chats[category]++;
+                tallies.firstAt[category] = Math.min(tallies.firstAt[category], time);
+                tallies.lastAt[category] = Math.max(tallies.lastAt[category], time);
+
+                long pair = ((long) category << 32) | chatUsers[i];
+                if (seen.get(pair, -1) < 0) {
+                    seen.put(pair, i);
+                    if (pairCount == pairs.length) {
+                        pairs = Arrays.copyOf(pairs, pairCount * 2);
+                    }
+                    pairs[pairCount++] = pair;
+                }
+            }
+
+            pairs = Arrays.copyOf(pairs, pairCount);
+            if (sorted) {
+                Arrays.sort(pairs);
+            }
+            int[] firstChats = new int[pairCount];
+            for (int p = 0; p < pairCount; p++) {
+                firstChats[p] = seen.get(pairs[p], -1);
+            }
+            return new Chunk(tallies, pairs, firstChats);
+        }
+
+        /**
+         * Counts the distinct users per category across the chunks, merging their sorted pairs. Where chunks share a
+         * pair, the earliest chunk holds its first chat.
+         */
+        private void countUsers(List<Chunk> chunks, Tallies tallies) {
+            if (chunks.size() == 1) {
+                Chunk chunk = chunks.get(0);
+                for (int p = 0; p < chunk.pairs().length; p++) {
+                    countUser(chunk.pairs()[p], chunk.firstChats()[p], tallies);
+                }
+                return;
+            }
+            int[] heads = new int[chunks.size()];
+            while (true) {
+                long next = Long.MAX_VALUE;
+                int firstChat = -1;
+                for (int c = 0; c < heads.length; c++) {
+                    long[] pairs = chunks.get(c).pairs();
+                    if (heads[c] < pairs.length && pairs[heads[c]] < next) {
+                        next = pairs[heads[c]];
+                        firstChat = chunks.get(c).firstChats()[heads[c]];
+                    }
+                }
+                if (firstChat < 0) {
+                    return;
+                }
+                for (int c = 0; c < heads.length; c++) {
+                    long[] pairs = chunks.get(c).pairs();
+                    if (heads[c] < pairs.length && pairs[heads[c]] == next) {
+                        heads[c]++;
+                    }
+                }
+                countUser(next, firstChat, tallies);
+            }
+        }
+
+        private void countUser(long pair, int firstChat, Tallies tallies) {
+            int category = (int) (pair >>> 32);
+            tallies.users[category]++;
+            byte bucket = chatBuckets[firstChat];
+            if (bucket != NO_BUCKET) {
+                tallies.usersPerBucket[category * BUCKETS + bucket]++;
+            }
+        }
+
+        private static int clampSeconds(LocalDateTime dateTime) {
+            return (int) seconds(dateTime);
+        }
+    }
+
+    /**
+     * The chats counted by one chunk of a scan, and its distinct (category, user) pairs with the index of the first
+     * chat of each.
+     */
+    private record Chunk(Tallies tallies, long[] pairs, int[] firstChats) {
+    }
+
+    private static final class Tallies {
+        private final long[] chats;
+        private final int[] firstAt;
+        private final int[] lastAt;
+        private final long[] users;
+        private final long[] usersPerBucket;
+
+        private Tallies(int categories) {
+            chats = new long[categories];
+            firstAt = new int[categories];
+            lastAt = new int[categories];
+            users = new long[categories];
+            usersPerBucket = new long[categories * BUCKETS];
+            Arrays.fill(firstAt, Integer.MAX_VALUE);
+            Arrays.fill(lastAt, Integer.MIN_VALUE);
+        }
+
+        private Tallies merge(Tallies other) {
+            for (int category = 0; category < chats.length; category++) {
+                chats[category] += other.chats[category];
+                firstAt[category] = Math.min(firstAt[category], other.firstAt[category]);
+                lastAt[category] = Math.max(lastAt[category], other.lastAt[category]);
+                users[category] += other.users[category];
+            }
+            for (int i = 0; i < usersPerBucket.length; i++) {
+                usersPerBucket[i] += other.usersPerBucket[i];
+            }
+            return this;
+        }
+
+        private List<CategoryTally> toList(List<String> categories) {
+            List<CategoryTally> result = new ArrayList<>();
+            for (int category = 0; category < chats.length; category++) {
+                if (chats[category] > 0) {
+                    result.add(new CategoryTally(
+                        categories.get(category), chats[category], fromSeconds(firstAt[category]),
+                        fromSeconds(lastAt[category]), users[category],
+                        Arrays.copyOfRange(usersPerBucket, category * BUCKETS, (category + 1) * BUCKETS)));
+                }
+            }
+            return result;
+        }
+    }
+}
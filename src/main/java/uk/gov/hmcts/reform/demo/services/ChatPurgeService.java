@@ -0,0 +1,115 @@
+package uk.gov.hmcts.reform.demo.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import uk.gov.hmcts.reform.demo.repositories.ChatArchiveRepository;
+import uk.gov.hmcts.reform.demo.repositories.ChatRepository;
+import uk.gov.hmcts.reform.demo.repositories.MessageRepository;
+
+/**
+ * Background job that physically removes chats deleted by {@link ChatService#deleteChat}.
+ *
+ * <p>Messages are removed in bounded batches, each a single bulk DELETE in its own transaction, so no single
+ * statement holds locks on a large chat for long. The chat row itself is removed once it has no messages left.
+ */
+@Service
+public class ChatPurgeService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatPurgeService.class);
+
+    private final ChatRepository chatRepository;
+    private final MessageRepository messageRepository;
+    private final ChatArchiveRepository chatArchiveRepository;
+    private final int batchSize;
+    private final int chatsPerRun;
+
+    private final AtomicLong backlog = new AtomicLong();
+    private final Counter messagesPurged;
+    private final Counter chatsPurged;
+    private final Timer runTimer;
+
+    public ChatPurgeService(ChatRepository chatRepository,
+                            MessageRepository messageRepository,
+                            ChatArchiveRepository chatArchiveRepository,
+                            MeterRegistry meterRegistry,
+                            @Value("${chat.purge.batch-size:1000}") int batchSize,
+                            @Value("${chat.purge.chats-per-run:50}") int chatsPerRun) {
+        this.chatRepository = chatRepository;
+        this.messageRepository = messageRepository;
+        this.chatArchiveRepository = chatArchiveRepository;
+        this.batchSize = batchSize;
+        this.chatsPerRun = chatsPerRun;
+
+        Gauge.builder("chat.purge.backlog", backlog, AtomicLong::get)
+            .description("Deleted chats still waiting to be purged")
+            .register(meterRegistry);
+        this.messagesPurged = Counter.builder("chat.purge.messages")
+            .description("Messages removed by the chat purger")
+            .register(meterRegistry);
+        this.chatsPurged = Counter.builder("chat.purge.chats")
+            .description("Chats removed by the chat purger")
+            .register(meterRegistry);
+        this.runTimer = Timer.builder("chat.purge.run")
+            .description("Duration of a chat purge run")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Purges up to {@code chat.purge.chats-per-run} deleted chats, oldest deletion first.
+     */
+    @Scheduled(fixedDelayString = "${chat.purge.interval-ms:30000}",
+        initialDelayString = "${chat.purge.initial-delay-ms:60000}")
+    public void purgeDeletedChats() {
+        runTimer.record(() -> {
+            List<Long> chatIds = chatRepository.findSoftDeletedIds(chatsPerRun);
+            for (Long chatId : chatIds) {
+                try {
+                    long removed = purgeChat(chatId);
+                    logger.debug("Purged chat {} and {} messages", chatId, removed);
+                } catch (RuntimeException e) {
+                    // Leave the chat for the next run; the purge is idempotent.
+                    logger.error("Failed to purge chat {}: {}", chatId, e.getMessage());
+                }
+            }
+            backlog.set(chatRepository.countSoftDeleted());
+        });
+    }
+
+    /**
+     * Removes every message of a deleted chat in batches, then its archive, if any, and the chat itself.
+     *
+     * @param chatId The ID of the soft-deleted chat.
+     * @return The number of messages removed.
+     */
+    long purgeChat(Long chatId) {
+        long removed = 0;
+        int deleted;
+        do {
+            deleted = messageRepository.deleteBatchByChatId(chatId, batchSize);
+            removed += deleted;
+            messagesPurged.increment(deleted);
+        } while (deleted >= batchSize);
+        chatArchiveRepository.deleteByChatId(chatId);
+
+        if (chatRepository.purgeById(chatId) > 0) {
+            chatsPurged.increment();
+        }
+        return removed;
+    }
+
+    /**
+     * Returns the number of deleted chats seen waiting at the end of the last run.
+     */
+    public long getBacklog() {
+        return backlog.get();
+    }
+}
@@ -1,9 +1,14 @@
 package uk.gov.hmcts.reform.demo.services;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Map;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import uk.gov.hmcts.reform.demo.dto.MessageSearchHit;
 import uk.gov.hmcts.reform.demo.entities.Chat;
 import uk.gov.hmcts.reform.demo.entities.Message;
 import uk.gov.hmcts.reform.demo.entities.User;
@@ -20,20 +25,34 @@ public class ChatService {
 
     private final ChatRepository chatRepository;
     private final MessageRepository messageRepository;
+    private final ChatArchiveService chatArchiveService;
+    private final StatisticsService statisticsService;
+    private final LiveStatisticsPublisher livePublisher;
+    private final ChatCategoryService chatCategoryService;
 
     /**
      * Constructor for ChatService.
      *
-     * @param chatRepository    Repository for Chat entities.
-     * @param messageRepository Repository for Message entities.
+     * @param chatRepository      Repository for Chat entities.
+     * @param messageRepository   Repository for Message entities.
+     * @param chatArchiveService  Service holding the messages of cold chats.
+     * @param statisticsService   Service maintaining the chat statistics.
+     * @param livePublisher       Publisher of live statistics to admin dashboards.
+     * @param chatCategoryService Service resolving chat descriptions to categories.
      */
-    public ChatService(ChatRepository chatRepository, MessageRepository messageRepository) {
+    public ChatService(ChatRepository chatRepository, MessageRepository messageRepository,
+                       ChatArchiveService chatArchiveService, StatisticsService statisticsService,
+                       LiveStatisticsPublisher livePublisher, ChatCategoryService chatCategoryService) {
         this.chatRepository = chatRepository;
         this.messageRepository = messageRepository;
+        this.chatArchiveService = chatArchiveService;
+        this.statisticsService = statisticsService;
+        this.livePublisher = livePublisher;
+        this.chatCategoryService = chatCategoryService;
     }
 
     /**
-     * Creates a new chat for a user.
+     * Creates a new chat for a user, in the category of its description.
      *
      * @param user        The user initiating the chat.
      * @param description Description of the chat.
@@ -42,11 +61,16 @@ public class ChatService {
     @Transactional
     public Chat createChat(User user, String description) {
         Chat chat = new Chat(user, description);
-        return chatRepository.save(chat);
+        chat.setCategory(chatCategoryService.resolve(description));
+        chat = chatRepository.save(chat);
+        statisticsService.recordChat(chat);
+        livePublisher.recordChat(chat);
+        return chat;
     }
 
     /**
-     * Saves a message to a chat.
+     * Saves a message to a chat. An archived chat is first moved back into the messages table, as it is active
+     * again. The chat is locked until the message is saved, so that it cannot be archived meanwhile.
      *
      * @param chat    The chat to which the message belongs.
      * @param sender  The sender of the message ("user" or "chatbot").
@@ -55,7 +79,13 @@ public class ChatService {
      */
     @Transactional
     public Message saveMessage(Chat chat, String sender, String content) {
-        Message message = new Message(chat, sender, content);
+        Chat current = chatRepository.lockById(chat.getId())
+            .orElseThrow(() -> new IllegalStateException("Chat not found: " + chat.getId()));
+        if (current.getArchivedAt() != null) {
+            chatArchiveService.promote(current);
+        }
+        chat.setArchivedAt(current.getArchivedAt());
+        Message message = new Message(current, sender, content);
         return messageRepository.save(message);
     }
 
@@ -71,16 +101,38 @@ public class ChatService {
     }
 
     /**
-     * Retrieves all messages for a given chat.
+     * Retrieves all messages for a given chat, transparently reading archived chats from their archive.
      *
      * @param chat The chat whose messages are to be retrieved.
      * @return A list of Message entities.
      */
     @Transactional(readOnly = true)
     public List<Message> getMessagesForChat(Chat chat) {
+        if (chat.getArchivedAt() != null) {
+            return chatArchiveService.rehydrate(chat);
+        }
         return messageRepository.findByChat(chat);
     }
 
+    /**
+     * Full-text searches the messages of a user's chats.
+     *
+     * @param user  The user whose chat history is searched.
+     * @param query The search terms.
+     * @param page  The zero-based page number.
+     * @param size  The page size.
+     * @return A page of ranked matches with highlighted snippets.
+     */
+    @Transactional(readOnly = true)
+    public Page<MessageSearchHit> searchMessages(User user, String query, int page, int size) {
+        PageRequest pageRequest = PageRequest.of(page, size);
+        List<MessageSearchHit> hits = chatArchiveService.withArchivedSnippets(messageRepository.searchByUser(
+            user.getId(), query, pageRequest.getPageSize(), pageRequest.getOffset()), query);
+        // The count query only runs when the page alone cannot tell us the total
+        return PageableExecutionUtils.getPage(
+            hits, pageRequest, () -> messageRepository.countSearchByUser(user.getId(), query));
+    }
+
     /**
      * Finds and returns the Chat with the specified chatId.
      *
@@ -92,15 +144,14 @@ public class ChatService {
     }
 
     /**
-     * Deletes the provided chat.
+     * Deletes the provided chat. The chat is only marked as deleted, which hides it from every query; its messages
+     * are removed in bounded batches by {@link ChatPurgeService}.
      *
      * @param chat The Chat entity to delete.
      */
     @Transactional
     public void deleteChat(Chat chat) {
-        List<Message> messages = messageRepository.findByChat(chat);
-        messageRepository.deleteAll(messages);
-        chatRepository.delete(chat);
+        chatRepository.softDeleteById(chat.getId(), LocalDateTime.now());
     }
 
     public List<Map<String, String>> buildOpenAiConversation(List<Message> dbMessages) {
@@ -26,5 +26,25 @@ public class EmailService {
 
         mailSender.send(message);
     }
-}
 
+    public void sendAccountApprovedEmail(String toEmail, String username) {
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setFrom(fromEmail);
+        message.setTo(toEmail);
+        message.setSubject("Account Approved");
+        message.setText("Hello " + username + ",\n\nYour account request has been approved. You can now log in.");
+
+        mailSender.send(message);
+    }
+
+    public void sendAccountRejectedEmail(String toEmail, String username) {
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setFrom(fromEmail);
+        message.setTo(toEmail);
+        message.setSubject("Account Request Rejected");
+        message.setText("Hello " + username + ",\n\nYour account request has been rejected and your details have "
+                            + "been removed.");
+
+        mailSender.send(message);
+    }
+}
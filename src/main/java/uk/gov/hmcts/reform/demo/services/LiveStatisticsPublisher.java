@@ -0,0 +1,353 @@
+package uk.gov.hmcts.reform.demo.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import uk.gov.hmcts.reform.demo.entities.CategoryStatistics;
+import uk.gov.hmcts.reform.demo.entities.Chat;
+import uk.gov.hmcts.reform.demo.utils.Transactions;
+
+/**
+ * Pushes live statistics to admin dashboards over server-sent events.
+ *
+ * <p>Chats and sessions are counted in {@link LongAdder} cells once their transaction commits, so recording never
+ * blocks on a subscriber. Every {@code statistics.live.interval-ms} a single publisher drains the counts into one
+ * update, carrying the chats added per category with their new totals and shares of all chats, and fans it out to
+ * every subscriber. Each subscriber is sent its updates in order by a shared pool; while one is still being written,
+ * later updates are merged into a single pending one rather than queued, so a slow client holds at most one pending
+ * update besides the one being written, however far behind it falls. A client still behind after
+ * {@code statistics.live.max-lag-ms} is disconnected, and its browser reconnects and starts from a fresh snapshot.
+ *
+ * <p>A client that stops reading blocks the write to it until the servlet container times it out. That write holds
+ * one thread of the pool, which grows past {@code statistics.live.sender-threads} up to one thread per subscriber,
+ * so other subscribers are never left waiting for a free one. A subscriber dropped while its write is blocked is
+ * completed by its own sending thread once the write returns, never by the publisher, which would wait for it.
+ *
+ * <p>Totals start from the summary tables when the first subscriber connects, so they lag the flush by a few
+ * seconds, and only count chats created on this node after that.
+ */
+@Service
+public class LiveStatisticsPublisher {
+
+    static final String SNAPSHOT_EVENT = "snapshot";
+    static final String UPDATE_EVENT = "update";
+
+    private static final Logger logger = LoggerFactory.getLogger(LiveStatisticsPublisher.class);
+
+    private final StatisticsService statisticsService;
+    private final long timeoutMillis;
+    private final int maxSubscribers;
+    private final long maxLagMillis;
+    private final LongSupplier clock;
+    private final ThreadPoolExecutor sendExecutor;
+
+    private final Map<String, LongAdder> pendingChats = new ConcurrentHashMap<>();
+    private final LongAdder pendingSessions = new LongAdder();
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private Map<String, Long> totals;
+
+    private final Counter updatesSent;
+    private final Counter updatesCoalesced;
+    private final Counter subscribersDropped;
+
+    @Autowired
+    public LiveStatisticsPublisher(StatisticsService statisticsService,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${statistics.live.timeout-ms:1800000}") long timeoutMillis,
+                                   @Value("${statistics.live.max-subscribers:100}") int maxSubscribers,
+                                   @Value("${statistics.live.max-lag-ms:30000}") long maxLagMillis,
+                                   @Value("${statistics.live.sender-threads:4}") int senderThreads) {
+        this(statisticsService, meterRegistry, timeoutMillis, maxSubscribers, maxLagMillis, senderThreads,
+             System::currentTimeMillis);
+    }
+
+    LiveStatisticsPublisher(StatisticsService statisticsService, MeterRegistry meterRegistry, long timeoutMillis,
+                            int maxSubscribers, long maxLagMillis, int senderThreads, LongSupplier clock) {
+        this.statisticsService = statisticsService;
+        this.timeoutMillis = timeoutMillis;
+        this.maxSubscribers = maxSubscribers;
+        this.maxLagMillis = maxLagMillis;
+        this.clock = clock;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        // Each subscriber has at most one send running, so a thread blocked on a stalled client only holds up that
+        // client; threads past senderThreads end after a minute idle
+        this.sendExecutor = new ThreadPoolExecutor(
+            senderThreads, Math.max(senderThreads, maxSubscribers), 1, TimeUnit.MINUTES, new SynchronousQueue<>(),
+            task -> {
+                Thread thread = new Thread(task, "statistics-live-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+
+        this.updatesSent = Counter.builder("statistics.live.updates")
+            .description("Live statistics updates sent to subscribers")
+            .register(meterRegistry);
+        this.updatesCoalesced = Counter.builder("statistics.live.coalesced")
+            .description("Live statistics updates merged into a later one because the subscriber was still busy")
+            .register(meterRegistry);
+        this.subscribersDropped = Counter.builder("statistics.live.dropped")
+            .description("Live statistics subscribers disconnected for falling too far behind")
+            .register(meterRegistry);
+        Gauge.builder("statistics.live.subscribers", subscribers, List::size)
+            .description("Connected live statistics subscribers")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Counts a new chat towards the next update once the current transaction commits.
+     */
+    public void recordChat(Chat chat) {
+        Transactions.afterCommit(
+            () -> pendingChats.computeIfAbsent(chat.getCategoryName(), key -> new LongAdder()).increment());
+    }
+
+    /**
+     * Counts a new session towards the next update once the current transaction commits.
+     */
+    public void recordSession() {
+        Transactions.afterCommit(pendingSessions::increment);
+    }
+
+    /**
+     * Connects a subscriber, which is first sent a {@value #SNAPSHOT_EVENT} event with the current totals and then
+     * {@value #UPDATE_EVENT} events as they are published.
+     *
+     * @return The emitter to return from the request, or null if there are already
+     *         {@code statistics.live.max-subscribers} subscribers.
+     */
+    public synchronized SseEmitter subscribe() {
+        if (subscribers.size() >= maxSubscribers) {
+            return null;
+        }
+        if (totals == null) {
+            totals = new HashMap<>();
+            for (CategoryStatistics category : statisticsService.getCategories()) {
+                totals.put(category.getCategory(), category.getChatCount());
+            }
+        }
+
+        SseEmitter emitter = createEmitter(timeoutMillis);
+        Subscriber subscriber = new Subscriber(emitter);
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onTimeout(() -> remove(subscriber));
+        emitter.onError(e -> remove(subscriber));
+        try {
+            // Held by the emitter until the response starts, before any update can be sent
+            emitter.send(SseEmitter.event().name(SNAPSHOT_EVENT).data(snapshot()));
+        } catch (IOException e) {
+            emitter.completeWithError(e);
+            return emitter;
+        }
+        subscribers.add(subscriber);
+        return emitter;
+    }
+
+    SseEmitter createEmitter(long timeoutMillis) {
+        return new SseEmitter(timeoutMillis);
+    }
+
+    private synchronized void remove(Subscriber subscriber) {
+        subscribers.remove(subscriber);
+        if (subscribers.isEmpty()) {
+            // Start from the summaries again when someone next connects
+            totals = null;
+        }
+    }
+
+    /**
+     * Drains the counts recorded since the last run into one update and hands it to every subscriber.
+     */
+    @Scheduled(fixedDelayString = "${statistics.live.interval-ms:1000}",
+        initialDelayString = "${statistics.live.interval-ms:1000}")
+    public synchronized void publish() {
+        Map<String, Long> added = new LinkedHashMap<>();
+        pendingChats.forEach((category, adder) -> {
+            long chats = adder.sumThenReset();
+            if (chats > 0) {
+                added.put(category, chats);
+            }
+        });
+        long sessions = pendingSessions.sumThenReset();
+        if (totals == null || (added.isEmpty() && sessions == 0)) {
+            return;
+        }
+
+        added.forEach((category, chats) -> totals.merge(category, chats, Long::sum));
+        long totalChats = totalChats();
+        Map<String, CategoryUpdate> categories = new LinkedHashMap<>();
+        added.forEach((category, chats) -> categories.put(
+            category, new CategoryUpdate(chats, totals.get(category), share(totals.get(category), totalChats))));
+        LiveUpdate update = new LiveUpdate(sessions, totalChats, categories);
+
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(update);
+        }
+    }
+
+    private LiveUpdate snapshot() {
+        long totalChats = totalChats();
+        Map<String, CategoryUpdate> categories = new LinkedHashMap<>();
+        totals.entrySet().stream()
+            .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+            .forEach(total -> categories.put(
+                total.getKey(), new CategoryUpdate(0, total.getValue(), share(total.getValue(), totalChats))));
+        return new LiveUpdate(0, totalChats, categories);
+    }
+
+    private long totalChats() {
+        return totals.values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    private static double share(long chats, long totalChats) {
+        return totalChats > 0 ? chats * 100.0 / totalChats : 0.0;
+    }
+
+    /**
+     * Closes every stream, so clients reconnect to another node.
+     */
+    @PreDestroy
+    void shutdown() {
+        sendExecutor.shutdownNow();
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+    }
+
+    /**
+     * Statistics pushed to subscribers.
+     *
+     * @param sessionsStarted The sessions started since the last update, or 0 in a snapshot.
+     * @param totalChats      The chats in every category.
+     * @param categories      The categories with new chats, or every category in a snapshot.
+     */
+    public record LiveUpdate(long sessionsStarted, long totalChats, Map<String, CategoryUpdate> categories) {
+
+        /**
+         * Combines this update with a later one, as if they had been published as one.
+         */
+        LiveUpdate merge(LiveUpdate later) {
+            Map<String, CategoryUpdate> merged = new LinkedHashMap<>(categories);
+            later.categories.forEach((category, update) -> merged.merge(
+                category, update, (earlier, latest) -> new CategoryUpdate(
+                    earlier.added() + latest.added(), latest.chats(), latest.share())));
+            return new LiveUpdate(sessionsStarted + later.sessionsStarted, later.totalChats, merged);
+        }
+    }
+
+    /**
+     * One category in a live update.
+     *
+     * @param added The chats added since the last update.
+     * @param chats The category's chats in total.
+     * @param share The category's percentage of all chats when it last changed.
+     */
+    public record CategoryUpdate(long added, long chats, double share) {
+    }
+
+    private final class Subscriber {
+        private final SseEmitter emitter;
+        private LiveUpdate pending;
+        private long pendingSince;
+        private boolean sending;
+        private boolean dropped;
+
+        private Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        private void offer(LiveUpdate update) {
+            boolean start;
+            synchronized (this) {
+                if (pending != null) {
+                    if (clock.getAsLong() - pendingSince > maxLagMillis) {
+                        drop();
+                        return;
+                    }
+                    pending = pending.merge(update);
+                    updatesCoalesced.increment();
+                    return;
+                }
+                pending = update;
+                pendingSince = clock.getAsLong();
+                start = !sending;
+                sending = true;
+            }
+            if (start) {
+                try {
+                    sendExecutor.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    // Shutting down, or every thread is blocked on a dropped subscriber; the lag check drops this one
+                    synchronized (this) {
+                        sending = false;
+                    }
+                }
+            }
+        }
+
+        private void drain() {
+            boolean completeDropped;
+            while (true) {
+                LiveUpdate update;
+                synchronized (this) {
+                    update = pending;
+                    pending = null;
+                    if (update == null || dropped) {
+                        sending = false;
+                        completeDropped = dropped;
+                        break;
+                    }
+                }
+                try {
+                    emitter.send(SseEmitter.event().name(UPDATE_EVENT).data(update));
+                    updatesSent.increment();
+                } catch (IOException | IllegalStateException e) {
+                    // The client went away; the emitter's error callback removes it
+                    logger.debug("Failed to send live statistics: {}", e.getMessage());
+                    synchronized (this) {
+                        pending = null;
+                        sending = false;
+                    }
+                    return;
+                }
+            }
+            if (completeDropped) {
+                emitter.complete();
+            }
+        }
+
+        /**
+         * Disconnects the subscriber. Called with its lock held.
+         */
+        private void drop() {
+            pending = null;
+            dropped = true;
+            subscribersDropped.increment();
+            logger.warn("Disconnecting a live statistics subscriber more than {} ms behind", maxLagMillis);
+            remove(this);
+            if (!sending) {
+                emitter.complete();
+            }
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package uk.gov.hmcts.reform.demo.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.LocalDate;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import uk.gov.hmcts.reform.demo.repositories.MessageRepository;
+import uk.gov.hmcts.reform.demo.repositories.SessionRepository;
+
+/**
+ * Keeps the monthly partitions of {@code sessions} and {@code messages} created for the months ahead, so that rows
+ * land in their month's partition rather than the default one. Dropping old partitions is left to
+ * {@link RetentionService} and {@link ChatArchiveService}.
+ *
+ * <p>The tables are only partitioned once {@code db/partitioning/partition_sessions_and_messages.sql} has been run;
+ * until then there is nothing to create.
+ */
+@Service
+public class PartitionMaintenanceService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PartitionMaintenanceService.class);
+
+    private final List<PartitionedTable> tables;
+    private final int monthsAhead;
+
+    public PartitionMaintenanceService(SessionRepository sessionRepository,
+                                       MessageRepository messageRepository,
+                                       MeterRegistry meterRegistry,
+                                       @Value("${partitions.months-ahead:3}") int monthsAhead) {
+        this.monthsAhead = monthsAhead;
+        this.tables = List.of(
+            new PartitionedTable("sessions", sessionRepository::createMonthlyPartitions, meterRegistry),
+            new PartitionedTable("messages", messageRepository::createMonthlyPartitions, meterRegistry));
+    }
+
+    /**
+     * Creates the missing partitions from this month to {@code partitions.months-ahead} months ahead, on startup and
+     * daily on the {@code partitions.cron} schedule. A table that fails is tried again on the next run.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${partitions.cron:0 30 2 * * *}")
+    public void createPartitions() {
+        LocalDate from = LocalDate.now().withDayOfMonth(1);
+        LocalDate to = from.plusMonths(monthsAhead);
+        for (PartitionedTable table : tables) {
+            try {
+                int created = table.create().create(from, to);
+                table.created().increment(created);
+                if (created > 0) {
+                    logger.info("Created {} monthly partitions of {} up to {}", created, table.name(), to);
+                }
+            } catch (RuntimeException e) {
+                logger.error("Failed to create the partitions of {}: {}", table.name(), e.getMessage());
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface CreatePartitions {
+        int create(LocalDate from, LocalDate to);
+    }
+
+    private record PartitionedTable(String name, CreatePartitions create, Counter created) {
+
+        PartitionedTable(String name, CreatePartitions create, MeterRegistry meterRegistry) {
+            this(name, create, Counter.builder("partitions.created")
+                .description("Monthly partitions created ahead of time")
+                .tag("table", name)
+                .register(meterRegistry));
+        }
+    }
+}
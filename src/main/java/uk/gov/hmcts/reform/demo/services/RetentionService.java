@@ -0,0 +1,170 @@
+package uk.gov.hmcts.reform.demo.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToLongFunction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import uk.gov.hmcts.reform.demo.repositories.AccountRequestRepository;
+import uk.gov.hmcts.reform.demo.repositories.PasswordResetTokenRepository;
+import uk.gov.hmcts.reform.demo.repositories.SessionRepository;
+
+/**
+ * Background job that removes rows past their retention: sessions some days after they expire, reset tokens once
+ * expired, and rejected account requests.
+ *
+ * <p>Each table is purged in bounded batches, each a single indexed DELETE in its own transaction, with a pause
+ * between batches so that the purge never keeps the database busy for long. A run stops after
+ * {@code retention.batches-per-run} batches of a table and leaves the rest for the next one; the
+ * {@code retention.lag} gauge shows how long the oldest row left has been past its retention.
+ *
+ * <p>Sessions are only removed once the activity rollups have counted them, so the activity statistics still include
+ * them. A full rollup rebuild and the statistics export only see the sessions that are left. Before deleting any,
+ * each run drops the monthly partitions of sessions that hold nothing else, which costs the same however many rows
+ * they hold; the batches then only have the stragglers of the months still kept.
+ */
+@Service
+public class RetentionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RetentionService.class);
+
+    private final List<Policy> policies = new ArrayList<>();
+    private final int batchSize;
+    private final int batchesPerRun;
+    private final long pauseMillis;
+    private final Timer runTimer;
+
+    public RetentionService(SessionRepository sessionRepository,
+                            PasswordResetTokenRepository resetTokenRepository,
+                            AccountRequestRepository accountRequestRepository,
+                            MeterRegistry meterRegistry,
+                            @Value("${retention.batch-size:1000}") int batchSize,
+                            @Value("${retention.batches-per-run:50}") int batchesPerRun,
+                            @Value("${retention.pause-ms:100}") long pauseMillis,
+                            @Value("${retention.sessions.keep-days:30}") int sessionKeepDays,
+                            @Value("${retention.reset-tokens.keep-days:1}") int resetTokenKeepDays,
+                            @Value("${retention.rejected-requests.keep-days:30}") int rejectedRequestKeepDays) {
+        this.batchSize = batchSize;
+        this.batchesPerRun = batchesPerRun;
+        this.pauseMillis = pauseMillis;
+
+        addPolicy("sessions", sessionKeepDays, sessionRepository::dropExpiredPartitions,
+                  sessionRepository::deleteBatchExpiredBefore, sessionRepository::findSecondsExpiredBefore,
+                  meterRegistry);
+        addPolicy("password_reset_tokens", resetTokenKeepDays, null, resetTokenRepository::deleteBatchExpiredBefore,
+                  resetTokenRepository::findSecondsExpiredBefore, meterRegistry);
+        addPolicy("account_requests", rejectedRequestKeepDays, null,
+                  accountRequestRepository::deleteBatchRejectedBefore,
+                  accountRequestRepository::findSecondsRejectedBefore, meterRegistry);
+        this.runTimer = Timer.builder("retention.run")
+            .description("Duration of a retention run")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Purges a table of rows more than {@code keepDays} past their retention time, or none if {@code keepDays} is 0.
+     * {@code dropPartitions}, if the table has partitions that can be dropped whole, is called before the batches.
+     */
+    private void addPolicy(String table, int keepDays, ToLongFunction<LocalDateTime> dropPartitions,
+                           BatchDelete deleteBatch, ToLongFunction<LocalDateTime> secondsPast,
+                           MeterRegistry meterRegistry) {
+        if (keepDays <= 0) {
+            logger.info("Keeping {} indefinitely", table);
+            return;
+        }
+        Policy policy = new Policy(table, Duration.ofDays(keepDays), dropPartitions, deleteBatch, secondsPast,
+                                   Counter.builder("retention.rows")
+                                       .description("Rows removed past their retention")
+                                       .tag("table", table)
+                                       .register(meterRegistry));
+        Gauge.builder("retention.lag", policy.lag(), AtomicLong::get)
+            .description("Seconds the oldest row left has been past its retention")
+            .tag("table", table)
+            .baseUnit("seconds")
+            .register(meterRegistry);
+        policies.add(policy);
+    }
+
+    /**
+     * Purges each table in turn. A table that fails is left for the next run; the purge is idempotent.
+     */
+    @Scheduled(fixedDelayString = "${retention.interval-ms:300000}",
+        initialDelayString = "${retention.initial-delay-ms:120000}")
+    public void purge() {
+        runTimer.record(() -> {
+            for (Policy policy : policies) {
+                try {
+                    long removed = purge(policy);
+                    logger.debug("Removed {} rows from {}", removed, policy.table());
+                } catch (RuntimeException e) {
+                    logger.error("Failed to purge {}: {}", policy.table(), e.getMessage());
+                }
+            }
+        });
+    }
+
+    private long purge(Policy policy) {
+        LocalDateTime cutoff = LocalDateTime.now().minus(policy.keep());
+        long removed = 0;
+        if (policy.dropPartitions() != null) {
+            removed = policy.dropPartitions().applyAsLong(cutoff);
+            policy.rows().increment(removed);
+        }
+        for (int batch = 0; batch < batchesPerRun; batch++) {
+            if (batch > 0 && !pause()) {
+                break;
+            }
+            int deleted = policy.deleteBatch().delete(cutoff, batchSize);
+            removed += deleted;
+            policy.rows().increment(deleted);
+            if (deleted < batchSize) {
+                break;
+            }
+        }
+        policy.lag().set(policy.secondsPast().applyAsLong(cutoff));
+        return removed;
+    }
+
+    /**
+     * Waits between batches.
+     *
+     * @return false if the thread was interrupted, as it is on shutdown.
+     */
+    private boolean pause() {
+        if (pauseMillis <= 0) {
+            return true;
+        }
+        try {
+            Thread.sleep(pauseMillis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    @FunctionalInterface
+    private interface BatchDelete {
+        int delete(LocalDateTime cutoff, int limit);
+    }
+
+    private record Policy(String table, Duration keep, ToLongFunction<LocalDateTime> dropPartitions,
+                          BatchDelete deleteBatch, ToLongFunction<LocalDateTime> secondsPast, Counter rows,
+                          AtomicLong lag) {
+
+        Policy(String table, Duration keep, ToLongFunction<LocalDateTime> dropPartitions, BatchDelete deleteBatch,
+               ToLongFunction<LocalDateTime> secondsPast, Counter rows) {
+            this(table, keep, dropPartitions, deleteBatch, secondsPast, rows, new AtomicLong());
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package uk.gov.hmcts.reform.demo.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+
+/**
+ * Caches the results of the statistics endpoints, serving stale results while they are recomputed in the background.
+ *
+ * <p>A result younger than {@code statistics.cache.ttl-ms} is served as is. An older one is still served, and the
+ * first request to see it hands a refresh to a small background pool; until that refresh finishes, other requests
+ * keep getting the stale result rather than starting refreshes of their own. Only a key that has never been computed
+ * is computed on the request thread, and concurrent requests for it wait for that one computation, so the
+ * underlying queries never stampede.
+ *
+ * <p>Each result carries an ETag derived from its JSON, so a recomputation that changes nothing keeps the same ETag
+ * and clients can revalidate with {@code If-None-Match}.
+ */
+@Service
+public class StatisticsCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(StatisticsCache.class);
+
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final long ttlMillis;
+    private final int maxEntries;
+    private final LongSupplier clock;
+    private final ThreadPoolExecutor refreshExecutor;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    @Autowired
+    public StatisticsCache(ObjectMapper objectMapper,
+                           MeterRegistry meterRegistry,
+                           @Value("${statistics.cache.ttl-ms:30000}") long ttlMillis,
+                           @Value("${statistics.cache.max-entries:1000}") int maxEntries,
+                           @Value("${statistics.cache.refresh-threads:2}") int refreshThreads) {
+        this(objectMapper, meterRegistry, ttlMillis, maxEntries, refreshThreads, System::currentTimeMillis);
+    }
+
+    StatisticsCache(ObjectMapper objectMapper, MeterRegistry meterRegistry, long ttlMillis, int maxEntries,
+                    int refreshThreads, LongSupplier clock) {
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.ttlMillis = ttlMillis;
+        this.maxEntries = maxEntries;
+        this.clock = clock;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        // Each key has at most one refresh queued or running, so the queue only fills if there are many keys
+        this.refreshExecutor = new ThreadPoolExecutor(
+            refreshThreads, refreshThreads, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(maxEntries), task -> {
+                Thread thread = new Thread(task, "statistics-cache-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+    }
+
+    /**
+     * A cached result.
+     *
+     * @param value     The result.
+     * @param etag      The quoted ETag of the result, or null if it could not be serialised.
+     * @param ageMillis How long ago the result was computed.
+     */
+    public record Cached<T>(T value, String etag, long ageMillis) {
+    }
+
+    /**
+     * Returns the cached result for a key, computing it if there is none yet and refreshing it in the background if
+     * it is older than the TTL.
+     *
+     * @param endpoint The endpoint, to tag the metrics with.
+     * @param key      The key of the result, unique across endpoints and including every parameter.
+     * @param loader   Computes the result.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Cached<T> get(String endpoint, String key, Supplier<T> loader) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            evictIfFull();
+            entry = entries.computeIfAbsent(key, k -> new Entry());
+        }
+
+        Snapshot snapshot = entry.snapshot;
+        String result;
+        if (snapshot == null) {
+            snapshot = entry.load(endpoint, loader);
+            result = "miss";
+        } else if (clock.getAsLong() - snapshot.computedAt() >= ttlMillis) {
+            scheduleRefresh(endpoint, entry, loader);
+            result = "stale";
+        } else {
+            result = "hit";
+        }
+
+        long age = Math.max(0, clock.getAsLong() - snapshot.computedAt());
+        Counter.builder("statistics.cache.requests")
+            .description("Statistics requests by whether the cached result was fresh, stale or missing")
+            .tag("endpoint", endpoint)
+            .tag("result", result)
+            .register(meterRegistry)
+            .increment();
+        DistributionSummary.builder("statistics.cache.age")
+            .description("Age of the statistics results served")
+            .baseUnit("milliseconds")
+            .tag("endpoint", endpoint)
+            .register(meterRegistry)
+            .record(age);
+        return new Cached<>((T) snapshot.value(), snapshot.etag(), age);
+    }
+
+    /**
+     * Drops every cached result, for when the statistics have been rebuilt. Refreshes already running finish but
+     * their results are discarded.
+     */
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+
+    private void scheduleRefresh(String endpoint, Entry entry, Supplier<?> loader) {
+        if (!entry.refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    entry.snapshot = compute(endpoint, loader);
+                } catch (RuntimeException e) {
+                    // Keep serving the stale result; the next request after this one retries
+                    logger.error("Failed to refresh {} statistics: {}", endpoint, e.getMessage());
+                } finally {
+                    entry.refreshing.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            entry.refreshing.set(false);
+            logger.warn("Statistics cache refresh queue is full, serving stale {} statistics", endpoint);
+        }
+    }
+
+    private Snapshot compute(String endpoint, Supplier<?> loader) {
+        long start = System.nanoTime();
+        Object value = loader.get();
+        Timer.builder("statistics.cache.refresh")
+            .description("Time to compute a statistics result for the cache")
+            .tag("endpoint", endpoint)
+            .register(meterRegistry)
+            .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return new Snapshot(value, etagOf(value), clock.getAsLong());
+    }
+
+    private String etagOf(Object value) {
+        try {
+            return "\"" + DigestUtils.md5DigestAsHex(objectMapper.writeValueAsBytes(value)) + "\"";
+        } catch (JsonProcessingException e) {
+            logger.warn("Failed to compute statistics ETag: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Makes room for a new key by dropping the least recently computed result.
+     */
+    private void evictIfFull() {
+        if (entries.size() < maxEntries) {
+            return;
+        }
+        entries.entrySet().stream()
+            .min(Comparator.comparingLong(e -> e.getValue().computedAt()))
+            .ifPresent(oldest -> entries.remove(oldest.getKey(), oldest.getValue()));
+    }
+
+    private record Snapshot(Object value, String etag, long computedAt) {
+    }
+
+    private final class Entry {
+        private volatile Snapshot snapshot;
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+
+        /**
+         * Computes the first result, once however many requests are waiting for it.
+         */
+        private synchronized Snapshot load(String endpoint, Supplier<?> loader) {
+            if (snapshot == null) {
+                snapshot = compute(endpoint, loader);
+            }
+            return snapshot;
+        }
+
+        private long computedAt() {
+            Snapshot current = snapshot;
+            // Keys still being computed for the first time are the last to go
+            return current != null ? current.computedAt() : Long.MAX_VALUE;
+        }
+    }
+}
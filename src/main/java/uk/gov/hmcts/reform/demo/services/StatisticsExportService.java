@@ -0,0 +1,230 @@
+package uk.gov.hmcts.reform.demo.services;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import uk.gov.hmcts.reform.demo.dto.ChatExportRow;
+import uk.gov.hmcts.reform.demo.dto.SessionExportRow;
+import uk.gov.hmcts.reform.demo.repositories.ChatRepository;
+import uk.gov.hmcts.reform.demo.repositories.SessionRepository;
+
+/**
+ * Exports raw session and chat activity as CSV or newline-delimited JSON.
+ *
+ * <p>Rows are read through a database cursor a fetch at a time and written straight to the output, so memory use
+ * stays flat however many rows there are. Only scalar projections are read, so nothing builds up in the persistence
+ * context either. Each export runs in one read-only transaction, which keeps the cursor open and gives a consistent
+ * snapshot.
+ */
+@Service
+public class StatisticsExportService {
+
+    public enum Format {
+        CSV, NDJSON
+    }
+
+    static final List<String> SESSION_COLUMNS = List.of("id", "createdAt", "userId", "ageGroup");
+    static final List<String> CHAT_COLUMNS = List.of("id", "createdAt", "userId", "category", "ageGroup");
+
+    private static final Logger logger = LoggerFactory.getLogger(StatisticsExportService.class);
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final SessionRepository sessionRepository;
+    private final ChatRepository chatRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Timer exportTimer;
+    private final Counter exportedRows;
+
+    public StatisticsExportService(SessionRepository sessionRepository,
+                                   ChatRepository chatRepository,
+                                   PlatformTransactionManager transactionManager,
+                                   MeterRegistry meterRegistry) {
+        this.sessionRepository = sessionRepository;
+        this.chatRepository = chatRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+
+        this.exportTimer = Timer.builder("statistics.export")
+            .description("Time to stream an activity export to the client")
+            .register(meterRegistry);
+        this.exportedRows = Counter.builder("statistics.export.rows")
+            .description("Rows written by activity exports")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Writes every session started between two days, both inclusive, to an output stream.
+     *
+     * @return The number of rows written.
+     */
+    public long exportSessions(LocalDate from, LocalDate to, Format format, OutputStream out) {
+        return export("sessions", SESSION_COLUMNS, format, out,
+                      () -> sessionRepository.streamForExport(from.atStartOfDay(), to.plusDays(1).atStartOfDay()),
+                      row -> new Object[] {row.getId(), row.getCreatedAt(), row.getUserId(), row.getAgeGroup()});
+    }
+
+    /**
+     * Writes every chat that is not deleted and was started between two days, both inclusive, to an output stream.
+     *
+     * @return The number of rows written.
+     */
+    public long exportChats(LocalDate from, LocalDate to, Format format, OutputStream out) {
+        return export("chats", CHAT_COLUMNS, format, out,
+                      () -> chatRepository.streamForExport(from.atStartOfDay(), to.plusDays(1).atStartOfDay()),
+                      row -> new Object[] {
+                          row.getId(), row.getCreatedAt(), row.getUserId(), row.getCategory(), row.getAgeGroup()
+                      });
+    }
+
+    private <T> long export(String name, List<String> columns, Format format, OutputStream out,
+                            Supplier<Stream<T>> query, Function<T, Object[]> values) {
+        Long rows = exportTimer.record(() -> transactionTemplate.execute(status -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            try (Stream<T> stream = query.get(); RowWriter rowWriter = rowWriter(format, columns, writer)) {
+                long written = 0;
+                for (T row : (Iterable<T>) stream::iterator) {
+                    rowWriter.write(values.apply(row));
+                    written++;
+                }
+                return written;
+            } catch (IOException e) {
+                // Usually the client going away; the cursor is closed and the transaction rolled back
+                throw new UncheckedIOException(e);
+            }
+        }));
+        long written = rows != null ? rows : 0;
+        exportedRows.increment(written);
+        logger.debug("Exported {} {} rows as {}", written, name, format);
+        return written;
+    }
+
+    static RowWriter rowWriter(Format format, List<String> columns, Writer writer) throws IOException {
+        return format == Format.CSV ? new CsvRowWriter(columns, writer) : new NdjsonRowWriter(columns, writer);
+    }
+
+    /**
+     * Writes rows in one format. Closing flushes the rows but leaves the underlying stream open.
+     */
+    interface RowWriter extends AutoCloseable {
+
+        void write(Object[] values) throws IOException;
+
+        @Override
+        void close() throws IOException;
+    }
+
+    /**
+     * RFC 4180 CSV with a header row. Fields containing a comma, quote or line break are quoted. Text starting with a
+     * character a spreadsheet would read as the start of a formula is prefixed with a single quote, so that a category
+     * name cannot run as a formula when the export is opened.
+     */
+    private static final class CsvRowWriter implements RowWriter {
+        private static final String FORMULA_PREFIXES = "=+-@\t\r";
+
+        private final Writer writer;
+
+        private CsvRowWriter(List<String> columns, Writer writer) throws IOException {
+            this.writer = writer;
+            write(columns.toArray());
+        }
+
+        @Override
+        public void write(Object[] values) throws IOException {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                if (values[i] instanceof CharSequence text) {
+                    writeField(neutraliseFormula(text.toString()));
+                } else if (values[i] != null) {
+                    writeField(values[i].toString());
+                }
+            }
+            writer.write("\r\n");
+        }
+
+        private void writeField(String field) throws IOException {
+            if (field.indexOf(',') < 0 && field.indexOf('"') < 0 && field.indexOf('\n') < 0
+                && field.indexOf('\r') < 0) {
+                writer.write(field);
+                return;
+            }
+            writer.write('"');
+            writer.write(field.replace("\"", "\"\""));
+            writer.write('"');
+        }
+
+        private static String neutraliseFormula(String text) {
+            if (!text.isEmpty() && FORMULA_PREFIXES.indexOf(text.charAt(0)) >= 0) {
+                return "'" + text;
+            }
+            return text;
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.flush();
+        }
+    }
+
+    /**
+     * One JSON object per line, keyed by column name. Numbers stay numbers and timestamps are ISO-8601 strings.
+     */
+    private static final class NdjsonRowWriter implements RowWriter {
+        private final List<String> columns;
+        private final Writer writer;
+        private final JsonGenerator generator;
+
+        private NdjsonRowWriter(List<String> columns, Writer writer) throws IOException {
+            this.columns = columns;
+            this.writer = writer;
+            this.generator = JSON_FACTORY.createGenerator(writer)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            // Each object ends with its own line break instead of the default space between root values
+            this.generator.setRootValueSeparator(null);
+        }
+
+        @Override
+        public void write(Object[] values) throws IOException {
+            generator.writeStartObject();
+            for (int i = 0; i < values.length; i++) {
+                generator.writeFieldName(columns.get(i));
+                Object value = values[i];
+                if (value == null) {
+                    generator.writeNull();
+                } else if (value instanceof Long number) {
+                    generator.writeNumber(number);
+                } else {
+                    generator.writeString(value.toString());
+                }
+            }
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        }
+
+        @Override
+        public void close() throws IOException {
+            generator.close();
+            writer.flush();
+        }
+    }
+}
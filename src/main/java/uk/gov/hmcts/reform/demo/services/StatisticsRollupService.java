@@ -0,0 +1,188 @@
+package uk.gov.hmcts.reform.demo.services;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import uk.gov.hmcts.reform.demo.dto.ChatActivityCount;
+import uk.gov.hmcts.reform.demo.dto.SessionActivityCount;
+import uk.gov.hmcts.reform.demo.entities.RollupWatermark;
+import uk.gov.hmcts.reform.demo.repositories.StatisticsRollupRepository;
+
+/**
+ * Rolls sessions and chats up into hourly and daily buckets by age group, and chats by category too.
+ *
+ * <p>Each source table has a watermark on its ID. A scheduled run adds the rows past the watermark to the buckets of
+ * their {@code created_at}, however old, so late rows are counted incrementally. IDs are handed out before
+ * transactions commit, so a run only goes up to the highest ID seen by the previous run, giving transactions that
+ * took a lower ID a full interval to commit. The watermark row is locked for the run, so only one node rolls up a
+ * source at a time and every row is counted exactly once.
+ *
+ * <p>Retention removes sessions {@code retention.sessions.keep-days} after they expire, so a rebuild only recomputes
+ * the session buckets from the first day whose sessions are all still there, and keeps the older ones.
+ */
+@Service
+public class StatisticsRollupService {
+
+    public enum Granularity {
+        HOUR, DAY
+    }
+
+    static final String SESSIONS = "sessions";
+    static final String CHATS = "chats";
+
+    private static final Logger logger = LoggerFactory.getLogger(StatisticsRollupService.class);
+
+    /**
+     * Before any session, for rebuilding all of them when retention keeps every session.
+     */
+    private static final LocalDateTime ALL_SESSIONS = LocalDate.EPOCH.atStartOfDay();
+
+    private final StatisticsRollupRepository rollupRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Timer rollupTimer;
+    private final int sessionKeepDays;
+
+    public StatisticsRollupService(StatisticsRollupRepository rollupRepository,
+                                   PlatformTransactionManager transactionManager,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${retention.sessions.keep-days:30}") int sessionKeepDays) {
+        this.rollupRepository = rollupRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.sessionKeepDays = sessionKeepDays;
+        this.rollupTimer = Timer.builder("statistics.rollup")
+            .description("Time to roll new sessions and chats up into the activity tables")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Adds the sessions and chats created since the last run to the rollups, each source in its own transaction.
+     */
+    @Scheduled(fixedDelayString = "${statistics.rollup-interval-ms:60000}",
+        initialDelayString = "${statistics.rollup-interval-ms:60000}")
+    public void rollUp() {
+        rollupTimer.record(() -> {
+            try {
+                transactionTemplate.executeWithoutResult(status -> rollUpSessions());
+                transactionTemplate.executeWithoutResult(status -> rollUpChats());
+            } catch (RuntimeException e) {
+                // The watermark only moves when the roll-up commits, so the next run retries the same rows
+                logger.error("Failed to roll up activity: {}", e.getMessage());
+            }
+        });
+    }
+
+    private void rollUpSessions() {
+        RollupWatermark watermark = lockWatermark(SESSIONS);
+        long upToId = watermark.getSeenId();
+        if (upToId > watermark.getLastId()) {
+            rollupRepository.rollUpSessionsHourly(watermark.getLastId(), upToId);
+            rollupRepository.rollUpSessionsDaily(watermark.getLastId(), upToId);
+            logger.debug("Rolled up sessions {} to {}", watermark.getLastId() + 1, upToId);
+        }
+        advance(watermark, upToId, rollupRepository.findMaxSessionId());
+    }
+
+    private void rollUpChats() {
+        RollupWatermark watermark = lockWatermark(CHATS);
+        long upToId = watermark.getSeenId();
+        if (upToId > watermark.getLastId()) {
+            rollupRepository.rollUpChatsHourly(watermark.getLastId(), upToId);
+            rollupRepository.rollUpChatsDaily(watermark.getLastId(), upToId);
+            logger.debug("Rolled up chats {} to {}", watermark.getLastId() + 1, upToId);
+        }
+        advance(watermark, upToId, rollupRepository.findMaxChatId());
+    }
+
+    /**
+     * Recomputes the rollups from the rows currently in the source tables. Chats that have since been deleted drop
+     * out of the rollups; between rebuilds, a chat deleted after it was rolled up stays counted. Sessions are only
+     * recomputed from the day {@link #sessionsRebuiltFrom} returns, as older ones may have been removed by retention,
+     * and the older buckets are kept.
+     *
+     * <p>Like a scheduled run, the rebuild only goes up to the highest ID the previous run saw, and leaves the rows
+     * after it to the next runs, so that transactions that took a lower ID still have time to commit.
+     */
+    public void rebuild() {
+        transactionTemplate.executeWithoutResult(status -> {
+            RollupWatermark sessions = lockWatermark(SESSIONS);
+            RollupWatermark chats = lockWatermark(CHATS);
+
+            long sessionsUpToId = sessions.getSeenId();
+            LocalDateTime sessionsFrom = sessionsRebuiltFrom(LocalDateTime.now(), sessionKeepDays);
+            // Sessions not rolled up yet go into the buckets kept too, before the newer buckets are recomputed
+            rollupRepository.rollUpSessionsHourly(sessions.getLastId(), sessionsUpToId);
+            rollupRepository.rollUpSessionsDaily(sessions.getLastId(), sessionsUpToId);
+            rollupRepository.clearSessionsHourlyFrom(sessionsFrom);
+            rollupRepository.clearSessionsDailyFrom(sessionsFrom.toLocalDate());
+            rollupRepository.rollUpSessionsHourlySince(sessionsFrom, sessionsUpToId);
+            rollupRepository.rollUpSessionsDailySince(sessionsFrom, sessionsUpToId);
+            advance(sessions, sessionsUpToId, rollupRepository.findMaxSessionId());
+
+            rollupRepository.clearChatsHourly();
+            rollupRepository.clearChatsDaily();
+
+            long chatsUpToId = chats.getSeenId();
+            rollupRepository.rollUpChatsHourly(0, chatsUpToId);
+            rollupRepository.rollUpChatsDaily(0, chatsUpToId);
+            advance(chats, chatsUpToId, rollupRepository.findMaxChatId());
+            logger.info("Rebuilt activity rollups up to session {} and chat {}", sessionsUpToId, chatsUpToId);
+        });
+    }
+
+    /**
+     * Returns the session counts per hour or day and age group between two days, both inclusive.
+     */
+    @Transactional(readOnly = true)
+    public List<SessionActivityCount> getSessionActivity(LocalDate from, LocalDate to, Granularity granularity) {
+        return granularity == Granularity.HOUR
+            ? rollupRepository.findSessionsHourly(from.atStartOfDay(), to.atTime(LocalTime.MAX))
+            : rollupRepository.findSessionsDaily(from, to);
+    }
+
+    /**
+     * Returns the chat counts per hour or day, category and age group between two days, both inclusive.
+     */
+    @Transactional(readOnly = true)
+    public List<ChatActivityCount> getChatActivity(LocalDate from, LocalDate to, Granularity granularity) {
+        return granularity == Granularity.HOUR
+            ? rollupRepository.findChatsHourly(from.atStartOfDay(), to.atTime(LocalTime.MAX))
+            : rollupRepository.findChatsDaily(from, to);
+    }
+
+    /**
+     * Returns the start of the first day all of whose sessions retention still keeps: a session is only removed
+     * {@code keepDays} after it expires, and it cannot expire before it was created.
+     *
+     * @param now      The time of the rebuild.
+     * @param keepDays The days retention keeps sessions past their expiry, or 0 if it keeps them all.
+     */
+    static LocalDateTime sessionsRebuiltFrom(LocalDateTime now, int keepDays) {
+        if (keepDays <= 0) {
+            return ALL_SESSIONS;
+        }
+        return now.minusDays(keepDays).toLocalDate().plusDays(1).atStartOfDay();
+    }
+
+    private RollupWatermark lockWatermark(String source) {
+        return rollupRepository.lockBySource(source)
+            .orElseGet(() -> rollupRepository.save(new RollupWatermark(source, 0, 0)));
+    }
+
+    private void advance(RollupWatermark watermark, long lastId, long seenId) {
+        watermark.setLastId(lastId);
+        watermark.setSeenId(Math.max(lastId, seenId));
+        watermark.setRolledUpAt(LocalDateTime.now());
+        rollupRepository.save(watermark);
+    }
+}
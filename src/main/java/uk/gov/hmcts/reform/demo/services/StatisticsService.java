@@ -0,0 +1,424 @@
+package uk.gov.hmcts.reform.demo.services;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import uk.gov.hmcts.reform.demo.dto.CategoryAgeGroupCount;
+import uk.gov.hmcts.reform.demo.dto.CategorySketchRow;
+import uk.gov.hmcts.reform.demo.dto.CategoryUserDayRow;
+import uk.gov.hmcts.reform.demo.dto.ChatCategoryRow;
+import uk.gov.hmcts.reform.demo.dto.UserBirthDateRow;
+import uk.gov.hmcts.reform.demo.entities.CategoryStatistics;
+import uk.gov.hmcts.reform.demo.entities.Chat;
+import uk.gov.hmcts.reform.demo.entities.User;
+import uk.gov.hmcts.reform.demo.repositories.ChatRepository;
+import uk.gov.hmcts.reform.demo.repositories.StatisticsSummaryRepository;
+import uk.gov.hmcts.reform.demo.repositories.UserRepository;
+import uk.gov.hmcts.reform.demo.utils.AgeGroups;
+import uk.gov.hmcts.reform.demo.utils.HyperLogLog;
+import uk.gov.hmcts.reform.demo.utils.Transactions;
+
+/**
+ * Maintains the chat category summary tables as chats are created. Time-bucketed activity is rolled up separately
+ * by {@link StatisticsRollupService}.
+ *
+ * <p>Events are counted in memory once their transaction commits, in {@link LongAdder} and {@link LongAccumulator}
+ * cells that are striped across threads, so recording never contends on a lock or touches the database. A scheduled
+ * flush adds the counts to the summary tables in one transaction and only then takes them off the accumulators, so
+ * a failed flush is retried on the next run. The endpoints therefore lag by up to one flush interval.
+ *
+ * <p>Alongside the exact distinct user counts, each category keeps a {@link HyperLogLog} sketch of its users per age
+ * group and day. Sketches are merged into the stored ones rather than added, so flushes from several nodes, retries
+ * and rebuilds cannot count a user twice, and any range of days can be estimated by merging its sketches.
+ *
+ * <p>Deleting chats or users does not update the summaries; {@link #rebuild()} recomputes them from the source
+ * tables.
+ */
+@Service
+public class StatisticsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StatisticsService.class);
+
+    private final StatisticsSummaryRepository summaryRepository;
+    private final UserRepository userRepository;
+    private final ChatRepository chatRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Map<Integer, CategoryAccumulator> categories = new ConcurrentHashMap<>();
+    private final Set<CategoryUser> pendingCategoryUsers = ConcurrentHashMap.newKeySet();
+    private final Map<SketchKey, HyperLogLog> pendingSketches = new ConcurrentHashMap<>();
+    /**
+     * The chats counted while a rebuild runs, kept apart from the accumulators until it knows which it included.
+     */
+    private volatile Queue<RecordedChat> recordedDuringRebuild;
+
+    private final Timer flushTimer;
+    private final Timer rebuildTimer;
+
+    public StatisticsService(StatisticsSummaryRepository summaryRepository,
+                             UserRepository userRepository,
+                             ChatRepository chatRepository,
+                             PlatformTransactionManager transactionManager,
+                             MeterRegistry meterRegistry) {
+        this.summaryRepository = summaryRepository;
+        this.userRepository = userRepository;
+        this.chatRepository = chatRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+
+        this.flushTimer = Timer.builder("statistics.flush")
+            .description("Time to write accumulated statistics to the summary tables")
+            .register(meterRegistry);
+        this.rebuildTimer = Timer.builder("statistics.rebuild")
+            .description("Time to rebuild the statistics summary tables from scratch")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Counts a new chat towards its category once the current transaction commits. A chat saved without a category
+     * is given one by the database, and is only counted by the next {@link #rebuild()}.
+     *
+     * @param chat The chat that was created.
+     */
+    public void recordChat(Chat chat) {
+        if (chat.getCategory() == null || chat.getCategory().getId() == null) {
+            logger.debug("Chat {} has no category yet, leaving it to the next rebuild", chat.getId());
+            return;
+        }
+        Integer categoryId = chat.getCategory().getId();
+        Transactions.afterCommit(() -> {
+            LocalDateTime createdAt = chat.getCreatedAt() != null ? chat.getCreatedAt() : LocalDateTime.now();
+            long millis = toMillis(createdAt);
+            Queue<RecordedChat> duringRebuild = recordedDuringRebuild;
+            if (duringRebuild != null) {
+                duringRebuild.add(new RecordedChat(categoryId, chat.getId(), millis));
+            } else {
+                countChat(categoryId, millis);
+            }
+
+            User user = chat.getUser();
+            if (user != null && user.getId() != null && user.getDateOfBirth() != null) {
+                String ageGroup = AgeGroups.of(user.getDateOfBirth(), createdAt.toLocalDate());
+                pendingCategoryUsers.add(new CategoryUser(categoryId, user.getId(), ageGroup));
+                // compute() runs atomically with the flush's remove(), so no add is lost to a sketch being written
+                pendingSketches.compute(
+                    new SketchKey(categoryId, ageGroup, createdAt.toLocalDate()), (key, sketch) -> {
+                        HyperLogLog updated = sketch != null ? sketch : new HyperLogLog();
+                        updated.add(user.getId());
+                        return updated;
+                    });
+            }
+        });
+    }
+
+    private void countChat(Integer categoryId, long millis) {
+        CategoryAccumulator category = categories.computeIfAbsent(categoryId, key -> new CategoryAccumulator());
+        // Timestamps first, so a flush that sees the chat also sees when it happened
+        category.firstQueryAt.accumulate(millis);
+        category.lastQueryAt.accumulate(millis);
+        category.chats.increment();
+    }
+
+    /**
+     * Writes the counts accumulated since the last flush to the summary tables.
+     */
+    @Scheduled(fixedDelayString = "${statistics.flush-interval-ms:5000}",
+        initialDelayString = "${statistics.flush-interval-ms:5000}")
+    public synchronized void flush() {
+        try {
+            flushTimer.record(this::flushAccumulators);
+        } catch (RuntimeException e) {
+            // The counts stay on the accumulators for the next run
+            logger.error("Failed to flush statistics: {}", e.getMessage());
+        }
+    }
+
+    private void flushAccumulators() {
+        List<CategoryDelta> categoryDeltas = pendingCategoryDeltas();
+        List<CategoryUser> categoryUsers = new ArrayList<>(pendingCategoryUsers);
+        Map<SketchKey, HyperLogLog> sketches = new TreeMap<>(SketchKey.ORDER);
+        for (SketchKey key : pendingSketches.keySet()) {
+            HyperLogLog sketch = pendingSketches.remove(key);
+            if (sketch != null) {
+                sketches.put(key, sketch);
+            }
+        }
+        if (categoryDeltas.isEmpty() && categoryUsers.isEmpty() && sketches.isEmpty()) {
+            return;
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                for (CategoryDelta delta : categoryDeltas) {
+                    summaryRepository.addCategoryChats(
+                        delta.categoryId(), delta.chats(),
+                        fromMillis(delta.accumulator().firstQueryAt.get()),
+                        fromMillis(delta.accumulator().lastQueryAt.get()));
+                }
+                for (CategoryUser user : categoryUsers) {
+                    summaryRepository.addCategoryUser(user.categoryId(), user.userId(), user.ageGroup());
+                }
+                // In key order, so nodes flushing at the same time lock the sketch rows in the same order
+                sketches.forEach(this::mergeSketch);
+            });
+        } catch (RuntimeException e) {
+            // Sketches were taken off the map rather than subtracted from, so put them back for the next run
+            sketches.forEach((key, sketch) -> pendingSketches.merge(key, sketch, HyperLogLog::merge));
+            throw e;
+        }
+
+        takeOffAccumulators(categoryDeltas, categoryUsers);
+
+        logger.debug("Flushed statistics for {} categories, {} category users and {} sketches",
+                     categoryDeltas.size(), categoryUsers.size(), sketches.size());
+    }
+
+    /**
+     * Recomputes every category summary table from the {@code chats} and {@code users} tables. Readers keep seeing
+     * the old summaries until the rebuild commits.
+     *
+     * <p>The chat counts are recomputed up to the highest chat ID when the rebuild starts. The counts accumulated
+     * before then are of committed chats, so the rebuild includes them and drops them once it commits. Chats counted
+     * while it runs are held apart with their IDs: those up to its highest ID are dropped too, and the rest go back
+     * on the accumulators for the next flush. A chat whose transaction took a lower ID but had not committed when
+     * the chats were counted is left to the next rebuild. If the rebuild fails, everything is kept for the next
+     * flush. Pending sketches and users are kept either way, as adding them again cannot count anyone twice.
+     */
+    public synchronized void rebuild() {
+        rebuildTimer.record(() -> {
+            Queue<RecordedChat> duringRebuild = new ConcurrentLinkedQueue<>();
+            recordedDuringRebuild = duringRebuild;
+            long upToId = Long.MIN_VALUE;
+            try {
+                List<CategoryDelta> categoryDeltas = pendingCategoryDeltas();
+                List<CategoryUser> categoryUsers = new ArrayList<>(pendingCategoryUsers);
+                long maxChatId = chatRepository.findMaxId();
+
+                transactionTemplate.executeWithoutResult(status -> {
+                    summaryRepository.clearCategoryStatistics();
+                    summaryRepository.clearCategoryUsers();
+                    summaryRepository.clearCategoryAgeGroups();
+                    int categoryCount = summaryRepository.rebuildCategoryStatistics(maxChatId);
+                    summaryRepository.rebuildCategoryUsers();
+                    summaryRepository.rebuildCategoryAgeGroups();
+                    summaryRepository.clearSketches();
+                    int sketchCount = writeSketchesFromChats();
+                    logger.info("Rebuilt statistics for {} categories and {} sketches up to chat {}",
+                                categoryCount, sketchCount, maxChatId);
+                });
+
+                takeOffAccumulators(categoryDeltas, categoryUsers);
+                upToId = maxChatId;
+            } finally {
+                recordedDuringRebuild = null;
+                for (RecordedChat chat : duringRebuild) {
+                    if (chat.chatId() == null || chat.chatId() > upToId) {
+                        countChat(chat.categoryId(), chat.createdAtMillis());
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Reads the chat counts accumulated per category since the last flush.
+     */
+    private List<CategoryDelta> pendingCategoryDeltas() {
+        List<CategoryDelta> categoryDeltas = new ArrayList<>();
+        categories.forEach((categoryId, accumulator) -> {
+            long chats = accumulator.chats.sum();
+            if (chats != 0) {
+                categoryDeltas.add(new CategoryDelta(categoryId, accumulator, chats));
+            }
+        });
+        return categoryDeltas;
+    }
+
+    /**
+     * Takes counts that are now in the summary tables off the accumulators. Subtracts rather than resets, so events
+     * recorded in the meantime are kept for the next flush.
+     */
+    private void takeOffAccumulators(List<CategoryDelta> categoryDeltas, List<CategoryUser> categoryUsers) {
+        categoryDeltas.forEach(delta -> delta.accumulator().chats.add(-delta.chats()));
+        categoryUsers.forEach(pendingCategoryUsers::remove);
+    }
+
+    /**
+     * Fills {@code category_user_sketches} from the chats table on startup if it is empty, as its migration cannot.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void backfillSketches() {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (!summaryRepository.existsAnySketch()) {
+                    logger.info("Backfilled {} category user sketches", writeSketchesFromChats());
+                }
+            });
+        } catch (RuntimeException e) {
+            logger.error("Failed to backfill category user sketches: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Streams the chats a day at a time, merging each day's sketches into the stored ones.
+     *
+     * @return The number of sketches written.
+     */
+    private int writeSketchesFromChats() {
+        Map<SketchKey, HyperLogLog> daySketches = new TreeMap<>(SketchKey.ORDER);
+        int written = 0;
+        try (Stream<CategoryUserDayRow> rows = summaryRepository.streamCategoryUserDays()) {
+            LocalDate day = null;
+            for (CategoryUserDayRow row : (Iterable<CategoryUserDayRow>) rows::iterator) {
+                if (!row.getDay().equals(day)) {
+                    daySketches.forEach(this::mergeSketch);
+                    written += daySketches.size();
+                    daySketches.clear();
+                    day = row.getDay();
+                }
+                daySketches.computeIfAbsent(new SketchKey(row.getCategoryId(), row.getAgeGroup(), row.getDay()),
+                                            key -> new HyperLogLog()).add(row.getUserId());
+            }
+        }
+        daySketches.forEach(this::mergeSketch);
+        return written + daySketches.size();
+    }
+
+    /**
+     * Merges a sketch into the stored one for its key, inserting it if there is none.
+     */
+    private void mergeSketch(SketchKey key, HyperLogLog sketch) {
+        byte[] bytes = sketch.toBytes();
+        if (summaryRepository.insertSketchIfAbsent(key.categoryId(), key.ageGroup(), key.day(), bytes) == 0) {
+            HyperLogLog stored = HyperLogLog.fromBytes(
+                summaryRepository.lockSketch(key.categoryId(), key.ageGroup(), key.day()));
+            summaryRepository.updateSketch(
+                key.categoryId(), key.ageGroup(), key.day(), stored.merge(sketch).toBytes());
+        }
+    }
+
+    /**
+     * Rebuilds the summaries on the {@code statistics.rebuild-cron} schedule, which is off by default.
+     */
+    @Scheduled(cron = "${statistics.rebuild-cron:-}")
+    public void scheduledRebuild() {
+        rebuild();
+    }
+
+    /**
+     * Returns every chat category, most chats first.
+     */
+    @Transactional(readOnly = true)
+    public List<CategoryStatistics> getCategories() {
+        return summaryRepository.findAllByOrderByChatCountDesc();
+    }
+
+    /**
+     * Returns the number of distinct users per age group for every category, including {@code "under 20"}.
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Map<String, Long>> getCategoryAgeGroups() {
+        Map<String, Map<String, Long>> result = new LinkedHashMap<>();
+        for (CategoryAgeGroupCount row : summaryRepository.findCategoryAgeGroups()) {
+            result.computeIfAbsent(row.getCategory(), key -> new LinkedHashMap<>())
+                .put(row.getAgeGroup(), row.getUsers());
+        }
+        return result;
+    }
+
+    /**
+     * Estimates the number of distinct users per age group for every category who chatted between two days, both
+     * inclusive, including {@code "under 20"}. Each estimate is within about 1.6% of the exact count, with the
+     * relative standard error of {@link HyperLogLog#DEFAULT_PRECISION}.
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Map<String, Long>> estimateCategoryAgeGroups(LocalDate from, LocalDate to) {
+        Map<String, Map<String, HyperLogLog>> merged = new LinkedHashMap<>();
+        for (CategorySketchRow row : summaryRepository.findSketches(from, to)) {
+            merged.computeIfAbsent(row.getCategory(), key -> new LinkedHashMap<>())
+                .merge(row.getAgeGroup(), HyperLogLog.fromBytes(row.getSketch()), HyperLogLog::merge);
+        }
+
+        Map<String, Map<String, Long>> result = new LinkedHashMap<>();
+        merged.forEach((category, sketches) -> {
+            Map<String, Long> estimates = new LinkedHashMap<>();
+            sketches.forEach((ageGroup, sketch) -> estimates.put(ageGroup, sketch.estimate()));
+            result.put(category, estimates);
+        });
+        return result;
+    }
+
+    /**
+     * Computes the category breakdown straight from the {@code users} and {@code chats} tables, bypassing the
+     * summaries. Each user is in the age group they were in at their first chat in the category, as in the summaries.
+     * Both tables are streamed once through a cursor.
+     *
+     * @param topCategories The number of categories to include, most chats first.
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Map<String, Double>> recomputeCategoryBreakdown(int topCategories) {
+        CategoryBreakdownCalculator calculator = new CategoryBreakdownCalculator((int) userRepository.count());
+        try (Stream<UserBirthDateRow> users = userRepository.streamBirthDates()) {
+            users.forEach(user -> calculator.addUser(user.getId(), user.getDateOfBirth()));
+        }
+        try (Stream<ChatCategoryRow> chats = chatRepository.streamCategories()) {
+            LocalDate today = LocalDate.now();
+            chats.forEach(chat -> calculator.addChat(chat.getUserId(), chat.getCategory(),
+                chat.getCreatedAt() != null ? chat.getCreatedAt().toLocalDate() : today));
+        }
+        return calculator.breakdown(topCategories);
+    }
+
+    private static long toMillis(LocalDateTime dateTime) {
+        return dateTime.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private static LocalDateTime fromMillis(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneOffset.UTC);
+    }
+
+    private static final class CategoryAccumulator {
+        private final LongAdder chats = new LongAdder();
+        private final LongAccumulator firstQueryAt = new LongAccumulator(Math::min, Long.MAX_VALUE);
+        private final LongAccumulator lastQueryAt = new LongAccumulator(Math::max, Long.MIN_VALUE);
+    }
+
+    private record CategoryUser(Integer categoryId, Long userId, String ageGroup) {
+    }
+
+    private record SketchKey(Integer categoryId, String ageGroup, LocalDate day) {
+        private static final Comparator<SketchKey> ORDER = Comparator.comparing(SketchKey::categoryId)
+            .thenComparing(SketchKey::ageGroup)
+            .thenComparing(SketchKey::day);
+    }
+
+    private record CategoryDelta(Integer categoryId, CategoryAccumulator accumulator, long chats) {
+    }
+
+    private record RecordedChat(Integer categoryId, Long chatId, long createdAtMillis) {
+    }
+}
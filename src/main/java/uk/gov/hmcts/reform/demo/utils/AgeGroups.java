@@ -0,0 +1,55 @@
+package uk.gov.hmcts.reform.demo.utils;
+
+import java.time.LocalDate;
+import java.time.Period;
+import java.util.List;
+
+/**
+ * The age groups every statistic splits users into, by their age in whole years on the day of the session or chat
+ * being counted. Native queries use the {@code age_group(date_of_birth, at)} database function, which is the same
+ * definition.
+ */
+public final class AgeGroups {
+
+    public static final String UNDER_20 = "under 20";
+
+    /**
+     * Every age group, youngest first. An age bucket is a position in this list.
+     */
+    public static final List<String> ALL = List.of(UNDER_20, "20-30", "31-40", "41-50", "51+");
+
+    /**
+     * The age groups from 20 up, which the category breakdown reports as percentages; users under 20 count towards
+     * its totals only.
+     */
+    public static final List<String> FROM_20 = ALL.subList(1, ALL.size());
+
+    public static final int UNDER_20_BUCKET = 0;
+
+    private AgeGroups() {
+    }
+
+    /**
+     * The age bucket of a user on a given day: their age group's position in {@link #ALL}.
+     */
+    public static int bucket(LocalDate dateOfBirth, LocalDate on) {
+        int age = Period.between(dateOfBirth, on).getYears();
+        if (age < 20) {
+            return UNDER_20_BUCKET;
+        } else if (age <= 30) {
+            return 1;
+        } else if (age <= 40) {
+            return 2;
+        } else if (age <= 50) {
+            return 3;
+        }
+        return 4;
+    }
+
+    /**
+     * The age group of a user on a given day.
+     */
+    public static String of(LocalDate dateOfBirth, LocalDate on) {
+        return ALL.get(bucket(dateOfBirth, on));
+    }
+}
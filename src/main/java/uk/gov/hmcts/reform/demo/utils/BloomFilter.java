@@ -0,0 +1,128 @@
+package uk.gov.hmcts.reform.demo.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter of strings, such as usernames, for telling cheaply that a value has definitely not been added.
+ *
+ * <p>Sized for {@code n} values at a false positive rate {@code p}, the filter keeps {@code m = -n ln p / (ln 2)^2}
+ * bits and sets {@code k = m / n ln 2} of them per value: about 9.6 bits and 7 hashes per value at 1%. The bit
+ * indexes come from two 64-bit hashes of the value combined as {@code h1 + i * h2} (Kirsch and Mitzenmacher), so each
+ * value is hashed only once. Values cannot be removed. Safe for concurrent use: bits are set with compare-and-set,
+ * and a value is visible to {@link #mightContain} once {@link #put} returns.
+ */
+public final class BloomFilter {
+
+    private final AtomicLongArray words;
+    private final long bits;
+    private final int hashFunctions;
+    private final AtomicLong setBits = new AtomicLong();
+
+    /**
+     * Creates a filter sized for a number of values at a target false positive rate.
+     *
+     * @param expectedValues    The number of values the filter is sized for; more may be added at a higher rate.
+     * @param falsePositiveRate The target false positive rate once that many values are added, between 0 and 1.
+     */
+    public BloomFilter(long expectedValues, double falsePositiveRate) {
+        if (expectedValues < 1) {
+            throw new IllegalArgumentException("Expected values must be positive: " + expectedValues);
+        }
+        if (!(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+            throw new IllegalArgumentException("False positive rate must be between 0 and 1: " + falsePositiveRate);
+        }
+        long words = (long) Math.ceil(-expectedValues * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2))
+                                          / Long.SIZE);
+        if (words > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Filter too large for " + expectedValues + " values");
+        }
+        this.words = new AtomicLongArray((int) Math.max(1, words));
+        this.bits = (long) this.words.length() * Long.SIZE;
+        this.hashFunctions = Math.max(1, (int) Math.round((double) bits / expectedValues * Math.log(2)));
+    }
+
+    /**
+     * Adds a value to the filter.
+     */
+    public void put(String value) {
+        long hash1 = hash(value);
+        long hash2 = mix(hash1 ^ 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < hashFunctions; i++) {
+            long bit = Long.remainderUnsigned(hash1 + i * hash2, bits);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current = words.get(word);
+            while ((current & mask) == 0) {
+                long witness = words.compareAndExchange(word, current, current | mask);
+                if (witness == current) {
+                    setBits.incrementAndGet();
+                    break;
+                }
+                current = witness;
+            }
+        }
+    }
+
+    /**
+     * Returns false if the value has definitely not been added, and true if it probably has.
+     */
+    public boolean mightContain(String value) {
+        long hash1 = hash(value);
+        long hash2 = mix(hash1 ^ 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < hashFunctions; i++) {
+            long bit = Long.remainderUnsigned(hash1 + i * hash2, bits);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the false positive rate expected from the bits set so far: the chance that all of a value's bits are
+     * set when it was never added.
+     */
+    public double expectedFalsePositiveRate() {
+        return Math.pow((double) setBits.get() / bits, hashFunctions);
+    }
+
+    public long getBits() {
+        return bits;
+    }
+
+    public int getHashFunctions() {
+        return hashFunctions;
+    }
+
+    /**
+     * FNV-1a over the characters of the value, finished with {@link #mix} so that every bit of the hash depends on
+     * every character.
+     */
+    private static long hash(String value) {
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001B3L;
+        }
+        return mix(hash);
+    }
+
+    /**
+     * MurmurHash3's 64-bit finaliser.
+     */
+    private static long mix(long value) {
+        long hash = value;
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return "BloomFilter{bits=" + bits + ", hashFunctions=" + hashFunctions + "}";
+    }
+}
@@ -0,0 +1,6 @@
+-- Indexes for removing a user's sessions and reset tokens in batches, built concurrently as in
+-- V2__performance_indexes.sql.
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_sessions_user_id ON sessions (user_id);
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_password_reset_tokens_user_id ON password_reset_tokens (user_id);
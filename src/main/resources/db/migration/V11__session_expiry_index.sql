@@ -0,0 +1,2 @@
+-- Expired sessions, for RetentionService's purge, built concurrently as in V2__performance_indexes.sql.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_sessions_expires_at ON sessions (expires_at);
@@ -0,0 +1,93 @@
+-- Functions for keeping sessions and messages range-partitioned by the month of created_at, so that months past
+-- their retention can be dropped whole instead of deleted row by row, and queries over a time range only read the
+-- months they cover.
+--
+-- The tables themselves are only partitioned by db/partitioning/partition_sessions_and_messages.sql, which is run by
+-- hand in a maintenance window; see that script. Until then these functions find no partitions: creating them does
+-- nothing and returns 0, and retention and the chat archiver delete rows in batches instead of dropping months.
+
+-- Creates the missing monthly partitions of a table, named <table>_pYYYY_MM, from one month to another inclusive,
+-- and returns how many it created, none if the table is not partitioned
+CREATE FUNCTION create_monthly_partitions(parent TEXT, from_month DATE, to_month DATE) RETURNS INT
+    LANGUAGE plpgsql
+AS $$
+DECLARE
+    partition_start DATE := date_trunc('month', from_month);
+    partition_name TEXT;
+    created INT := 0;
+BEGIN
+    -- Not partitioned yet
+    IF NOT EXISTS (SELECT 1 FROM pg_partitioned_table WHERE partrelid = to_regclass(parent)) THEN
+        RETURN 0;
+    END IF;
+    WHILE partition_start <= to_month LOOP
+        partition_name := format('%s_p%s', parent, to_char(partition_start, 'YYYY_MM'));
+        IF to_regclass(partition_name) IS NULL THEN
+            EXECUTE format('CREATE TABLE IF NOT EXISTS %I PARTITION OF %I FOR VALUES FROM (%L) TO (%L)',
+                           partition_name, parent, partition_start, partition_start + INTERVAL '1 month');
+            created := created + 1;
+        END IF;
+        partition_start := partition_start + INTERVAL '1 month';
+    END LOOP;
+    RETURN created;
+END
+$$;
+
+-- The monthly partitions of a table, with the month each starts
+CREATE FUNCTION monthly_partitions(parent TEXT) RETURNS TABLE (partition_name TEXT, range_start DATE)
+    LANGUAGE sql STABLE
+AS $$
+SELECT CAST(c.relname AS TEXT), to_date(substring(c.relname FROM '_p(\d{4}_\d{2})$'), 'YYYY_MM')
+FROM pg_inherits i
+JOIN pg_class c ON c.oid = i.inhrelid
+WHERE i.inhparent = to_regclass(parent) AND c.relname ~ ('^' || parent || '_p\d{4}_\d{2}$')
+ORDER BY 2
+$$;
+
+-- Drops the monthly partitions of sessions that hold only sessions expired before a time and already counted in the
+-- activity rollups, and returns the number of sessions they held
+CREATE FUNCTION drop_expired_session_partitions(cutoff TIMESTAMP) RETURNS BIGINT
+    LANGUAGE plpgsql
+AS $$
+DECLARE
+    rolled_up_to BIGINT := COALESCE((SELECT last_id FROM rollup_watermarks WHERE source = 'sessions'), 0);
+    part RECORD;
+    held BIGINT;
+    kept BIGINT;
+    dropped BIGINT := 0;
+BEGIN
+    FOR part IN SELECT partition_name FROM monthly_partitions('sessions')
+                WHERE range_start + INTERVAL '1 month' <= cutoff LOOP
+        EXECUTE format('SELECT count(*), count(*) FILTER (WHERE expires_at >= $1 OR id > $2) FROM %I',
+                       part.partition_name)
+            INTO held, kept USING cutoff, rolled_up_to;
+        IF kept = 0 THEN
+            EXECUTE format('DROP TABLE %I', part.partition_name);
+            dropped := dropped + held;
+        END IF;
+    END LOOP;
+    RETURN dropped;
+END
+$$;
+
+-- Drops the monthly partitions of messages that ended before a time and have been emptied by the chat archiver and
+-- purger, and returns how many it dropped
+CREATE FUNCTION drop_empty_message_partitions(ends_before TIMESTAMP) RETURNS INT
+    LANGUAGE plpgsql
+AS $$
+DECLARE
+    part RECORD;
+    has_rows BOOLEAN;
+    dropped INT := 0;
+BEGIN
+    FOR part IN SELECT partition_name FROM monthly_partitions('messages')
+                WHERE range_start + INTERVAL '1 month' <= ends_before LOOP
+        EXECUTE format('SELECT EXISTS (SELECT 1 FROM %I)', part.partition_name) INTO has_rows;
+        IF NOT has_rows THEN
+            EXECUTE format('DROP TABLE %I', part.partition_name);
+            dropped := dropped + 1;
+        END IF;
+    END LOOP;
+    RETURN dropped;
+END
+$$;
@@ -0,0 +1,13 @@
+-- Keeps the messages of archived chats findable by /chat/search. ChatArchiveService copies each message's search
+-- vector here as it moves the message into the chat's archive; the text itself is only kept in the archive, which is
+-- read for the snippets of the hits on a page. The rows go with their archive when the chat is promoted or purged.
+CREATE TABLE archived_message_search (
+                                       chat_id INT NOT NULL REFERENCES chat_archives(chat_id) ON DELETE CASCADE,
+                                       message_id BIGINT NOT NULL,
+                                       sender VARCHAR(50) NOT NULL,
+                                       created_at TIMESTAMP NOT NULL,
+                                       search_vector TSVECTOR NOT NULL,
+                                       PRIMARY KEY (chat_id, message_id)
+);
+
+CREATE INDEX idx_archived_message_search_vector ON archived_message_search USING GIN (search_vector);
@@ -0,0 +1,23 @@
+-- One definition of a user's age group for every statistic: their age in whole years on the day of the session or
+-- chat being counted. AgeGroups is the same definition in Java. Written as a single SQL expression so that the
+-- planner inlines it into the queries that call it.
+CREATE FUNCTION age_group(date_of_birth DATE, happened_at TIMESTAMP) RETURNS TEXT
+    LANGUAGE sql IMMUTABLE PARALLEL SAFE
+AS $$
+SELECT CASE
+           WHEN EXTRACT(YEAR FROM age(CAST(happened_at AS DATE), date_of_birth)) < 20 THEN 'under 20'
+           WHEN EXTRACT(YEAR FROM age(CAST(happened_at AS DATE), date_of_birth)) <= 30 THEN '20-30'
+           WHEN EXTRACT(YEAR FROM age(CAST(happened_at AS DATE), date_of_birth)) <= 40 THEN '31-40'
+           WHEN EXTRACT(YEAR FROM age(CAST(happened_at AS DATE), date_of_birth)) <= 50 THEN '41-50'
+           ELSE '51+'
+       END
+$$;
+
+-- Session activity used its own labels; rename them. Sessions of users under 20 rolled up before now stay in 20-30
+-- until the rollups are rebuilt.
+UPDATE session_activity_hourly
+SET age_group = CASE age_group WHEN '20 to 30' THEN '20-30' WHEN '31 to 40' THEN '31-40'
+                               WHEN '41 to 50' THEN '41-50' WHEN '51 and over' THEN '51+' ELSE age_group END;
+UPDATE session_activity_daily
+SET age_group = CASE age_group WHEN '20 to 30' THEN '20-30' WHEN '31 to 40' THEN '31-40'
+                               WHEN '41 to 50' THEN '41-50' WHEN '51 and over' THEN '51+' ELSE age_group END;
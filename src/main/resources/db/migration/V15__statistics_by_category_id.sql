@@ -0,0 +1,45 @@
+-- The summary tables and chat rollups were keyed and grouped by the category's name, free text repeated in every
+-- row and index entry. Key them by the category's ID instead; queries join chat_categories for the name only when
+-- reading. Each category's name is unique, being the form of its unique canonical name, so rows map one to one.
+
+ALTER TABLE category_statistics ADD COLUMN category_id INTEGER;
+UPDATE category_statistics s SET category_id = cc.id FROM chat_categories cc WHERE cc.name = s.category;
+DELETE FROM category_statistics WHERE category_id IS NULL;
+ALTER TABLE category_statistics DROP COLUMN category;
+ALTER TABLE category_statistics ALTER COLUMN category_id SET NOT NULL;
+ALTER TABLE category_statistics ADD PRIMARY KEY (category_id);
+
+ALTER TABLE category_users ADD COLUMN category_id INTEGER;
+UPDATE category_users u SET category_id = cc.id FROM chat_categories cc WHERE cc.name = u.category;
+DELETE FROM category_users WHERE category_id IS NULL;
+ALTER TABLE category_users DROP COLUMN category;
+ALTER TABLE category_users ALTER COLUMN category_id SET NOT NULL;
+ALTER TABLE category_users ADD PRIMARY KEY (category_id, user_id);
+
+ALTER TABLE category_age_groups ADD COLUMN category_id INTEGER;
+UPDATE category_age_groups g SET category_id = cc.id FROM chat_categories cc WHERE cc.name = g.category;
+DELETE FROM category_age_groups WHERE category_id IS NULL;
+ALTER TABLE category_age_groups DROP COLUMN category;
+ALTER TABLE category_age_groups ALTER COLUMN category_id SET NOT NULL;
+ALTER TABLE category_age_groups ADD PRIMARY KEY (category_id, age_group);
+
+ALTER TABLE category_user_sketches ADD COLUMN category_id INTEGER;
+UPDATE category_user_sketches k SET category_id = cc.id FROM chat_categories cc WHERE cc.name = k.category;
+DELETE FROM category_user_sketches WHERE category_id IS NULL;
+ALTER TABLE category_user_sketches DROP COLUMN category;
+ALTER TABLE category_user_sketches ALTER COLUMN category_id SET NOT NULL;
+ALTER TABLE category_user_sketches ADD PRIMARY KEY (category_id, age_group, day);
+
+ALTER TABLE chat_activity_hourly ADD COLUMN category_id INTEGER;
+UPDATE chat_activity_hourly a SET category_id = cc.id FROM chat_categories cc WHERE cc.name = a.category;
+DELETE FROM chat_activity_hourly WHERE category_id IS NULL;
+ALTER TABLE chat_activity_hourly DROP COLUMN category;
+ALTER TABLE chat_activity_hourly ALTER COLUMN category_id SET NOT NULL;
+ALTER TABLE chat_activity_hourly ADD PRIMARY KEY (hour, category_id, age_group);
+
+ALTER TABLE chat_activity_daily ADD COLUMN category_id INTEGER;
+UPDATE chat_activity_daily a SET category_id = cc.id FROM chat_categories cc WHERE cc.name = a.category;
+DELETE FROM chat_activity_daily WHERE category_id IS NULL;
+ALTER TABLE chat_activity_daily DROP COLUMN category;
+ALTER TABLE chat_activity_daily ALTER COLUMN category_id SET NOT NULL;
+ALTER TABLE chat_activity_daily ADD PRIMARY KEY (day, category_id, age_group);
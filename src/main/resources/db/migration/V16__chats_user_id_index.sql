@@ -0,0 +1,3 @@
+-- Every chat of a user, deleted or not, for AccountDeletionService's batches; idx_chats_user_id only covers live
+-- chats. Built concurrently as in V2__performance_indexes.sql.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_chats_user_id_id ON chats (user_id, id);
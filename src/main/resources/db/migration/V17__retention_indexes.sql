@@ -0,0 +1,6 @@
+-- Rows past their retention, for RetentionService's purge, built concurrently as in V2__performance_indexes.sql.
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_password_reset_tokens_expires_at ON password_reset_tokens (expires_at);
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_account_requests_rejected_requested_at
+    ON account_requests (requested_at) WHERE status = 'REJECTED';
@@ -0,0 +1,3 @@
+-- Chats are soft-deleted: a deleted chat is hidden from every query and its messages are purged in the background.
+-- Written to be a no-op on a database that already has the column.
+ALTER TABLE chats ADD COLUMN IF NOT EXISTS deleted_at TIMESTAMP DEFAULT NULL;
@@ -0,0 +1,6 @@
+-- Full-text search over messages for /chat/search. Adding the stored generated column rewrites the messages table
+-- under an exclusive lock. Written to be a no-op on a database that already has the column and index.
+ALTER TABLE messages
+    ADD COLUMN IF NOT EXISTS search_vector TSVECTOR GENERATED ALWAYS AS (to_tsvector('english', message)) STORED;
+
+CREATE INDEX IF NOT EXISTS idx_messages_search_vector ON messages USING GIN (search_vector);
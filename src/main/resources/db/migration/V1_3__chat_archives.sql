@@ -0,0 +1,11 @@
+-- The messages of cold chats, moved out of the messages table as gzip-compressed NDJSON, and the time each chat was
+-- archived. Written to be a no-op on a database that already has them.
+ALTER TABLE chats ADD COLUMN IF NOT EXISTS archived_at TIMESTAMP DEFAULT NULL;
+
+CREATE TABLE IF NOT EXISTS chat_archives (
+                                           chat_id INT PRIMARY KEY,
+                                           message_count INT NOT NULL,
+                                           last_message_at TIMESTAMP,
+                                           archived_at TIMESTAMP NOT NULL,
+                                           payload BYTEA NOT NULL
+);
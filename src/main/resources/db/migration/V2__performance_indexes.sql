@@ -0,0 +1,20 @@
+-- Indexes for the columns the hot paths filter, join or group on. Built concurrently so that applying the
+-- migration to a live database does not block writes; see V2__performance_indexes.sql.conf.
+
+-- Chat history, purge batches and the idle-chat check for archival
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_messages_chat_id_created_at ON messages (chat_id, created_at);
+
+-- A user's chats; deleted chats are hidden from every entity query
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_chats_user_id ON chats (user_id) WHERE deleted_at IS NULL;
+
+-- Category statistics
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_chats_description ON chats (description);
+
+-- Chats waiting to be purged
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_chats_deleted_at ON chats (deleted_at) WHERE deleted_at IS NOT NULL;
+
+-- Session activity over time
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_sessions_created_at ON sessions (created_at);
+
+-- Pending account requests
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_account_requests_status ON account_requests (status);
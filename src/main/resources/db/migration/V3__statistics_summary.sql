@@ -0,0 +1,57 @@
+-- Summary tables behind the /statistics endpoints. StatisticsService keeps them up to date as chats and sessions
+-- are created, and rebuilds them from the source tables on demand. Age groups are taken at the time of the event.
+
+CREATE TABLE category_statistics (
+                                   category TEXT PRIMARY KEY,
+                                   chat_count BIGINT NOT NULL DEFAULT 0,
+                                   first_query_at TIMESTAMP,
+                                   last_query_at TIMESTAMP
+);
+
+-- Users who have chatted in a category, so each is counted once in category_age_groups
+CREATE TABLE category_users (
+                              category TEXT NOT NULL,
+                              user_id INT NOT NULL,
+                              age_group VARCHAR(20) NOT NULL,
+                              PRIMARY KEY (category, user_id)
+);
+
+CREATE TABLE category_age_groups (
+                                   category TEXT NOT NULL,
+                                   age_group VARCHAR(20) NOT NULL,
+                                   users BIGINT NOT NULL DEFAULT 0,
+                                   PRIMARY KEY (category, age_group)
+);
+
+CREATE TABLE session_activity_daily (
+                                      day DATE NOT NULL,
+                                      age_group VARCHAR(20) NOT NULL,
+                                      sessions BIGINT NOT NULL DEFAULT 0,
+                                      PRIMARY KEY (day, age_group)
+);
+
+-- Initial contents, the same statements as StatisticsSummaryRepository's rebuild
+INSERT INTO category_statistics (category, chat_count, first_query_at, last_query_at)
+SELECT description, count(*), min(created_at), max(created_at)
+FROM chats WHERE deleted_at IS NULL GROUP BY description;
+
+INSERT INTO category_users (category, user_id, age_group)
+SELECT DISTINCT ON (c.description, c.user_id) c.description, c.user_id,
+       CASE WHEN a.age < 20 THEN 'under 20' WHEN a.age <= 30 THEN '20-30' WHEN a.age <= 40 THEN '31-40'
+            WHEN a.age <= 50 THEN '41-50' ELSE '51+' END
+FROM chats c JOIN users u ON u.id = c.user_id
+CROSS JOIN LATERAL (SELECT EXTRACT(YEAR FROM c.created_at) - EXTRACT(YEAR FROM u.date_of_birth) AS age) a
+WHERE c.deleted_at IS NULL
+ORDER BY c.description, c.user_id, c.created_at;
+
+INSERT INTO category_age_groups (category, age_group, users)
+SELECT category, age_group, count(*) FROM category_users GROUP BY category, age_group;
+
+INSERT INTO session_activity_daily (day, age_group, sessions)
+SELECT CAST(s.created_at AS DATE),
+       CASE WHEN a.age <= 30 THEN '20 to 30' WHEN a.age <= 40 THEN '31 to 40'
+            WHEN a.age <= 50 THEN '41 to 50' ELSE '51 and over' END,
+       count(*)
+FROM sessions s JOIN users u ON u.id = s.user_id
+CROSS JOIN LATERAL (SELECT EXTRACT(YEAR FROM age(CAST(s.created_at AS DATE), u.date_of_birth)) AS age) a
+GROUP BY 1, 2;
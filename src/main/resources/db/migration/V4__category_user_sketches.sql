@@ -0,0 +1,12 @@
+-- HyperLogLog sketches of the users who chatted in each category, per age group and day, behind the approximate
+-- chat category breakdown. Sketches are merged rather than added, so nodes can flush into the same row and any range
+-- of days can be combined. They cannot be computed in SQL: StatisticsService fills the table from the chats table
+-- on startup while it is empty.
+
+CREATE TABLE category_user_sketches (
+                                      category TEXT NOT NULL,
+                                      age_group VARCHAR(20) NOT NULL,
+                                      day DATE NOT NULL,
+                                      sketch BYTEA NOT NULL,
+                                      PRIMARY KEY (category, age_group, day)
+);
@@ -0,0 +1,85 @@
+-- Hourly and daily rollups of sessions and chats by age group (and category for chats), behind the time-windowed
+-- /statistics endpoints. StatisticsRollupService adds rows past each source's watermark to the bucket of their
+-- created_at, so rows that arrive late still land in the right bucket. session_activity_daily, previously kept by
+-- StatisticsService, becomes the daily session rollup.
+
+CREATE TABLE session_activity_hourly (
+                                       hour TIMESTAMP NOT NULL,
+                                       age_group VARCHAR(20) NOT NULL,
+                                       sessions BIGINT NOT NULL DEFAULT 0,
+                                       PRIMARY KEY (hour, age_group)
+);
+
+CREATE TABLE chat_activity_hourly (
+                                    hour TIMESTAMP NOT NULL,
+                                    category TEXT NOT NULL,
+                                    age_group VARCHAR(20) NOT NULL,
+                                    chats BIGINT NOT NULL DEFAULT 0,
+                                    PRIMARY KEY (hour, category, age_group)
+);
+
+CREATE TABLE chat_activity_daily (
+                                   day DATE NOT NULL,
+                                   category TEXT NOT NULL,
+                                   age_group VARCHAR(20) NOT NULL,
+                                   chats BIGINT NOT NULL DEFAULT 0,
+                                   PRIMARY KEY (day, category, age_group)
+);
+
+-- last_id: rows up to here are in the rollups. seen_id: the highest ID at the previous run, rolled up on the next
+-- one so that transactions which took a lower ID have had time to commit.
+CREATE TABLE rollup_watermarks (
+                                 source VARCHAR(20) PRIMARY KEY,
+                                 last_id BIGINT NOT NULL,
+                                 seen_id BIGINT NOT NULL,
+                                 rolled_up_at TIMESTAMP
+);
+
+INSERT INTO rollup_watermarks (source, last_id, seen_id, rolled_up_at)
+SELECT 'sessions', COALESCE(max(id), 0), COALESCE(max(id), 0), now() FROM sessions;
+
+INSERT INTO rollup_watermarks (source, last_id, seen_id, rolled_up_at)
+SELECT 'chats', COALESCE(max(id), 0), COALESCE(max(id), 0), now() FROM chats;
+
+-- Initial contents, the same statements as StatisticsRollupRepository's roll-ups over every row
+DELETE FROM session_activity_daily;
+
+INSERT INTO session_activity_daily (day, age_group, sessions)
+SELECT CAST(s.created_at AS DATE),
+       CASE WHEN a.age <= 30 THEN '20 to 30' WHEN a.age <= 40 THEN '31 to 40'
+            WHEN a.age <= 50 THEN '41 to 50' ELSE '51 and over' END,
+       count(*)
+FROM sessions s JOIN users u ON u.id = s.user_id
+CROSS JOIN LATERAL (SELECT EXTRACT(YEAR FROM age(CAST(s.created_at AS DATE), u.date_of_birth)) AS age) a
+WHERE s.created_at IS NOT NULL AND s.id <= (SELECT last_id FROM rollup_watermarks WHERE source = 'sessions')
+GROUP BY 1, 2;
+
+INSERT INTO session_activity_hourly (hour, age_group, sessions)
+SELECT date_trunc('hour', s.created_at),
+       CASE WHEN a.age <= 30 THEN '20 to 30' WHEN a.age <= 40 THEN '31 to 40'
+            WHEN a.age <= 50 THEN '41 to 50' ELSE '51 and over' END,
+       count(*)
+FROM sessions s JOIN users u ON u.id = s.user_id
+CROSS JOIN LATERAL (SELECT EXTRACT(YEAR FROM age(CAST(s.created_at AS DATE), u.date_of_birth)) AS age) a
+WHERE s.created_at IS NOT NULL AND s.id <= (SELECT last_id FROM rollup_watermarks WHERE source = 'sessions')
+GROUP BY 1, 2;
+
+INSERT INTO chat_activity_daily (day, category, age_group, chats)
+SELECT CAST(c.created_at AS DATE), c.description,
+       CASE WHEN a.age < 20 THEN 'under 20' WHEN a.age <= 30 THEN '20-30' WHEN a.age <= 40 THEN '31-40'
+            WHEN a.age <= 50 THEN '41-50' ELSE '51+' END,
+       count(*)
+FROM chats c JOIN users u ON u.id = c.user_id
+CROSS JOIN LATERAL (SELECT EXTRACT(YEAR FROM c.created_at) - EXTRACT(YEAR FROM u.date_of_birth) AS age) a
+WHERE c.created_at IS NOT NULL AND c.id <= (SELECT last_id FROM rollup_watermarks WHERE source = 'chats')
+GROUP BY 1, 2, 3;
+
+INSERT INTO chat_activity_hourly (hour, category, age_group, chats)
+SELECT date_trunc('hour', c.created_at), c.description,
+       CASE WHEN a.age < 20 THEN 'under 20' WHEN a.age <= 30 THEN '20-30' WHEN a.age <= 40 THEN '31-40'
+            WHEN a.age <= 50 THEN '41-50' ELSE '51+' END,
+       count(*)
+FROM chats c JOIN users u ON u.id = c.user_id
+CROSS JOIN LATERAL (SELECT EXTRACT(YEAR FROM c.created_at) - EXTRACT(YEAR FROM u.date_of_birth) AS age) a
+WHERE c.created_at IS NOT NULL AND c.id <= (SELECT last_id FROM rollup_watermarks WHERE source = 'chats')
+GROUP BY 1, 2, 3;
@@ -0,0 +1,110 @@
+-- Chat categories as a dimension. Descriptions that differ only in case, runs of whitespace or trailing punctuation
+-- are one category, so chats reference it by a small integer and the statistics group on that rather than on the
+-- free text. ChatCategoryService resolves the category when a chat is created; the trigger below covers rows
+-- inserted without one. The two canonicalise descriptions the same way.
+
+-- The description with whitespace collapsed and trailing punctuation removed, as ChatCategory.displayName does.
+-- lower() of it is the canonical name.
+CREATE FUNCTION chat_category_name(description TEXT) RETURNS TEXT
+    LANGUAGE SQL IMMUTABLE PARALLEL SAFE
+AS $$
+    SELECT COALESCE(NULLIF(btrim(rtrim(regexp_replace(description, '\s+', ' ', 'g'), ' .!?,;:')), ''),
+                    description)
+$$;
+
+-- name: the form of the description first seen, shown in the statistics. canonical_name: the lower case of that,
+-- which every description in the category shares.
+CREATE TABLE chat_categories (
+                               id SERIAL PRIMARY KEY,
+                               name TEXT NOT NULL,
+                               canonical_name TEXT NOT NULL UNIQUE
+);
+
+-- Existing categories are named after their most common form
+INSERT INTO chat_categories (name, canonical_name)
+SELECT DISTINCT ON (lower(name)) name, lower(name)
+FROM (SELECT chat_category_name(description) AS name, count(*) AS chats FROM chats GROUP BY 1) forms
+ORDER BY lower(name), chats DESC, name;
+
+ALTER TABLE chats ADD COLUMN category_id INTEGER REFERENCES chat_categories (id);
+
+UPDATE chats c SET category_id = cc.id
+FROM chat_categories cc
+WHERE cc.canonical_name = lower(chat_category_name(c.description));
+
+ALTER TABLE chats ALTER COLUMN category_id SET NOT NULL;
+
+CREATE FUNCTION assign_chat_category() RETURNS TRIGGER
+    LANGUAGE plpgsql
+AS $$
+DECLARE
+    category_name TEXT := chat_category_name(NEW.description);
+BEGIN
+    SELECT id INTO NEW.category_id FROM chat_categories WHERE canonical_name = lower(category_name);
+    IF NEW.category_id IS NULL THEN
+        INSERT INTO chat_categories (name, canonical_name) VALUES (category_name, lower(category_name))
+        ON CONFLICT (canonical_name) DO NOTHING
+        RETURNING id INTO NEW.category_id;
+    END IF;
+    IF NEW.category_id IS NULL THEN
+        -- Another transaction added it first
+        SELECT id INTO NEW.category_id FROM chat_categories WHERE canonical_name = lower(category_name);
+    END IF;
+    RETURN NEW;
+END
+$$;
+
+CREATE TRIGGER chats_assign_category
+    BEFORE INSERT ON chats
+    FOR EACH ROW WHEN (NEW.category_id IS NULL)
+    EXECUTE FUNCTION assign_chat_category();
+
+-- The summaries and rollups were keyed by description, so rebuild them by category. The statements are
+-- StatisticsSummaryRepository's rebuild and StatisticsRollupRepository's roll-ups over every row; the sketches are
+-- refilled by StatisticsService on startup once the table is empty.
+DELETE FROM category_statistics;
+DELETE FROM category_users;
+DELETE FROM category_age_groups;
+DELETE FROM category_user_sketches;
+DELETE FROM chat_activity_hourly;
+DELETE FROM chat_activity_daily;
+
+INSERT INTO category_statistics (category, chat_count, first_query_at, last_query_at)
+SELECT cc.name, s.chats, s.first_query_at, s.last_query_at
+FROM (SELECT category_id, count(*) AS chats, min(created_at) AS first_query_at, max(created_at) AS last_query_at
+      FROM chats WHERE deleted_at IS NULL GROUP BY category_id) s
+JOIN chat_categories cc ON cc.id = s.category_id;
+
+INSERT INTO category_users (category, user_id, age_group)
+SELECT cc.name, f.user_id, f.age_group
+FROM (SELECT DISTINCT ON (c.category_id, c.user_id) c.category_id, c.user_id,
+             CASE WHEN a.age < 20 THEN 'under 20' WHEN a.age <= 30 THEN '20-30' WHEN a.age <= 40 THEN '31-40'
+                  WHEN a.age <= 50 THEN '41-50' ELSE '51+' END AS age_group
+      FROM chats c JOIN users u ON u.id = c.user_id
+      CROSS JOIN LATERAL (SELECT EXTRACT(YEAR FROM c.created_at) - EXTRACT(YEAR FROM u.date_of_birth) AS age) a
+      WHERE c.deleted_at IS NULL
+      ORDER BY c.category_id, c.user_id, c.created_at) f
+JOIN chat_categories cc ON cc.id = f.category_id;
+
+INSERT INTO category_age_groups (category, age_group, users)
+SELECT category, age_group, count(*) FROM category_users GROUP BY category, age_group;
+
+INSERT INTO chat_activity_daily (day, category, age_group, chats)
+SELECT CAST(c.created_at AS DATE), cc.name,
+       CASE WHEN a.age < 20 THEN 'under 20' WHEN a.age <= 30 THEN '20-30' WHEN a.age <= 40 THEN '31-40'
+            WHEN a.age <= 50 THEN '41-50' ELSE '51+' END,
+       count(*)
+FROM chats c JOIN users u ON u.id = c.user_id JOIN chat_categories cc ON cc.id = c.category_id
+CROSS JOIN LATERAL (SELECT EXTRACT(YEAR FROM c.created_at) - EXTRACT(YEAR FROM u.date_of_birth) AS age) a
+WHERE c.created_at IS NOT NULL AND c.id <= (SELECT last_id FROM rollup_watermarks WHERE source = 'chats')
+GROUP BY 1, cc.id, 3;
+
+INSERT INTO chat_activity_hourly (hour, category, age_group, chats)
+SELECT date_trunc('hour', c.created_at), cc.name,
+       CASE WHEN a.age < 20 THEN 'under 20' WHEN a.age <= 30 THEN '20-30' WHEN a.age <= 40 THEN '31-40'
+            WHEN a.age <= 50 THEN '41-50' ELSE '51+' END,
+       count(*)
+FROM chats c JOIN users u ON u.id = c.user_id JOIN chat_categories cc ON cc.id = c.category_id
+CROSS JOIN LATERAL (SELECT EXTRACT(YEAR FROM c.created_at) - EXTRACT(YEAR FROM u.date_of_birth) AS age) a
+WHERE c.created_at IS NOT NULL AND c.id <= (SELECT last_id FROM rollup_watermarks WHERE source = 'chats')
+GROUP BY 1, cc.id, 3;
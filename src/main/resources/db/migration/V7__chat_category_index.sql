@@ -0,0 +1,5 @@
+-- Category statistics group and filter on the category ID rather than the description; built concurrently as in
+-- V2__performance_indexes.sql.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_chats_category_id ON chats (category_id);
+
+DROP INDEX CONCURRENTLY IF EXISTS idx_chats_description;
@@ -0,0 +1,8 @@
+-- Indexes behind the admin account listing, built concurrently as in V2__performance_indexes.sql. Pages are found
+-- by keyset on (sort value, id); username order is already served by the unique index on username.
+
+-- Listing by creation date, and the creation date filter
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_users_created_date_id ON users (CAST(created_at AS DATE), id);
+
+-- The username prefix filter, in any case
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_users_username_prefix ON users (lower(username) text_pattern_ops);
@@ -0,0 +1,16 @@
+-- Accounts being deleted in the background by AccountDeletionService. A row is added when the deletion is asked for
+-- and records the stage reached and the rows removed so far, so a deletion interrupted by a restart carries on where
+-- it stopped. There is no foreign key to users, as the row outlives the user it describes.
+CREATE TABLE account_deletions (
+                                 user_id INT PRIMARY KEY,
+                                 stage VARCHAR(20) NOT NULL,
+                                 rows_deleted BIGINT NOT NULL DEFAULT 0,
+                                 requested_at TIMESTAMP NOT NULL,
+                                 updated_at TIMESTAMP NOT NULL,
+                                 completed_at TIMESTAMP,
+                                 -- The node working on the deletion holds it until then
+                                 claimed_until TIMESTAMP
+);
+
+-- Deletions still to finish, oldest first
+CREATE INDEX idx_account_deletions_pending ON account_deletions (requested_at) WHERE completed_at IS NULL;
@@ -0,0 +1,88 @@
+-- Range-partitions sessions and messages by the month of created_at; see V12__partition_functions.sql for what this
+-- is for. It is not a Flyway migration: run it by hand once, after the migrations, in a maintenance window:
+--
+--     psql -v ON_ERROR_STOP=1 --single-transaction -f partition_sessions_and_messages.sql
+--
+-- Downtime: each table is rebuilt as a partitioned table and every row copied across. Renaming the tables takes an
+-- ACCESS EXCLUSIVE lock on sessions and messages, held until the transaction commits, so nothing can read or write
+-- them for the length of the copy, which grows with the tables. Adding the new tables' foreign keys takes SHARE ROW
+-- EXCLUSIVE locks on users and chats, which blocks writes to them too. Stop the service, or at least logins and
+-- chats, while it runs; rehearse it on a copy of production first to know how long it takes.
+--
+-- Schema changes:
+--   * A primary key must include the partition key, so the primary key of each table becomes (id, created_at). IDs
+--     still come from the same sequences, so they stay unique in practice, but the database now only enforces
+--     uniqueness of (id, created_at).
+--   * For the same reason session_token loses its UNIQUE constraint and is only indexed. Tokens are random UUIDs, and
+--     SessionRepository reads the newest session of a token should one ever repeat.
+--   * Rows outside every monthly partition go to a default partition, so an insert never fails for want of one;
+--     PartitionMaintenanceService keeps the partitions for the months ahead created.
+
+DO $$
+BEGIN
+    IF EXISTS (SELECT 1 FROM pg_partitioned_table WHERE partrelid IN (to_regclass('sessions'), to_regclass('messages')))
+    THEN
+        RAISE EXCEPTION 'sessions or messages is already partitioned';
+    END IF;
+END
+$$;
+
+-- Sessions
+ALTER TABLE sessions RENAME TO sessions_unpartitioned;
+ALTER SEQUENCE sessions_id_seq OWNED BY NONE;
+
+CREATE TABLE sessions (
+                        id INT NOT NULL DEFAULT nextval('sessions_id_seq'),
+                        user_id INT REFERENCES users(id) ON DELETE CASCADE,
+                        session_token VARCHAR(255) NOT NULL,
+                        expires_at TIMESTAMP NOT NULL,
+                        created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+) PARTITION BY RANGE (created_at);
+
+ALTER SEQUENCE sessions_id_seq OWNED BY sessions.id;
+CREATE TABLE sessions_default PARTITION OF sessions DEFAULT;
+SELECT create_monthly_partitions('sessions',
+                                 CAST(COALESCE((SELECT min(created_at) FROM sessions_unpartitioned), now()) AS DATE),
+                                 CAST(now() + INTERVAL '3 months' AS DATE));
+
+-- Sessions have always been created with a 24-hour expiry
+INSERT INTO sessions (id, user_id, session_token, expires_at, created_at)
+SELECT id, user_id, session_token, expires_at, COALESCE(created_at, expires_at - INTERVAL '24 hours')
+FROM sessions_unpartitioned;
+
+DROP TABLE sessions_unpartitioned;
+
+ALTER TABLE sessions ADD PRIMARY KEY (id, created_at);
+CREATE INDEX idx_sessions_session_token ON sessions (session_token);
+CREATE INDEX idx_sessions_created_at ON sessions (created_at);
+CREATE INDEX idx_sessions_user_id ON sessions (user_id);
+CREATE INDEX idx_sessions_expires_at ON sessions (expires_at);
+
+-- Messages
+ALTER TABLE messages RENAME TO messages_unpartitioned;
+ALTER SEQUENCE messages_id_seq OWNED BY NONE;
+
+CREATE TABLE messages (
+                        id INT NOT NULL DEFAULT nextval('messages_id_seq'),
+                        chat_id INT REFERENCES chats(id) ON DELETE CASCADE,
+                        sender VARCHAR(50) NOT NULL,
+                        message TEXT NOT NULL,
+                        created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+                        search_vector TSVECTOR GENERATED ALWAYS AS (to_tsvector('english', message)) STORED
+) PARTITION BY RANGE (created_at);
+
+ALTER SEQUENCE messages_id_seq OWNED BY messages.id;
+CREATE TABLE messages_default PARTITION OF messages DEFAULT;
+SELECT create_monthly_partitions('messages',
+                                 CAST(COALESCE((SELECT min(created_at) FROM messages_unpartitioned), now()) AS DATE),
+                                 CAST(now() + INTERVAL '3 months' AS DATE));
+
+INSERT INTO messages (id, chat_id, sender, message, created_at)
+SELECT m.id, m.chat_id, m.sender, m.message, COALESCE(m.created_at, c.created_at, now())
+FROM messages_unpartitioned m LEFT JOIN chats c ON c.id = m.chat_id;
+
+DROP TABLE messages_unpartitioned;
+
+ALTER TABLE messages ADD PRIMARY KEY (id, created_at);
+CREATE INDEX idx_messages_chat_id_created_at ON messages (chat_id, created_at);
+CREATE INDEX idx_messages_search_vector ON messages USING GIN (search_vector);
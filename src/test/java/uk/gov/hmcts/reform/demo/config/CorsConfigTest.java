@@ -38,6 +38,7 @@ class CorsConfigTest {
         verify(registration).allowedOrigins("http://localhost:3100");
         verify(registration).allowedMethods("GET", "POST", "PUT", "DELETE");
         verify(registration).allowCredentials(true);
+        verify(registration).exposedHeaders("X-Next-Cursor", "X-Total-Count");
     }
 
 }
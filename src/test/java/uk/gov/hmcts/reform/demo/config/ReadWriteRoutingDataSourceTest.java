@@ -0,0 +1,112 @@
+package uk.gov.hmcts.reform.demo.config;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+class ReadWriteRoutingDataSourceTest {
+
+    private final DataSource primary = mock(DataSource.class);
+    private final DataSource replica = mock(DataSource.class);
+    private final Connection primaryConnection = mock(Connection.class);
+    private final Connection replicaConnection = mock(Connection.class);
+    private final AtomicInteger fallbacks = new AtomicInteger();
+    private final Clock clock = Clock.fixed(Instant.parse("2024-01-01T00:00:00Z"), ZoneOffset.UTC);
+
+    private ReadWriteRoutingDataSource routing;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        when(primary.getConnection()).thenReturn(primaryConnection);
+        when(replica.getConnection()).thenReturn(replicaConnection);
+        routing = new ReadWriteRoutingDataSource(
+            primary, replica, Duration.ofSeconds(5), Duration.ofSeconds(30), clock, fallbacks::incrementAndGet);
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    private static void inTransaction(boolean readOnly) {
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(readOnly);
+    }
+
+    @Test
+    void readOnlyTransaction_usesReplica() throws SQLException {
+        inTransaction(true);
+        assertSame(replicaConnection, routing.getConnection());
+    }
+
+    @Test
+    void writeTransaction_usesPrimary() throws SQLException {
+        inTransaction(false);
+        assertSame(primaryConnection, routing.getConnection());
+    }
+
+    @Test
+    void noTransaction_usesPrimary() throws SQLException {
+        assertSame(primaryConnection, routing.getConnection());
+        verify(replica, never()).getConnection();
+    }
+
+    @Test
+    void replicaFailure_fallsBackToPrimaryUntilRetry() throws SQLException {
+        when(replica.getConnection()).thenThrow(new SQLException("connection refused"));
+        inTransaction(true);
+
+        assertSame(primaryConnection, routing.getConnection());
+        assertSame(primaryConnection, routing.getConnection());
+
+        assertEquals(1, fallbacks.get(), "the second read should skip the replica entirely");
+    }
+
+    @Test
+    void sessionThatWrote_isPinnedToPrimaryForReads() throws SQLException {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.getSession(true);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+
+        inTransaction(false);
+        routing.getConnection();
+
+        // A later request in the same session
+        MockHttpServletRequest nextRequest = new MockHttpServletRequest();
+        nextRequest.setSession(request.getSession());
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(nextRequest));
+        inTransaction(true);
+
+        assertSame(primaryConnection, routing.getConnection());
+    }
+
+    @Test
+    void expiredPin_readsFromReplicaAgain() throws SQLException {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.getSession(true).setAttribute(ReadWriteRoutingDataSource.PIN_ATTRIBUTE, clock.millis() - 1);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+        inTransaction(true);
+
+        assertSame(replicaConnection, routing.getConnection());
+    }
+}
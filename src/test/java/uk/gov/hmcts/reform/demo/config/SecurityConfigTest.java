@@ -1,5 +1,6 @@
 package uk.gov.hmcts.reform.demo.config;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.*;
@@ -11,10 +12,15 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.context.SecurityContextHolderFilter;
+import uk.gov.hmcts.reform.demo.filters.RevokedLoginFilter;
+import uk.gov.hmcts.reform.demo.repositories.UserRepository;
+import uk.gov.hmcts.reform.demo.security.BoundedPasswordEncoder;
 import uk.gov.hmcts.reform.demo.services.AccountUserDetailsService;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
@@ -23,22 +29,28 @@ import static org.mockito.Mockito.when;
 
 class SecurityConfigTest {
 
-    @InjectMocks
     private SecurityConfig config;
 
     @Mock
     private AccountUserDetailsService userDetailsService;
 
+    @Mock
+    private UserRepository userRepository;
+
     @BeforeEach
     void init() {
         MockitoAnnotations.openMocks(this);
+        config = new SecurityConfig(userDetailsService, userRepository, new SimpleMeterRegistry(), 10, 1000, 5);
     }
 
     @Test
-    void passwordEncoder_returnsBcrypt() {
+    void passwordEncoder_returnsBcryptOnABoundedPool() {
         PasswordEncoder encoder = config.passwordEncoder();
         assertNotNull(encoder, "PasswordEncoder should not be null");
-        assertInstanceOf(BCryptPasswordEncoder.class, encoder, "PasswordEncoder should be a BCryptPasswordEncoder");
+        assertInstanceOf(BoundedPasswordEncoder.class, encoder, "PasswordEncoder should hash on its own pool");
+        assertTrue(encoder.encode("secret").startsWith("{bcrypt}$2a$05$"),
+                   "PasswordEncoder should hash with BCrypt at the configured strength, prefixed with its id");
+        assertTrue(((BoundedPasswordEncoder) encoder).getThreads() >= 1);
     }
 
     @SuppressWarnings("unchecked")
@@ -54,6 +66,8 @@ class SecurityConfigTest {
         when(http.exceptionHandling(any(Customizer.class))).thenReturn(http);
         when(http.formLogin(any(Customizer.class))).thenReturn(http);
         when(http.logout(any(Customizer.class))).thenReturn(http);
+        when(http.addFilterAfter(any(RevokedLoginFilter.class), eq(SecurityContextHolderFilter.class)))
+            .thenReturn(http);
         // Stub build() to return our mock chain
         doReturn(chainMock).when(http).build();
 
@@ -72,6 +86,8 @@ class SecurityConfigTest {
         // Verify formLogin and logout used default customizer
         verify(http).formLogin(any(Customizer.class));
         verify(http).logout(any(Customizer.class));
+        // Users who may no longer log in are logged out once their security context is loaded
+        verify(http).addFilterAfter(any(RevokedLoginFilter.class), eq(SecurityContextHolderFilter.class));
         // And finally build() was invoked
         verify(http).build();
     }
@@ -104,14 +120,6 @@ class SecurityConfigTest {
         inOrder.verify(amb).build();
     }
 
-    @Test
-    void passwordEncoder_returnsBCryptPasswordEncoderInstance() {
-        PasswordEncoder encoder = config.passwordEncoder();
-        assertNotNull(encoder, "PasswordEncoder should not be null");
-        assertTrue(encoder instanceof BCryptPasswordEncoder,
-                   "PasswordEncoder should be an instance of BCryptPasswordEncoder");
-    }
-
     @Test
     void passwordEncoder_encodesAndMatchesPasswordsCorrectly() {
         PasswordEncoder encoder = config.passwordEncoder();
@@ -138,4 +146,20 @@ class SecurityConfigTest {
         assertTrue(encoder.matches(raw, hash1));
         assertTrue(encoder.matches(raw, hash2));
     }
+
+    @Test
+    void passwordEncoder_matchesLegacyHashesAndAsksForThemToBeUpgraded() {
+        PasswordEncoder encoder = config.passwordEncoder();
+        String legacy = new BCryptPasswordEncoder(4).encode("secret");
+        String weaker = "{bcrypt}" + legacy;
+        String stronger = "{bcrypt}" + new BCryptPasswordEncoder(6).encode("secret");
+        String current = encoder.encode("secret");
+
+        assertTrue(encoder.matches("secret", legacy), "Hashes stored without a prefix should still match");
+        assertTrue(encoder.matches("secret", weaker));
+        assertTrue(encoder.upgradeEncoding(legacy), "Hashes without a prefix should be upgraded");
+        assertTrue(encoder.upgradeEncoding(weaker), "Hashes of a lower strength should be upgraded");
+        assertFalse(encoder.upgradeEncoding(stronger), "Hashes of a higher strength should be kept");
+        assertFalse(encoder.upgradeEncoding(current), "New hashes are up to date");
+    }
 }
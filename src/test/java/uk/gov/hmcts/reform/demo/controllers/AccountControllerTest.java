@@ -6,6 +6,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.LongStream;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.*;
@@ -13,6 +14,8 @@ import org.springframework.context.MessageSource;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.context.i18n.LocaleContextHolder;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
 import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -20,11 +23,20 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import uk.gov.hmcts.reform.demo.dto.AccountSummary;
+import uk.gov.hmcts.reform.demo.dto.BulkAccountDecision;
 import uk.gov.hmcts.reform.demo.dto.PendingRequestSummary;
+import uk.gov.hmcts.reform.demo.entities.AccountDeletion;
 import uk.gov.hmcts.reform.demo.entities.AccountRequest;
 import uk.gov.hmcts.reform.demo.entities.User;
 import uk.gov.hmcts.reform.demo.repositories.UserRepository;
 import uk.gov.hmcts.reform.demo.repositories.AccountRequestRepository;
+import uk.gov.hmcts.reform.demo.repositories.AccountSummaryQueries.Filter;
+import uk.gov.hmcts.reform.demo.repositories.AccountSummaryQueries.Position;
+import uk.gov.hmcts.reform.demo.repositories.AccountSummaryQueries.SortField;
+import uk.gov.hmcts.reform.demo.services.AccountAvailabilityService;
+import uk.gov.hmcts.reform.demo.services.AccountDeletionService;
+import uk.gov.hmcts.reform.demo.services.AccountRequestService;
+import uk.gov.hmcts.reform.demo.services.AccountRequestService.Outcome;
 
 import java.util.HashMap;
 import java.util.Locale;
@@ -52,6 +64,15 @@ class AccountControllerTest {
     @Mock
     private AccountRequestRepository accountRequestRepository;
 
+    @Mock
+    private AccountRequestService accountRequestService;
+
+    @Mock
+    private AccountAvailabilityService accountAvailabilityService;
+
+    @Mock
+    private AccountDeletionService accountDeletionService;
+
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
@@ -143,6 +164,7 @@ class AccountControllerTest {
         // Should have created & saved both User and AccountRequest
         verify(userRepository).save(any());
         verify(accountRequestRepository).save(any());
+        verify(accountAvailabilityService).recordRegistered("adminUser", "admin@example.com");
     }
 
     @Test
@@ -273,9 +295,24 @@ class AccountControllerTest {
         inOrder.verifyNoMoreInteractions();
     }
 
+    private ResponseEntity<List<AccountSummary>> listAllAccounts(User currentUser) {
+        return controller.listAllAccounts(currentUser, null, null, null, null, SortField.ID, Sort.Direction.ASC,
+                                          null, 50, false);
+    }
+
+    private static User admin() {
+        User adminUser = new User();
+        adminUser.setIsAdmin(true);
+        return adminUser;
+    }
+
+    private static AccountSummary summary(long id, String username, LocalDate createdDate) {
+        return new AccountSummary(id, username, username + "@example.com", "User", createdDate);
+    }
+
     @Test
     void whenCurrentUserIsNull_thenReturnsForbidden() {
-        ResponseEntity<List<AccountSummary>> resp = controller.listAllAccounts(null);
+        ResponseEntity<List<AccountSummary>> resp = listAllAccounts(null);
         assertEquals(HttpStatus.FORBIDDEN, resp.getStatusCode());
         assertNull(resp.getBody());
     }
@@ -284,7 +321,7 @@ class AccountControllerTest {
     void whenCurrentUserIsNotAdmin_thenReturnsForbidden() {
         User nonAdmin = new User();
         nonAdmin.setIsAdmin(false);
-        ResponseEntity<List<AccountSummary>> resp = controller.listAllAccounts(nonAdmin);
+        ResponseEntity<List<AccountSummary>> resp = listAllAccounts(nonAdmin);
         assertEquals(HttpStatus.FORBIDDEN, resp.getStatusCode());
         assertNull(resp.getBody());
     }
@@ -292,190 +329,234 @@ class AccountControllerTest {
     @Test
     void whenCurrentUserIsAdmin_thenReturnsSummaries() {
         // Arrange
-        User adminUser = new User();
-        adminUser.setIsAdmin(true);
-
-        // Create two test users
-        User u1 = new User();
-        u1.setId(1L);
-        u1.setUsername("alice");
-        u1.setEmail("alice@example.com");
-        u1.setIsAdmin(false);
         LocalDate t1 = LocalDate.of(2020, 1, 1);
-        u1.setCreatedAt(t1);
-
-        User u2 = new User();
-        u2.setId(2L);
-        u2.setUsername("bob");
-        u2.setEmail("bob@example.com");
-        u2.setIsAdmin(true);
         LocalDate t2 = LocalDate.of(2021, 2, 2);
-        u2.setCreatedAt(t2);
-
-        when(userRepository.findAll()).thenReturn(Arrays.asList(u1, u2));
+        AccountSummary alice = new AccountSummary(1L, "alice", "alice@example.com", "User", t1);
+        AccountSummary bob = new AccountSummary(2L, "bob", "bob@example.com", "Admin", t2);
+        Filter everyone = new Filter(null, null, null, null);
+        when(userRepository.findAccountSummaries(everyone, SortField.ID, false, null, 51))
+            .thenReturn(Arrays.asList(alice, bob));
 
         // Act
-        ResponseEntity<List<AccountSummary>> resp = controller.listAllAccounts(adminUser);
+        ResponseEntity<List<AccountSummary>> resp = listAllAccounts(admin());
 
-        // Assert status
+        // Assert
         assertEquals(HttpStatus.OK, resp.getStatusCode());
-        List<AccountSummary> summaries = resp.getBody();
-        assertNotNull(summaries);
-        assertEquals(2, summaries.size());
-
-        // Verify first summary (regular user)
-        AccountSummary s1 = summaries.get(0);
-        assertEquals(1L, s1.getAccountId());
-        assertEquals("alice", s1.getUsername());
-        assertEquals("alice@example.com", s1.getEmail());
-        assertEquals("User", s1.getRole());
-        assertEquals(t1, s1.getCreatedDate());
-
-        // Verify second summary (admin)
-        AccountSummary s2 = summaries.get(1);
-        assertEquals(2L, s2.getAccountId());
-        assertEquals("bob", s2.getUsername());
-        assertEquals("bob@example.com", s2.getEmail());
-        assertEquals("Admin", s2.getRole());
-        assertEquals(t2, s2.getCreatedDate());
-
-        // Verify repository interaction
-        verify(userRepository).findAll();
+        assertEquals(List.of(alice, bob), resp.getBody());
+        // The whole listing fits on the first page, so its size is the total
+        assertEquals("2", resp.getHeaders().getFirst(AccountController.TOTAL_COUNT_HEADER));
+        assertNull(resp.getHeaders().getFirst(AccountController.NEXT_CURSOR_HEADER));
+        verify(userRepository).findAccountSummaries(everyone, SortField.ID, false, null, 51);
         verifyNoMoreInteractions(userRepository);
     }
 
+    @Test
+    void listAllAccounts_fullPage_returnsACursorForTheNext() {
+        LocalDate day = LocalDate.of(2024, 3, 1);
+        Filter admins = new Filter(true, day, day.plusDays(7), "al");
+        when(userRepository.findAccountSummaries(admins, SortField.CREATED_DATE, true, null, 3))
+            .thenReturn(List.of(summary(9, "alice", day), summary(4, "alan", day), summary(2, "albert", day)));
+
+        ResponseEntity<List<AccountSummary>> resp = controller.listAllAccounts(
+            admin(), "admin", day, day.plusDays(7), "al", SortField.CREATED_DATE, Sort.Direction.DESC, null, 2, false);
+
+        assertEquals(HttpStatus.OK, resp.getStatusCode());
+        assertEquals(2, resp.getBody().size());
+        assertNull(resp.getHeaders().getFirst(AccountController.TOTAL_COUNT_HEADER));
+        String cursor = resp.getHeaders().getFirst(AccountController.NEXT_CURSOR_HEADER);
+        assertEquals(new Position("2024-03-01", 4), AccountController.decodeCursor(cursor, SortField.CREATED_DATE));
+    }
+
+    @Test
+    void listAllAccounts_withCursor_continuesAfterIt() {
+        String cursor = AccountController.encodeCursor(SortField.USERNAME, summary(7, "carol", null));
+        Filter users = new Filter(false, null, null, null);
+        when(userRepository.findAccountSummaries(users, SortField.USERNAME, false, new Position("carol", 7), 11))
+            .thenReturn(List.of(summary(3, "dave", null)));
+        when(userRepository.countAccounts(users)).thenReturn(12L);
+
+        ResponseEntity<List<AccountSummary>> resp = controller.listAllAccounts(
+            admin(), "USER", null, null, null, SortField.USERNAME, Sort.Direction.ASC, cursor, 10, true);
+
+        assertEquals(HttpStatus.OK, resp.getStatusCode());
+        assertEquals("dave", resp.getBody().get(0).getUsername());
+        assertEquals("12", resp.getHeaders().getFirst(AccountController.TOTAL_COUNT_HEADER));
+        assertNull(resp.getHeaders().getFirst(AccountController.NEXT_CURSOR_HEADER));
+    }
+
+    @Test
+    void listAllAccounts_invalidParameters_returnBadRequest() {
+        String usernameCursor = AccountController.encodeCursor(SortField.USERNAME, summary(7, "carol", null));
+        LocalDate day = LocalDate.of(2024, 3, 1);
+
+        assertEquals(HttpStatus.BAD_REQUEST, controller.listAllAccounts(
+            admin(), "owner", null, null, null, SortField.ID, Sort.Direction.ASC, null, 50, false).getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, controller.listAllAccounts(
+            admin(), null, null, null, null, SortField.ID, Sort.Direction.ASC, null, 0, false).getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, controller.listAllAccounts(
+            admin(), null, null, null, null, SortField.ID, Sort.Direction.ASC, null, 201, false).getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, controller.listAllAccounts(
+            admin(), null, day, day.minusDays(1), null, SortField.ID, Sort.Direction.ASC, null, 50, false)
+            .getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, controller.listAllAccounts(
+            admin(), null, null, null, null, SortField.ID, Sort.Direction.ASC, "not a cursor!", 50, false)
+            .getStatusCode());
+        // A cursor from a listing in another order
+        assertEquals(HttpStatus.BAD_REQUEST, controller.listAllAccounts(
+            admin(), null, null, null, null, SortField.CREATED_DATE, Sort.Direction.ASC, usernameCursor, 50, false)
+            .getStatusCode());
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    void cursor_roundTripsUsernamesWithSeparators() {
+        String cursor = AccountController.encodeCursor(SortField.USERNAME, summary(5, "odd\nname", null));
+
+        assertEquals(new Position("odd\nname", 5), AccountController.decodeCursor(cursor, SortField.USERNAME));
+        assertEquals(new Position(null, 5), AccountController.decodeCursor(
+            AccountController.encodeCursor(SortField.ID, summary(5, "x", null)), SortField.ID));
+    }
+
     @Test
     void whenThereArePendingRequests_thenReturnSummaries() {
         // Arrange
-        User user1 = new User();
-        user1.setUsername("alice");
-        user1.setEmail("alice@example.com");
-        AccountRequest r1 = new AccountRequest();
-        r1.setId(1L);
-        r1.setUser(user1);
-        r1.setStatus(AccountRequest.Status.PENDING);
         LocalDateTime t1 = LocalDateTime.of(2023, 5, 1, 14, 0);
-        r1.setRequestedAt(t1);
-
-        User user2 = new User();
-        user2.setUsername("bob");
-        user2.setEmail("bob@example.com");
-        AccountRequest r2 = new AccountRequest();
-        r2.setId(2L);
-        r2.setUser(user2);
-        r2.setStatus(AccountRequest.Status.PENDING);
         LocalDateTime t2 = LocalDateTime.of(2023, 5, 2, 15, 30);
-        r2.setRequestedAt(t2);
-
-        when(accountRequestRepository.findByStatus(AccountRequest.Status.PENDING))
+        PendingRequestSummary r1 = new PendingRequestSummary(1L, "alice", "alice@example.com", "PENDING", t1);
+        PendingRequestSummary r2 = new PendingRequestSummary(2L, "bob", "bob@example.com", "PENDING", t2);
+        when(accountRequestRepository.findSummariesByStatus(AccountRequest.Status.PENDING, Limit.of(51)))
             .thenReturn(Arrays.asList(r1, r2));
 
         // Act
-        ResponseEntity<List<PendingRequestSummary>> resp = controller.getPendingAccountRequests();
+        ResponseEntity<List<PendingRequestSummary>> resp = controller.getPendingAccountRequests(null, 50);
 
         // Assert
         assertEquals(HttpStatus.OK, resp.getStatusCode());
-        List<PendingRequestSummary> summaries = resp.getBody();
-        assertNotNull(summaries);
-        assertEquals(2, summaries.size());
-
-        PendingRequestSummary s1 = summaries.get(0);
-        assertEquals(1L, s1.getRequestId());
-        assertEquals("alice", s1.getUserName());
-        assertEquals("alice@example.com", s1.getEmail());
-        assertEquals("PENDING", s1.getStatus());
-        assertEquals(t1, s1.getSubmittedDate());
-
-        PendingRequestSummary s2 = summaries.get(1);
-        assertEquals(2L, s2.getRequestId());
-        assertEquals("bob", s2.getUserName());
-        assertEquals("bob@example.com", s2.getEmail());
-        assertEquals("PENDING", s2.getStatus());
-        assertEquals(t2, s2.getSubmittedDate());
-
-        verify(accountRequestRepository).findByStatus(AccountRequest.Status.PENDING);
+        assertEquals(List.of(r1, r2), resp.getBody());
+        assertNull(resp.getHeaders().getFirst(AccountController.NEXT_CURSOR_HEADER));
+
+        verify(accountRequestRepository).findSummariesByStatus(AccountRequest.Status.PENDING, Limit.of(51));
         verifyNoMoreInteractions(accountRequestRepository);
     }
 
     @Test
     void whenNoPendingRequests_thenReturnEmptyList() {
         // Arrange
-        when(accountRequestRepository.findByStatus(AccountRequest.Status.PENDING))
+        when(accountRequestRepository.findSummariesByStatus(AccountRequest.Status.PENDING, Limit.of(51)))
             .thenReturn(Collections.emptyList());
 
         // Act
-        ResponseEntity<List<PendingRequestSummary>> resp = controller.getPendingAccountRequests();
+        ResponseEntity<List<PendingRequestSummary>> resp = controller.getPendingAccountRequests(null, 50);
 
         // Assert
         assertEquals(HttpStatus.OK, resp.getStatusCode());
         assertNotNull(resp.getBody());
         assertTrue(resp.getBody().isEmpty());
 
-        verify(accountRequestRepository).findByStatus(AccountRequest.Status.PENDING);
+        verify(accountRequestRepository).findSummariesByStatus(AccountRequest.Status.PENDING, Limit.of(51));
         verifyNoMoreInteractions(accountRequestRepository);
     }
 
+    @Test
+    void pendingRequests_followOnFromTheCursorOfTheLastPage() {
+        LocalDateTime t1 = LocalDateTime.of(2023, 5, 1, 14, 0, 0, 123_000);
+        when(accountRequestRepository.findSummariesByStatus(AccountRequest.Status.PENDING, Limit.of(2)))
+            .thenReturn(List.of(new PendingRequestSummary(4L, "alice", "alice@example.com", "PENDING", t1),
+                                new PendingRequestSummary(6L, "bob", "bob@example.com", "PENDING", t1)));
+        PendingRequestSummary carol = new PendingRequestSummary(9L, "carol", "carol@example.com", "PENDING", t1);
+        when(accountRequestRepository.findSummariesByStatusAfter(AccountRequest.Status.PENDING, t1, 4L, Limit.of(2)))
+            .thenReturn(List.of(carol));
+
+        ResponseEntity<List<PendingRequestSummary>> first = controller.getPendingAccountRequests(null, 1);
+        String cursor = first.getHeaders().getFirst(AccountController.NEXT_CURSOR_HEADER);
+        ResponseEntity<List<PendingRequestSummary>> second = controller.getPendingAccountRequests(cursor, 1);
+
+        assertEquals("alice", first.getBody().get(0).getUserName());
+        assertNotNull(cursor);
+        assertEquals(List.of(carol), second.getBody());
+        assertNull(second.getHeaders().getFirst(AccountController.NEXT_CURSOR_HEADER));
+    }
+
+    @Test
+    void pendingRequests_invalidParameters_returnBadRequest() {
+        String accountCursor = AccountController.encodeCursor(SortField.ID, summary(7, "carol", null));
+
+        assertEquals(HttpStatus.BAD_REQUEST, controller.getPendingAccountRequests(null, 0).getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, controller.getPendingAccountRequests("%%", 50).getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, controller.getPendingAccountRequests(accountCursor, 50).getStatusCode());
+        verifyNoInteractions(accountRequestRepository);
+    }
+
     @Test
     void whenUserNotFound_thenReturnsBadRequest() {
         Long userId = 1L;
-        when(userRepository.findById(userId)).thenReturn(Optional.empty());
+        when(userRepository.existsById(userId)).thenReturn(false);
 
-        ResponseEntity<String> resp = controller.deleteAccount(userId);
+        ResponseEntity<String> resp = controller.deleteAccount(admin(), userId);
 
         assertEquals(400, resp.getStatusCodeValue());
         assertEquals("User not found.", resp.getBody());
 
-        verify(userRepository).findById(userId);
+        verify(userRepository).existsById(userId);
         verifyNoMoreInteractions(userRepository, accountRequestRepository);
+        verifyNoInteractions(accountDeletionService);
     }
 
     @Test
-    void whenNoAssociatedRequest_thenDeletesUserOnly() {
+    void whenUserExists_thenQueuesDeletionAndAccepts() {
         Long userId = 2L;
-        User user = new User();
-        user.setId(userId);
+        when(userRepository.existsById(userId)).thenReturn(true);
 
-        when(userRepository.findById(userId)).thenReturn(Optional.of(user));
-        when(accountRequestRepository.findByUser(user)).thenReturn(Optional.empty());
+        ResponseEntity<String> resp = controller.deleteAccount(admin(), userId);
 
-        ResponseEntity<String> resp = controller.deleteAccount(userId);
+        assertEquals(HttpStatus.ACCEPTED, resp.getStatusCode());
+        assertEquals("User account deletion started.", resp.getBody());
 
-        assertEquals(200, resp.getStatusCodeValue());
-        assertEquals("User account deleted successfully.", resp.getBody());
-
-        InOrder inOrder = inOrder(accountRequestRepository, userRepository);
-        // should check for associated request first
-        inOrder.verify(accountRequestRepository).findByUser(user);
-        // then delete only the user
-        inOrder.verify(userRepository).delete(user);
-        inOrder.verifyNoMoreInteractions();
+        verify(accountDeletionService).requestDeletion(userId);
+        // Nothing is removed inline, and the account is only counted as gone once the deletion finishes
+        verify(userRepository, never()).delete(any());
+        verifyNoInteractions(accountRequestRepository, accountAvailabilityService);
     }
 
     @Test
-    void whenAssociatedRequestExists_thenDeletesRequestThenUser() {
-        Long userId = 3L;
+    void deleteAccount_nonAdmin_isForbidden() {
         User user = new User();
-        user.setId(userId);
-        AccountRequest req = new AccountRequest();
-        req.setId(10L);
-        req.setUser(user);
+        user.setIsAdmin(false);
 
-        when(userRepository.findById(userId)).thenReturn(Optional.of(user));
-        when(accountRequestRepository.findByUser(user)).thenReturn(Optional.of(req));
+        assertEquals(HttpStatus.FORBIDDEN, controller.deleteAccount(user, 2L).getStatusCode());
+        assertEquals(HttpStatus.FORBIDDEN, controller.deleteAccount(null, 2L).getStatusCode());
+        verifyNoInteractions(userRepository, accountDeletionService);
+    }
 
-        ResponseEntity<String> resp = controller.deleteAccount(userId);
+    @Test
+    void deletionProgress_isReportedToAdmins() {
+        AccountDeletion deletion = new AccountDeletion();
+        deletion.setUserId(3L);
+        deletion.setStage(AccountDeletion.Stage.CHATS);
+        deletion.setRowsDeleted(1234);
+        when(accountDeletionService.findProgress(3L)).thenReturn(Optional.of(deletion));
 
-        assertEquals(200, resp.getStatusCodeValue());
-        assertEquals("User account deleted successfully.", resp.getBody());
+        ResponseEntity<AccountDeletion> resp = controller.getDeletionProgress(admin(), 3L);
 
-        InOrder inOrder = inOrder(accountRequestRepository, userRepository);
-        // first find associated request
-        inOrder.verify(accountRequestRepository).findByUser(user);
-        // then delete the request
-        inOrder.verify(accountRequestRepository).delete(req);
-        // then delete the user
-        inOrder.verify(userRepository).delete(user);
-        inOrder.verifyNoMoreInteractions();
+        assertEquals(HttpStatus.OK, resp.getStatusCode());
+        assertSame(deletion, resp.getBody());
+    }
+
+    @Test
+    void deletionProgress_unknownDeletion_isNotFound() {
+        when(accountDeletionService.findProgress(4L)).thenReturn(Optional.empty());
+
+        assertEquals(HttpStatus.NOT_FOUND, controller.getDeletionProgress(admin(), 4L).getStatusCode());
+    }
+
+    @Test
+    void deletionProgress_nonAdmin_isForbidden() {
+        User user = new User();
+        user.setIsAdmin(false);
+
+        assertEquals(HttpStatus.FORBIDDEN, controller.getDeletionProgress(user, 3L).getStatusCode());
+        assertEquals(HttpStatus.FORBIDDEN, controller.getDeletionProgress(null, 3L).getStatusCode());
+        verifyNoInteractions(accountDeletionService);
     }
 
     @Test
@@ -963,4 +1044,93 @@ class AccountControllerTest {
         // Should not have modified the user
         assertNull(user.getDateOfBirth());
     }
+
+    @Test
+    void bulkApprove_byIds_returnsEachOutcome() {
+        Map<Long, Outcome> outcomes = Map.of(1L, Outcome.APPROVED, 2L, Outcome.NOT_PENDING);
+        when(accountRequestService.approve(List.of(1L, 2L))).thenReturn(outcomes);
+
+        ResponseEntity<Map<Long, Outcome>> resp =
+            controller.approveAccountRequests(admin(), new BulkAccountDecision(List.of(1L, 2L), null));
+
+        assertEquals(HttpStatus.OK, resp.getStatusCode());
+        assertEquals(outcomes, resp.getBody());
+        verify(accountRequestService, never()).reject(any());
+    }
+
+    @Test
+    void bulkReject_byFilter_decidesTheMatchingPendingRequests() {
+        LocalDateTime before = LocalDateTime.of(2024, 3, 1, 0, 0);
+        when(accountRequestService.findPendingRequestedBefore(before, AccountController.MAX_BULK_DECISION_SIZE + 1))
+            .thenReturn(List.of(4L, 5L));
+        when(accountRequestService.reject(List.of(4L, 5L)))
+            .thenReturn(Map.of(4L, Outcome.REJECTED, 5L, Outcome.REJECTED));
+
+        ResponseEntity<Map<Long, Outcome>> resp =
+            controller.rejectAccountRequests(admin(), new BulkAccountDecision(null, before));
+
+        assertEquals(HttpStatus.OK, resp.getStatusCode());
+        assertEquals(Map.of(4L, Outcome.REJECTED, 5L, Outcome.REJECTED), resp.getBody());
+    }
+
+    @Test
+    void bulkDecision_byNonAdmin_isForbidden() {
+        User nonAdmin = new User();
+        nonAdmin.setIsAdmin(false);
+
+        ResponseEntity<Map<Long, Outcome>> resp =
+            controller.approveAccountRequests(nonAdmin, new BulkAccountDecision(List.of(1L), null));
+
+        assertEquals(HttpStatus.FORBIDDEN, resp.getStatusCode());
+        verifyNoInteractions(accountRequestService);
+    }
+
+    @Test
+    void bulkDecision_withBothOrNeitherOrTooMany_isBadRequest() {
+        LocalDateTime before = LocalDateTime.of(2024, 3, 1, 0, 0);
+        List<Long> tooMany = LongStream.rangeClosed(1, AccountController.MAX_BULK_DECISION_SIZE + 1)
+            .boxed().toList();
+        when(accountRequestService.findPendingRequestedBefore(any(), anyInt())).thenReturn(tooMany);
+
+        assertEquals(HttpStatus.BAD_REQUEST, controller.approveAccountRequests(
+            admin(), new BulkAccountDecision(List.of(1L), before)).getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, controller.approveAccountRequests(
+            admin(), new BulkAccountDecision(null, null)).getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, controller.approveAccountRequests(
+            admin(), new BulkAccountDecision(tooMany, null)).getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, controller.rejectAccountRequests(
+            admin(), new BulkAccountDecision(null, before)).getStatusCode());
+        verify(accountRequestService, never()).approve(any());
+        verify(accountRequestService, never()).reject(any());
+    }
+
+    @Test
+    void checkAvailability_reportsEachValueAskedAbout() {
+        when(accountAvailabilityService.isUsernameTaken("alice")).thenReturn(true);
+        when(accountAvailabilityService.isEmailTaken("new@example.com")).thenReturn(false);
+
+        ResponseEntity<Map<String, Boolean>> resp = controller.checkAvailability("alice", "new@example.com");
+
+        assertEquals(HttpStatus.OK, resp.getStatusCode());
+        assertEquals(Map.of("username", false, "email", true), resp.getBody());
+
+        assertEquals(Map.of("email", true), controller.checkAvailability(null, "new@example.com").getBody());
+        verify(accountAvailabilityService, times(1)).isUsernameTaken(any());
+    }
+
+    @Test
+    void checkAvailability_withNothingToCheck_isBadRequest() {
+        assertEquals(HttpStatus.BAD_REQUEST, controller.checkAvailability(null, " ").getStatusCode());
+        verifyNoInteractions(accountAvailabilityService);
+    }
+
+    @Test
+    void bulkReject_countsRejectedAccountsAsDeleted() {
+        when(accountRequestService.reject(List.of(1L, 2L)))
+            .thenReturn(Map.of(1L, Outcome.REJECTED, 2L, Outcome.NOT_FOUND));
+
+        controller.rejectAccountRequests(admin(), new BulkAccountDecision(List.of(1L, 2L), null));
+
+        verify(accountAvailabilityService).recordDeleted(1);
+    }
 }
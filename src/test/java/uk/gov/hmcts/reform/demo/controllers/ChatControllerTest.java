@@ -5,6 +5,7 @@ import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
@@ -22,8 +23,11 @@ import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import uk.gov.hmcts.reform.demo.dto.MessageSearchHit;
 import uk.gov.hmcts.reform.demo.entities.Chat;
 import uk.gov.hmcts.reform.demo.entities.Message;
 import uk.gov.hmcts.reform.demo.entities.User;
@@ -482,4 +486,55 @@ class ChatControllerTest {
         inOrder.verifyNoMoreInteractions();
     }
 
+    @Test
+    void searchChats_whenCurrentUserIsNull_thenReturnsBadRequest() {
+        ResponseEntity<?> resp = controller.searchChats(null, "refund", 0, 20);
+
+        assertEquals(HttpStatus.BAD_REQUEST, resp.getStatusCode());
+        assertEquals("User not authenticated.", ((Map<?,?>)resp.getBody()).get("error"));
+        verifyNoInteractions(chatService);
+    }
+
+    @Test
+    void searchChats_whenQueryBlankOrPagingInvalid_thenReturnsBadRequest() {
+        User user = new User();
+        user.setId(2L);
+
+        assertEquals(HttpStatus.BAD_REQUEST, controller.searchChats(user, "  ", 0, 20).getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, controller.searchChats(user, "refund", -1, 20).getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, controller.searchChats(user, "refund", 0, 0).getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, controller.searchChats(user, "refund", 0, 51).getStatusCode());
+        verifyNoInteractions(chatService);
+    }
+
+    @Test
+    void searchChats_whenMatchesExist_thenReturnsPage() {
+        User user = new User();
+        user.setId(2L);
+        MessageSearchHit hit = mock(MessageSearchHit.class);
+        when(chatService.searchMessages(user, "refund", 1, 10))
+            .thenReturn(new PageImpl<>(List.of(hit), PageRequest.of(1, 10), 11));
+
+        ResponseEntity<?> resp = controller.searchChats(user, " refund ", 1, 10);
+
+        assertEquals(HttpStatus.OK, resp.getStatusCode());
+        Map<?,?> body = (Map<?,?>) resp.getBody();
+        assertEquals("refund", body.get("query"));
+        assertEquals(1, body.get("page"));
+        assertEquals(10, body.get("size"));
+        assertEquals(11L, body.get("total"));
+        assertEquals(List.of(hit), body.get("results"));
+    }
+
+    @Test
+    void searchChats_whenServiceThrows_thenReturnsBadRequest() {
+        User user = new User();
+        user.setId(2L);
+        when(chatService.searchMessages(user, "refund", 0, 20)).thenThrow(new RuntimeException("db down"));
+
+        ResponseEntity<?> resp = controller.searchChats(user, "refund", 0, 20);
+
+        assertEquals(HttpStatus.BAD_REQUEST, resp.getStatusCode());
+        assertEquals("Unable to search chats.", ((Map<?,?>)resp.getBody()).get("error"));
+    }
 }
@@ -13,6 +13,8 @@ import uk.gov.hmcts.reform.demo.entities.Session;
 import uk.gov.hmcts.reform.demo.entities.User;
 import uk.gov.hmcts.reform.demo.repositories.SessionRepository;
 import uk.gov.hmcts.reform.demo.repositories.UserRepository;
+import uk.gov.hmcts.reform.demo.security.PasswordHashingRejectedException;
+import uk.gov.hmcts.reform.demo.services.LiveStatisticsPublisher;
 
 import java.util.Locale;
 import java.util.Map;
@@ -39,6 +41,9 @@ class LoginControllerTest {
     @Mock
     private org.springframework.context.MessageSource messages;
 
+    @Mock
+    private LiveStatisticsPublisher livePublisher;
+
     private MockHttpServletRequest request;
     private MockHttpServletResponse response;
 
@@ -151,6 +156,7 @@ class LoginControllerTest {
         String token = body.get("sessionToken");
         assertNotNull(token);
         assertEquals(token, sessionCaptor.getValue().getSessionToken());
+        verify(livePublisher).recordSession();
 
         // SecurityContext should hold authentication
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
@@ -265,4 +271,52 @@ class LoginControllerTest {
         assertNotNull(auth);
         assertEquals(user, auth.getPrincipal());
     }
+
+    private User loginUser(String hash) {
+        User user = new User();
+        user.setUsername("erin");
+        user.setCanLogin(true);
+        user.setPasswordHash(hash);
+        user.setIsAdmin(false);
+        when(userRepository.findByUsername("erin")).thenReturn(Optional.of(user));
+        when(passwordEncoder.matches("secret", hash)).thenReturn(true);
+        when(messages.getMessage(eq("login.success.user"), isNull(), any(Locale.class))).thenReturn("Welcome user");
+        return user;
+    }
+
+    @Test
+    void outdatedHash_isReplacedOnSuccessfulLogin() {
+        User user = loginUser("$2a$10$old");
+        when(passwordEncoder.upgradeEncoding("$2a$10$old")).thenReturn(true);
+        when(passwordEncoder.encode("secret")).thenReturn("{bcrypt}$2a$12$new");
+
+        ResponseEntity<?> resp = controller.login(new LoginRequest("erin", "secret"), request, response);
+
+        assertEquals(200, resp.getStatusCodeValue());
+        assertEquals("{bcrypt}$2a$12$new", user.getPasswordHash());
+        verify(userRepository).save(user);
+    }
+
+    @Test
+    void currentHash_isLeftAlone() {
+        loginUser("{bcrypt}$2a$12$current");
+
+        controller.login(new LoginRequest("erin", "secret"), request, response);
+
+        verify(passwordEncoder, never()).encode(any());
+        verify(userRepository, never()).save(any());
+    }
+
+    @Test
+    void rehashRefusedWhileBusy_stillLogsIn() {
+        User user = loginUser("$2a$10$old");
+        when(passwordEncoder.upgradeEncoding("$2a$10$old")).thenReturn(true);
+        when(passwordEncoder.encode("secret")).thenThrow(new PasswordHashingRejectedException());
+
+        ResponseEntity<?> resp = controller.login(new LoginRequest("erin", "secret"), request, response);
+
+        assertEquals(200, resp.getStatusCodeValue());
+        assertEquals("$2a$10$old", user.getPasswordHash());
+        verify(userRepository, never()).save(any());
+    }
 }
@@ -1,159 +1,245 @@
 package uk.gov.hmcts.reform.demo.controllers;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.*;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import uk.gov.hmcts.reform.demo.dto.ChatActivity;
+import uk.gov.hmcts.reform.demo.dto.ChatActivityCount;
 import uk.gov.hmcts.reform.demo.dto.SessionActivity;
-import uk.gov.hmcts.reform.demo.entities.Chat;
-import uk.gov.hmcts.reform.demo.entities.Session;
+import uk.gov.hmcts.reform.demo.dto.SessionActivityCount;
+import uk.gov.hmcts.reform.demo.dto.StatisticsDashboard;
+import uk.gov.hmcts.reform.demo.entities.CategoryStatistics;
 import uk.gov.hmcts.reform.demo.entities.User;
-import uk.gov.hmcts.reform.demo.repositories.ChatRepository;
-import uk.gov.hmcts.reform.demo.repositories.SessionRepository;
-import uk.gov.hmcts.reform.demo.repositories.UserRepository;
+import uk.gov.hmcts.reform.demo.services.AnalyticsSnapshotService;
+import uk.gov.hmcts.reform.demo.services.AnalyticsSnapshotService.RangeStatistics;
+import uk.gov.hmcts.reform.demo.services.LiveStatisticsPublisher;
+import uk.gov.hmcts.reform.demo.services.StatisticsCache;
+import uk.gov.hmcts.reform.demo.services.StatisticsExportService;
+import uk.gov.hmcts.reform.demo.services.StatisticsExportService.Format;
+import uk.gov.hmcts.reform.demo.services.StatisticsRollupService;
+import uk.gov.hmcts.reform.demo.services.StatisticsRollupService.Granularity;
+import uk.gov.hmcts.reform.demo.services.StatisticsService;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
 class StatisticsControllerTest {
 
-    @InjectMocks
     private StatisticsController controller;
 
     @Mock
-    private SessionRepository sessionRepository;
+    private StatisticsService statisticsService;
 
     @Mock
-    private UserRepository userRepository;
+    private StatisticsRollupService rollupService;
 
     @Mock
-    private ChatRepository chatRepository; // not used by this method
+    private StatisticsExportService exportService;
+
+    @Mock
+    private AnalyticsSnapshotService snapshotService;
+
+    @Mock
+    private LiveStatisticsPublisher livePublisher;
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        StatisticsCache cache = new StatisticsCache(new ObjectMapper().findAndRegisterModules(),
+                                                    new SimpleMeterRegistry(), 60_000, 100, 1);
+        controller = new StatisticsController(statisticsService, rollupService, exportService, snapshotService,
+                                              cache, livePublisher);
+    }
+
+    private static SessionActivityCount activityRow(LocalDateTime period, String ageGroup, long sessions) {
+        return new SessionActivityCount() {
+            @Override
+            public LocalDateTime getPeriod() {
+                return period;
+            }
+
+            @Override
+            public String getAgeGroup() {
+                return ageGroup;
+            }
+
+            @Override
+            public Long getSessions() {
+                return sessions;
+            }
+        };
+    }
+
+    private static ChatActivityCount chatRow(LocalDateTime period, String category, String ageGroup, long chats) {
+        ChatActivityCount row = mock(ChatActivityCount.class);
+        when(row.getPeriod()).thenReturn(period);
+        when(row.getCategory()).thenReturn(category);
+        when(row.getAgeGroup()).thenReturn(ageGroup);
+        when(row.getChats()).thenReturn(chats);
+        return row;
     }
 
     @Test
     void getUserActivity_noSessions_returnsEmptyList() {
-        when(sessionRepository.findAll()).thenReturn(List.of());
+        when(rollupService.getSessionActivity(any(), any(), any())).thenReturn(List.of());
 
-        ResponseEntity<List<SessionActivity>> resp = controller.getUserActivity();
+        ResponseEntity<?> resp = controller.getUserActivity(null, null, Granularity.DAY, null);
 
-        assertEquals(200, resp.getStatusCodeValue());
-        assertNotNull(resp.getBody());
-        assertTrue(resp.getBody().isEmpty());
+        assertEquals(200, resp.getStatusCode().value());
+        assertEquals(List.of(), resp.getBody());
     }
 
     @Test
-    void getUserActivity_orphanedSessions_areSkipped() {
-        // one session whose user cannot be found
-        User missing = new User();
-        missing.setId(99L);
-        Session sess = new Session("t", missing, LocalDateTime.now(), LocalDateTime.now());
+    void getUserActivity_mapsAggregatedRows() {
+        LocalDate day = LocalDate.of(2025, 5, 9);
+        when(rollupService.getSessionActivity(any(), any(), any())).thenReturn(List.of(
+            activityRow(day.atStartOfDay(), "20-30", 3),
+            activityRow(day.atStartOfDay(), "51+", 1)
+        ));
 
-        when(sessionRepository.findAll()).thenReturn(List.of(sess));
-        when(userRepository.findById(99L)).thenReturn(Optional.empty());
+        @SuppressWarnings("unchecked")
+        List<SessionActivity> activities =
+            (List<SessionActivity>) controller.getUserActivity(null, null, Granularity.DAY, null).getBody();
 
-        List<SessionActivity> activities = controller.getUserActivity().getBody();
+        assertNotNull(activities);
+        assertEquals(2, activities.size());
+        assertEquals(day, activities.get(0).getDate());
+        assertNull(activities.get(0).getHour());
+        assertEquals("20-30", activities.get(0).getAgeGroup());
+        assertEquals(3, activities.get(0).getSessions());
+        assertEquals("51+", activities.get(1).getAgeGroup());
+        assertEquals(1, activities.get(1).getSessions());
+    }
+
+    @Test
+    void getUserActivity_hourly_includesTheHour() {
+        LocalDateTime hour = LocalDateTime.of(2025, 5, 9, 14, 0);
+        when(rollupService.getSessionActivity(any(), any(), any())).thenReturn(List.of(
+            activityRow(hour, "20-30", 3)
+        ));
+
+        @SuppressWarnings("unchecked")
+        List<SessionActivity> activities = (List<SessionActivity>) controller.getUserActivity(
+            LocalDate.of(2025, 5, 9), LocalDate.of(2025, 5, 9), Granularity.HOUR, null).getBody();
 
         assertNotNull(activities);
-        assertTrue(activities.isEmpty(), "Orphaned sessions should be skipped");
+        assertEquals(LocalDate.of(2025, 5, 9), activities.get(0).getDate());
+        assertEquals(hour, activities.get(0).getHour());
+        verify(rollupService).getSessionActivity(LocalDate.of(2025, 5, 9), LocalDate.of(2025, 5, 9), Granularity.HOUR);
     }
 
     @Test
-    void getUserActivity_variousAges_bucketedCorrectly() {
-        LocalDate today = LocalDate.now();
+    void getUserActivity_passesRangeThrough() {
+        when(rollupService.getSessionActivity(any(), any(), any())).thenReturn(List.of());
 
-        // User A: age 25 -> "20 to 30"
-        User u25 = new User();
-        u25.setId(1L);
-        u25.setDateOfBirth(today.minusYears(25));
-        LocalDateTime now = LocalDateTime.now().truncatedTo(java.time.temporal.ChronoUnit.SECONDS);
-        Session s25 = new Session("t1", u25, now, now.plusHours(1));
+        controller.getUserActivity(LocalDate.of(2025, 1, 1), LocalDate.of(2025, 1, 31), Granularity.DAY, null);
 
-        // User B: age 35 -> "31 to 40"
-        User u35 = new User();
-        u35.setId(2L);
-        u35.setDateOfBirth(today.minusYears(35));
-        LocalDateTime now2 = now.plusMinutes(5);
-        Session s35 = new Session("t2", u35, now2, now2.plusHours(1));
+        verify(rollupService).getSessionActivity(LocalDate.of(2025, 1, 1), LocalDate.of(2025, 1, 31), Granularity.DAY);
+    }
+
+    @Test
+    void getUserActivity_defaultsToAllHistoryUpToToday() {
+        when(rollupService.getSessionActivity(any(), any(), any())).thenReturn(List.of());
 
-        // User C: age 45 -> "41 to 50"
-        User u45 = new User();
-        u45.setId(3L);
-        u45.setDateOfBirth(today.minusYears(45));
-        LocalDateTime now3 = now.plusMinutes(10);
-        Session s45 = new Session("t3", u45, now3, now3.plusHours(1));
+        controller.getUserActivity(null, null, Granularity.DAY, null);
 
-        // User D: age 55 -> "51 and over"
-        User u55 = new User();
-        u55.setId(4L);
-        u55.setDateOfBirth(today.minusYears(55));
-        LocalDateTime now4 = now.plusMinutes(15);
-        Session s55 = new Session("t4", u55, now4, now4.plusHours(1));
+        verify(rollupService).getSessionActivity(LocalDate.EPOCH, LocalDate.now(), Granularity.DAY);
+    }
 
-        when(sessionRepository.findAll()).thenReturn(List.of(s25, s35, s45, s55));
-        when(userRepository.findById(1L)).thenReturn(Optional.of(u25));
-        when(userRepository.findById(2L)).thenReturn(Optional.of(u35));
-        when(userRepository.findById(3L)).thenReturn(Optional.of(u45));
-        when(userRepository.findById(4L)).thenReturn(Optional.of(u55));
+    @Test
+    void getUserActivity_hourlyDefaultsToToday() {
+        when(rollupService.getSessionActivity(any(), any(), any())).thenReturn(List.of());
 
-        List<SessionActivity> activities = controller.getUserActivity().getBody();
+        controller.getUserActivity(null, null, Granularity.HOUR, null);
 
-        assertNotNull(activities);
-        assertEquals(4, activities.size());
+        verify(rollupService).getSessionActivity(LocalDate.now(), LocalDate.now(), Granularity.HOUR);
+    }
 
-        // Verify each in order
-        assertEquals(now,   activities.get(0).getCreatedAt());
-        assertEquals("20 to 30",   activities.get(0).getAgeGroup());
+    @Test
+    void getUserActivity_fromAfterTo_returnsBadRequest() {
+        ResponseEntity<?> resp = controller.getUserActivity(LocalDate.of(2025, 2, 1), LocalDate.of(2025, 1, 1),
+                                                            Granularity.DAY, null);
 
-        assertEquals(now2,  activities.get(1).getCreatedAt());
-        assertEquals("31 to 40",   activities.get(1).getAgeGroup());
+        assertEquals(400, resp.getStatusCode().value());
+        verifyNoInteractions(rollupService);
+    }
 
-        assertEquals(now3,  activities.get(2).getCreatedAt());
-        assertEquals("41 to 50",   activities.get(2).getAgeGroup());
+    @Test
+    void getUserActivity_hourlyOverMoreThanAMonth_returnsBadRequest() {
+        ResponseEntity<?> resp = controller.getUserActivity(LocalDate.of(2025, 1, 1), LocalDate.of(2025, 2, 1),
+                                                            Granularity.HOUR, null);
 
-        assertEquals(now4,  activities.get(3).getCreatedAt());
-        assertEquals("51 and over", activities.get(3).getAgeGroup());
+        assertEquals(400, resp.getStatusCode().value());
+        verifyNoInteractions(rollupService);
     }
 
     @Test
-    void getChatCategoryBreakdown_calculatesPercentagesPerAgeBucket() {
-        LocalDate today = LocalDate.now();
+    void getChatActivity_mapsRowsPerCategory() {
+        LocalDate day = LocalDate.of(2025, 5, 9);
+        when(rollupService.getChatActivity(any(), any(), any())).thenReturn(List.of(
+            chatRow(day.atStartOfDay(), "Billing", "20-30", 4),
+            chatRow(day.atStartOfDay(), "Delivery", "51+", 2)
+        ));
 
-        // Create users in different age groups:
-        User u25 = new User(); u25.setId(1L);
-        u25.setDateOfBirth(today.minusYears(25));
-        User u35 = new User(); u35.setId(2L);
-        u35.setDateOfBirth(today.minusYears(35));
-        User u45 = new User(); u45.setId(3L);
-        u45.setDateOfBirth(today.minusYears(45));
+        @SuppressWarnings("unchecked")
+        List<ChatActivity> activities =
+            (List<ChatActivity>) controller.getChatActivity(day, day, Granularity.DAY, null).getBody();
 
-        when(userRepository.findAll()).thenReturn(List.of(u25, u35, u45));
+        assertNotNull(activities);
+        assertEquals(2, activities.size());
+        assertEquals(day, activities.get(0).getDate());
+        assertNull(activities.get(0).getHour());
+        assertEquals("Billing", activities.get(0).getCategory());
+        assertEquals("20-30", activities.get(0).getAgeGroup());
+        assertEquals(4, activities.get(0).getChats());
+        assertEquals("Delivery", activities.get(1).getCategory());
+        verify(rollupService).getChatActivity(day, day, Granularity.DAY);
+    }
 
-        // Create chats: two in "catA" by u25 & u35, one in "catB" by u45
-        Chat c1 = new Chat(); c1.setDescription("catA"); c1.setUser(u25); c1.setCreatedAt(LocalDateTime.now());
-        Chat c2 = new Chat(); c2.setDescription("catA"); c2.setUser(u35); c2.setCreatedAt(LocalDateTime.now().plusMinutes(1));
-        Chat c3 = new Chat(); c3.setDescription("catB"); c3.setUser(u45); c3.setCreatedAt(LocalDateTime.now().plusMinutes(2));
+    @Test
+    void getChatActivity_hourlyOverMoreThanAMonth_returnsBadRequest() {
+        ResponseEntity<?> resp = controller.getChatActivity(LocalDate.of(2025, 1, 1), LocalDate.of(2025, 3, 1),
+                                                            Granularity.HOUR, null);
 
-        when(chatRepository.findAll()).thenReturn(List.of(c1, c2, c3));
+        assertEquals(400, resp.getStatusCode().value());
+        verifyNoInteractions(rollupService);
+    }
 
-        // Act
-        ResponseEntity<Map<String, Map<String, Double>>> resp = controller.getChatCategoryBreakdown();
-        assertEquals(200, resp.getStatusCodeValue());
+    @Test
+    void getChatCategoryBreakdown_calculatesPercentagesPerAgeBucket() {
+        LocalDateTime now = LocalDateTime.now();
+        when(statisticsService.getCategories()).thenReturn(List.of(
+            new CategoryStatistics("catA", 2, now, now),
+            new CategoryStatistics("catB", 1, now, now)
+        ));
+        when(statisticsService.getCategoryAgeGroups()).thenReturn(Map.of(
+            "catA", Map.of("20-30", 1L, "31-40", 1L),
+            "catB", Map.of("41-50", 1L)
+        ));
+
+        ResponseEntity<Map<String, Map<String, Double>>> resp =
+            controller.getChatCategoryBreakdown(true, null, null, false, null, null);
+        assertEquals(200, resp.getStatusCode().value());
         Map<String, Map<String, Double>> breakdown = resp.getBody();
         assertNotNull(breakdown);
-
-        // We expect two categories: "catA" then "catB"
-        assertTrue(breakdown.containsKey("catA"));
-        assertTrue(breakdown.containsKey("catB"));
+        assertEquals(List.of("catA", "catB"), List.copyOf(breakdown.keySet()));
 
         // For catA: 2 users interacted, one in 20-30 and one in 31-40 => each 50%, others 0%
         Map<String, Double> pctA = breakdown.get("catA");
@@ -162,101 +248,451 @@ class StatisticsControllerTest {
         assertEquals(0.0, pctA.get("41-50"), 0.0001);
         assertEquals(0.0, pctA.get("51+"),   0.0001);
 
-        // For catB: only u45 interacted => 100% in 41-50, others 0%
+        // For catB: only one user interacted => 100% in 41-50, others 0%
         Map<String, Double> pctB = breakdown.get("catB");
         assertEquals(0.0,  pctB.get("20-30"), 0.0001);
         assertEquals(0.0,  pctB.get("31-40"), 0.0001);
         assertEquals(100.0, pctB.get("41-50"), 0.0001);
         assertEquals(0.0,  pctB.get("51+"),   0.0001);
+    }
+
+    @Test
+    void getChatCategoryBreakdown_usersUnder20CountTowardsTotalOnly() {
+        LocalDateTime now = LocalDateTime.now();
+        when(statisticsService.getCategories()).thenReturn(List.of(new CategoryStatistics("catA", 2, now, now)));
+        when(statisticsService.getCategoryAgeGroups()).thenReturn(Map.of(
+            "catA", Map.of("under 20", 1L, "20-30", 1L)));
 
-        // Verify repository calls
-        verify(userRepository).findAll();
-        verify(chatRepository).findAll();
+        Map<String, Double> pct = controller.getChatCategoryBreakdown(true, null, null, false, null, null)
+            .getBody().get("catA");
+
+        assertEquals(50.0, pct.get("20-30"), 0.0001);
+        assertFalse(pct.containsKey("under 20"));
+    }
+
+    @Test
+    void getChatCategoryBreakdown_limitedToTopSixCategories() {
+        LocalDateTime now = LocalDateTime.now();
+        List<CategoryStatistics> categories = java.util.stream.IntStream.range(0, 8)
+            .mapToObj(i -> new CategoryStatistics("cat" + i, 8 - i, now, now))
+            .toList();
+        when(statisticsService.getCategories()).thenReturn(categories);
+        when(statisticsService.getCategoryAgeGroups()).thenReturn(Map.of());
+
+        Map<String, Map<String, Double>> breakdown =
+            controller.getChatCategoryBreakdown(true, null, null, false, null, null).getBody();
+
+        assertEquals(6, breakdown.size());
+        assertFalse(breakdown.containsKey("cat6"));
     }
 
     @Test
     void noChats_returnsEmptyList() {
-        when(chatRepository.findAll()).thenReturn(List.of());
+        when(statisticsService.getCategories()).thenReturn(List.of());
 
-        ResponseEntity<List<Map<String, Object>>> resp = controller.getPopularChatCategories();
+        ResponseEntity<List<Map<String, Object>>> resp = controller.getPopularChatCategories(null, null, null);
 
-        assertEquals(200, resp.getStatusCodeValue());
+        assertEquals(200, resp.getStatusCode().value());
         assertNotNull(resp.getBody());
         assertTrue(resp.getBody().isEmpty());
-        verify(chatRepository).findAll();
     }
 
     @Test
-    void singleCategory_returnsOneEntryWithCorrectStats() {
-        LocalDateTime t1 = LocalDateTime.of(2022,1,1,10,0);
-        LocalDateTime t2 = LocalDateTime.of(2022,1,1,11,0);
-        Chat c1 = new Chat(); c1.setDescription("catX"); c1.setCreatedAt(t2);
-        Chat c2 = new Chat(); c2.setDescription("catX"); c2.setCreatedAt(t1);
-        Chat c3 = new Chat(); c3.setDescription("catX"); c3.setCreatedAt(t2.plusHours(1));
+    void multipleCategories_keepOrderAndAssignRank() {
+        LocalDateTime now = LocalDateTime.now();
+        when(statisticsService.getCategories()).thenReturn(List.of(
+            new CategoryStatistics("catB", 3, now.minusMinutes(5), now.minusMinutes(3)),
+            new CategoryStatistics("catA", 2, now.minusMinutes(2), now.minusMinutes(1)),
+            new CategoryStatistics("catC", 1, now, now)
+        ));
+
+        var list = controller.getPopularChatCategories(null, null, null).getBody();
+        assertEquals(3, list.size());
+
+        Map<String, Object> top = list.get(0);
+        assertEquals("catB", top.get("name"));
+        assertEquals(3L, ((Long) top.get("queries")).longValue());
+        assertEquals(1, ((Integer) top.get("order")).intValue());
+        assertEquals(now.minusMinutes(5), top.get("firstQuery"));
+        assertEquals(now.minusMinutes(3), top.get("lastQuery"));
+
+        assertEquals("catA", list.get(1).get("name"));
+        assertEquals(2, ((Integer) list.get(1).get("order")).intValue());
+        assertEquals("catC", list.get(2).get("name"));
+        assertEquals(3, ((Integer) list.get(2).get("order")).intValue());
+    }
+
+    @Test
+    void rebuild_requiresAdmin() {
+        User user = new User();
+        user.setIsAdmin(false);
+
+        assertEquals(403, controller.rebuildStatistics(user).getStatusCode().value());
+        assertEquals(403, controller.rebuildStatistics(null).getStatusCode().value());
+        verifyNoInteractions(statisticsService);
+    }
+
+    @Test
+    void rebuild_asAdmin_rebuildsStatistics() {
+        User admin = new User();
+        admin.setIsAdmin(true);
+
+        assertEquals(200, controller.rebuildStatistics(admin).getStatusCode().value());
+        verify(statisticsService).rebuild();
+        verify(rollupService).rebuild();
+        verify(snapshotService).rebuild();
+    }
+
+    @Test
+    void getChatCategoryBreakdown_recomputeRequiresAdmin() {
+        User user = new User();
+        user.setIsAdmin(false);
+
+        assertEquals(403, controller.getChatCategoryBreakdown(false, null, null, true, user, null)
+            .getStatusCode().value());
+        assertEquals(403, controller.getChatCategoryBreakdown(false, null, null, true, null, null)
+            .getStatusCode().value());
+        verifyNoInteractions(statisticsService);
+    }
 
-        when(chatRepository.findAll()).thenReturn(List.of(c1, c2, c3));
+    @Test
+    void getChatCategoryBreakdown_recomputeAsAdmin_skipsTheSummaries() {
+        User admin = new User();
+        admin.setIsAdmin(true);
+        Map<String, Map<String, Double>> recomputed = Map.of("catA", Map.of("20-30", 100.0));
+        when(statisticsService.recomputeCategoryBreakdown(6)).thenReturn(recomputed);
+
+        ResponseEntity<Map<String, Map<String, Double>>> resp =
+            controller.getChatCategoryBreakdown(false, null, null, true, admin, null);
+
+        assertEquals(200, resp.getStatusCode().value());
+        assertEquals(recomputed, resp.getBody());
+        verify(statisticsService, never()).getCategories();
+    }
 
-        var resp = controller.getPopularChatCategories();
-        assertEquals(200, resp.getStatusCodeValue());
-        var list = resp.getBody();
+    @Test
+    void getChatCategoryBreakdown_approximateByDefault_usesSketchEstimatesOverAllTime() {
+        when(statisticsService.estimateCategoryAgeGroups(LocalDate.EPOCH, LocalDate.now())).thenReturn(Map.of(
+            "catA", Map.of("20-30", 3L, "51+", 1L)));
+
+        Map<String, Double> pct = controller.getChatCategoryBreakdown(false, null, null, false, null, null)
+            .getBody().get("catA");
+
+        assertEquals(75.0, pct.get("20-30"), 0.0001);
+        assertEquals(25.0, pct.get("51+"), 0.0001);
+        verify(statisticsService, never()).getCategoryAgeGroups();
+    }
+
+    @Test
+    void getChatCategoryBreakdown_approximate_passesRangeThrough() {
+        LocalDate from = LocalDate.of(2024, 1, 1);
+        LocalDate to = LocalDate.of(2024, 1, 31);
+        when(statisticsService.estimateCategoryAgeGroups(from, to)).thenReturn(Map.of());
+
+        assertEquals(200, controller.getChatCategoryBreakdown(false, from, to, false, null, null)
+            .getStatusCode().value());
+        verify(statisticsService).estimateCategoryAgeGroups(from, to);
+    }
+
+    @Test
+    void getChatCategoryBreakdown_approximate_ranksByTheRangesEstimatedUsers() {
+        LocalDate from = LocalDate.of(2024, 1, 1);
+        LocalDate to = LocalDate.of(2024, 1, 31);
+        Map<String, Map<String, Long>> estimates = new LinkedHashMap<>();
+        for (int i = 0; i < 8; i++) {
+            estimates.put("cat" + i, Map.of("20-30", (long) i, "under 20", 1L));
+        }
+        when(statisticsService.estimateCategoryAgeGroups(from, to)).thenReturn(estimates);
+
+        Map<String, Map<String, Double>> breakdown =
+            controller.getChatCategoryBreakdown(false, from, to, false, null, null).getBody();
+
+        assertEquals(List.of("cat7", "cat6", "cat5", "cat4", "cat3", "cat2"), List.copyOf(breakdown.keySet()));
+        verify(statisticsService, never()).getCategories();
+    }
+
+    @Test
+    void getChatCategoryBreakdown_badRanges_returnBadRequest() {
+        LocalDate day = LocalDate.of(2024, 1, 1);
+
+        assertEquals(400, controller.getChatCategoryBreakdown(false, day, day.minusDays(1), false, null, null)
+            .getStatusCode().value());
+        assertEquals(400, controller.getChatCategoryBreakdown(true, day, day.minusDays(1), false, null, null)
+            .getStatusCode().value());
+        verifyNoInteractions(statisticsService, snapshotService);
+    }
+
+    @Test
+    void getChatCategoryBreakdown_exactRange_isScannedFromTheSnapshot() {
+        LocalDate from = LocalDate.of(2024, 1, 1);
+        LocalDate to = LocalDate.of(2024, 1, 31);
+        when(snapshotService.isReady()).thenReturn(true);
+        when(snapshotService.getRangeStatistics(from, to)).thenReturn(new RangeStatistics(
+            List.of(new CategoryStatistics("Billing", 4, null, null)),
+            Map.of("Billing", Map.of("20-30", 1L, "51+", 1L, "under 20", 2L))));
+
+        Map<String, Double> pct = controller.getChatCategoryBreakdown(true, from, to, false, null, null)
+            .getBody().get("Billing");
+
+        assertEquals(25.0, pct.get("20-30"), 0.0001);
+        assertEquals(0.0, pct.get("31-40"), 0.0001);
+        assertEquals(25.0, pct.get("51+"), 0.0001);
+        verifyNoInteractions(statisticsService);
+    }
+
+    @Test
+    void getChatCategoryBreakdown_exactRangeBeforeTheSnapshotLoads_returnsServiceUnavailable() {
+        LocalDate day = LocalDate.of(2024, 1, 1);
+
+        assertEquals(503, controller.getChatCategoryBreakdown(true, day, day, false, null, null)
+            .getStatusCode().value());
+        verify(snapshotService, never()).getRangeStatistics(any(), any());
+    }
+
+    @Test
+    void getPopularChatCategories_range_isScannedFromTheSnapshot() {
+        LocalDate day = LocalDate.of(2024, 1, 1);
+        LocalDateTime at = day.atTime(9, 0);
+        when(snapshotService.isReady()).thenReturn(true);
+        when(snapshotService.getRangeStatistics(day, day)).thenReturn(new RangeStatistics(
+            List.of(new CategoryStatistics("Billing", 2, at, at.plusHours(1))), Map.of()));
+
+        List<Map<String, Object>> list = controller.getPopularChatCategories(day, day, null).getBody();
+
+        assertNotNull(list);
         assertEquals(1, list.size());
+        assertEquals("Billing", list.get(0).get("name"));
+        assertEquals(2L, list.get(0).get("queries"));
+        assertEquals(at, list.get(0).get("firstQuery"));
+        verifyNoInteractions(statisticsService);
+    }
 
-        Map<String,Object> stats = list.get(0);
-        assertEquals("catX", stats.get("name"));
-        assertEquals(3L, ((Long)stats.get("queries")).longValue());
-        assertEquals(t1, stats.get("firstQuery"));
-        assertEquals(t2.plusHours(1), stats.get("lastQuery"));
-        assertEquals(1, ((Integer)stats.get("order")).intValue());
+    @Test
+    void getPopularChatCategories_badRangeOrSnapshotLoading_isRejected() {
+        LocalDate day = LocalDate.of(2024, 1, 1);
 
-        verify(chatRepository).findAll();
+        assertEquals(400, controller.getPopularChatCategories(day, day.minusDays(1), null)
+            .getStatusCode().value());
+        assertEquals(503, controller.getPopularChatCategories(day, day, null).getStatusCode().value());
     }
 
     @Test
-    void multipleCategories_sortedByCountAndOrderAssigned() {
+    void getDashboard_allTime_readsTheCategoriesOnceAndMatchesEachEndpoint() {
         LocalDateTime now = LocalDateTime.now();
-        // catA: 2 chats
-        Chat a1 = new Chat(); a1.setDescription("catA"); a1.setCreatedAt(now.minusMinutes(2));
-        Chat a2 = new Chat(); a2.setDescription("catA"); a2.setCreatedAt(now.minusMinutes(1));
-        // catB: 3 chats
-        Chat b1 = new Chat(); b1.setDescription("catB"); b1.setCreatedAt(now.minusMinutes(5));
-        Chat b2 = new Chat(); b2.setDescription("catB"); b2.setCreatedAt(now.minusMinutes(4));
-        Chat b3 = new Chat(); b3.setDescription("catB"); b3.setCreatedAt(now.minusMinutes(3));
-        // catC: 1 chat
-        Chat c1 = new Chat(); c1.setDescription("catC"); c1.setCreatedAt(now);
-
-        when(chatRepository.findAll()).thenReturn(List.of(a1,a2,b1,b2,b3,c1));
-
-        var resp = controller.getPopularChatCategories();
-        assertEquals(200, resp.getStatusCodeValue());
-        var list = resp.getBody();
-        assertEquals(3, list.size());
+        LocalDate day = LocalDate.of(2025, 5, 9);
+        when(rollupService.getSessionActivity(any(), any(), any())).thenReturn(List.of(
+            activityRow(day.atStartOfDay(), "20-30", 3)));
+        when(statisticsService.getCategories()).thenReturn(List.of(new CategoryStatistics("catA", 2, now, now)));
+        when(statisticsService.getCategoryAgeGroups()).thenReturn(Map.of("catA", Map.of("20-30", 1L)));
+
+        StatisticsDashboard dashboard = controller.getDashboard(null, null, null).getBody();
+
+        assertNotNull(dashboard);
+        verify(statisticsService, times(1)).getCategories();
+        verify(statisticsService, times(1)).getCategoryAgeGroups();
+        verify(rollupService).getSessionActivity(LocalDate.EPOCH, LocalDate.now(), Granularity.DAY);
+        assertEquals(1, dashboard.getUserActivity().size());
+        assertEquals(3, dashboard.getUserActivity().get(0).getSessions());
+        assertEquals(controller.getChatCategoryBreakdown(true, null, null, false, null, null).getBody(),
+                     dashboard.getCategoryBreakdown());
+        assertEquals(controller.getPopularChatCategories(null, null, null).getBody(),
+                     dashboard.getPopularCategories());
+    }
 
-        // Expect order: catB (3), catA (2), catC (1)
-        Map<String,Object> top = list.get(0);
-        assertEquals("catB", top.get("name"));
-        assertEquals(3L, ((Long)top.get("queries")).longValue());
-        assertEquals(1, ((Integer)top.get("order")).intValue());
+    @Test
+    void getDashboard_range_scansTheSnapshotOnce() {
+        LocalDate from = LocalDate.of(2024, 1, 1);
+        LocalDate to = LocalDate.of(2024, 1, 31);
+        when(rollupService.getSessionActivity(any(), any(), any())).thenReturn(List.of());
+        when(snapshotService.isReady()).thenReturn(true);
+        when(snapshotService.getRangeStatistics(from, to)).thenReturn(new RangeStatistics(
+            List.of(new CategoryStatistics("Billing", 4, null, null)), Map.of("Billing", Map.of("51+", 2L))));
+
+        StatisticsDashboard dashboard = controller.getDashboard(from, to, null).getBody();
+
+        assertNotNull(dashboard);
+        verify(snapshotService, times(1)).getRangeStatistics(from, to);
+        verify(rollupService).getSessionActivity(from, to, Granularity.DAY);
+        assertEquals(100.0, dashboard.getCategoryBreakdown().get("Billing").get("51+"), 0.0001);
+        assertEquals("Billing", dashboard.getPopularCategories().get(0).get("name"));
+        verifyNoInteractions(statisticsService);
+    }
 
-        Map<String,Object> second = list.get(1);
-        assertEquals("catA", second.get("name"));
-        assertEquals(2L, ((Long)second.get("queries")).longValue());
-        assertEquals(2, ((Integer)second.get("order")).intValue());
+    @Test
+    void getDashboard_badRangeOrSnapshotLoading_isRejected() {
+        LocalDate day = LocalDate.of(2024, 1, 1);
 
-        Map<String,Object> third = list.get(2);
-        assertEquals("catC", third.get("name"));
-        assertEquals(1L, ((Long)third.get("queries")).longValue());
-        assertEquals(3, ((Integer)third.get("order")).intValue());
+        assertEquals(400, controller.getDashboard(day, day.minusDays(1), null).getStatusCode().value());
+        assertEquals(503, controller.getDashboard(day, day, null).getStatusCode().value());
+        verifyNoInteractions(rollupService);
+    }
 
-        // Verify first/last timestamps are correct
-        assertEquals(now.minusMinutes(5), top.get("firstQuery"));
-        assertEquals(now.minusMinutes(3), top.get("lastQuery"));
+    @Test
+    void streamLiveStatistics_requiresAdmin() {
+        User user = new User();
+        user.setIsAdmin(false);
 
-        assertEquals(now.minusMinutes(2), second.get("firstQuery"));
-        assertEquals(now.minusMinutes(1), second.get("lastQuery"));
+        assertEquals(403, controller.streamLiveStatistics(user).getStatusCode().value());
+        assertEquals(403, controller.streamLiveStatistics(null).getStatusCode().value());
+        verifyNoInteractions(livePublisher);
+    }
+
+    @Test
+    void streamLiveStatistics_asAdmin_subscribes() {
+        SseEmitter emitter = new SseEmitter();
+        when(livePublisher.subscribe()).thenReturn(emitter);
 
-        assertEquals(now, third.get("firstQuery"));
-        assertEquals(now, third.get("lastQuery"));
+        ResponseEntity<SseEmitter> resp = controller.streamLiveStatistics(admin());
 
-        verify(chatRepository).findAll();
+        assertEquals(200, resp.getStatusCode().value());
+        assertSame(emitter, resp.getBody());
+        assertEquals("no-store", resp.getHeaders().getCacheControl());
+    }
+
+    @Test
+    void streamLiveStatistics_tooManySubscribers_returnsServiceUnavailable() {
+        when(livePublisher.subscribe()).thenReturn(null);
+
+        assertEquals(503, controller.streamLiveStatistics(admin()).getStatusCode().value());
+    }
+
+    private static User admin() {
+        User admin = new User();
+        admin.setIsAdmin(true);
+        return admin;
+    }
+
+    private static byte[] bodyOf(ResponseEntity<StreamingResponseBody> resp) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        resp.getBody().writeTo(out);
+        return out.toByteArray();
+    }
+
+    @Test
+    void exports_requireAdmin() {
+        User user = new User();
+        user.setIsAdmin(false);
+
+        assertEquals(403, controller.exportSessions(null, null, Format.CSV, null, user).getStatusCode().value());
+        assertEquals(403, controller.exportChats(null, null, Format.CSV, null, null).getStatusCode().value());
+        verifyNoInteractions(exportService);
+    }
+
+    @Test
+    void exportSessions_fromAfterTo_returnsBadRequest() {
+        ResponseEntity<StreamingResponseBody> resp = controller.exportSessions(
+            LocalDate.of(2025, 2, 1), LocalDate.of(2025, 1, 1), Format.CSV, null, admin());
+
+        assertEquals(400, resp.getStatusCode().value());
+        verifyNoInteractions(exportService);
+    }
+
+    @Test
+    void exportSessions_streamsCsvAsAnAttachment() throws Exception {
+        when(exportService.exportSessions(any(), any(), any(), any())).thenAnswer(invocation -> {
+            invocation.getArgument(3, OutputStream.class).write("id\r\n".getBytes(StandardCharsets.UTF_8));
+            return 0L;
+        });
+
+        ResponseEntity<StreamingResponseBody> resp = controller.exportSessions(null, null, Format.CSV, null, admin());
+
+        assertEquals(200, resp.getStatusCode().value());
+        assertEquals("text/csv;charset=UTF-8", resp.getHeaders().getContentType().toString());
+        assertTrue(resp.getHeaders().getFirst(HttpHeaders.CONTENT_DISPOSITION).contains("sessions.csv"));
+        assertNull(resp.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        // Nothing is read until the body is written
+        verifyNoInteractions(exportService);
+
+        assertEquals("id\r\n", new String(bodyOf(resp), StandardCharsets.UTF_8));
+        verify(exportService).exportSessions(eq(LocalDate.EPOCH), eq(LocalDate.now()), eq(Format.CSV), any());
+    }
+
+    @Test
+    void exportChats_gzipsWhenAccepted() throws Exception {
+        when(exportService.exportChats(any(), any(), any(), any())).thenAnswer(invocation -> {
+            invocation.getArgument(3, OutputStream.class).write("{\"id\":1}\n".getBytes(StandardCharsets.UTF_8));
+            return 1L;
+        });
+
+        ResponseEntity<StreamingResponseBody> resp = controller.exportChats(
+            LocalDate.of(2025, 1, 1), LocalDate.of(2025, 1, 31), Format.NDJSON, "gzip, deflate, br", admin());
+
+        assertEquals("application/x-ndjson", resp.getHeaders().getContentType().toString());
+        assertEquals("gzip", resp.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertTrue(resp.getHeaders().getFirst(HttpHeaders.CONTENT_DISPOSITION).contains("chats.ndjson"));
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(bodyOf(resp)))) {
+            assertEquals("{\"id\":1}\n", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        verify(exportService).exportChats(eq(LocalDate.of(2025, 1, 1)), eq(LocalDate.of(2025, 1, 31)),
+                                          eq(Format.NDJSON), any());
+    }
+
+    @Test
+    void acceptsGzip_honoursQualityZero() {
+        assertTrue(StatisticsController.acceptsGzip("gzip"));
+        assertTrue(StatisticsController.acceptsGzip("deflate, GZIP;q=0.5"));
+        assertFalse(StatisticsController.acceptsGzip(null));
+        assertFalse(StatisticsController.acceptsGzip("br, deflate"));
+        assertFalse(StatisticsController.acceptsGzip("gzip;q=0"));
+        assertFalse(StatisticsController.acceptsGzip("gzip; q=0.0"));
+    }
+
+    @Test
+    void popularChatCategories_cachedWithAnEtag() {
+        when(statisticsService.getCategories()).thenReturn(List.of(
+            new CategoryStatistics("catA", 2, LocalDateTime.of(2025, 1, 1, 9, 0), LocalDateTime.of(2025, 1, 2, 9, 0))));
+
+        ResponseEntity<List<Map<String, Object>>> first = controller.getPopularChatCategories(null, null, null);
+        ResponseEntity<List<Map<String, Object>>> second = controller.getPopularChatCategories(null, null, null);
+
+        assertEquals(200, second.getStatusCode().value());
+        assertNotNull(first.getHeaders().getETag());
+        assertEquals(first.getHeaders().getETag(), second.getHeaders().getETag());
+        assertEquals(first.getBody(), second.getBody());
+        verify(statisticsService, times(1)).getCategories();
+    }
+
+    @Test
+    void popularChatCategories_matchingEtag_returnsNotModified() {
+        when(statisticsService.getCategories()).thenReturn(List.of());
+        String etag = controller.getPopularChatCategories(null, null, null).getHeaders().getETag();
+
+        ResponseEntity<List<Map<String, Object>>> resp =
+            controller.getPopularChatCategories(null, null, "\"other\", " + etag);
+
+        assertEquals(304, resp.getStatusCode().value());
+        assertEquals(etag, resp.getHeaders().getETag());
+        assertNull(resp.getBody());
+    }
+
+    @Test
+    void userActivity_differentRangesAreCachedSeparately() {
+        when(rollupService.getSessionActivity(any(), any(), any())).thenReturn(List.of());
+
+        controller.getUserActivity(LocalDate.of(2025, 1, 1), LocalDate.of(2025, 1, 31), Granularity.DAY, null);
+        controller.getUserActivity(LocalDate.of(2025, 1, 1), LocalDate.of(2025, 1, 31), Granularity.DAY, null);
+        controller.getUserActivity(LocalDate.of(2025, 2, 1), LocalDate.of(2025, 2, 28), Granularity.DAY, null);
+
+        verify(rollupService, times(2)).getSessionActivity(any(), any(), any());
+    }
+
+    @Test
+    void rebuild_invalidatesTheCache() {
+        when(statisticsService.getCategories()).thenReturn(List.of());
+        controller.getPopularChatCategories(null, null, null);
+
+        controller.rebuildStatistics(admin());
+        controller.getPopularChatCategories(null, null, null);
+
+        verify(statisticsService, times(2)).getCategories();
+    }
+
+    @Test
+    void etagMatches_handlesListsWildcardsAndWeakTags() {
+        assertTrue(StatisticsController.etagMatches("\"abc\"", "\"abc\""));
+        assertTrue(StatisticsController.etagMatches("\"x\", W/\"abc\"", "\"abc\""));
+        assertTrue(StatisticsController.etagMatches("*", "\"abc\""));
+        assertFalse(StatisticsController.etagMatches(null, "\"abc\""));
+        assertFalse(StatisticsController.etagMatches("\"abd\"", "\"abc\""));
     }
 }
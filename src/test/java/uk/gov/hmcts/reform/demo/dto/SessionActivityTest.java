@@ -2,7 +2,7 @@ package uk.gov.hmcts.reform.demo.dto;
 
 import org.junit.jupiter.api.Test;
 
-import java.time.LocalDateTime;
+import java.time.LocalDate;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -10,43 +10,40 @@ class SessionActivityTest {
 
     @Test
     void constructorAndGettersInitializeFields() {
-        LocalDateTime timestamp = LocalDateTime.of(2025, 5, 9, 14, 30);
-        String group = "20 to 30";
+        LocalDate day = LocalDate.of(2025, 5, 9);
+        String group = "20-30";
 
-        SessionActivity activity = new SessionActivity(timestamp, group);
+        SessionActivity activity = new SessionActivity(day, group, 12);
 
-        assertEquals(timestamp, activity.getCreatedAt(), "Constructor should set createdAt");
-        assertEquals(group, activity.getAgeGroup(),     "Constructor should set ageGroup");
+        assertEquals(day, activity.getDate(), "Constructor should set date");
+        assertEquals(group, activity.getAgeGroup(), "Constructor should set ageGroup");
+        assertEquals(12, activity.getSessions(), "Constructor should set sessions");
     }
 
     @Test
     void settersUpdateFields() {
-        SessionActivity activity = new SessionActivity(
-            LocalDateTime.of(2025, 1, 1, 0, 0),
-            "31 to 40"
-        );
+        SessionActivity activity = new SessionActivity(LocalDate.of(2025, 1, 1), "31-40", 1);
 
-        LocalDateTime newTimestamp = LocalDateTime.of(2030, 12, 31, 23, 59);
-        String newGroup = "41 to 50";
+        LocalDate newDay = LocalDate.of(2030, 12, 31);
+        String newGroup = "41-50";
 
-        activity.setCreatedAt(newTimestamp);
+        activity.setDate(newDay);
         activity.setAgeGroup(newGroup);
+        activity.setSessions(7);
 
-        assertEquals(newTimestamp, activity.getCreatedAt(), "Setter should update createdAt");
-        assertEquals(newGroup,      activity.getAgeGroup(),    "Setter should update ageGroup");
+        assertEquals(newDay, activity.getDate(), "Setter should update date");
+        assertEquals(newGroup, activity.getAgeGroup(), "Setter should update ageGroup");
+        assertEquals(7, activity.getSessions(), "Setter should update sessions");
     }
 
     @Test
     void canHandleNullValues() {
-        SessionActivity activity = new SessionActivity(
-            LocalDateTime.now(),
-            "51 and over"
-        );
+        SessionActivity activity = new SessionActivity(LocalDate.now(), "51+", 0);
 
-        activity.setCreatedAt(null);
+        activity.setDate(null);
         activity.setAgeGroup(null);
 
-        assertNull(activity.getCreatedAt(), "createdAt should be null after setting null");
-        assertNull(activity.getAgeGroup(),   "ageGroup should be null after setting null");
+        assertNull(activity.getDate(), "date should be null after setting null");
+        assertNull(activity.getAgeGroup(), "ageGroup should be null after setting null");
     }
 }
@@ -0,0 +1,36 @@
+package uk.gov.hmcts.reform.demo.entities;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChatCategoryTest {
+
+    @Test
+    void displayName_collapsesWhitespaceAndDropsTrailingPunctuation() {
+        assertEquals("Billing question", ChatCategory.displayName("  Billing \t\n question?! "));
+        assertEquals("Card, lost", ChatCategory.displayName("Card, lost;"));
+        assertEquals("Billing", ChatCategory.displayName("Billing"));
+    }
+
+    @Test
+    void displayName_nothingLeft_keepsTheDescription() {
+        assertEquals("...", ChatCategory.displayName("..."));
+        assertEquals("  ", ChatCategory.displayName("  "));
+    }
+
+    @Test
+    void canonicalName_ignoresCase() {
+        assertEquals("billing question", ChatCategory.canonicalName("BILLING  Question."));
+        assertEquals(ChatCategory.canonicalName("billing"), ChatCategory.canonicalName("Billing!"));
+    }
+
+    @Test
+    void constructor_setsNameAndCanonicalName() {
+        ChatCategory category = new ChatCategory("Billing question");
+
+        assertEquals("Billing question", category.getName());
+        assertEquals("billing question", category.getCanonicalName());
+        assertNull(category.getId());
+    }
+}
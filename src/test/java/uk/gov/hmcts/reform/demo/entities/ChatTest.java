@@ -60,6 +60,10 @@ class ChatTest {
         chat.setCreatedAt(dt);
         assertEquals(dt, chat.getCreatedAt());
 
+        assertNull(chat.getDeletedAt(), "new chats should not be deleted");
+        chat.setDeletedAt(dt);
+        assertEquals(dt, chat.getDeletedAt());
+
         // setMessages
         Message m = new Message();
         m.setId(11L);
@@ -96,4 +100,13 @@ class ChatTest {
         assertFalse(chat.getMessages().contains(msg), "Message should be removed from chat.messages");
         assertNull(msg.getChat(), "Message.chat should be nulled after removal");
     }
+
+    @Test
+    void getCategoryName_prefersTheCategoryOverTheDescription() {
+        Chat chat = new Chat(new User(), "billing question?");
+        assertEquals("billing question", chat.getCategoryName(), "Without a category the description is tidied");
+
+        chat.setCategory(new ChatCategory("Billing question"));
+        assertEquals("Billing question", chat.getCategoryName());
+    }
 }
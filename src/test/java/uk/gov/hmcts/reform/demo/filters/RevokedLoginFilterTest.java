@@ -0,0 +1,88 @@
+package uk.gov.hmcts.reform.demo.filters;
+
+import jakarta.servlet.FilterChain;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import uk.gov.hmcts.reform.demo.entities.User;
+import uk.gov.hmcts.reform.demo.repositories.UserRepository;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RevokedLoginFilterTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    private RevokedLoginFilter filter;
+    private MockHttpServletRequest request;
+    private MockHttpSession session;
+    private final AtomicReference<Authentication> seenByChain = new AtomicReference<>();
+    private final FilterChain chain =
+        (req, res) -> seenByChain.set(SecurityContextHolder.getContext().getAuthentication());
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        filter = new RevokedLoginFilter(userRepository);
+        session = new MockHttpSession();
+        request = new MockHttpServletRequest();
+        request.setSession(session);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    private static void logIn(long userId) {
+        User user = new User();
+        user.setId(userId);
+        SecurityContextHolder.getContext().setAuthentication(
+            new UsernamePasswordAuthenticationToken(user, null, List.of()));
+    }
+
+    @Test
+    void keepsTheLoginOfAUserWhoMayLogIn() throws Exception {
+        logIn(1L);
+        when(userRepository.canLogin(1L)).thenReturn(true);
+
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+
+        assertNotNull(seenByChain.get());
+        assertFalse(session.isInvalid());
+    }
+
+    @Test
+    void endsTheLoginOfAUserWhoMayNoLongerLogIn() throws Exception {
+        logIn(2L);
+        when(userRepository.canLogin(2L)).thenReturn(false);
+
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+
+        assertNull(seenByChain.get(), "The request should carry on unauthenticated");
+        assertTrue(session.isInvalid());
+    }
+
+    @Test
+    void doesNotQueryForAnonymousRequests() throws Exception {
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+
+        assertNull(seenByChain.get());
+        verify(userRepository, never()).canLogin(any());
+    }
+}
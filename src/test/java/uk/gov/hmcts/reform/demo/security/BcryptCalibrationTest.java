@@ -0,0 +1,37 @@
+package uk.gov.hmcts.reform.demo.security;
+
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BcryptCalibrationTest {
+
+    private static final long TEN_MILLIS = Duration.ofMillis(10).toNanos();
+
+    @Test
+    void strengthFor_picksTheStrongestWithinTheTarget() {
+        // 10 ms at strength 10, so 20 ms at 11, 40 ms at 12 and 80 ms at 13
+        assertEquals(12, BcryptCalibration.strengthFor(Duration.ofMillis(79), strength -> TEN_MILLIS));
+        assertEquals(13, BcryptCalibration.strengthFor(Duration.ofMillis(80), strength -> TEN_MILLIS));
+    }
+
+    @Test
+    void strengthFor_staysWithinTheBounds() {
+        assertEquals(BcryptCalibration.MIN_STRENGTH,
+                     BcryptCalibration.strengthFor(Duration.ofMillis(1), strength -> TEN_MILLIS));
+        assertEquals(BcryptCalibration.MAX_STRENGTH,
+                     BcryptCalibration.strengthFor(Duration.ofMinutes(1), strength -> TEN_MILLIS));
+    }
+
+    @Test
+    void strengthFor_timesTheMinimumStrength() {
+        int[] timed = new int[1];
+        BcryptCalibration.strengthFor(Duration.ofMillis(100), strength -> {
+            timed[0] = strength;
+            return TEN_MILLIS;
+        });
+
+        assertEquals(BcryptCalibration.MIN_STRENGTH, timed[0]);
+    }
+}
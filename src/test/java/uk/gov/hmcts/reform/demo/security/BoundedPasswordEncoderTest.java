@@ -0,0 +1,141 @@
+package uk.gov.hmcts.reform.demo.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoundedPasswordEncoderTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final List<String> hashingThreads = new CopyOnWriteArrayList<>();
+    // Request threads of their own, as the common pool may have only one
+    private final ExecutorService callers = Executors.newCachedThreadPool();
+
+    private SimpleMeterRegistry meterRegistry;
+    private BoundedPasswordEncoder encoder;
+
+    /**
+     * Stands in for BCrypt, holding each hash until released.
+     */
+    private final PasswordEncoder slowEncoder = new PasswordEncoder() {
+        @Override
+        public String encode(CharSequence rawPassword) {
+            await();
+            return "hash:" + rawPassword;
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            await();
+            return encodedPassword.equals("hash:" + rawPassword);
+        }
+
+        private void await() {
+            hashingThreads.add(Thread.currentThread().getName());
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    };
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        encoder.shutdown();
+        callers.shutdownNow();
+    }
+
+    private double rejections(String reason) {
+        return meterRegistry.get("password.hashing.rejected").tag("reason", reason).counter().count();
+    }
+
+    @Test
+    void hashes_runOnThePoolAndReturnTheDelegatesResult() {
+        release.countDown();
+        encoder = new BoundedPasswordEncoder(slowEncoder, 2, 10, 1000, meterRegistry);
+
+        assertEquals("hash:secret", encoder.encode("secret"));
+        assertTrue(encoder.matches("secret", "hash:secret"));
+        assertFalse(encoder.matches("wrong", "hash:secret"));
+
+        assertTrue(hashingThreads.stream().allMatch(name -> name.startsWith("password-hashing-")));
+        assertEquals(1, meterRegistry.get("password.hashing.time").tag("operation", "encode").timer().count());
+        assertEquals(2, meterRegistry.get("password.hashing.time").tag("operation", "matches").timer().count());
+        assertEquals(3, meterRegistry.get("password.hashing.queue.wait").timer().count());
+    }
+
+    @Test
+    void fullQueue_isRefusedWith429() throws Exception {
+        encoder = new BoundedPasswordEncoder(slowEncoder, 1, 1, 10_000, meterRegistry);
+        // One hashing, one queued
+        CompletableFuture<String> hashing = CompletableFuture.supplyAsync(() -> encoder.encode("first"), callers);
+        waitFor(() -> hashingThreads.size() == 1);
+        CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> encoder.encode("second"), callers);
+        waitFor(() -> meterRegistry.get("password.hashing.queue.size").gauge().value() == 1);
+
+        PasswordHashingRejectedException rejected =
+            assertThrows(PasswordHashingRejectedException.class, () -> encoder.encode("third"));
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, rejected.getStatusCode());
+        assertEquals("1", rejected.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        assertEquals(1, rejections("queue_full"));
+
+        release.countDown();
+        assertEquals("hash:first", hashing.get(5, TimeUnit.SECONDS));
+        assertEquals("hash:second", queued.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void hashQueuedPastTheTimeout_isRefusedWithoutHashing() throws Exception {
+        encoder = new BoundedPasswordEncoder(slowEncoder, 1, 10, 50, meterRegistry);
+        CompletableFuture<String> hashing = CompletableFuture.supplyAsync(() -> encoder.encode("first"), callers);
+        waitFor(() -> hashingThreads.size() == 1);
+        CompletableFuture<Boolean> queued =
+            CompletableFuture.supplyAsync(() -> encoder.matches("second", "x"), callers);
+
+        Thread.sleep(100);
+        release.countDown();
+
+        assertEquals("hash:first", hashing.get(5, TimeUnit.SECONDS));
+        Exception failure = assertThrows(Exception.class, () -> queued.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(PasswordHashingRejectedException.class, failure.getCause());
+        assertEquals(1, hashingThreads.size());
+        assertEquals(1, rejections("timeout"));
+    }
+
+    @Test
+    void upgradeEncoding_isAnsweredWithoutThePool() {
+        encoder = new BoundedPasswordEncoder(slowEncoder, 1, 1, 1000, meterRegistry);
+
+        assertFalse(encoder.upgradeEncoding("hash:secret"));
+        assertTrue(hashingThreads.isEmpty());
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "timed out waiting");
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package uk.gov.hmcts.reform.demo.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import uk.gov.hmcts.reform.demo.dto.UserIdentityRow;
+import uk.gov.hmcts.reform.demo.repositories.UserRepository;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class AccountAvailabilityServiceTest {
+
+    private static final long REBUILD_INTERVAL = 60_000;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SimpleMeterRegistry meterRegistry;
+    private long now;
+    private AccountAvailabilityService service;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        when(userRepository.count()).thenReturn(2L);
+        when(userRepository.streamIdentities())
+            .thenAnswer(invocation -> Stream.of(identity("alice", "alice@example.com"),
+                                                identity("bob", "bob@example.com")));
+        meterRegistry = new SimpleMeterRegistry();
+        service = new AccountAvailabilityService(userRepository, transactionManager, meterRegistry, REBUILD_INTERVAL,
+                                                 () -> now);
+    }
+
+    private static UserIdentityRow identity(String username, String email) {
+        return new UserIdentityRow() {
+            @Override
+            public String getUsername() {
+                return username;
+            }
+
+            @Override
+            public String getEmail() {
+                return email;
+            }
+        };
+    }
+
+    private double checks(String result) {
+        return meterRegistry.get("accounts.availability.checks").tag("result", result).counter().count();
+    }
+
+    @Test
+    void beforeTheFilterIsBuilt_checksTheDatabase() {
+        when(userRepository.existsByUsername("carol")).thenReturn(false);
+
+        assertFalse(service.isUsernameTaken("carol"));
+
+        verify(userRepository).existsByUsername("carol");
+    }
+
+    @Test
+    void unregisteredValues_areAnsweredWithoutAQuery() {
+        service.build();
+
+        assertFalse(service.isUsernameTaken("carol"));
+        assertFalse(service.isEmailTaken("carol@example.com"));
+
+        verify(userRepository, never()).existsByUsername(any());
+        verify(userRepository, never()).existsByEmail(any());
+        assertEquals(2, checks("filtered"));
+    }
+
+    @Test
+    void possibleHits_areConfirmedWithOneQuery() {
+        service.build();
+        when(userRepository.existsByUsername("alice")).thenReturn(true);
+        when(userRepository.existsByEmail("bob@example.com")).thenReturn(false);
+
+        assertTrue(service.isUsernameTaken("alice"));
+        // Deleted since the filter was built, so a false positive
+        assertFalse(service.isEmailTaken("bob@example.com"));
+
+        verify(userRepository).existsByUsername("alice");
+        verify(userRepository).existsByEmail("bob@example.com");
+        assertEquals(1, checks("taken"));
+        assertEquals(1, checks("false_positive"));
+    }
+
+    @Test
+    void falsePositiveRate_isTheShareOfAvailableValuesSentToTheDatabase() {
+        service.build();
+        when(userRepository.existsByUsername("alice")).thenReturn(false);
+
+        service.isUsernameTaken("alice");
+        service.isUsernameTaken("carol");
+        service.isUsernameTaken("dave");
+        service.isUsernameTaken("erin");
+
+        assertEquals(0.25, meterRegistry.get("accounts.availability.false_positive_rate").gauge().value());
+        assertTrue(meterRegistry.get("accounts.availability.expected_false_positive_rate").gauge().value() < 1e-9);
+    }
+
+    @Test
+    void registeredAccounts_areAddedToTheFilter() {
+        service.build();
+        service.recordRegistered("carol", "carol@example.com");
+        when(userRepository.existsByUsername("carol")).thenReturn(true);
+        when(userRepository.existsByEmail("carol@example.com")).thenReturn(true);
+
+        assertTrue(service.isUsernameTaken("carol"));
+        assertTrue(service.isEmailTaken("carol@example.com"));
+    }
+
+    @Test
+    void renamedAccounts_addTheirNewValues() {
+        service.build();
+        service.recordRenamed("alice", "alice@example.com", "alicia", "alice@example.com");
+        when(userRepository.existsByUsername("alicia")).thenReturn(true);
+
+        assertTrue(service.isUsernameTaken("alicia"));
+    }
+
+    @Test
+    void rebuildIfStale_waitsForDeletionsOrTheInterval() {
+        service.build();
+        clearInvocations(userRepository);
+
+        now += REBUILD_INTERVAL - 1;
+        service.rebuildIfStale();
+        verify(userRepository, never()).streamIdentities();
+
+        // More than a tenth of the four values in the filter
+        service.recordDeleted(1);
+        service.rebuildIfStale();
+        verify(userRepository).streamIdentities();
+
+        service.rebuildIfStale();
+        verify(userRepository).streamIdentities();
+
+        now += REBUILD_INTERVAL;
+        service.rebuildIfStale();
+        verify(userRepository, times(2)).streamIdentities();
+    }
+
+    @Test
+    void failedBuild_leavesTheDatabaseAnswering() {
+        when(userRepository.streamIdentities()).thenThrow(new RuntimeException("db down"));
+        when(userRepository.existsByEmail("alice@example.com")).thenReturn(true);
+
+        service.build();
+
+        assertTrue(service.isEmailTaken("alice@example.com"));
+        verify(userRepository).existsByEmail("alice@example.com");
+    }
+}
@@ -0,0 +1,162 @@
+package uk.gov.hmcts.reform.demo.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import uk.gov.hmcts.reform.demo.entities.AccountDeletion;
+import uk.gov.hmcts.reform.demo.entities.AccountDeletion.Stage;
+import uk.gov.hmcts.reform.demo.repositories.AccountDeletionRepository;
+import uk.gov.hmcts.reform.demo.repositories.ChatArchiveRepository;
+import uk.gov.hmcts.reform.demo.repositories.ChatRepository;
+import uk.gov.hmcts.reform.demo.repositories.MessageRepository;
+import uk.gov.hmcts.reform.demo.repositories.PasswordResetTokenRepository;
+import uk.gov.hmcts.reform.demo.repositories.SessionRepository;
+import uk.gov.hmcts.reform.demo.repositories.UserRepository;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class AccountDeletionServiceTest {
+
+    private static final int BATCH_SIZE = 100;
+    private static final long RUN_BUDGET = 10_000;
+
+    @Mock
+    private AccountDeletionRepository deletionRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private SessionRepository sessionRepository;
+
+    @Mock
+    private PasswordResetTokenRepository resetTokenRepository;
+
+    @Mock
+    private ChatRepository chatRepository;
+
+    @Mock
+    private MessageRepository messageRepository;
+
+    @Mock
+    private ChatArchiveRepository chatArchiveRepository;
+
+    @Mock
+    private AccountAvailabilityService accountAvailabilityService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SimpleMeterRegistry meterRegistry;
+    private long now;
+    private AccountDeletionService service;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        meterRegistry = new SimpleMeterRegistry();
+        service = new AccountDeletionService(
+            deletionRepository, userRepository, sessionRepository, resetTokenRepository, chatRepository,
+            messageRepository, chatArchiveRepository, accountAvailabilityService, transactionManager, meterRegistry,
+            BATCH_SIZE, 60_000, RUN_BUDGET, () -> now);
+    }
+
+    private void atStage(Long userId, Stage stage) {
+        AccountDeletion deletion = new AccountDeletion();
+        deletion.setUserId(userId);
+        deletion.setStage(stage);
+        when(deletionRepository.findById(userId)).thenReturn(Optional.of(deletion));
+    }
+
+    @Test
+    void requestDeletion_stopsLoginEndsSessionsAndQueuesTheAccount() {
+        service.requestDeletion(1L);
+
+        verify(userRepository).disableLogin(1L);
+        verify(sessionRepository).expireByUserId(eq(1L), any());
+        verify(deletionRepository).insertIfAbsent(eq(1L), any());
+    }
+
+    @Test
+    void process_runsEachStageInBatchesAndCheckpointsEveryBatch() {
+        atStage(1L, Stage.SESSIONS);
+        when(sessionRepository.deleteBatchByUserId(1L, BATCH_SIZE)).thenReturn(100, 5);
+        when(resetTokenRepository.deleteBatchByUserId(1L, BATCH_SIZE)).thenReturn(0);
+        when(chatRepository.findIdsByUserId(1L, 1)).thenReturn(List.of(7L), List.of(7L), List.of());
+        when(messageRepository.deleteBatchByChatId(7L, BATCH_SIZE)).thenReturn(100, 20);
+        when(chatRepository.purgeById(7L)).thenReturn(1);
+
+        assertEquals(Stage.DONE, service.process(1L, Long.MAX_VALUE));
+
+        InOrder inOrder = inOrder(deletionRepository, userRepository, chatRepository, chatArchiveRepository);
+        inOrder.verify(deletionRepository).checkpoint(eq(1L), eq("SESSIONS"), eq(100L), any(), any());
+        inOrder.verify(deletionRepository).checkpoint(eq(1L), eq("RESET_TOKENS"), eq(5L), any(), any());
+        inOrder.verify(deletionRepository).checkpoint(eq(1L), eq("CHATS"), eq(0L), any(), any());
+        inOrder.verify(deletionRepository).checkpoint(eq(1L), eq("CHATS"), eq(100L), any(), any());
+        inOrder.verify(chatArchiveRepository).deleteByChatId(7L);
+        inOrder.verify(chatRepository).softDeleteById(eq(7L), any());
+        inOrder.verify(chatRepository).purgeById(7L);
+        inOrder.verify(deletionRepository).checkpoint(eq(1L), eq("CHATS"), eq(21L), any(), any());
+        inOrder.verify(deletionRepository).checkpoint(eq(1L), eq("ACCOUNT"), eq(0L), any(), any());
+        inOrder.verify(userRepository).deleteAllByIds(List.of(1L));
+        inOrder.verify(deletionRepository).checkpoint(eq(1L), eq("DONE"), eq(0L), any(), any());
+
+        assertEquals(226.0, meterRegistry.get("accounts.deletion.rows").counter().count());
+        assertEquals(1.0, meterRegistry.get("accounts.deletion.accounts").counter().count());
+        verify(accountAvailabilityService).recordDeleted(1);
+        verify(deletionRepository, never()).release(any());
+    }
+
+    @Test
+    void process_resumesFromTheCheckpointedStage() {
+        atStage(2L, Stage.CHATS);
+        when(chatRepository.findIdsByUserId(2L, 1)).thenReturn(List.of());
+
+        assertEquals(Stage.DONE, service.process(2L, Long.MAX_VALUE));
+
+        verifyNoInteractions(sessionRepository, resetTokenRepository, messageRepository);
+        verify(userRepository).deleteAllByIds(List.of(2L));
+    }
+
+    @Test
+    void process_pastTheDeadline_releasesTheDeletionForTheNextRun() {
+        atStage(3L, Stage.SESSIONS);
+        when(sessionRepository.deleteBatchByUserId(3L, BATCH_SIZE)).thenAnswer(invocation -> {
+            now += RUN_BUDGET;
+            return BATCH_SIZE;
+        });
+
+        assertEquals(Stage.SESSIONS, service.process(3L, RUN_BUDGET));
+
+        verify(sessionRepository, times(1)).deleteBatchByUserId(3L, BATCH_SIZE);
+        verify(deletionRepository).release(3L);
+        verifyNoInteractions(accountAvailabilityService);
+    }
+
+    @Test
+    void processDeletions_continuesAfterFailureAndRecordsBacklog() {
+        when(deletionRepository.lockClaimable(any(), eq(1))).thenReturn(List.of(4L), List.of(5L), List.of());
+        when(deletionRepository.findById(4L)).thenThrow(new RuntimeException("connection reset"));
+        atStage(5L, Stage.ACCOUNT);
+        when(deletionRepository.countPending()).thenReturn(1L);
+
+        service.processDeletions();
+
+        verify(deletionRepository).claim(eq(4L), any());
+        verify(deletionRepository).claim(eq(5L), any());
+        verify(userRepository).deleteAllByIds(List.of(5L));
+        verify(userRepository, never()).deleteAllByIds(List.of(4L));
+        assertEquals(1, service.getBacklog());
+        assertEquals(1, meterRegistry.get("accounts.deletion.run").timer().count());
+    }
+}
@@ -0,0 +1,129 @@
+package uk.gov.hmcts.reform.demo.services;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import uk.gov.hmcts.reform.demo.dto.AccountRequestRow;
+import uk.gov.hmcts.reform.demo.repositories.AccountRequestRepository;
+import uk.gov.hmcts.reform.demo.repositories.UserRepository;
+import uk.gov.hmcts.reform.demo.services.AccountRequestService.Outcome;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class AccountRequestServiceTest {
+
+    @Mock
+    private AccountRequestRepository accountRequestRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private EmailService emailService;
+
+    private AccountRequestService service;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        service = new AccountRequestService(accountRequestRepository, userRepository, emailService, 10);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    private static AccountRequestRow row(long id, String status, long userId) {
+        return new AccountRequestRow() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public String getStatus() {
+                return status;
+            }
+
+            @Override
+            public Long getUserId() {
+                return userId;
+            }
+
+            @Override
+            public String getUsername() {
+                return "user" + userId;
+            }
+
+            @Override
+            public String getEmail() {
+                return "user" + userId + "@example.com";
+            }
+        };
+    }
+
+    @Test
+    void approve_updatesPendingRequestsTogetherAndReportsEachId() {
+        when(accountRequestRepository.lockAllById(any()))
+            .thenReturn(List.of(row(1, "PENDING", 11), row(2, "APPROVED", 12), row(3, "PENDING", 13)));
+
+        Map<Long, Outcome> outcomes = service.approve(List.of(3L, 1L, 2L, 4L, 1L));
+
+        assertEquals(List.of(3L, 1L, 2L, 4L), List.copyOf(outcomes.keySet()));
+        assertEquals(Map.of(1L, Outcome.APPROVED, 2L, Outcome.NOT_PENDING, 3L, Outcome.APPROVED,
+                            4L, Outcome.NOT_FOUND), outcomes);
+        verify(accountRequestRepository).approveAll(eq(List.of(1L, 3L)), any(LocalDateTime.class));
+        verify(userRepository).allowLoginForAll(List.of(11L, 13L));
+        verify(userRepository, never()).deleteAllByIds(any());
+
+        verify(emailService, timeout(1000)).sendAccountApprovedEmail("user11@example.com", "user11");
+        verify(emailService, timeout(1000)).sendAccountApprovedEmail("user13@example.com", "user13");
+        verify(emailService, never()).sendAccountApprovedEmail("user12@example.com", "user12");
+    }
+
+    @Test
+    void reject_deletesUsersOfPendingRequestsOnly() {
+        when(accountRequestRepository.lockAllById(any()))
+            .thenReturn(List.of(row(1, "PENDING", 11), row(2, "APPROVED", 12)));
+
+        Map<Long, Outcome> outcomes = service.reject(List.of(1L, 2L));
+
+        assertEquals(Map.of(1L, Outcome.REJECTED, 2L, Outcome.NOT_PENDING), outcomes);
+        verify(userRepository).deleteAllByIds(List.of(11L));
+        verify(accountRequestRepository, never()).approveAll(any(), any());
+        verify(emailService, timeout(1000)).sendAccountRejectedEmail("user11@example.com", "user11");
+    }
+
+    @Test
+    void nothingPending_runsNoUpdatesAndSendsNoEmails() {
+        when(accountRequestRepository.lockAllById(any())).thenReturn(List.of(row(2, "APPROVED", 12)));
+
+        assertEquals(Map.of(2L, Outcome.NOT_PENDING, 5L, Outcome.NOT_FOUND), service.approve(List.of(2L, 5L)));
+        assertTrue(service.approve(List.of()).isEmpty());
+
+        verify(accountRequestRepository, times(1)).lockAllById(any());
+        verify(accountRequestRepository, never()).approveAll(any(), any());
+        verify(userRepository, never()).allowLoginForAll(any());
+        verifyNoInteractions(emailService);
+    }
+
+    @Test
+    void failedEmail_doesNotStopTheRest() {
+        when(accountRequestRepository.lockAllById(any()))
+            .thenReturn(List.of(row(1, "PENDING", 11), row(2, "PENDING", 12)));
+        doThrow(new RuntimeException("mail down"))
+            .when(emailService).sendAccountApprovedEmail("user11@example.com", "user11");
+
+        service.approve(List.of(1L, 2L));
+
+        verify(emailService, timeout(1000)).sendAccountApprovedEmail("user12@example.com", "user12");
+    }
+}
@@ -0,0 +1,132 @@
+package uk.gov.hmcts.reform.demo.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import uk.gov.hmcts.reform.demo.dto.ChatSnapshotRow;
+import uk.gov.hmcts.reform.demo.entities.CategoryStatistics;
+import uk.gov.hmcts.reform.demo.repositories.ChatRepository;
+import uk.gov.hmcts.reform.demo.services.AnalyticsSnapshotService.RangeStatistics;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class AnalyticsSnapshotServiceTest {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 3, 1);
+
+    @Mock
+    private ChatRepository chatRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SimpleMeterRegistry meterRegistry;
+    private AnalyticsSnapshotService snapshotService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        meterRegistry = new SimpleMeterRegistry();
+        snapshotService = new AnalyticsSnapshotService(chatRepository, transactionManager, meterRegistry, 1_000_000);
+    }
+
+    private static ChatSnapshotRow row(long userId, String category, LocalDateTime createdAt, LocalDate dateOfBirth) {
+        ChatSnapshotRow row = mock(ChatSnapshotRow.class);
+        when(row.getUserId()).thenReturn(userId);
+        when(row.getCategory()).thenReturn(category);
+        when(row.getCreatedAt()).thenReturn(createdAt);
+        when(row.getDateOfBirth()).thenReturn(dateOfBirth);
+        return row;
+    }
+
+    @Test
+    void getRangeStatistics_beforeTheFirstLoad_throws() {
+        assertFalse(snapshotService.isReady());
+        assertThrows(IllegalStateException.class, () -> snapshotService.getRangeStatistics(DAY, DAY));
+    }
+
+    @Test
+    void refresh_firstRun_loadsEveryChat() {
+        List<ChatSnapshotRow> rows = List.of(
+            row(1, "Billing", DAY.atTime(9, 0), LocalDate.of(1990, 1, 1)),
+            row(2, "Billing", DAY.atTime(10, 0), LocalDate.of(2010, 1, 1)),
+            row(1, "Delivery", DAY.atTime(11, 0), LocalDate.of(1990, 1, 1)));
+        when(chatRepository.findMaxId()).thenReturn(3L);
+        when(chatRepository.streamSnapshotRows(0, 3)).thenReturn(rows.stream());
+
+        snapshotService.refresh();
+
+        RangeStatistics range = snapshotService.getRangeStatistics(DAY, DAY);
+        assertTrue(snapshotService.isReady());
+        assertEquals("Billing", range.categories().get(0).getCategory());
+        assertEquals(2, range.categories().get(0).getChatCount());
+        assertEquals(DAY.atTime(9, 0), range.categories().get(0).getFirstQueryAt());
+        assertEquals(Map.of("31-40", 1L, "under 20", 1L), range.ageGroups().get("Billing"));
+        assertEquals(3.0, meterRegistry.get("statistics.snapshot.chats").gauge().value());
+    }
+
+    @Test
+    void refresh_laterRuns_loadUpToTheIdSeenLastRun() {
+        ChatSnapshotRow chat = row(1, "Billing", DAY.atTime(9, 0), null);
+        when(chatRepository.findMaxId()).thenReturn(3L, 5L, 5L);
+        when(chatRepository.streamSnapshotRows(anyLong(), anyLong())).thenReturn(Stream.empty());
+        when(chatRepository.streamSnapshotRows(3, 5)).thenReturn(Stream.of(chat));
+
+        snapshotService.refresh();
+        snapshotService.refresh();
+        snapshotService.refresh();
+
+        verify(chatRepository).streamSnapshotRows(0, 3);
+        verify(chatRepository).streamSnapshotRows(3, 5);
+        verify(chatRepository, times(2)).streamSnapshotRows(anyLong(), anyLong());
+        assertEquals(1, snapshotService.getRangeStatistics(DAY, DAY).categories().size());
+    }
+
+    @Test
+    void refresh_failedLoad_isRetriedWithoutDuplicates() {
+        when(chatRepository.findMaxId()).thenReturn(2L, 4L, 4L, 4L);
+        when(chatRepository.streamSnapshotRows(0, 2)).thenReturn(Stream.empty());
+        ChatSnapshotRow first = row(1, "Billing", DAY.atTime(9, 0), null);
+        ChatSnapshotRow second = row(2, "Billing", DAY.atTime(10, 0), null);
+        ChatSnapshotRow broken = mock(ChatSnapshotRow.class);
+        when(broken.getCategory()).thenThrow(new IllegalStateException("connection reset"));
+        when(chatRepository.streamSnapshotRows(2, 4))
+            .thenReturn(Stream.of(first, broken))
+            .thenReturn(Stream.of(first, second));
+
+        snapshotService.refresh();
+        snapshotService.refresh();
+        // Fails part way through chats 3 and 4, after appending the first
+        snapshotService.refresh();
+        assertTrue(snapshotService.getRangeStatistics(DAY, DAY).categories().isEmpty());
+        snapshotService.refresh();
+
+        CategoryStatistics billing = snapshotService.getRangeStatistics(DAY, DAY).categories().get(0);
+        assertEquals(2, billing.getChatCount());
+    }
+
+    @Test
+    void rebuild_replacesTheSnapshot() {
+        ChatSnapshotRow chat = row(1, "Billing", DAY.atTime(9, 0), null);
+        when(chatRepository.findMaxId()).thenReturn(1L);
+        when(chatRepository.streamSnapshotRows(0, 1)).thenReturn(Stream.of(chat), Stream.empty());
+        snapshotService.refresh();
+
+        snapshotService.rebuild();
+
+        assertTrue(snapshotService.getRangeStatistics(DAY, DAY).categories().isEmpty());
+        assertEquals(0.0, meterRegistry.get("statistics.snapshot.chats").gauge().value());
+    }
+}
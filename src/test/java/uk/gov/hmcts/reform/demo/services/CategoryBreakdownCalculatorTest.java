@@ -0,0 +1,98 @@
+package uk.gov.hmcts.reform.demo.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import uk.gov.hmcts.reform.demo.utils.AgeGroups;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CategoryBreakdownCalculatorTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2024, 6, 1);
+
+    @Test
+    void breakdown_countsEachUserOncePerCategory() {
+        CategoryBreakdownCalculator calculator = new CategoryBreakdownCalculator(2);
+        calculator.addUser(1L, LocalDate.of(2000, 1, 1)); // 24
+        calculator.addUser(2L, LocalDate.of(1980, 1, 1)); // 44
+        calculator.addChat(1L, "Billing", TODAY);
+        calculator.addChat(1L, "Billing", TODAY);
+        calculator.addChat(1L, "Billing", TODAY);
+        calculator.addChat(2L, "Billing", TODAY);
+
+        Map<String, Double> pct = calculator.breakdown(6).get("Billing");
+
+        assertEquals(50.0, pct.get("20-30"));
+        assertEquals(0.0, pct.get("31-40"));
+        assertEquals(50.0, pct.get("41-50"));
+        assertEquals(0.0, pct.get("51+"));
+        assertEquals(AgeGroups.FROM_20, List.copyOf(pct.keySet()));
+    }
+
+    @Test
+    void breakdown_usersUnder20CountTowardsTotalOnly() {
+        CategoryBreakdownCalculator calculator = new CategoryBreakdownCalculator(2);
+        calculator.addUser(1L, LocalDate.of(2010, 1, 1));
+        calculator.addUser(2L, LocalDate.of(1960, 1, 1));
+        calculator.addChat(1L, "Billing", TODAY);
+        calculator.addChat(2L, "Billing", TODAY);
+
+        Map<String, Double> pct = calculator.breakdown(6).get("Billing");
+
+        assertEquals(50.0, pct.get("51+"));
+        assertEquals(50.0, pct.values().stream().mapToDouble(Double::doubleValue).sum());
+    }
+
+    @Test
+    void breakdown_keepsTheCategoriesWithMostChats() {
+        CategoryBreakdownCalculator calculator = new CategoryBreakdownCalculator(1);
+        calculator.addUser(1L, LocalDate.of(1990, 1, 1));
+        for (int category = 0; category < 8; category++) {
+            for (int i = 0; i <= category; i++) {
+                calculator.addChat(1L, "cat" + category, TODAY);
+            }
+        }
+
+        Map<String, Map<String, Double>> breakdown = calculator.breakdown(6);
+
+        assertEquals(List.of("cat7", "cat6", "cat5", "cat4", "cat3", "cat2"), List.copyOf(breakdown.keySet()));
+    }
+
+    @Test
+    void addChat_unknownUser_countsTheChatButNoUser() {
+        CategoryBreakdownCalculator calculator = new CategoryBreakdownCalculator(1);
+        calculator.addChat(99L, "Billing", TODAY);
+
+        Map<String, Double> pct = calculator.breakdown(6).get("Billing");
+
+        assertEquals(0.0, pct.get("20-30"));
+    }
+
+    @Test
+    void addUser_growsPastTheExpectedCount() {
+        CategoryBreakdownCalculator calculator = new CategoryBreakdownCalculator(1);
+        for (long id = 1; id <= 1000; id++) {
+            calculator.addUser(id, LocalDate.of(1970, 1, 1));
+            calculator.addChat(id, "Billing", TODAY);
+        }
+
+        assertEquals(100.0, calculator.breakdown(6).get("Billing").get("51+"));
+    }
+
+    @Test
+    void addChat_takesTheAgeAtTheUsersFirstChatInTheCategory() {
+        CategoryBreakdownCalculator calculator = new CategoryBreakdownCalculator(1);
+        calculator.addUser(1L, LocalDate.of(1994, 6, 1));
+        calculator.addChat(1L, "Billing", LocalDate.of(2024, 5, 31)); // 29
+        calculator.addChat(1L, "Billing", TODAY); // 30, already counted
+        calculator.addChat(1L, "Refunds", LocalDate.of(2025, 6, 1)); // 31
+
+        Map<String, Map<String, Double>> breakdown = calculator.breakdown(6);
+
+        assertEquals(100.0, breakdown.get("Billing").get("20-30"));
+        assertEquals(100.0, breakdown.get("Refunds").get("31-40"));
+    }
+}
@@ -0,0 +1,220 @@
+package uk.gov.hmcts.reform.demo.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import uk.gov.hmcts.reform.demo.dto.MessageSearchHit;
+import uk.gov.hmcts.reform.demo.entities.Chat;
+import uk.gov.hmcts.reform.demo.entities.ChatArchive;
+import uk.gov.hmcts.reform.demo.entities.Message;
+import uk.gov.hmcts.reform.demo.repositories.ChatArchiveRepository;
+import uk.gov.hmcts.reform.demo.repositories.ChatRepository;
+import uk.gov.hmcts.reform.demo.repositories.MessageRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ChatArchiveServiceTest {
+
+    @Mock
+    private ChatRepository chatRepository;
+
+    @Mock
+    private MessageRepository messageRepository;
+
+    @Mock
+    private ChatArchiveRepository chatArchiveRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private SimpleTransactionStatus transactionStatus;
+
+    private ChatArchiveService archiveService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        transactionStatus = new SimpleTransactionStatus();
+        when(transactionManager.getTransaction(any())).thenReturn(transactionStatus);
+        meterRegistry = new SimpleMeterRegistry();
+        archiveService = new ChatArchiveService(
+            chatRepository, messageRepository, chatArchiveRepository, new ObjectMapper().findAndRegisterModules(),
+            transactionManager, meterRegistry, 7, 10);
+    }
+
+    private static Message message(Chat chat, long id, String sender, String text, LocalDateTime createdAt) {
+        Message message = new Message(chat, sender, text, createdAt);
+        message.setId(id);
+        return message;
+    }
+
+    @Test
+    void encodeThenDecode_roundTripsMessages() {
+        Chat chat = new Chat();
+        chat.setId(1L);
+        LocalDateTime t1 = LocalDateTime.of(2024, 3, 1, 9, 30);
+        List<Message> original = List.of(
+            message(chat, 10L, "user", "Where is my \"parcel\"?\nIt's late.", t1),
+            message(chat, 11L, "chatbot", "Let me check — one moment.", t1.plusMinutes(1))
+        );
+
+        byte[] payload = archiveService.encode(original);
+        List<Message> decoded = archiveService.decode(chat, payload);
+
+        assertEquals(2, decoded.size());
+        for (int i = 0; i < original.size(); i++) {
+            assertEquals(original.get(i).getId(), decoded.get(i).getId());
+            assertEquals(original.get(i).getSender(), decoded.get(i).getSender());
+            assertEquals(original.get(i).getMessage(), decoded.get(i).getMessage());
+            assertEquals(original.get(i).getCreatedAt(), decoded.get(i).getCreatedAt());
+            assertSame(chat, decoded.get(i).getChat());
+        }
+    }
+
+    @Test
+    void archiveChat_storesBlobAndDeletesHotMessages() {
+        Chat chat = new Chat();
+        chat.setId(2L);
+        LocalDateTime t1 = LocalDateTime.now().minusDays(30);
+        when(chatRepository.lockById(2L)).thenReturn(Optional.of(chat));
+        when(messageRepository.findByChat(chat)).thenReturn(List.of(
+            message(chat, 21L, "chatbot", "b", t1.plusMinutes(1)),
+            message(chat, 20L, "user", "a", t1)
+        ));
+        when(messageRepository.countByChat(chat)).thenReturn(0L);
+
+        assertTrue(archiveService.archiveChat(2L));
+
+        ArgumentCaptor<ChatArchive> captor = ArgumentCaptor.forClass(ChatArchive.class);
+        verify(chatArchiveRepository).saveAndFlush(captor.capture());
+        assertEquals(2L, captor.getValue().getChatId());
+        assertEquals(2, captor.getValue().getMessageCount());
+        assertEquals(t1.plusMinutes(1), captor.getValue().getLastMessageAt());
+        verify(chatArchiveRepository).indexMessagesUpTo(2L, 21L);
+        verify(messageRepository).deleteByChatIdUpTo(2L, 21L);
+        verify(chatRepository).updateArchivedAt(eq(2L), any(LocalDateTime.class));
+        assertEquals(1.0, meterRegistry.get("chat.archive.chats").counter().count());
+        assertEquals(1L, meterRegistry.get("chat.archive.archive").timer().count());
+    }
+
+    @Test
+    void archiveChat_newMessageArrives_abandonsArchive() {
+        Chat chat = new Chat();
+        chat.setId(3L);
+        when(chatRepository.lockById(3L)).thenReturn(Optional.of(chat));
+        when(messageRepository.findByChat(chat))
+            .thenReturn(List.of(message(chat, 30L, "user", "a", LocalDateTime.now().minusDays(30))));
+        when(messageRepository.countByChat(chat)).thenReturn(1L);
+
+        assertFalse(archiveService.archiveChat(3L));
+
+        verify(chatRepository, never()).updateArchivedAt(anyLong(), any());
+        assertTrue(transactionStatus.isRollbackOnly(), "the partial archive should be rolled back");
+        assertEquals(0.0, meterRegistry.get("chat.archive.chats").counter().count());
+    }
+
+    @Test
+    void archiveChat_alreadyArchived_isSkipped() {
+        Chat chat = new Chat();
+        chat.setId(4L);
+        chat.setArchivedAt(LocalDateTime.now());
+        when(chatRepository.lockById(4L)).thenReturn(Optional.of(chat));
+
+        assertFalse(archiveService.archiveChat(4L));
+        verifyNoInteractions(messageRepository, chatArchiveRepository);
+    }
+
+    @Test
+    void rehydrate_readsArchiveWithoutWriting() {
+        Chat chat = new Chat();
+        chat.setId(5L);
+        byte[] payload = archiveService.encode(List.of(message(chat, 50L, "user", "hi", LocalDateTime.now())));
+        when(chatArchiveRepository.findById(5L)).thenReturn(Optional.of(new ChatArchive(5L, 1, null, payload)));
+
+        List<Message> messages = archiveService.rehydrate(chat);
+
+        assertEquals(1, messages.size());
+        assertEquals("hi", messages.get(0).getMessage());
+        verifyNoInteractions(messageRepository);
+        assertEquals(1L, meterRegistry.get("chat.archive.rehydrate").timer().count());
+    }
+
+    @Test
+    void withArchivedSnippets_highlightsArchivedHitsFromTheArchive() {
+        Chat chat = new Chat();
+        chat.setId(8L);
+        byte[] payload = archiveService.encode(List.of(
+            message(chat, 80L, "user", "where is my refund", LocalDateTime.now()),
+            message(chat, 81L, "chatbot", "refunds take five days", LocalDateTime.now())));
+        when(chatArchiveRepository.findById(8L)).thenReturn(Optional.of(new ChatArchive(8L, 2, null, payload)));
+        when(messageRepository.headline("refunds take five days", "refund"))
+            .thenReturn("<mark>refunds</mark> take five days");
+        MessageSearchHit hot = hit(9L, 90L, "my <mark>refund</mark>");
+        MessageSearchHit archived = hit(8L, 81L, null);
+
+        List<MessageSearchHit> hits = archiveService.withArchivedSnippets(List.of(hot, archived), "refund");
+
+        assertSame(hot, hits.get(0));
+        assertEquals(81L, hits.get(1).getMessageId());
+        assertEquals("<mark>refunds</mark> take five days", hits.get(1).getSnippet());
+        verify(messageRepository, never()).headline("where is my refund", "refund");
+    }
+
+    private static MessageSearchHit hit(long chatId, long messageId, String snippet) {
+        MessageSearchHit hit = mock(MessageSearchHit.class);
+        when(hit.getChatId()).thenReturn(chatId);
+        when(hit.getMessageId()).thenReturn(messageId);
+        when(hit.getSnippet()).thenReturn(snippet);
+        return hit;
+    }
+
+    @Test
+    void promote_restoresMessagesAndClearsArchive() {
+        Chat chat = new Chat();
+        chat.setId(6L);
+        chat.setArchivedAt(LocalDateTime.now());
+        LocalDateTime createdAt = LocalDateTime.now().minusDays(20);
+        byte[] payload = archiveService.encode(List.of(message(chat, 60L, "user", "old", createdAt)));
+        when(chatArchiveRepository.findById(6L)).thenReturn(Optional.of(new ChatArchive(6L, 1, createdAt, payload)));
+
+        archiveService.promote(chat);
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Iterable<Message>> captor = ArgumentCaptor.forClass(Iterable.class);
+        verify(messageRepository).saveAll(captor.capture());
+        Message restored = captor.getValue().iterator().next();
+        assertNull(restored.getId(), "restored messages get new IDs");
+        assertEquals(createdAt, restored.getCreatedAt());
+        verify(chatRepository).lockById(6L);
+        verify(chatArchiveRepository).deleteByChatId(6L);
+        verify(chatRepository).updateArchivedAt(6L, null);
+        assertNull(chat.getArchivedAt());
+    }
+
+    @Test
+    void archiveIdleChats_dropsEmptyPartitionsEvenWhenAChatFails() {
+        when(chatRepository.findIdleChatIds(any(), eq(10))).thenReturn(List.of(7L));
+        when(chatRepository.lockById(7L)).thenThrow(new RuntimeException("connection reset"));
+
+        LocalDateTime before = LocalDateTime.now();
+        archiveService.archiveIdleChats();
+
+        ArgumentCaptor<LocalDateTime> endsBefore = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(messageRepository).dropEmptyPartitionsBefore(endsBefore.capture());
+        assertFalse(endsBefore.getValue().isBefore(before.minusDays(7)));
+        assertTrue(endsBefore.getValue().isBefore(before.minusDays(6)));
+    }
+}
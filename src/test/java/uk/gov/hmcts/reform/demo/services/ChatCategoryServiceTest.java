@@ -0,0 +1,117 @@
+package uk.gov.hmcts.reform.demo.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import uk.gov.hmcts.reform.demo.entities.ChatCategory;
+import uk.gov.hmcts.reform.demo.repositories.ChatCategoryRepository;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ChatCategoryServiceTest {
+
+    @Mock
+    private ChatCategoryRepository chatCategoryRepository;
+
+    private ChatCategoryService chatCategoryService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(chatCategoryRepository.insertIfAbsent(anyString(), anyString())).thenReturn(Optional.empty());
+        chatCategoryService = new ChatCategoryService(chatCategoryRepository, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private ChatCategory existing(String name, int id) {
+        ChatCategory category = new ChatCategory(name);
+        category.setId(id);
+        when(chatCategoryRepository.findByCanonicalName(category.getCanonicalName()))
+            .thenReturn(Optional.of(category));
+        return category;
+    }
+
+    @Test
+    void resolve_newCategory_addsItUnderItsTidiedName() {
+        when(chatCategoryRepository.insertIfAbsent("Billing question", "billing question"))
+            .thenReturn(Optional.of(3));
+
+        ChatCategory result = chatCategoryService.resolve("Billing   question?");
+
+        assertEquals(3, result.getId());
+        assertEquals("Billing question", result.getName());
+        assertEquals("billing question", result.getCanonicalName());
+        verify(chatCategoryRepository, never()).findByCanonicalName(anyString());
+    }
+
+    @Test
+    void resolve_existingCategory_isReadInTheSameTransaction() {
+        ChatCategory billing = existing("Billing", 1);
+
+        assertSame(billing, chatCategoryService.resolve("billing."));
+        verify(chatCategoryRepository).insertIfAbsent("billing", "billing");
+    }
+
+    @Test
+    void resolve_sameCanonicalName_usesTheCategoryAlreadyResolved() {
+        ChatCategory billing = existing("Billing", 1);
+
+        chatCategoryService.resolve("Billing");
+        ChatCategory result = chatCategoryService.resolve("billing.");
+
+        assertSame(billing, result);
+        verify(chatCategoryRepository, times(1)).insertIfAbsent(anyString(), anyString());
+        verify(chatCategoryRepository, times(1)).findByCanonicalName(anyString());
+    }
+
+    @Test
+    void resolve_addedCategory_isOnlyCachedOnceCommitted() {
+        TransactionSynchronizationManager.initSynchronization();
+        when(chatCategoryRepository.insertIfAbsent("Billing", "billing")).thenReturn(Optional.of(1));
+
+        chatCategoryService.resolve("Billing");
+        // Rolled back: the next chat adds the category again
+        TransactionSynchronizationManager.clearSynchronization();
+        when(chatCategoryRepository.insertIfAbsent("Billing", "billing")).thenReturn(Optional.of(2));
+        assertEquals(2, chatCategoryService.resolve("Billing").getId());
+
+        verify(chatCategoryRepository, times(2)).insertIfAbsent("Billing", "billing");
+    }
+
+    @Test
+    void resolve_cacheIsBounded_evictingTheLeastRecentlyUsed() {
+        // Billing, Delivery; Delivery, Billing; Billing, Returns (Delivery evicted); Returns, Billing; then Delivery
+        existing("Billing", 1);
+        existing("Delivery", 2);
+        existing("Returns", 3);
+
+        chatCategoryService.resolve("Billing");
+        chatCategoryService.resolve("Delivery");
+        chatCategoryService.resolve("Billing");
+        chatCategoryService.resolve("Returns");
+        chatCategoryService.resolve("Billing");
+        chatCategoryService.resolve("Delivery");
+
+        verify(chatCategoryRepository, times(1)).findByCanonicalName("billing");
+        verify(chatCategoryRepository, times(2)).findByCanonicalName("delivery");
+    }
+
+    @Test
+    void resolve_categoryMissingAfterInsert_throws() {
+        when(chatCategoryRepository.findByCanonicalName("billing")).thenReturn(Optional.empty());
+
+        assertThrows(IllegalStateException.class, () -> chatCategoryService.resolve("Billing"));
+    }
+}
@@ -0,0 +1,180 @@
+package uk.gov.hmcts.reform.demo.services;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import uk.gov.hmcts.reform.demo.services.ChatColumns.CategoryTally;
+import uk.gov.hmcts.reform.demo.utils.AgeGroups;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChatColumnsTest {
+
+    private static final LocalDateTime DAY = LocalDateTime.of(2024, 3, 1, 0, 0);
+    private static final LocalDate BORN_1990 = LocalDate.of(1990, 6, 1);
+
+    private static Map<String, CategoryTally> byCategory(List<CategoryTally> tallies) {
+        return tallies.stream().collect(Collectors.toMap(CategoryTally::category, Function.identity()));
+    }
+
+    @Test
+    void tally_countsChatsAndDistinctUsersPerCategory() {
+        ChatColumns columns = new ChatColumns(0);
+        columns.append(1, "Billing", DAY.plusHours(9), BORN_1990);
+        columns.append(1, "Billing", DAY.plusHours(10), BORN_1990);
+        columns.append(2, "Billing", DAY.plusHours(11), LocalDate.of(2010, 1, 1));
+        columns.append(1, "Delivery", DAY.plusHours(12), BORN_1990);
+
+        Map<String, CategoryTally> tallies = byCategory(columns.view().tally(DAY, DAY.plusDays(1), false));
+
+        CategoryTally billing = tallies.get("Billing");
+        assertEquals(3, billing.chats());
+        assertEquals(2, billing.users());
+        assertEquals(DAY.plusHours(9), billing.firstAt());
+        assertEquals(DAY.plusHours(11), billing.lastAt());
+        // One user aged 31-40 in 2024 and one under 20
+        assertEquals(1, billing.usersPerBucket()[AgeGroups.UNDER_20_BUCKET]);
+        assertEquals(1, billing.usersPerBucket()[2]);
+        assertEquals(1, tallies.get("Delivery").users());
+    }
+
+    @Test
+    void append_clampsCreationTimesItCannotStore() {
+        ChatColumns columns = new ChatColumns(0);
+        columns.append(1, "Billing", LocalDateTime.of(1900, 1, 1, 0, 0), BORN_1990);
+        columns.append(2, "Billing", DAY, BORN_1990);
+        columns.append(3, "Billing", LocalDateTime.of(2100, 1, 1, 0, 0), BORN_1990);
+
+        CategoryTally all = columns.view()
+            .tally(LocalDateTime.of(1800, 1, 1, 0, 0), LocalDateTime.of(2200, 1, 1, 0, 0), false).get(0);
+        assertEquals(3, all.chats());
+        assertEquals(ChatColumns.fromSeconds(Integer.MIN_VALUE), all.firstAt());
+        assertEquals(ChatColumns.fromSeconds(Integer.MAX_VALUE - 1), all.lastAt());
+        assertEquals(1, columns.view().tally(DAY, DAY.plusDays(1), false).get(0).chats());
+    }
+
+    @Test
+    void tally_leavesOutChatsOutsideTheRange() {
+        ChatColumns columns = new ChatColumns(0);
+        columns.append(1, "Billing", DAY.minusSeconds(1), BORN_1990);
+        columns.append(1, "Billing", DAY, BORN_1990);
+        columns.append(2, "Delivery", DAY.plusDays(1), BORN_1990);
+
+        List<CategoryTally> tallies = columns.view().tally(DAY, DAY.plusDays(1), false);
+
+        assertEquals(1, tallies.size());
+        assertEquals(1, tallies.get(0).chats());
+        assertEquals(DAY, tallies.get(0).firstAt());
+    }
+
+    @Test
+    void tally_userOfUnknownAge_isInNoBucket() {
+        ChatColumns columns = new ChatColumns(0);
+        columns.append(1, "Billing", DAY, null);
+
+        CategoryTally billing = columns.view().tally(DAY, DAY.plusDays(1), false).get(0);
+
+        assertEquals(1, billing.users());
+        assertEquals(0, Arrays.stream(billing.usersPerBucket()).sum());
+    }
+
+    @Test
+    void tally_parallel_matchesSerial() {
+        ChatColumns columns = new ChatColumns(0);
+        Random random = new Random(42);
+        String[] categories = {"Billing", "Delivery", "Returns", "Account"};
+        for (int i = 0; i < 50_000; i++) {
+            columns.append(1 + random.nextInt(2_000), categories[random.nextInt(categories.length)],
+                           DAY.plusMinutes(random.nextInt(60 * 24 * 30)),
+                           LocalDate.of(1950 + random.nextInt(60), 1, 1));
+        }
+        ChatColumns.View view = columns.view();
+
+        List<CategoryTally> serial = view.tally(DAY, DAY.plusDays(10), false);
+        List<CategoryTally> parallel = view.tally(DAY, DAY.plusDays(10), true);
+
+        serial.sort(Comparator.comparing(CategoryTally::category));
+        parallel.sort(Comparator.comparing(CategoryTally::category));
+        assertEquals(serial.size(), parallel.size());
+        for (int i = 0; i < serial.size(); i++) {
+            assertEquals(serial.get(i).chats(), parallel.get(i).chats());
+            assertEquals(serial.get(i).users(), parallel.get(i).users());
+            assertEquals(serial.get(i).firstAt(), parallel.get(i).firstAt());
+            assertEquals(serial.get(i).lastAt(), parallel.get(i).lastAt());
+            assertArrayEquals(serial.get(i).usersPerBucket(), parallel.get(i).usersPerBucket());
+        }
+    }
+
+    @Test
+    void tally_inChunks_countsEachUserOnceAtTheirFirstChat() {
+        ChatColumns columns = new ChatColumns(0);
+        Random random = new Random(7);
+        String[] categories = {"Billing", "Delivery", "Returns"};
+        for (int i = 0; i < 20_000; i++) {
+            // Birthdays fall inside the range, so a user's bucket depends on which of their chats comes first
+            int user = 1 + random.nextInt(500);
+            columns.append(user, categories[random.nextInt(categories.length)],
+                           DAY.plusMinutes(random.nextInt(60 * 24 * 30)),
+                           DAY.toLocalDate().minusYears(20).plusDays(user % 30));
+        }
+        ChatColumns.View view = columns.view();
+
+        Map<String, CategoryTally> whole = byCategory(view.tally(DAY, DAY.plusDays(30), 1));
+        for (int parts : new int[] {2, 4, 7}) {
+            Map<String, CategoryTally> chunked = byCategory(view.tally(DAY, DAY.plusDays(30), parts));
+            assertEquals(whole.keySet(), chunked.keySet());
+            whole.forEach((category, tally) -> {
+                assertEquals(tally.chats(), chunked.get(category).chats());
+                assertEquals(tally.users(), chunked.get(category).users());
+                assertArrayEquals(tally.usersPerBucket(), chunked.get(category).usersPerBucket());
+            });
+        }
+    }
+
+    @Test
+    void view_isUnaffectedByLaterAppends() {
+        ChatColumns columns = new ChatColumns(0);
+        columns.append(1, "Billing", DAY, BORN_1990);
+        ChatColumns.View view = columns.view();
+
+        // Enough to grow the arrays past their initial capacity
+        for (int i = 0; i < 5_000; i++) {
+            columns.append(2, "Delivery", DAY, BORN_1990);
+        }
+
+        assertEquals(1, view.size());
+        assertEquals(1, view.tally(DAY, DAY.plusDays(1), false).size());
+        assertEquals(5_001, columns.view().size());
+    }
+
+    @Test
+    void truncate_dropsTheChatsAppendedSince() {
+        ChatColumns columns = new ChatColumns(0);
+        columns.append(1, "Billing", DAY, BORN_1990);
+        columns.append(2, "Delivery", DAY, BORN_1990);
+
+        columns.truncate(1);
+
+        List<CategoryTally> tallies = columns.view().tally(DAY, DAY.plusDays(1), false);
+        assertEquals(1, columns.size());
+        assertEquals(List.of("Billing"), tallies.stream().map(CategoryTally::category).toList());
+    }
+
+    @Test
+    void footprintBytes_isAboutThirteenBytesPerChat() {
+        ChatColumns columns = new ChatColumns(100_000);
+        for (int i = 0; i < 100_000; i++) {
+            columns.append(i % 100, "Billing", DAY, BORN_1990);
+        }
+
+        assertTrue(columns.footprintBytes() >= 1_300_000);
+        assertTrue(columns.footprintBytes() < 1_400_000);
+    }
+}
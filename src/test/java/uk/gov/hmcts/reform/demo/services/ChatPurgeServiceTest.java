@@ -0,0 +1,83 @@
+package uk.gov.hmcts.reform.demo.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import uk.gov.hmcts.reform.demo.repositories.ChatArchiveRepository;
+import uk.gov.hmcts.reform.demo.repositories.ChatRepository;
+import uk.gov.hmcts.reform.demo.repositories.MessageRepository;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ChatPurgeServiceTest {
+
+    @Mock
+    private ChatRepository chatRepository;
+
+    @Mock
+    private MessageRepository messageRepository;
+
+    @Mock
+    private ChatArchiveRepository chatArchiveRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private ChatPurgeService purgeService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        meterRegistry = new SimpleMeterRegistry();
+        purgeService = new ChatPurgeService(
+            chatRepository, messageRepository, chatArchiveRepository, meterRegistry, 100, 10);
+    }
+
+    @Test
+    void purgeChat_deletesMessagesInBatchesThenChat() {
+        when(messageRepository.deleteBatchByChatId(1L, 100)).thenReturn(100, 100, 42);
+        when(chatRepository.purgeById(1L)).thenReturn(1);
+
+        long removed = purgeService.purgeChat(1L);
+
+        assertEquals(242, removed);
+        InOrder inOrder = inOrder(messageRepository, chatArchiveRepository, chatRepository);
+        inOrder.verify(messageRepository, times(3)).deleteBatchByChatId(1L, 100);
+        inOrder.verify(chatArchiveRepository).deleteByChatId(1L);
+        inOrder.verify(chatRepository).purgeById(1L);
+        assertEquals(242.0, meterRegistry.get("chat.purge.messages").counter().count());
+        assertEquals(1.0, meterRegistry.get("chat.purge.chats").counter().count());
+    }
+
+    @Test
+    void purgeChat_emptyChat_onlyDeletesChatRow() {
+        when(messageRepository.deleteBatchByChatId(2L, 100)).thenReturn(0);
+        when(chatRepository.purgeById(2L)).thenReturn(1);
+
+        assertEquals(0, purgeService.purgeChat(2L));
+        verify(messageRepository, times(1)).deleteBatchByChatId(2L, 100);
+        verify(chatRepository).purgeById(2L);
+    }
+
+    @Test
+    void purgeDeletedChats_continuesAfterFailureAndRecordsBacklog() {
+        when(chatRepository.findSoftDeletedIds(10)).thenReturn(List.of(3L, 4L));
+        when(messageRepository.deleteBatchByChatId(3L, 100)).thenThrow(new RuntimeException("lock timeout"));
+        when(messageRepository.deleteBatchByChatId(4L, 100)).thenReturn(5);
+        when(chatRepository.purgeById(4L)).thenReturn(1);
+        when(chatRepository.countSoftDeleted()).thenReturn(1L);
+
+        purgeService.purgeDeletedChats();
+
+        verify(chatRepository, never()).purgeById(3L);
+        verify(chatRepository).purgeById(4L);
+        assertEquals(1L, purgeService.getBacklog());
+        assertEquals(1.0, meterRegistry.get("chat.purge.backlog").gauge().value());
+        assertEquals(1L, meterRegistry.get("chat.purge.run").timer().count());
+    }
+}
@@ -3,12 +3,16 @@ package uk.gov.hmcts.reform.demo.services;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.*;
+import org.springframework.data.domain.Page;
+import uk.gov.hmcts.reform.demo.dto.MessageSearchHit;
 import uk.gov.hmcts.reform.demo.entities.Chat;
+import uk.gov.hmcts.reform.demo.entities.ChatCategory;
 import uk.gov.hmcts.reform.demo.entities.Message;
 import uk.gov.hmcts.reform.demo.entities.User;
 import uk.gov.hmcts.reform.demo.repositories.ChatRepository;
 import uk.gov.hmcts.reform.demo.repositories.MessageRepository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -24,6 +28,18 @@ class ChatServiceTest {
     @Mock
     private MessageRepository messageRepository;
 
+    @Mock
+    private ChatArchiveService chatArchiveService;
+
+    @Mock
+    private StatisticsService statisticsService;
+
+    @Mock
+    private LiveStatisticsPublisher livePublisher;
+
+    @Mock
+    private ChatCategoryService chatCategoryService;
+
     @InjectMocks
     private ChatService chatService;
 
@@ -36,6 +52,8 @@ class ChatServiceTest {
     void createChat_savesAndReturnsChat() {
         User user = new User(); user.setId(1L);
         String description = "Test chat";
+        ChatCategory category = new ChatCategory(description);
+        when(chatCategoryService.resolve(description)).thenReturn(category);
 
         // Capture the Chat passed to save
         ArgumentCaptor<Chat> captor = ArgumentCaptor.forClass(Chat.class);
@@ -49,7 +67,10 @@ class ChatServiceTest {
         Chat toSave = captor.getValue();
         assertSame(user, toSave.getUser());
         assertEquals(description, toSave.getDescription());
+        assertSame(category, toSave.getCategory());
         assertNotNull(toSave.getCreatedAt());
+        verify(statisticsService).recordChat(saved);
+        verify(livePublisher).recordChat(saved);
     }
 
     @Test
@@ -57,6 +78,7 @@ class ChatServiceTest {
         Chat chat = new Chat();
         chat.setId(2L);
         String sender = "user", content = "Hello";
+        when(chatRepository.lockById(2L)).thenReturn(Optional.of(chat));
 
         ArgumentCaptor<Message> captor = ArgumentCaptor.forClass(Message.class);
         Message saved = new Message(chat, sender, content);
@@ -73,6 +95,52 @@ class ChatServiceTest {
         assertNotNull(toSave.getCreatedAt());
     }
 
+    @Test
+    void saveMessage_toArchivedChat_promotesChatFirst() {
+        Chat chat = new Chat();
+        chat.setId(2L);
+        chat.setArchivedAt(LocalDateTime.now().minusDays(1));
+        when(chatRepository.lockById(2L)).thenReturn(Optional.of(chat));
+        doAnswer(inv -> {
+            inv.<Chat>getArgument(0).setArchivedAt(null);
+            return null;
+        }).when(chatArchiveService).promote(chat);
+        when(messageRepository.save(any(Message.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        chatService.saveMessage(chat, "user", "I'm back");
+
+        InOrder inOrder = inOrder(chatRepository, chatArchiveService, messageRepository);
+        inOrder.verify(chatRepository).lockById(2L);
+        inOrder.verify(chatArchiveService).promote(chat);
+        inOrder.verify(messageRepository).save(any(Message.class));
+        assertNull(chat.getArchivedAt());
+    }
+
+    @Test
+    void saveMessage_chatArchivedSinceItWasRead_promotesTheLockedChat() {
+        Chat stale = new Chat();
+        stale.setId(2L);
+        Chat locked = new Chat();
+        locked.setId(2L);
+        locked.setArchivedAt(LocalDateTime.now());
+        when(chatRepository.lockById(2L)).thenReturn(Optional.of(locked));
+        when(messageRepository.save(any(Message.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        Message saved = chatService.saveMessage(stale, "user", "Still there?");
+
+        verify(chatArchiveService).promote(locked);
+        assertSame(locked, saved.getChat());
+    }
+
+    @Test
+    void saveMessage_chatGone_throws() {
+        Chat chat = new Chat();
+        chat.setId(9L);
+
+        assertThrows(IllegalStateException.class, () -> chatService.saveMessage(chat, "user", "Hello"));
+        verify(messageRepository, never()).save(any());
+    }
+
     @Test
     void getChatsForUser_returnsRepositoryList() {
         User user = new User(); user.setId(3L);
@@ -96,6 +164,47 @@ class ChatServiceTest {
         verify(messageRepository).findByChat(chat);
     }
 
+    @Test
+    void getMessagesForChat_archivedChat_rehydratesFromArchive() {
+        Chat chat = new Chat();
+        chat.setId(4L);
+        chat.setArchivedAt(LocalDateTime.now());
+        List<Message> list = List.of(new Message(chat, "u", "m1"));
+        when(chatArchiveService.rehydrate(chat)).thenReturn(list);
+
+        assertSame(list, chatService.getMessagesForChat(chat));
+        verify(messageRepository, never()).findByChat(chat);
+    }
+
+    @Test
+    void searchMessages_pagesThroughRepository() {
+        User user = new User(); user.setId(9L);
+        MessageSearchHit hit = mock(MessageSearchHit.class);
+        when(messageRepository.searchByUser(9L, "refund", 2, 2L)).thenReturn(List.of(hit, hit));
+        when(messageRepository.countSearchByUser(9L, "refund")).thenReturn(5L);
+        when(chatArchiveService.withArchivedSnippets(anyList(), eq("refund"))).thenAnswer(inv -> inv.getArgument(0));
+
+        Page<MessageSearchHit> page = chatService.searchMessages(user, "refund", 1, 2);
+
+        assertEquals(2, page.getContent().size());
+        assertEquals(5L, page.getTotalElements());
+        assertEquals(1, page.getNumber());
+        verify(messageRepository).countSearchByUser(9L, "refund");
+    }
+
+    @Test
+    void searchMessages_partialFirstPage_skipsCountQuery() {
+        User user = new User(); user.setId(9L);
+        MessageSearchHit hit = mock(MessageSearchHit.class);
+        when(messageRepository.searchByUser(9L, "refund", 20, 0L)).thenReturn(List.of(hit));
+        when(chatArchiveService.withArchivedSnippets(anyList(), eq("refund"))).thenAnswer(inv -> inv.getArgument(0));
+
+        Page<MessageSearchHit> page = chatService.searchMessages(user, "refund", 0, 20);
+
+        assertEquals(1L, page.getTotalElements());
+        verify(messageRepository, never()).countSearchByUser(anyLong(), anyString());
+    }
+
     @Test
     void findChatById_returnsChatOrNull() {
         Chat chat = new Chat();
@@ -108,21 +217,16 @@ class ChatServiceTest {
     }
 
     @Test
-    void deleteChat_deletesMessagesThenChat() {
+    void deleteChat_softDeletesWithoutLoadingMessages() {
         Chat chat = new Chat();
         chat.setId(7L);
-        List<Message> msgs = List.of(
-            new Message(chat,"u","x"),
-            new Message(chat,"b","y")
-        );
-        when(messageRepository.findByChat(chat)).thenReturn(msgs);
 
         chatService.deleteChat(chat);
 
-        InOrder inOrder = inOrder(messageRepository, chatRepository);
-        inOrder.verify(messageRepository).findByChat(chat);
-        inOrder.verify(messageRepository).deleteAll(msgs);
-        inOrder.verify(chatRepository).delete(chat);
+        verifyNoInteractions(chatArchiveService);
+        verify(chatRepository).softDeleteById(eq(7L), any(LocalDateTime.class));
+        verify(chatRepository, never()).delete(any(Chat.class));
+        verifyNoInteractions(messageRepository);
     }
 
     @Test
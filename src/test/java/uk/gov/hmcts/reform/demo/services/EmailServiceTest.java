@@ -48,4 +48,29 @@ class EmailServiceTest {
         assertTrue(text.startsWith("Here is your one time password"), "Body should start correctly");
         assertTrue(text.contains(otp), "Body should contain the OTP");
     }
+
+    @Test
+    void sendAccountApprovedEmail_addressesTheUserByName() {
+        ArgumentCaptor<SimpleMailMessage> captor = ArgumentCaptor.forClass(SimpleMailMessage.class);
+
+        emailService.sendAccountApprovedEmail("user@domain.com", "alice");
+
+        verify(mailSender).send(captor.capture());
+        SimpleMailMessage msg = captor.getValue();
+        assertEquals("no-reply@example.com", msg.getFrom());
+        assertArrayEquals(new String[]{"user@domain.com"}, msg.getTo());
+        assertEquals("Account Approved", msg.getSubject());
+        assertTrue(msg.getText().startsWith("Hello alice,"));
+    }
+
+    @Test
+    void sendAccountRejectedEmail_addressesTheUserByName() {
+        ArgumentCaptor<SimpleMailMessage> captor = ArgumentCaptor.forClass(SimpleMailMessage.class);
+
+        emailService.sendAccountRejectedEmail("user@domain.com", "bob");
+
+        verify(mailSender).send(captor.capture());
+        assertEquals("Account Request Rejected", captor.getValue().getSubject());
+        assertTrue(captor.getValue().getText().contains("rejected"));
+    }
 }
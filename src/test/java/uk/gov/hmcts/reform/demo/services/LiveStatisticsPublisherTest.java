@@ -0,0 +1,260 @@
+package uk.gov.hmcts.reform.demo.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import uk.gov.hmcts.reform.demo.entities.CategoryStatistics;
+import uk.gov.hmcts.reform.demo.entities.Chat;
+import uk.gov.hmcts.reform.demo.services.LiveStatisticsPublisher.CategoryUpdate;
+import uk.gov.hmcts.reform.demo.services.LiveStatisticsPublisher.LiveUpdate;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class LiveStatisticsPublisherTest {
+
+    private static final long MAX_LAG = 10_000;
+
+    @Mock
+    private StatisticsService statisticsService;
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+    private SimpleMeterRegistry meterRegistry;
+    private LiveStatisticsPublisher publisher;
+    private CountDownLatch release;
+
+    /**
+     * Records the live updates it is sent, blocking on {@link #release} when told to, like a client that has
+     * stopped reading.
+     */
+    private final class RecordingEmitter extends SseEmitter {
+        private final BlockingQueue<LiveUpdate> sent = new LinkedBlockingQueue<>();
+        private final CountDownLatch blocked = new CountDownLatch(1);
+        private final CountDownLatch completed = new CountDownLatch(1);
+        private volatile boolean blocking;
+
+        @Override
+        public void complete() {
+            completed.countDown();
+            super.complete();
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            if (blocking) {
+                blocked.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            builder.build().stream()
+                .map(DataWithMediaType::getData)
+                .filter(LiveUpdate.class::isInstance)
+                .forEach(data -> sent.add((LiveUpdate) data));
+        }
+
+        private LiveUpdate next() throws InterruptedException {
+            LiveUpdate update = sent.poll(5, TimeUnit.SECONDS);
+            assertNotNull(update, "No update was sent");
+            return update;
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(statisticsService.getCategories()).thenReturn(List.of(
+            new CategoryStatistics("Billing", 6, null, null),
+            new CategoryStatistics("Delivery", 4, null, null)));
+        meterRegistry = new SimpleMeterRegistry();
+        release = new CountDownLatch(1);
+        publisher = publisher(2);
+    }
+
+    private LiveStatisticsPublisher publisher(int senderThreads) {
+        return new LiveStatisticsPublisher(statisticsService, meterRegistry, 60_000, 2, MAX_LAG, senderThreads,
+                                           now::get) {
+            @Override
+            SseEmitter createEmitter(long timeoutMillis) {
+                return new RecordingEmitter();
+            }
+        };
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        publisher.shutdown();
+    }
+
+    private static Chat chat(String category) {
+        Chat chat = new Chat();
+        chat.setDescription(category);
+        return chat;
+    }
+
+    @Test
+    void subscribe_sendsTheTotalsFirst() throws Exception {
+        RecordingEmitter emitter = (RecordingEmitter) publisher.subscribe();
+
+        LiveUpdate snapshot = emitter.next();
+
+        assertEquals(10, snapshot.totalChats());
+        assertEquals(6, snapshot.categories().get("Billing").chats());
+        assertEquals(60.0, snapshot.categories().get("Billing").share(), 0.0001);
+        assertEquals(List.of("Billing", "Delivery"), List.copyOf(snapshot.categories().keySet()));
+    }
+
+    @Test
+    void publish_fansOneUpdateOutToEverySubscriber() throws Exception {
+        RecordingEmitter first = (RecordingEmitter) publisher.subscribe();
+        RecordingEmitter second = (RecordingEmitter) publisher.subscribe();
+        first.next();
+        second.next();
+
+        publisher.recordChat(chat("Billing"));
+        publisher.recordChat(chat("Billing"));
+        publisher.recordChat(chat("Returns"));
+        publisher.recordSession();
+        publisher.publish();
+
+        for (RecordingEmitter emitter : List.of(first, second)) {
+            LiveUpdate update = emitter.next();
+            assertEquals(1, update.sessionsStarted());
+            assertEquals(13, update.totalChats());
+            assertEquals(2, update.categories().get("Billing").added());
+            assertEquals(8, update.categories().get("Billing").chats());
+            assertEquals(100.0 / 13, update.categories().get("Returns").share(), 0.0001);
+            assertFalse(update.categories().containsKey("Delivery"));
+        }
+        verify(statisticsService, times(1)).getCategories();
+    }
+
+    @Test
+    void publish_nothingNew_sendsNothing() throws Exception {
+        RecordingEmitter emitter = (RecordingEmitter) publisher.subscribe();
+        emitter.next();
+
+        publisher.publish();
+
+        assertNull(emitter.sent.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void publish_slowSubscriber_getsOneCoalescedUpdate() throws Exception {
+        RecordingEmitter slow = (RecordingEmitter) publisher.subscribe();
+        slow.next();
+        slow.blocking = true;
+
+        publisher.recordChat(chat("Billing"));
+        publisher.recordSession();
+        publisher.publish();
+        assertTrue(slow.blocked.await(5, TimeUnit.SECONDS));
+        // The first update is still being written, so the next three wait as one
+        for (int i = 0; i < 3; i++) {
+            now.addAndGet(1_000);
+            publisher.recordChat(chat("Billing"));
+            publisher.recordSession();
+            publisher.publish();
+        }
+        release.countDown();
+
+        assertEquals(1, slow.next().categories().get("Billing").added());
+        LiveUpdate coalesced = slow.next();
+        assertEquals(3, coalesced.categories().get("Billing").added());
+        assertEquals(10, coalesced.categories().get("Billing").chats());
+        assertEquals(3, coalesced.sessionsStarted());
+        assertEquals(14, coalesced.totalChats());
+        assertEquals(2.0, meterRegistry.counter("statistics.live.coalesced").count());
+    }
+
+    @Test
+    void publish_subscriberTooFarBehind_isDisconnected() throws Exception {
+        RecordingEmitter slow = (RecordingEmitter) publisher.subscribe();
+        slow.next();
+        slow.blocking = true;
+
+        publisher.recordChat(chat("Billing"));
+        publisher.publish();
+        assertTrue(slow.blocked.await(5, TimeUnit.SECONDS));
+        publisher.recordChat(chat("Billing"));
+        publisher.publish();
+        now.addAndGet(MAX_LAG + 1);
+        publisher.recordChat(chat("Billing"));
+        publisher.publish();
+
+        assertEquals(1.0, meterRegistry.counter("statistics.live.dropped").count());
+        assertEquals(0.0, meterRegistry.get("statistics.live.subscribers").gauge().value());
+        // Completing the emitter would wait for the blocked write, so its own sending thread does it afterwards
+        assertEquals(1, slow.completed.getCount());
+        release.countDown();
+        assertTrue(slow.completed.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void publish_subscriberBlockedOnAWrite_doesNotHoldUpTheOthers() throws Exception {
+        publisher.shutdown();
+        meterRegistry = new SimpleMeterRegistry();
+        publisher = publisher(1);
+        RecordingEmitter stalled = (RecordingEmitter) publisher.subscribe();
+        RecordingEmitter reading = (RecordingEmitter) publisher.subscribe();
+        stalled.next();
+        reading.next();
+        stalled.blocking = true;
+
+        publisher.recordChat(chat("Billing"));
+        publisher.publish();
+        assertTrue(stalled.blocked.await(5, TimeUnit.SECONDS));
+        assertEquals(11, reading.next().totalChats());
+        // The only kept sender thread is stuck writing to the stalled subscriber
+        publisher.recordChat(chat("Billing"));
+        publisher.publish();
+        assertEquals(12, reading.next().totalChats());
+        now.addAndGet(MAX_LAG + 1);
+        publisher.recordChat(chat("Billing"));
+        publisher.publish();
+
+        assertEquals(13, reading.next().totalChats());
+        assertEquals(1.0, meterRegistry.counter("statistics.live.dropped").count());
+        assertEquals(1.0, meterRegistry.get("statistics.live.subscribers").gauge().value());
+    }
+
+    @Test
+    void subscribe_overMaxSubscribers_returnsNull() {
+        assertNotNull(publisher.subscribe());
+        assertNotNull(publisher.subscribe());
+
+        assertNull(publisher.subscribe());
+    }
+
+    @Test
+    void liveUpdate_merge_addsCountsAndKeepsTheLatestTotals() {
+        LiveUpdate earlier = new LiveUpdate(1, 10, Map.of(
+            "Billing", new CategoryUpdate(1, 6, 60.0)));
+        LiveUpdate later = new LiveUpdate(2, 12, Map.of(
+            "Billing", new CategoryUpdate(1, 7, 58.3),
+            "Delivery", new CategoryUpdate(1, 5, 41.7)));
+
+        LiveUpdate merged = earlier.merge(later);
+
+        assertEquals(3, merged.sessionsStarted());
+        assertEquals(12, merged.totalChats());
+        assertEquals(new CategoryUpdate(2, 7, 58.3), merged.categories().get("Billing"));
+        assertEquals(1, merged.categories().get("Delivery").added());
+    }
+}
@@ -0,0 +1,62 @@
+package uk.gov.hmcts.reform.demo.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.LocalDate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import uk.gov.hmcts.reform.demo.repositories.MessageRepository;
+import uk.gov.hmcts.reform.demo.repositories.SessionRepository;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class PartitionMaintenanceServiceTest {
+
+    @Mock
+    private SessionRepository sessionRepository;
+
+    @Mock
+    private MessageRepository messageRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+    private PartitionMaintenanceService service;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        meterRegistry = new SimpleMeterRegistry();
+        service = new PartitionMaintenanceService(sessionRepository, messageRepository, meterRegistry, 3);
+    }
+
+    private double created(String table) {
+        return meterRegistry.get("partitions.created").tag("table", table).counter().count();
+    }
+
+    @Test
+    void createPartitions_coversThisMonthToTheMonthsAhead() {
+        LocalDate thisMonth = LocalDate.now().withDayOfMonth(1);
+        when(sessionRepository.createMonthlyPartitions(any(), any())).thenReturn(1);
+
+        service.createPartitions();
+
+        verify(sessionRepository).createMonthlyPartitions(thisMonth, thisMonth.plusMonths(3));
+        verify(messageRepository).createMonthlyPartitions(thisMonth, thisMonth.plusMonths(3));
+        assertEquals(1.0, created("sessions"));
+        assertEquals(0.0, created("messages"));
+    }
+
+    @Test
+    void createPartitions_continuesAfterATableFails() {
+        when(sessionRepository.createMonthlyPartitions(any(), any()))
+            .thenThrow(new RuntimeException("lock timeout"));
+        when(messageRepository.createMonthlyPartitions(any(), any())).thenReturn(2);
+
+        service.createPartitions();
+
+        assertEquals(0.0, created("sessions"));
+        assertEquals(2.0, created("messages"));
+    }
+}
@@ -0,0 +1,130 @@
+package uk.gov.hmcts.reform.demo.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.LocalDateTime;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import uk.gov.hmcts.reform.demo.repositories.AccountRequestRepository;
+import uk.gov.hmcts.reform.demo.repositories.PasswordResetTokenRepository;
+import uk.gov.hmcts.reform.demo.repositories.SessionRepository;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class RetentionServiceTest {
+
+    private static final int BATCH_SIZE = 100;
+
+    @Mock
+    private SessionRepository sessionRepository;
+
+    @Mock
+    private PasswordResetTokenRepository resetTokenRepository;
+
+    @Mock
+    private AccountRequestRepository accountRequestRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    private RetentionService service(int sessionKeepDays, int batchesPerRun) {
+        return new RetentionService(sessionRepository, resetTokenRepository, accountRequestRepository, meterRegistry,
+                                    BATCH_SIZE, batchesPerRun, 0, sessionKeepDays, 1, 30);
+    }
+
+    private double rows(String table) {
+        return meterRegistry.get("retention.rows").tag("table", table).counter().count();
+    }
+
+    private double lag(String table) {
+        return meterRegistry.get("retention.lag").tag("table", table).gauge().value();
+    }
+
+    @Test
+    void purge_deletesInBatchesUntilOneComesBackShort() {
+        when(sessionRepository.deleteBatchExpiredBefore(any(), eq(BATCH_SIZE))).thenReturn(100, 100, 7);
+        when(resetTokenRepository.deleteBatchExpiredBefore(any(), eq(BATCH_SIZE))).thenReturn(3);
+
+        service(30, 10).purge();
+
+        verify(sessionRepository, times(3)).deleteBatchExpiredBefore(any(), eq(BATCH_SIZE));
+        verify(resetTokenRepository, times(1)).deleteBatchExpiredBefore(any(), eq(BATCH_SIZE));
+        verify(accountRequestRepository, times(1)).deleteBatchRejectedBefore(any(), eq(BATCH_SIZE));
+        assertEquals(207.0, rows("sessions"));
+        assertEquals(3.0, rows("password_reset_tokens"));
+        assertEquals(0.0, rows("account_requests"));
+        assertEquals(1, meterRegistry.get("retention.run").timer().count());
+    }
+
+    @Test
+    void purge_dropsWholeSessionPartitionsBeforeDeletingBatches() {
+        when(sessionRepository.dropExpiredPartitions(any())).thenReturn(25_000L);
+        when(sessionRepository.deleteBatchExpiredBefore(any(), eq(BATCH_SIZE))).thenReturn(7);
+
+        service(30, 10).purge();
+
+        InOrder inOrder = inOrder(sessionRepository);
+        inOrder.verify(sessionRepository).dropExpiredPartitions(any());
+        inOrder.verify(sessionRepository).deleteBatchExpiredBefore(any(), eq(BATCH_SIZE));
+        assertEquals(25_007.0, rows("sessions"));
+    }
+
+    @Test
+    void purge_cutsOffEachTableItsOwnKeepDaysAgo() {
+        LocalDateTime before = LocalDateTime.now();
+        service(30, 10).purge();
+
+        ArgumentCaptor<LocalDateTime> sessions = ArgumentCaptor.forClass(LocalDateTime.class);
+        ArgumentCaptor<LocalDateTime> tokens = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(sessionRepository).deleteBatchExpiredBefore(sessions.capture(), eq(BATCH_SIZE));
+        verify(resetTokenRepository).deleteBatchExpiredBefore(tokens.capture(), eq(BATCH_SIZE));
+        assertFalse(sessions.getValue().isBefore(before.minusDays(30)));
+        assertTrue(sessions.getValue().isBefore(before.minusDays(29)));
+        assertFalse(tokens.getValue().isBefore(before.minusDays(1)));
+        assertTrue(tokens.getValue().isBefore(before));
+    }
+
+    @Test
+    void purge_stopsAfterTheBatchesPerRunAndReportsTheLag() {
+        when(sessionRepository.deleteBatchExpiredBefore(any(), eq(BATCH_SIZE))).thenReturn(BATCH_SIZE);
+        when(sessionRepository.findSecondsExpiredBefore(any())).thenReturn(3600L);
+
+        service(30, 4).purge();
+
+        verify(sessionRepository, times(4)).deleteBatchExpiredBefore(any(), eq(BATCH_SIZE));
+        assertEquals(400.0, rows("sessions"));
+        assertEquals(3600.0, lag("sessions"));
+        assertEquals(0.0, lag("account_requests"));
+    }
+
+    @Test
+    void purge_continuesAfterATableFails() {
+        when(sessionRepository.deleteBatchExpiredBefore(any(), anyInt()))
+            .thenThrow(new RuntimeException("lock timeout"));
+        when(accountRequestRepository.deleteBatchRejectedBefore(any(), eq(BATCH_SIZE))).thenReturn(2);
+
+        service(30, 10).purge();
+
+        verify(resetTokenRepository).deleteBatchExpiredBefore(any(), eq(BATCH_SIZE));
+        assertEquals(2.0, rows("account_requests"));
+    }
+
+    @Test
+    void purge_keepDaysOfZero_keepsTheTable() {
+        service(0, 10).purge();
+
+        verifyNoInteractions(sessionRepository);
+        assertTrue(meterRegistry.find("retention.rows").tag("table", "sessions").counters().isEmpty());
+        verify(resetTokenRepository).deleteBatchExpiredBefore(any(), eq(BATCH_SIZE));
+    }
+}
@@ -0,0 +1,164 @@
+package uk.gov.hmcts.reform.demo.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StatisticsCacheTest {
+
+    private static final long TTL = 1_000;
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+    private SimpleMeterRegistry meterRegistry;
+    private StatisticsCache cache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new StatisticsCache(new ObjectMapper(), meterRegistry, TTL, 3, 1, now::get);
+    }
+
+    @AfterEach
+    void tearDown() {
+        cache.shutdown();
+    }
+
+    @Test
+    void get_freshResult_isNotRecomputed() {
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get("test", "key", loads::incrementAndGet);
+        now.addAndGet(TTL - 1);
+        StatisticsCache.Cached<Integer> cached = cache.get("test", "key", loads::incrementAndGet);
+
+        assertEquals(1, cached.value());
+        assertEquals(TTL - 1, cached.ageMillis());
+        assertEquals(1, loads.get());
+        assertEquals(1.0, meterRegistry.counter("statistics.cache.requests", "endpoint", "test", "result", "hit")
+            .count());
+    }
+
+    @Test
+    void get_staleResult_isServedWhileOneBackgroundRefreshRuns() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch refreshed = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        cache.get("test", "key", () -> List.of(loads.incrementAndGet()));
+        now.addAndGet(TTL);
+
+        for (int i = 0; i < 5; i++) {
+            StatisticsCache.Cached<List<Integer>> stale = cache.get("test", "key", () -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                List<Integer> value = List.of(loads.incrementAndGet());
+                refreshed.countDown();
+                return value;
+            });
+            assertEquals(List.of(1), stale.value());
+        }
+        release.countDown();
+        assertTrue(refreshed.await(5, TimeUnit.SECONDS));
+
+        // The refresh lands shortly after the loader returns
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        List<Integer> value;
+        do {
+            value = cache.<List<Integer>>get("test", "key", () -> List.of(-1)).value();
+        } while (!value.equals(List.of(2)) && System.nanoTime() < deadline);
+        assertEquals(List.of(2), value);
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void get_missingKey_isComputedOnceForConcurrentRequests() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> cache.<Integer>get("test", "key", () -> {
+                    try {
+                        Thread.sleep(100);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return loads.incrementAndGet();
+                }).value()));
+            }
+            for (Future<Integer> result : results) {
+                assertEquals(1, result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void get_failedRefresh_keepsServingTheStaleResult() throws Exception {
+        cache.get("test", "key", () -> "old");
+        now.addAndGet(TTL);
+        CountDownLatch failed = new CountDownLatch(1);
+
+        cache.get("test", "key", () -> {
+            failed.countDown();
+            throw new IllegalStateException("database down");
+        });
+        assertTrue(failed.await(5, TimeUnit.SECONDS));
+
+        assertEquals("old", cache.<String>get("test", "key", () -> "old").value());
+    }
+
+    @Test
+    void etag_dependsOnlyOnTheContent() {
+        String first = cache.get("test", "a", () -> List.of("x", "y")).etag();
+        String same = cache.get("test", "b", () -> List.of("x", "y")).etag();
+        String different = cache.get("test", "c", () -> List.of("x", "z")).etag();
+
+        assertNotNull(first);
+        assertTrue(first.startsWith("\"") && first.endsWith("\""));
+        assertEquals(first, same);
+        assertNotEquals(first, different);
+    }
+
+    @Test
+    void invalidateAll_forcesARecompute() {
+        AtomicInteger loads = new AtomicInteger();
+        cache.get("test", "key", loads::incrementAndGet);
+
+        cache.invalidateAll();
+
+        assertEquals(2, cache.get("test", "key", loads::incrementAndGet).value());
+    }
+
+    @Test
+    void get_overMaxEntries_evictsTheOldestResult() {
+        AtomicInteger loads = new AtomicInteger();
+        cache.get("test", "oldest", loads::incrementAndGet);
+        for (String key : List.of("b", "c", "d")) {
+            now.incrementAndGet();
+            cache.get("test", key, () -> 0);
+        }
+
+        cache.get("test", "oldest", loads::incrementAndGet);
+
+        assertEquals(2, loads.get());
+    }
+}
@@ -0,0 +1,179 @@
+package uk.gov.hmcts.reform.demo.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import uk.gov.hmcts.reform.demo.dto.ChatExportRow;
+import uk.gov.hmcts.reform.demo.dto.SessionExportRow;
+import uk.gov.hmcts.reform.demo.repositories.ChatRepository;
+import uk.gov.hmcts.reform.demo.repositories.SessionRepository;
+import uk.gov.hmcts.reform.demo.services.StatisticsExportService.Format;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class StatisticsExportServiceTest {
+
+    private static final LocalDateTime CREATED_AT = LocalDateTime.of(2025, 3, 4, 10, 15, 30);
+
+    @Mock
+    private SessionRepository sessionRepository;
+
+    @Mock
+    private ChatRepository chatRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SimpleMeterRegistry meterRegistry;
+    private StatisticsExportService exportService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        meterRegistry = new SimpleMeterRegistry();
+        exportService = new StatisticsExportService(sessionRepository, chatRepository, transactionManager,
+                                                    meterRegistry);
+    }
+
+    private static SessionExportRow sessionRow(long id, String ageGroup) {
+        SessionExportRow row = mock(SessionExportRow.class);
+        when(row.getId()).thenReturn(id);
+        when(row.getCreatedAt()).thenReturn(CREATED_AT);
+        when(row.getUserId()).thenReturn(7L);
+        when(row.getAgeGroup()).thenReturn(ageGroup);
+        return row;
+    }
+
+    private static ChatExportRow chatRow(long id, String category) {
+        ChatExportRow row = mock(ChatExportRow.class);
+        when(row.getId()).thenReturn(id);
+        when(row.getCreatedAt()).thenReturn(CREATED_AT);
+        when(row.getUserId()).thenReturn(7L);
+        when(row.getCategory()).thenReturn(category);
+        when(row.getAgeGroup()).thenReturn("20-30");
+        return row;
+    }
+
+    @Test
+    void exportSessions_csv_writesHeaderAndRows() {
+        when(sessionRepository.streamForExport(any(), any()))
+            .thenReturn(Stream.of(sessionRow(1, "20-30"), sessionRow(2, "51+")));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long rows = exportService.exportSessions(LocalDate.of(2025, 3, 1), LocalDate.of(2025, 3, 31),
+                                                 Format.CSV, out);
+
+        assertEquals(2, rows);
+        assertEquals("id,createdAt,userId,ageGroup\r\n"
+                         + "1,2025-03-04T10:15:30,7,20-30\r\n"
+                         + "2,2025-03-04T10:15:30,7,51+\r\n",
+                     out.toString(StandardCharsets.UTF_8));
+        assertEquals(2.0, meterRegistry.counter("statistics.export.rows").count());
+    }
+
+    @Test
+    void exportSessions_coversWholeDaysOfTheRange() {
+        when(sessionRepository.streamForExport(any(), any())).thenReturn(Stream.empty());
+
+        exportService.exportSessions(LocalDate.of(2025, 3, 1), LocalDate.of(2025, 3, 31), Format.CSV,
+                                     new ByteArrayOutputStream());
+
+        verify(sessionRepository).streamForExport(LocalDateTime.of(2025, 3, 1, 0, 0),
+                                                  LocalDateTime.of(2025, 4, 1, 0, 0));
+    }
+
+    @Test
+    void exportChats_csv_quotesFieldsThatNeedIt() {
+        when(chatRepository.streamForExport(any(), any()))
+            .thenReturn(Stream.of(chatRow(1, "Billing, refunds"), chatRow(2, "The \"other\" one")));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        exportService.exportChats(LocalDate.EPOCH, LocalDate.now(), Format.CSV, out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\r\n");
+        assertEquals("id,createdAt,userId,category,ageGroup", lines[0]);
+        assertEquals("1,2025-03-04T10:15:30,7,\"Billing, refunds\",20-30", lines[1]);
+        assertEquals("2,2025-03-04T10:15:30,7,\"The \"\"other\"\" one\",20-30", lines[2]);
+    }
+
+    @Test
+    void exportChats_csv_prefixesTextThatWouldRunAsAFormula() {
+        when(chatRepository.streamForExport(any(), any())).thenReturn(Stream.of(
+            chatRow(1, "=HYPERLINK(\"http://example.com\")"), chatRow(2, "+1"), chatRow(3, "-1"),
+            chatRow(4, "@SUM(A1)"), chatRow(5, "Billing")));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        exportService.exportChats(LocalDate.EPOCH, LocalDate.now(), Format.CSV, out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\r\n");
+        assertEquals("1,2025-03-04T10:15:30,7,\"'=HYPERLINK(\"\"http://example.com\"\")\",20-30", lines[1]);
+        assertEquals("2,2025-03-04T10:15:30,7,'+1,20-30", lines[2]);
+        assertEquals("3,2025-03-04T10:15:30,7,'-1,20-30", lines[3]);
+        assertEquals("4,2025-03-04T10:15:30,7,'@SUM(A1),20-30", lines[4]);
+        assertEquals("5,2025-03-04T10:15:30,7,Billing,20-30", lines[5]);
+    }
+
+    @Test
+    void exportChats_ndjson_writesOneObjectPerLine() {
+        when(chatRepository.streamForExport(any(), any()))
+            .thenReturn(Stream.of(chatRow(1, "Billing"), chatRow(2, "Line\nbreak")));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        exportService.exportChats(LocalDate.EPOCH, LocalDate.now(), Format.NDJSON, out);
+
+        assertEquals("{\"id\":1,\"createdAt\":\"2025-03-04T10:15:30\",\"userId\":7,\"category\":\"Billing\","
+                         + "\"ageGroup\":\"20-30\"}\n"
+                         + "{\"id\":2,\"createdAt\":\"2025-03-04T10:15:30\",\"userId\":7,\"category\":\"Line\\nbreak\","
+                         + "\"ageGroup\":\"20-30\"}\n",
+                     out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void exportSessions_empty_writesOnlyTheHeader() {
+        when(sessionRepository.streamForExport(any(), any())).thenReturn(Stream.empty());
+        ByteArrayOutputStream csv = new ByteArrayOutputStream();
+        ByteArrayOutputStream ndjson = new ByteArrayOutputStream();
+
+        exportService.exportSessions(LocalDate.EPOCH, LocalDate.now(), Format.CSV, csv);
+        when(sessionRepository.streamForExport(any(), any())).thenReturn(Stream.empty());
+        exportService.exportSessions(LocalDate.EPOCH, LocalDate.now(), Format.NDJSON, ndjson);
+
+        assertEquals("id,createdAt,userId,ageGroup\r\n", csv.toString(StandardCharsets.UTF_8));
+        assertEquals("", ndjson.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void export_clientGoesAway_closesTheCursorAndRollsBack() {
+        AtomicBoolean closed = new AtomicBoolean();
+        SessionExportRow row = sessionRow(1, "20-30");
+        when(sessionRepository.streamForExport(any(), any()))
+            .thenReturn(Stream.generate(() -> row).onClose(() -> closed.set(true)));
+        OutputStream broken = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        };
+
+        assertThrows(UncheckedIOException.class, () -> exportService.exportSessions(
+            LocalDate.EPOCH, LocalDate.now(), Format.CSV, broken));
+        assertTrue(closed.get());
+        verify(transactionManager).rollback(any());
+    }
+}
@@ -0,0 +1,152 @@
+package uk.gov.hmcts.reform.demo.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import uk.gov.hmcts.reform.demo.entities.RollupWatermark;
+import uk.gov.hmcts.reform.demo.repositories.StatisticsRollupRepository;
+import uk.gov.hmcts.reform.demo.services.StatisticsRollupService.Granularity;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class StatisticsRollupServiceTest {
+
+    @Mock
+    private StatisticsRollupRepository rollupRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private StatisticsRollupService rollupService;
+    private RollupWatermark sessions;
+    private RollupWatermark chats;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        sessions = new RollupWatermark(StatisticsRollupService.SESSIONS, 10, 15);
+        chats = new RollupWatermark(StatisticsRollupService.CHATS, 20, 20);
+        when(rollupRepository.lockBySource(StatisticsRollupService.SESSIONS)).thenReturn(Optional.of(sessions));
+        when(rollupRepository.lockBySource(StatisticsRollupService.CHATS)).thenReturn(Optional.of(chats));
+        rollupService = new StatisticsRollupService(rollupRepository, transactionManager, new SimpleMeterRegistry(),
+                                                    30);
+    }
+
+    @Test
+    void rollUp_addsRowsUpToTheIdSeenLastRun() {
+        when(rollupRepository.findMaxSessionId()).thenReturn(18L);
+        when(rollupRepository.findMaxChatId()).thenReturn(20L);
+
+        rollupService.rollUp();
+
+        verify(rollupRepository).rollUpSessionsHourly(10, 15);
+        verify(rollupRepository).rollUpSessionsDaily(10, 15);
+        assertEquals(15, sessions.getLastId());
+        assertEquals(18, sessions.getSeenId());
+        assertNotNull(sessions.getRolledUpAt());
+    }
+
+    @Test
+    void rollUp_nothingNew_onlyMovesTheWatermark() {
+        when(rollupRepository.findMaxSessionId()).thenReturn(15L);
+        when(rollupRepository.findMaxChatId()).thenReturn(25L);
+
+        rollupService.rollUp();
+
+        verify(rollupRepository, never()).rollUpChatsHourly(anyLong(), anyLong());
+        verify(rollupRepository, never()).rollUpChatsDaily(anyLong(), anyLong());
+        assertEquals(20, chats.getLastId());
+        assertEquals(25, chats.getSeenId());
+    }
+
+    @Test
+    void rollUp_createsMissingWatermark() {
+        when(rollupRepository.lockBySource(StatisticsRollupService.CHATS)).thenReturn(Optional.empty());
+        when(rollupRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(rollupRepository.findMaxChatId()).thenReturn(7L);
+
+        rollupService.rollUp();
+
+        verify(rollupRepository, never()).rollUpChatsHourly(anyLong(), anyLong());
+        verify(rollupRepository, atLeastOnce()).save(argThat(
+            watermark -> StatisticsRollupService.CHATS.equals(watermark.getSource())
+                && watermark.getLastId() == 0 && watermark.getSeenId() == 7));
+    }
+
+    @Test
+    void rollUp_failure_leavesTheWatermarkForTheNextRun() {
+        when(rollupRepository.rollUpSessionsHourly(anyLong(), anyLong()))
+            .thenThrow(new IllegalStateException("database down"));
+
+        assertDoesNotThrow(() -> rollupService.rollUp());
+
+        verify(rollupRepository, never()).save(sessions);
+        verify(transactionManager).rollback(any());
+    }
+
+    @Test
+    void rebuild_recomputesChatsAndTheSessionsRetentionKeeps() {
+        when(rollupRepository.findMaxSessionId()).thenReturn(30L);
+        when(rollupRepository.findMaxChatId()).thenReturn(40L);
+
+        rollupService.rebuild();
+
+        ArgumentCaptor<LocalDateTime> from = ArgumentCaptor.forClass(LocalDateTime.class);
+        InOrder inOrder = inOrder(rollupRepository);
+        inOrder.verify(rollupRepository).rollUpSessionsHourly(10, 15);
+        inOrder.verify(rollupRepository).clearSessionsHourlyFrom(from.capture());
+        inOrder.verify(rollupRepository).rollUpSessionsHourlySince(from.getValue(), 15);
+        verify(rollupRepository).rollUpSessionsDaily(10, 15);
+        verify(rollupRepository).clearSessionsDailyFrom(from.getValue().toLocalDate());
+        verify(rollupRepository).rollUpSessionsDailySince(from.getValue(), 15);
+        assertTrue(from.getValue().isAfter(LocalDateTime.now().minusDays(30)));
+        verify(rollupRepository).clearChatsHourly();
+        verify(rollupRepository).clearChatsDaily();
+        verify(rollupRepository).rollUpChatsDaily(0, 20);
+        // Only up to the IDs the last run saw; the rest are left to the next runs, as in a scheduled run
+        assertEquals(15, sessions.getLastId());
+        assertEquals(30, sessions.getSeenId());
+        assertEquals(20, chats.getLastId());
+        assertEquals(40, chats.getSeenId());
+    }
+
+    @Test
+    void sessionsRebuiltFrom_theFirstWholeDayRetentionKeeps() {
+        LocalDateTime now = LocalDateTime.of(2025, 3, 31, 15, 0);
+
+        assertEquals(LocalDateTime.of(2025, 3, 2, 0, 0), StatisticsRollupService.sessionsRebuiltFrom(now, 30));
+        assertEquals(LocalDateTime.of(2025, 3, 2, 0, 0),
+                     StatisticsRollupService.sessionsRebuiltFrom(now.withHour(0), 30));
+        assertEquals(LocalDate.EPOCH.atStartOfDay(), StatisticsRollupService.sessionsRebuiltFrom(now, 0));
+    }
+
+    @Test
+    void getActivity_readsTheTableForTheGranularity() {
+        LocalDate from = LocalDate.of(2025, 1, 1);
+        LocalDate to = LocalDate.of(2025, 1, 2);
+
+        rollupService.getSessionActivity(from, to, Granularity.DAY);
+        rollupService.getSessionActivity(from, to, Granularity.HOUR);
+        rollupService.getChatActivity(from, to, Granularity.DAY);
+        rollupService.getChatActivity(from, to, Granularity.HOUR);
+
+        LocalDateTime lastHour = to.atTime(LocalTime.MAX);
+        verify(rollupRepository).findSessionsDaily(from, to);
+        verify(rollupRepository).findSessionsHourly(from.atStartOfDay(), lastHour);
+        verify(rollupRepository).findChatsDaily(from, to);
+        verify(rollupRepository).findChatsHourly(from.atStartOfDay(), lastHour);
+    }
+}
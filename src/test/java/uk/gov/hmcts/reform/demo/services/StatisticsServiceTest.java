@@ -0,0 +1,335 @@
+package uk.gov.hmcts.reform.demo.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import uk.gov.hmcts.reform.demo.dto.CategorySketchRow;
+import uk.gov.hmcts.reform.demo.dto.CategoryUserDayRow;
+import uk.gov.hmcts.reform.demo.dto.ChatCategoryRow;
+import uk.gov.hmcts.reform.demo.dto.UserBirthDateRow;
+import uk.gov.hmcts.reform.demo.entities.Chat;
+import uk.gov.hmcts.reform.demo.entities.ChatCategory;
+import uk.gov.hmcts.reform.demo.entities.User;
+import uk.gov.hmcts.reform.demo.repositories.ChatRepository;
+import uk.gov.hmcts.reform.demo.repositories.StatisticsSummaryRepository;
+import uk.gov.hmcts.reform.demo.repositories.UserRepository;
+import uk.gov.hmcts.reform.demo.utils.HyperLogLog;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class StatisticsServiceTest {
+
+    private static final int BILLING = 1;
+
+    @Mock
+    private StatisticsSummaryRepository summaryRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private ChatRepository chatRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private StatisticsService statisticsService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        when(summaryRepository.insertSketchIfAbsent(any(), any(), any(), any())).thenReturn(1);
+        statisticsService = new StatisticsService(summaryRepository, userRepository, chatRepository, transactionManager,
+                                                  new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private static User user(long id, LocalDate dateOfBirth) {
+        User user = new User();
+        user.setId(id);
+        user.setDateOfBirth(dateOfBirth);
+        return user;
+    }
+
+    private static Chat chat(User user, String description, LocalDateTime createdAt) {
+        Chat chat = new Chat(user, description);
+        ChatCategory category = new ChatCategory(description);
+        category.setId(BILLING);
+        chat.setCategory(category);
+        chat.setCreatedAt(createdAt);
+        return chat;
+    }
+
+    @Test
+    void flush_addsAccumulatedChatsPerCategory() {
+        User user = user(1L, LocalDate.of(1990, 6, 1));
+        LocalDateTime t1 = LocalDateTime.of(2024, 5, 1, 9, 0);
+        LocalDateTime t2 = t1.plusHours(3);
+
+        statisticsService.recordChat(chat(user, "Billing", t2));
+        statisticsService.recordChat(chat(user, "Billing", t1));
+        statisticsService.flush();
+
+        verify(summaryRepository).addCategoryChats(BILLING, 2, t1, t2);
+        // 2024 - 1990 = 34, recorded once however many chats the user has in the category
+        verify(summaryRepository).addCategoryUser(BILLING, 1L, "31-40");
+    }
+
+    @Test
+    void flush_skipsChatsWithoutACategory() {
+        Chat chat = new Chat(user(1L, LocalDate.of(1990, 6, 1)), "Billing");
+        chat.setCreatedAt(LocalDateTime.of(2024, 5, 1, 9, 0));
+
+        statisticsService.recordChat(chat);
+        statisticsService.flush();
+
+        verify(summaryRepository, never()).addCategoryChats(any(), anyLong(), any(), any());
+        verify(summaryRepository, never()).addCategoryUser(any(), any(), any());
+    }
+
+    @Test
+    void flush_onlyWritesNewCountsOnTheNextRun() {
+        User user = user(1L, LocalDate.of(1990, 6, 1));
+        LocalDateTime t1 = LocalDateTime.of(2024, 5, 1, 9, 0);
+
+        statisticsService.recordChat(chat(user, "Billing", t1));
+        statisticsService.flush();
+        statisticsService.flush();
+
+        verify(summaryRepository, times(1)).addCategoryChats(eq(BILLING), anyLong(), any(), any());
+    }
+
+    @Test
+    void flush_withNothingRecorded_doesNotOpenTransaction() {
+        statisticsService.flush();
+
+        verifyNoInteractions(summaryRepository, transactionManager);
+    }
+
+    @Test
+    void flush_failure_keepsCountsForNextRun() {
+        User user = user(1L, LocalDate.of(1990, 6, 1));
+        LocalDateTime t1 = LocalDateTime.of(2024, 5, 1, 9, 0);
+        when(summaryRepository.addCategoryChats(any(), anyLong(), any(), any()))
+            .thenThrow(new IllegalStateException("database down"))
+            .thenReturn(1);
+
+        statisticsService.recordChat(chat(user, "Billing", t1));
+        statisticsService.flush();
+        statisticsService.flush();
+
+        verify(summaryRepository, times(2)).addCategoryChats(BILLING, 1, t1, t1);
+    }
+
+    @Test
+    void recordChat_insideTransaction_waitsForCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        User user = user(1L, LocalDate.of(1990, 6, 1));
+
+        statisticsService.recordChat(chat(user, "Billing", LocalDateTime.of(2024, 5, 1, 9, 0)));
+        statisticsService.flush();
+        verify(summaryRepository, never()).addCategoryChats(any(), anyLong(), any(), any());
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        TransactionSynchronizationManager.clearSynchronization();
+        statisticsService.flush();
+        verify(summaryRepository).addCategoryChats(eq(BILLING), eq(1L), any(), any());
+    }
+
+    @Test
+    void rebuild_dropsPendingCountsAndRecomputesTables() {
+        when(summaryRepository.streamCategoryUserDays()).thenReturn(Stream.empty());
+        User user = user(1L, LocalDate.of(1990, 6, 1));
+        statisticsService.recordChat(chat(user, "Billing", LocalDateTime.of(2024, 5, 1, 9, 0)));
+
+        statisticsService.rebuild();
+        statisticsService.flush();
+
+        verify(summaryRepository).clearCategoryStatistics();
+        verify(summaryRepository).rebuildCategoryStatistics(anyLong());
+        verify(summaryRepository).rebuildCategoryUsers();
+        verify(summaryRepository).rebuildCategoryAgeGroups();
+        verify(summaryRepository).clearSketches();
+        verify(summaryRepository, never()).addCategoryChats(any(), anyLong(), any(), any());
+        verify(summaryRepository, never()).addCategoryUser(any(), any(), any());
+    }
+
+    @Test
+    void rebuild_keepsOnlyTheChatsCountedWhileItRanThatItDidNotInclude() {
+        when(summaryRepository.streamCategoryUserDays()).thenReturn(Stream.empty());
+        when(chatRepository.findMaxId()).thenReturn(10L);
+        User user = user(1L, LocalDate.of(1990, 6, 1));
+        LocalDateTime t1 = LocalDateTime.of(2024, 5, 1, 9, 0);
+        Chat included = chat(user, "Billing", t1);
+        included.setId(10L);
+        Chat after = chat(user, "Billing", t1.plusHours(1));
+        after.setId(11L);
+        // Both commit while the rebuild runs; only the first is within the chats it counts
+        when(summaryRepository.rebuildCategoryStatistics(10L)).thenAnswer(invocation -> {
+            statisticsService.recordChat(included);
+            statisticsService.recordChat(after);
+            return 1;
+        });
+
+        statisticsService.rebuild();
+        statisticsService.flush();
+
+        verify(summaryRepository).addCategoryChats(BILLING, 1, t1.plusHours(1), t1.plusHours(1));
+    }
+
+    @Test
+    void rebuild_failure_keepsPendingCountsForNextFlush() {
+        when(summaryRepository.rebuildCategoryStatistics(anyLong()))
+            .thenThrow(new IllegalStateException("database down"));
+        User user = user(1L, LocalDate.of(1990, 6, 1));
+        LocalDateTime t1 = LocalDateTime.of(2024, 5, 1, 9, 0);
+        statisticsService.recordChat(chat(user, "Billing", t1));
+
+        assertThrows(IllegalStateException.class, statisticsService::rebuild);
+        statisticsService.flush();
+
+        verify(summaryRepository).addCategoryChats(BILLING, 1, t1, t1);
+        verify(summaryRepository).addCategoryUser(BILLING, 1L, "31-40");
+    }
+
+    @Test
+    void flush_writesOneSketchPerCategoryAgeGroupAndDay() {
+        LocalDateTime t1 = LocalDateTime.of(2024, 5, 1, 9, 0);
+        statisticsService.recordChat(chat(user(1L, LocalDate.of(1990, 6, 1)), "Billing", t1));
+        statisticsService.recordChat(chat(user(2L, LocalDate.of(1988, 6, 1)), "Billing", t1.plusHours(1)));
+        statisticsService.recordChat(chat(user(1L, LocalDate.of(1990, 6, 1)), "Billing", t1.plusHours(2)));
+        statisticsService.flush();
+
+        ArgumentCaptor<byte[]> sketch = ArgumentCaptor.forClass(byte[].class);
+        verify(summaryRepository).insertSketchIfAbsent(
+            eq(BILLING), eq("31-40"), eq(LocalDate.of(2024, 5, 1)), sketch.capture());
+        assertEquals(2, HyperLogLog.fromBytes(sketch.getValue()).estimate());
+        verify(summaryRepository, never()).lockSketch(any(), any(), any());
+    }
+
+    @Test
+    void flush_existingSketch_isMergedUnderLock() {
+        LocalDate day = LocalDate.of(2024, 5, 1);
+        HyperLogLog stored = new HyperLogLog();
+        stored.add(5L);
+        when(summaryRepository.insertSketchIfAbsent(any(), any(), any(), any())).thenReturn(0);
+        when(summaryRepository.lockSketch(BILLING, "31-40", day)).thenReturn(stored.toBytes());
+
+        statisticsService.recordChat(chat(user(1L, LocalDate.of(1990, 6, 1)), "Billing", day.atTime(9, 0)));
+        statisticsService.flush();
+
+        ArgumentCaptor<byte[]> merged = ArgumentCaptor.forClass(byte[].class);
+        verify(summaryRepository).updateSketch(eq(BILLING), eq("31-40"), eq(day), merged.capture());
+        assertEquals(2, HyperLogLog.fromBytes(merged.getValue()).estimate());
+    }
+
+    @Test
+    void flush_failure_keepsSketchesForNextRun() {
+        when(summaryRepository.addCategoryChats(any(), anyLong(), any(), any()))
+            .thenThrow(new IllegalStateException("database down"))
+            .thenReturn(1);
+
+        statisticsService.recordChat(chat(user(1L, LocalDate.of(1990, 6, 1)), "Billing",
+                                          LocalDateTime.of(2024, 5, 1, 9, 0)));
+        statisticsService.flush();
+        statisticsService.recordChat(chat(user(2L, LocalDate.of(1990, 6, 1)), "Billing",
+                                          LocalDateTime.of(2024, 5, 1, 10, 0)));
+        statisticsService.flush();
+
+        ArgumentCaptor<byte[]> sketch = ArgumentCaptor.forClass(byte[].class);
+        verify(summaryRepository).insertSketchIfAbsent(eq(BILLING), eq("31-40"), any(), sketch.capture());
+        assertEquals(2, HyperLogLog.fromBytes(sketch.getValue()).estimate());
+    }
+
+    @Test
+    void estimateCategoryAgeGroups_mergesDaysWithoutCountingUsersTwice() {
+        LocalDate from = LocalDate.of(2024, 5, 1);
+        LocalDate to = LocalDate.of(2024, 5, 31);
+        HyperLogLog firstDay = new HyperLogLog();
+        HyperLogLog secondDay = new HyperLogLog();
+        for (long id = 1; id <= 300; id++) {
+            firstDay.add(id);
+            secondDay.add(id + 200);
+        }
+        when(summaryRepository.findSketches(from, to)).thenReturn(List.of(
+            sketchRow("Billing", "20-30", firstDay), sketchRow("Billing", "20-30", secondDay),
+            sketchRow("Billing", "51+", firstDay)));
+
+        Map<String, Map<String, Long>> estimates = statisticsService.estimateCategoryAgeGroups(from, to);
+
+        // 500 distinct users across the two days, within the sketch's error
+        assertEquals(500, estimates.get("Billing").get("20-30").doubleValue(), 500 * 0.05);
+        assertEquals(300, estimates.get("Billing").get("51+").doubleValue(), 300 * 0.05);
+    }
+
+    @Test
+    void backfillSketches_onlyWhenNoneAreStored() {
+        CategoryUserDayRow row = mock(CategoryUserDayRow.class);
+        when(row.getCategoryId()).thenReturn(BILLING);
+        when(row.getAgeGroup()).thenReturn("20-30");
+        when(row.getDay()).thenReturn(LocalDate.of(2024, 5, 1));
+        when(row.getUserId()).thenReturn(1L);
+        when(summaryRepository.existsAnySketch()).thenReturn(false, true);
+        when(summaryRepository.streamCategoryUserDays()).thenAnswer(invocation -> Stream.of(row));
+
+        statisticsService.backfillSketches();
+        statisticsService.backfillSketches();
+
+        verify(summaryRepository, times(1)).streamCategoryUserDays();
+        verify(summaryRepository).insertSketchIfAbsent(eq(BILLING), eq("20-30"), eq(LocalDate.of(2024, 5, 1)), any());
+    }
+
+    private static CategorySketchRow sketchRow(String category, String ageGroup, HyperLogLog sketch) {
+        CategorySketchRow row = mock(CategorySketchRow.class);
+        when(row.getCategory()).thenReturn(category);
+        when(row.getAgeGroup()).thenReturn(ageGroup);
+        when(row.getSketch()).thenReturn(sketch.toBytes());
+        return row;
+    }
+
+    @Test
+    void recomputeCategoryBreakdown_streamsUsersThenChatsAndClosesBoth() {
+        UserBirthDateRow user = mock(UserBirthDateRow.class);
+        when(user.getId()).thenReturn(1L);
+        when(user.getDateOfBirth()).thenReturn(LocalDate.of(1990, 6, 1));
+        ChatCategoryRow chat = mock(ChatCategoryRow.class);
+        when(chat.getUserId()).thenReturn(1L);
+        when(chat.getCategory()).thenReturn("Billing");
+        // 29 at the chat, whatever their age today
+        when(chat.getCreatedAt()).thenReturn(LocalDateTime.of(2020, 1, 1, 9, 0));
+
+        boolean[] closed = new boolean[2];
+        when(userRepository.count()).thenReturn(1L);
+        when(userRepository.streamBirthDates()).thenReturn(Stream.of(user).onClose(() -> closed[0] = true));
+        when(chatRepository.streamCategories()).thenReturn(Stream.of(chat, chat).onClose(() -> closed[1] = true));
+
+        Map<String, Map<String, Double>> breakdown = statisticsService.recomputeCategoryBreakdown(6);
+
+        assertEquals(100.0, breakdown.get("Billing").get("20-30"));
+        assertTrue(closed[0]);
+        assertTrue(closed[1]);
+        verifyNoInteractions(summaryRepository);
+    }
+}
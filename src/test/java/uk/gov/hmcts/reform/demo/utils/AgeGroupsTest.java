@@ -0,0 +1,31 @@
+package uk.gov.hmcts.reform.demo.utils;
+
+import java.time.LocalDate;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AgeGroupsTest {
+
+    private static final LocalDate ON = LocalDate.of(2024, 6, 1);
+
+    @Test
+    void of_usesTheAgeInWholeYearsOnTheDay() {
+        assertEquals("under 20", AgeGroups.of(LocalDate.of(2004, 6, 2), ON));
+        assertEquals("20-30", AgeGroups.of(LocalDate.of(2004, 6, 1), ON));
+        assertEquals("20-30", AgeGroups.of(LocalDate.of(1993, 6, 2), ON));
+        assertEquals("31-40", AgeGroups.of(LocalDate.of(1993, 6, 1), ON));
+        assertEquals("41-50", AgeGroups.of(LocalDate.of(1973, 6, 2), ON));
+        assertEquals("51+", AgeGroups.of(LocalDate.of(1973, 6, 1), ON));
+    }
+
+    @Test
+    void bucket_isThePositionOfTheAgeGroup() {
+        assertEquals(AgeGroups.UNDER_20_BUCKET, AgeGroups.bucket(LocalDate.of(2010, 1, 1), ON));
+        for (int bucket = 0; bucket < AgeGroups.ALL.size(); bucket++) {
+            LocalDate dateOfBirth = ON.minusYears(new int[] {10, 25, 35, 45, 60}[bucket]);
+            assertEquals(bucket, AgeGroups.bucket(dateOfBirth, ON));
+            assertEquals(AgeGroups.ALL.get(bucket), AgeGroups.of(dateOfBirth, ON));
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package uk.gov.hmcts.reform.demo.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BloomFilterTest {
+
+    private static BloomFilter filterOf(String prefix, int count, double falsePositiveRate) {
+        BloomFilter filter = new BloomFilter(count, falsePositiveRate);
+        for (int i = 0; i < count; i++) {
+            filter.put(prefix + i);
+        }
+        return filter;
+    }
+
+    @Test
+    void mightContain_isTrueForEveryValueAdded() {
+        BloomFilter filter = filterOf("user", 50_000, 0.01);
+
+        for (int i = 0; i < 50_000; i++) {
+            assertTrue(filter.mightContain("user" + i), "user" + i);
+        }
+    }
+
+    @Test
+    void falsePositiveRate_staysNearTheTargetAtCapacity() {
+        BloomFilter filter = filterOf("user", 100_000, 0.01);
+
+        int falsePositives = 0;
+        int checks = 200_000;
+        for (int i = 0; i < checks; i++) {
+            if (filter.mightContain("someone.else" + i + "@example.com")) {
+                falsePositives++;
+            }
+        }
+        double rate = (double) falsePositives / checks;
+        assertTrue(rate < 0.015, "false positive rate " + rate);
+        assertEquals(0.01, filter.expectedFalsePositiveRate(), 0.003);
+    }
+
+    @Test
+    void sizing_followsTheStandardFormulas() {
+        BloomFilter filter = new BloomFilter(1_000, 0.01);
+
+        // 9.59 bits and 7 hashes per value at 1%, rounded up to whole words
+        assertEquals(9_600, filter.getBits());
+        assertEquals(7, filter.getHashFunctions());
+        assertEquals(0, filter.expectedFalsePositiveRate());
+        assertFalse(filter.mightContain("anyone"));
+    }
+
+    @Test
+    void put_fromManyThreads_losesNoValues() throws InterruptedException {
+        BloomFilter filter = new BloomFilter(80_000, 0.01);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int thread = t;
+            threads.add(Thread.ofPlatform().start(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    filter.put("t" + thread + "-" + i);
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        for (int t = 0; t < 8; t++) {
+            for (int i = 0; i < 10_000; i++) {
+                assertTrue(filter.mightContain("t" + t + "-" + i));
+            }
+        }
+        assertEquals(0.01, filter.expectedFalsePositiveRate(), 0.003);
+    }
+
+    @Test
+    void constructor_rejectsInvalidSizes() {
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(0, 0.01));
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(100, 0));
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(100, 1));
+    }
+}
@@ -0,0 +1,106 @@
+package uk.gov.hmcts.reform.demo.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HyperLogLogTest {
+
+    // Documented relative standard error at the default precision: 1.04 / sqrt(4096)
+    private static final double STANDARD_ERROR = 1.04 / Math.sqrt(1 << HyperLogLog.DEFAULT_PRECISION);
+
+    private static HyperLogLog sketchOf(long from, long count) {
+        HyperLogLog sketch = new HyperLogLog();
+        for (long value = from; value < from + count; value++) {
+            sketch.add(value);
+        }
+        return sketch;
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1_000, 10_000, 100_000, 1_000_000})
+    void estimate_staysWithinTheDocumentedErrorBound(int cardinality) {
+        int trials = 10;
+        double squaredErrors = 0;
+        for (int trial = 0; trial < trials; trial++) {
+            long estimate = sketchOf(trial * 10_000_000L + 1, cardinality).estimate();
+            double error = (estimate - cardinality) / (double) cardinality;
+            // Three standard errors for any single sketch
+            assertTrue(Math.abs(error) < 3 * STANDARD_ERROR,
+                       "estimate " + estimate + " for " + cardinality + " is off by " + error);
+            squaredErrors += error * error;
+        }
+        // And about one standard error on average, with slack for the small number of trials
+        assertTrue(Math.sqrt(squaredErrors / trials) < 1.5 * STANDARD_ERROR);
+    }
+
+    @Test
+    void estimate_smallCardinalitiesAreExact() {
+        assertEquals(0, new HyperLogLog().estimate());
+        assertEquals(1, sketchOf(42, 1).estimate());
+        assertEquals(50, sketchOf(1, 50).estimate());
+    }
+
+    @Test
+    void add_sameValueTwice_isCountedOnce() {
+        HyperLogLog sketch = sketchOf(1, 1_000);
+        HyperLogLog again = sketchOf(1, 1_000);
+        again.merge(sketchOf(1, 1_000));
+
+        assertEquals(sketch, again);
+    }
+
+    @Test
+    void merge_givesTheSketchOfTheUnion() {
+        HyperLogLog firstDay = sketchOf(1, 60_000);
+        HyperLogLog secondDay = sketchOf(40_000, 60_000);
+
+        HyperLogLog merged = new HyperLogLog().merge(firstDay).merge(secondDay);
+
+        assertEquals(sketchOf(1, 99_999), merged);
+        assertEquals(99_999, merged.estimate(), 99_999 * 3 * STANDARD_ERROR);
+    }
+
+    @Test
+    void merge_differentPrecisions_throws() {
+        assertThrows(IllegalArgumentException.class, () -> new HyperLogLog(12).merge(new HyperLogLog(10)));
+    }
+
+    @Test
+    void toBytes_smallSketchIsSparse() {
+        HyperLogLog sketch = sketchOf(1, 10);
+
+        byte[] bytes = sketch.toBytes();
+
+        assertEquals(2 + 10 * 3, bytes.length);
+        assertEquals(sketch, HyperLogLog.fromBytes(bytes));
+    }
+
+    @Test
+    void toBytes_largeSketchPacksRegistersIntoSixBits() {
+        HyperLogLog sketch = sketchOf(1, 100_000);
+
+        byte[] bytes = sketch.toBytes();
+
+        assertEquals(2 + 4096 * 6 / 8, bytes.length);
+        assertEquals(sketch, HyperLogLog.fromBytes(bytes));
+        assertEquals(sketch.estimate(), HyperLogLog.fromBytes(bytes).estimate());
+    }
+
+    @Test
+    void fromBytes_rejectsCorruptInput() {
+        assertThrows(IllegalArgumentException.class, () -> HyperLogLog.fromBytes(null));
+        assertThrows(IllegalArgumentException.class, () -> HyperLogLog.fromBytes(new byte[] {9, 12}));
+        assertThrows(IllegalArgumentException.class, () -> HyperLogLog.fromBytes(new byte[] {0, 12, 0, 1}));
+        assertThrows(IllegalArgumentException.class, () -> HyperLogLog.fromBytes(new byte[] {1, 12, 0}));
+        assertThrows(IllegalArgumentException.class, () -> HyperLogLog.fromBytes(new byte[] {0, 12, 0, 1, 60}));
+    }
+
+    @Test
+    void constructor_rejectsUnsupportedPrecision() {
+        assertThrows(IllegalArgumentException.class, () -> new HyperLogLog(3));
+        assertThrows(IllegalArgumentException.class, () -> new HyperLogLog(17));
+    }
+}
@@ -0,0 +1,54 @@
+package uk.gov.hmcts.reform.demo.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LongIntHashMapTest {
+
+    @Test
+    void get_absentKey_returnsDefault() {
+        LongIntHashMap map = new LongIntHashMap(4);
+
+        assertEquals(-1, map.get(42L, -1));
+        assertEquals(0, map.size());
+    }
+
+    @Test
+    void put_replacesExistingValue() {
+        LongIntHashMap map = new LongIntHashMap(4);
+        map.put(7L, 1);
+        map.put(7L, 2);
+
+        assertEquals(2, map.get(7L, -1));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    void zeroAndNegativeKeys_areStoredLikeAnyOther() {
+        LongIntHashMap map = new LongIntHashMap(4);
+        map.put(0L, 10);
+        map.put(-5L, 20);
+        map.put(Long.MIN_VALUE, 30);
+
+        assertEquals(10, map.get(0L, -1));
+        assertEquals(20, map.get(-5L, -1));
+        assertEquals(30, map.get(Long.MIN_VALUE, -1));
+        assertEquals(3, map.size());
+    }
+
+    @Test
+    void grows_andKeepsEveryEntry() {
+        LongIntHashMap map = new LongIntHashMap(1);
+        for (int i = 0; i < 10_000; i++) {
+            map.put(i * 1024L, i);
+        }
+
+        assertEquals(10_000, map.size());
+        assertTrue(map.capacity() >= 20_000);
+        for (int i = 0; i < 10_000; i++) {
+            assertEquals(i, map.get(i * 1024L, -1));
+        }
+        assertEquals(-1, map.get(1L, -1));
+    }
+}